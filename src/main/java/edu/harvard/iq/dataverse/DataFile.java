@@ -25,6 +25,7 @@ import java.util.Objects;
 import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.nio.file.Files;
+import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.Arrays;
 import java.util.HashMap;
@@ -148,6 +149,14 @@ public class DataFile extends DvObject implements Comparable {
     @Column(nullable = false)
     private String checksumValue;
 
+    /**
+     * When the physical file was last found to match {@link #checksumValue}
+     * (see {@link FileUtil#validateDataFileChecksum(DataFile)}); cleared when
+     * the checksum changes.
+     */
+    @Column(nullable = true)
+    private Timestamp checksumValidationTime;
+
     
     /* start: FILE REPLACE ATTRIBUTES */
     
@@ -624,6 +633,9 @@ public class DataFile extends DvObject implements Comparable {
     }
 
     public void setChecksumType(ChecksumType checksumType) {
+        if (!Objects.equals(this.checksumType, checksumType)) {
+            this.checksumValidationTime = null;
+        }
         this.checksumType = checksumType;
     }
 
@@ -632,9 +644,20 @@ public class DataFile extends DvObject implements Comparable {
     }
 
     public void setChecksumValue(String checksumValue) {
+        if (!Objects.equals(this.checksumValue, checksumValue)) {
+            this.checksumValidationTime = null;
+        }
         this.checksumValue = checksumValue;
     }
 
+    public Timestamp getChecksumValidationTime() {
+        return checksumValidationTime;
+    }
+
+    public void setChecksumValidationTime(Timestamp checksumValidationTime) {
+        this.checksumValidationTime = checksumValidationTime;
+    }
+
     public String getOriginalChecksumType() {
         return BundleUtil.getStringFromBundle("file.originalChecksumType", Arrays.asList(this.checksumType.toString()) );
     }
@@ -3,7 +3,6 @@ package edu.harvard.iq.dataverse;
 import edu.harvard.iq.dataverse.authorization.AccessRequest;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
-import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.harvest.client.HarvestingClient;
 import edu.harvard.iq.dataverse.ingest.IngestServiceBean;
@@ -24,13 +23,21 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.Queue;
 import java.util.UUID;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.Future;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.ejb.TransactionAttribute;
 import javax.ejb.TransactionAttributeType;
+import javax.enterprise.concurrent.ManagedExecutorService;
 import javax.inject.Named;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -64,9 +71,21 @@ public class DataFileServiceBean implements java.io.Serializable {
     
     @EJB 
     IngestServiceBean ingestService;
+    @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
     
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     private EntityManager em;
+
+    @Resource
+    ManagedExecutorService managedExecutorService;
+
+    /**
+     * How many files of the same storage driver are validated at the same
+     * time by {@link #validateDataFileChecksums(java.util.List)}, unless set
+     * with the {@code dataverse.files.<id>.validation-threads} JVM option.
+     */
+    static final int DEFAULT_VALIDATION_THREADS_PER_DRIVER = 4;
     
     // Assorted useful mime types:
     
@@ -355,7 +374,7 @@ public class DataFileServiceBean implements java.io.Serializable {
         Object[] result;
 
         try {
-            result = (Object[]) em.createNativeQuery("SELECT t0.ID, t0.CREATEDATE, t0.INDEXTIME, t0.MODIFICATIONTIME, t0.PERMISSIONINDEXTIME, t0.PERMISSIONMODIFICATIONTIME, t0.PUBLICATIONDATE, t0.CREATOR_ID, t0.RELEASEUSER_ID, t0.PREVIEWIMAGEAVAILABLE, t1.CONTENTTYPE, t0.STORAGEIDENTIFIER, t1.FILESIZE, t1.INGESTSTATUS, t1.CHECKSUMVALUE, t1.RESTRICTED, t3.ID, t2.AUTHORITY, t2.IDENTIFIER, t1.CHECKSUMTYPE, t1.PREVIOUSDATAFILEID, t1.ROOTDATAFILEID, t0.AUTHORITY, T0.PROTOCOL, T0.IDENTIFIER FROM DVOBJECT t0, DATAFILE t1, DVOBJECT t2, DATASET t3 WHERE ((t0.ID = " + id + ") AND (t0.OWNER_ID = t2.ID) AND (t2.ID = t3.ID) AND (t1.ID = t0.ID))").getSingleResult();
+            result = (Object[]) em.createNativeQuery("SELECT t0.ID, t0.CREATEDATE, t0.INDEXTIME, t0.MODIFICATIONTIME, t0.PERMISSIONINDEXTIME, t0.PERMISSIONMODIFICATIONTIME, t0.PUBLICATIONDATE, t0.CREATOR_ID, t0.RELEASEUSER_ID, t0.PREVIEWIMAGEAVAILABLE, t1.CONTENTTYPE, t0.STORAGEIDENTIFIER, t1.FILESIZE, t1.INGESTSTATUS, t1.CHECKSUMVALUE, t1.RESTRICTED, t3.ID, t2.AUTHORITY, t2.IDENTIFIER, t1.CHECKSUMTYPE, t1.PREVIOUSDATAFILEID, t1.ROOTDATAFILEID, t0.AUTHORITY, T0.PROTOCOL, T0.IDENTIFIER, t0.PREVIEWIMAGEFAILCOUNT, t0.PREVIEWIMAGEFAILTIME FROM DVOBJECT t0, DATAFILE t1, DVOBJECT t2, DATASET t3 WHERE ((t0.ID = " + id + ") AND (t0.OWNER_ID = t2.ID) AND (t2.ID = t3.ID) AND (t1.ID = t0.ID))").getSingleResult();
         } catch (Exception ex) {
             return null;
         }
@@ -499,6 +518,13 @@ public class DataFileServiceBean implements java.io.Serializable {
         if (identifier != null) {
             dataFile.setIdentifier(identifier);
         }
+
+        Integer previewFailCount = (Integer) result[25];
+        if (previewFailCount != null) {
+            dataFile.setPreviewImageFailCount(previewFailCount);
+        }
+
+        dataFile.setPreviewImageFailTime((Timestamp) result[26]);
                 
         dataFile.setOwner(owner);
 
@@ -1095,8 +1121,10 @@ public class DataFileServiceBean implements java.io.Serializable {
     
     /*
      * This method will return true if the thumbnail is *actually available* and
-     * ready to be downloaded. (it will try to generate a thumbnail for supported
-     * file types, if not yet available)
+     * ready to be downloaded. It doesn't look for the thumbnail in the storage,
+     * nor generate it: a file whose thumbnail hasn't been generated yet is
+     * queued for the thumbnail to be generated in the background (see
+     * ThumbnailGenerationServiceBean), and false is returned until it has been.
      */
     public boolean isThumbnailAvailable (DataFile file) {
         if (file == null) {
@@ -1120,22 +1148,30 @@ public class DataFileServiceBean implements java.io.Serializable {
          Checking the permission here was resulting in extra queries; 
          it is now the responsibility of the client - such as the DatasetPage - 
          to make sure the permission check out, before calling this method.
-         (or *after* calling this method? - checking permissions costs db 
-         queries; checking if the thumbnail is available may cost cpu time, if 
-         it has to be generated on the fly - so you have to figure out which 
-         is more important... 
-        
         */
-                
-        
-       if (ImageThumbConverter.isThumbnailAvailable(file)) {
-           file = this.find(file.getId());
-           file.setPreviewImageAvailable(true);
-           this.save(file); 
-           return true;
-       }
 
-       return false;
+        thumbnailGenerationService.queue(file);
+        return false;
+    }
+
+    /**
+     * Records that the thumbnails of a file have been generated; or that
+     * generating them has failed (once more), so that it is only tried again
+     * later, see ThumbnailGenerationServiceBean.
+     */
+    public void setPreviewImageState(Long dataFileId, boolean available) {
+        DataFile dataFile = em.find(DataFile.class, dataFileId);
+        if (dataFile == null) {
+            return;
+        }
+        dataFile.setPreviewImageAvailable(available);
+        if (available) {
+            dataFile.setPreviewImageFailCount(0);
+            dataFile.setPreviewImageFailTime(null);
+        } else {
+            dataFile.setPreviewImageFailCount(dataFile.getPreviewImageFailCount() + 1);
+            dataFile.setPreviewImageFailTime(new Timestamp(System.currentTimeMillis()));
+        }
     }
 
     
@@ -1629,4 +1665,72 @@ public class DataFileServiceBean implements java.io.Serializable {
             return false;
         }
     }
+
+    /**
+     * Validates the physical files (see
+     * {@link FileUtil#validateDataFileChecksum(DataFile)}) concurrently, on the
+     * managed executor of the application server: the files of each storage
+     * driver are read by at most {@link #DEFAULT_VALIDATION_THREADS_PER_DRIVER}
+     * threads (or {@code dataverse.files.<id>.validation-threads}), and the
+     * drivers are read from at the same time. Publishing waits for this, so
+     * the default managed executor is kept for short tasks such as these; the
+     * long-running background work (reindexing, full-text extraction,
+     * thumbnails) runs on pools of its own.
+     *
+     * @param dataFiles the files to validate.
+     * @throws IOException as soon as a file fails to validate; the validation
+     * of the other files is then cancelled.
+     */
+    public void validateDataFileChecksums(List<DataFile> dataFiles) throws IOException {
+        Map<String, Queue<DataFile>> filesByDriver = new HashMap<>();
+        for (DataFile dataFile : dataFiles) {
+            // The validation looks at these lazy relationships; load them here,
+            // on the thread of the persistence context, rather than on the
+            // worker threads:
+            dataFile.isTabularData();
+            dataFile.getIngestReport();
+            filesByDriver.computeIfAbsent(getStorageDriverId(dataFile), driverId -> new ConcurrentLinkedQueue<>()).add(dataFile);
+        }
+
+        CompletionService<Void> validations = new ExecutorCompletionService<>(managedExecutorService);
+        List<Future<Void>> workers = new ArrayList<>();
+        for (Map.Entry<String, Queue<DataFile>> driver : filesByDriver.entrySet()) {
+            Queue<DataFile> queue = driver.getValue();
+            int threads = Math.min(queue.size(), Integer.getInteger("dataverse.files." + driver.getKey() + ".validation-threads", DEFAULT_VALIDATION_THREADS_PER_DRIVER));
+            for (int i = 0; i < Math.max(1, threads); i++) {
+                workers.add(validations.submit(() -> {
+                    DataFile dataFile;
+                    while (!Thread.currentThread().isInterrupted() && (dataFile = queue.poll()) != null) {
+                        logger.log(Level.FINE, "validating DataFile {0}", dataFile.getId());
+                        FileUtil.validateDataFileChecksum(dataFile);
+                    }
+                    return null;
+                }));
+            }
+        }
+
+        try {
+            for (int i = 0; i < workers.size(); i++) {
+                validations.take().get();
+            }
+        } catch (ExecutionException ee) {
+            Throwable cause = ee.getCause();
+            if (cause instanceof IOException) {
+                throw (IOException) cause;
+            }
+            throw new IOException("Failed to validate the files: " + cause, cause);
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while validating the files", ie);
+        } finally {
+            for (Future<Void> worker : workers) {
+                worker.cancel(true);
+            }
+        }
+    }
+
+    private static String getStorageDriverId(DataFile dataFile) {
+        String driverId = dataFile.getStorageIdentifier() == null ? "" : DataAccess.getDriverIdAndStorageLocation(dataFile.getStorageIdentifier())[0];
+        return driverId.isEmpty() ? DataAccess.DEFAULT_STORAGE_DRIVER_IDENTIFIER : driverId;
+    }
 }
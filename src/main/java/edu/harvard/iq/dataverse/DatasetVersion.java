@@ -164,6 +164,12 @@ public class DatasetVersion implements Serializable {
     @Transient 
     private String jsonLd;
 
+    /**
+     * The ids of the files of this version, once it's released, see {@link #containsDataFileId(java.lang.Long)}.
+     */
+    @Transient
+    private Set<Long> dataFileIds;
+
     @OneToMany(mappedBy="datasetVersion", cascade={CascadeType.REMOVE, CascadeType.MERGE, CascadeType.PERSIST})
     private List<DatasetVersionUser> datasetVersionUsers;
     
@@ -244,6 +250,44 @@ public class DatasetVersion implements Serializable {
 
     public void setFileMetadatas(List<FileMetadata> fileMetadatas) {
         this.fileMetadatas = fileMetadatas;
+        this.dataFileIds = null;
+    }
+
+    /**
+     * Checks whether a file is in this version. For a released (or 
+     * deaccessioned) version, whose files don't change any more, the ids of 
+     * the files are collected into a set the first time, so that its file 
+     * metadatas are not gone through on every call. Those of a draft are 
+     * gone through every time, as they can be replaced, removed and added 
+     * to directly in the list returned by {@link #getFileMetadatas()}.
+     * 
+     * @param dataFileId the id of the file
+     * @return {@code true} if one of the file metadatas of this version is for the file.
+     */
+    public boolean containsDataFileId(Long dataFileId) {
+        List<FileMetadata> fmds = fileMetadatas;
+        if (fmds == null) {
+            return false;
+        }
+        if (versionState != VersionState.RELEASED && versionState != VersionState.DEACCESSIONED) {
+            for (FileMetadata fmd : fmds) {
+                if (fmd.getDataFile() != null && Objects.equals(fmd.getDataFile().getId(), dataFileId)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+        Set<Long> ids = dataFileIds;
+        if (ids == null) {
+            ids = new HashSet<>();
+            for (FileMetadata fmd : fmds) {
+                if (fmd.getDataFile() != null) {
+                    ids.add(fmd.getDataFile().getId());
+                }
+            }
+            dataFileIds = ids;
+        }
+        return ids.contains(dataFileId);
     }
     
     public TermsOfUseAndAccess getTermsOfUseAndAccess() {
@@ -474,6 +518,7 @@ public class DatasetVersion implements Serializable {
 
     public void setVersionState(VersionState versionState) {
         this.versionState = versionState;
+        this.dataFileIds = null;
     }
 
     public boolean isReleased() {
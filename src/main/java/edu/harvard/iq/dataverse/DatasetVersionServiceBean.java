@@ -761,6 +761,7 @@ public class DatasetVersionServiceBean implements java.io.Serializable {
                         + "AND fm.datasetversion_id = dv.id "
                         + "AND fm.datafile_id = df.id "
                         // + "AND o.previewImageAvailable = false "
+                        + "AND o.previewImageFailCount = 0 "
                         + "AND df.restricted = false "
                         + "AND df.contenttype LIKE 'image/%' "
                         + "AND NOT df.contenttype = 'image/fits' "
@@ -794,6 +795,7 @@ public class DatasetVersionServiceBean implements java.io.Serializable {
                         + "AND fm.datasetversion_id = dv.id "
                         + "AND fm.datafile_id = df.id "
                         // + "AND o.previewImageAvailable = false "
+                        + "AND o.previewImageFailCount = 0 "
                         + "AND df.restricted = false "
                         + "AND df.contenttype = 'application/pdf' "
                         + "AND df.filesize < " + imageThumbnailSizeLimit + " "
@@ -46,8 +46,11 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     SolrIndexServiceBean solrIndexService;
     @EJB
     IndexAsync indexAsync;
+    @EJB
+    PermissionServiceBean permissionService;
 
     public DataverseRole save(DataverseRole aRole) {
+        permissionService.invalidatePermissionCache();
         if (aRole.getId() == null) {
             em.persist(aRole);
             /**
@@ -71,6 +74,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     }
     
     public RoleAssignment save(RoleAssignment assignment, boolean createIndex) {
+        permissionService.invalidatePermissionCache();
         if (assignment.getId() == null) {
             em.persist(assignment);
         } else {
@@ -103,6 +107,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     }
 
     public void delete(Long id) {
+        permissionService.invalidatePermissionCache();
         em.createNamedQuery("DataverseRole.deleteById", DataverseRole.class)
             .setParameter("id", id)
             .executeUpdate();
@@ -133,6 +138,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     }
 
     public void revoke(Set<DataverseRole> roles, RoleAssignee assignee, DvObject defPoint) {
+        permissionService.invalidatePermissionCache();
         for (DataverseRole role : roles) {
             em.createNamedQuery("RoleAssignment.deleteByAssigneeIdentifier_RoleIdDefinition_PointId")
                 .setParameter("assigneeIdentifier", assignee.getIdentifier())
@@ -145,6 +151,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     }
 
     public void revoke(RoleAssignment ra) {
+        permissionService.invalidatePermissionCache();
         if (!em.contains(ra)) {
             ra = em.merge(ra);
         }
@@ -160,6 +167,7 @@ public class DataverseRoleServiceBean implements java.io.Serializable {
     // on which the roles were assigned - need to be reindexed for permissions
     // once the role assignments are removed!
     public void revokeAll(RoleAssignee assignee) {
+        permissionService.invalidatePermissionCache();
         Set<DvObject> reindexSet = new HashSet<>();
 
         for (RoleAssignment ra : roleAssigneeService.getAssignmentsFor(assignee.getIdentifier())) {
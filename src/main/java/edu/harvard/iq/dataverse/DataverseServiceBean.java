@@ -24,6 +24,7 @@ import java.io.File;
 import java.io.IOException;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -31,6 +32,7 @@ import java.util.Map;
 import java.util.logging.Logger;
 import java.util.Properties;
 import java.util.concurrent.Future;
+import java.util.stream.Collectors;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.inject.Inject;
@@ -324,8 +326,16 @@ public class DataverseServiceBean implements java.io.Serializable {
     }
     
     public String getDataverseLogoThumbnailAsBase64ById(Long dvId) {
+        return getDataverseLogoThumbnailAsBase64ById(dvId, getLogoFileNameById(dvId));
+    }
+    
+    /**
+     * Same as above, for when the name of the logo file has already been 
+     * looked up; see {@link #getLogoFileNamesByIds(java.util.Collection)}.
+     */
+    public String getDataverseLogoThumbnailAsBase64ById(Long dvId, String logoFileName) {
      
-        File dataverseLogoFile = getLogoById(dvId);
+        File dataverseLogoFile = getLogoFile(dvId, logoFileName);
         
         if (dataverseLogoFile != null) {
             String logoThumbNailPath;
@@ -408,19 +418,44 @@ public class DataverseServiceBean implements java.io.Serializable {
         return null;         
     }
     
-    private File getLogoById(Long id) {
+    private String getLogoFileNameById(Long id) {
         if (id == null) {
             return null; 
         }
         
-        String logoFileName;
-        
         try {
-                logoFileName = (String) em.createNativeQuery("SELECT logo FROM dataversetheme WHERE dataverse_id = " + id).getSingleResult();
+                return (String) em.createNativeQuery("SELECT logo FROM dataversetheme WHERE dataverse_id = " + id).getSingleResult();
             
         } catch (Exception ex) {
             return null;
         }
+    }
+    
+    /**
+     * Looks up the logo file names of several dataverses at once (for the 
+     * dataverse cards on a search page).
+     * @param ids
+     * @return the logo file names, by dataverse id; the dataverses without a 
+     * logo are left out.
+     */
+    public Map<Long, String> getLogoFileNamesByIds(Collection<Long> ids) {
+        Map<Long, String> logoFileNames = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return logoFileNames;
+        }
+        
+        String idsString = ids.stream().map(String::valueOf).collect(Collectors.joining(","));
+        List<Object[]> results = em.createNativeQuery("SELECT dataverse_id, logo FROM dataversetheme WHERE logo IS NOT NULL AND dataverse_id IN (" + idsString + ")").getResultList();
+        for (Object[] result : results) {
+            logoFileNames.put(((Number) result[0]).longValue(), (String) result[1]);
+        }
+        return logoFileNames;
+    }
+    
+    private File getLogoFile(Long id, String logoFileName) {
+        if (id == null) {
+            return null; 
+        }
         
         if (logoFileName != null && !logoFileName.isEmpty()) {
             Properties p = System.getProperties();
@@ -20,6 +20,8 @@ import javax.persistence.*;
             query = "SELECT o FROM DvObject o ORDER BY o.id"),
     @NamedQuery(name = "DvObject.findById",
             query = "SELECT o FROM DvObject o WHERE o.id=:id"),
+    @NamedQuery(name = "DvObject.findByIds",
+            query = "SELECT o FROM DvObject o WHERE o.id IN :ids"),
     @NamedQuery(name = "DvObject.checkExists", 
             query = "SELECT count(o) from DvObject o WHERE o.id=:id"),
     @NamedQuery(name = "DvObject.ownedObjectsById",
@@ -167,6 +169,34 @@ public abstract class DvObject extends DataverseEntity implements java.io.Serial
         this.previewImageAvailable = status;
     }
 
+    /**
+     * The number of times generating the thumbnail has been tried, and has
+     * failed (the file is not a readable image or PDF, or the storage could
+     * not be read, for example), and when it last did; so that it is only
+     * tried again after a while, and not for ever (see
+     * ThumbnailGenerationServiceBean). When neither this nor
+     * previewImageAvailable is set, the thumbnail hasn't been generated yet.
+     */
+    private int previewImageFailCount;
+
+    private Timestamp previewImageFailTime;
+
+    public int getPreviewImageFailCount() {
+        return previewImageFailCount;
+    }
+
+    public void setPreviewImageFailCount(int previewImageFailCount) {
+        this.previewImageFailCount = previewImageFailCount;
+    }
+
+    public Timestamp getPreviewImageFailTime() {
+        return previewImageFailTime;
+    }
+
+    public void setPreviewImageFailTime(Timestamp previewImageFailTime) {
+        this.previewImageFailTime = previewImageFailTime;
+    }
+
     public Timestamp getModificationTime() {
         return modificationTime;
     }
@@ -3,6 +3,7 @@ package edu.harvard.iq.dataverse;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import java.sql.Timestamp;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
@@ -57,6 +58,31 @@ public class DvObjectServiceBean implements java.io.Serializable {
         }
     }
 
+    /**
+     * Finds the objects with the given ids with a single query (plus one
+     * query each for their owners, creators and release users, instead of
+     * one per object).
+     * @param ids
+     * @return the objects found, by id. The ids not found are left out.
+     */
+    public Map<Long, DvObject> findByIds(Collection<Long> ids) {
+        Map<Long, DvObject> dvObjects = new HashMap<>();
+        if (ids == null || ids.isEmpty()) {
+            return dvObjects;
+        }
+        List<DvObject> results = em.createNamedQuery("DvObject.findByIds", DvObject.class)
+                .setParameter("ids", ids)
+                .setHint("eclipselink.batch.type", "IN")
+                .setHint("eclipselink.batch", "o.owner")
+                .setHint("eclipselink.batch", "o.creator")
+                .setHint("eclipselink.batch", "o.releaseUser")
+                .getResultList();
+        for (DvObject dvObject : results) {
+            dvObjects.put(dvObject.getId(), dvObject);
+        }
+        return dvObjects;
+    }
+
     public List<DvObject> findAll() {
         return em.createNamedQuery("DvObject.findAll", DvObject.class).getResultList();
     }
@@ -157,6 +183,28 @@ public class DvObjectServiceBean implements java.io.Serializable {
         return savedDvObject;
     }
 
+    /**
+     * Sets the index time (or the permission index time) of objects in bulk,
+     * once their documents have been sent to Solr; without loading them.
+     *
+     * @param dvObjectIds the ids of the objects.
+     * @param permissions whether to set the permission index time, rather
+     * than the index time.
+     * @param time when the documents were built.
+     * @return the number of objects updated.
+     */
+    public int updateIndexTimes(Collection<Long> dvObjectIds, boolean permissions, Timestamp time) {
+        if (dvObjectIds.isEmpty()) {
+            return 0;
+        }
+        Query updateIndexTimes = em.createQuery(permissions
+                ? "UPDATE DvObject o SET o.permissionIndexTime = :time WHERE o.id IN :dvObjectIds"
+                : "UPDATE DvObject o SET o.indexTime = :time WHERE o.id IN :dvObjectIds");
+        updateIndexTimes.setParameter("time", time);
+        updateIndexTimes.setParameter("dvObjectIds", dvObjectIds);
+        return updateIndexTimes.executeUpdate();
+    }
+
     @TransactionAttribute(REQUIRES_NEW)
     public int clearAllIndexTimes() {
         Query clearIndexTimes = em.createQuery("UPDATE DvObject o SET o.indexTime = NULL, o.permissionIndexTime = NULL");
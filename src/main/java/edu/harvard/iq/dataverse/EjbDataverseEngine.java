@@ -315,6 +315,8 @@ public class EjbDataverseEngine {
             //when we get here we need to wipe out the command list so that
             //failed commands don't have their onSuccess methods run.
             getContext().cancelCommandSequence();
+            // the command may have changed roles, groups or ownership:
+            permissionService.invalidatePermissionCache();
             if (logRec.getActionResult() == null) {
                 logRec.setActionResult(ActionLogRecord.Result.OK);
             } else {
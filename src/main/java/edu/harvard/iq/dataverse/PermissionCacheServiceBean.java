@@ -0,0 +1,105 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.authorization.Permission;
+import java.util.EnumSet;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.logging.Logger;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.RequestScoped;
+
+/**
+ * Remembers, for the duration of a request, the permissions the role
+ * assignees have been found to have over the objects through their role
+ * assignments; so that the pages, the permission wrappers and the command
+ * engine asking the same question many times don't resolve the groups and
+ * the assignments over and over again.
+ *
+ * Only the permissions granted by role assignments are kept; the permissions
+ * inferred from the state of the object (e.g. downloading the files of a
+ * released version) are always computed afresh. The entries are dropped when
+ * roles or role assignments are changed, and after each command. The hits
+ * and misses of all the requests are added up, and served at
+ * {@code /api/admin/index/permissionCache}.
+ *
+ * @see PermissionServiceBean
+ */
+@RequestScoped
+public class PermissionCacheServiceBean {
+
+    private static final Logger logger = Logger.getLogger(PermissionCacheServiceBean.class.getCanonicalName());
+
+    private final Map<String, Set<Permission>> assignedPermissions = new HashMap<>();
+
+    private static final LongAdder totalHits = new LongAdder();
+    private static final LongAdder totalMisses = new LongAdder();
+
+    private long hits;
+    private long misses;
+
+    /**
+     * Looks up the permissions cached under {@code key}, computing (and
+     * caching) them if they are not there yet.
+     *
+     * @param key identifies the role assignee (and, for a request, the
+     * request-level groups) and the object.
+     * @param computation computes the permissions on a miss.
+     * @return a copy of the permissions, which the caller may modify.
+     */
+    public Set<Permission> get(String key, Supplier<Set<Permission>> computation) {
+        Set<Permission> permissions = assignedPermissions.get(key);
+        if (permissions == null) {
+            misses++;
+            totalMisses.increment();
+            permissions = computation.get();
+            assignedPermissions.put(key, copyOf(permissions));
+        } else {
+            hits++;
+            totalHits.increment();
+        }
+        return copyOf(permissions);
+    }
+
+    public void invalidate() {
+        if (!assignedPermissions.isEmpty()) {
+            logger.fine("Clearing the request permission cache");
+            assignedPermissions.clear();
+        }
+    }
+
+    public long getHits() {
+        return hits;
+    }
+
+    public long getMisses() {
+        return misses;
+    }
+
+    /**
+     * @return the hits of all the requests since the application started.
+     */
+    public static long getTotalHits() {
+        return totalHits.sum();
+    }
+
+    /**
+     * @return the misses of all the requests since the application started.
+     */
+    public static long getTotalMisses() {
+        return totalMisses.sum();
+    }
+
+    @PreDestroy
+    void logCounters() {
+        if (hits + misses > 0) {
+            logger.fine(() -> "Request permission cache: " + hits + " hits, " + misses + " misses");
+        }
+    }
+
+    private static Set<Permission> copyOf(Set<Permission> permissions) {
+        return permissions.isEmpty() ? EnumSet.noneOf(Permission.class) : EnumSet.copyOf(permissions);
+    }
+}
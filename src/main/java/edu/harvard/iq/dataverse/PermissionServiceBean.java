@@ -39,9 +39,13 @@ import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.logging.Level;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 import static java.util.stream.Collectors.toList;
 import javax.persistence.Query;
+import javax.enterprise.context.ContextNotActiveException;
+import javax.enterprise.context.RequestScoped;
+import javax.enterprise.inject.spi.BeanManager;
 
 /**
  * Your one-stop-shop for deciding which user can do what action on which
@@ -95,6 +99,12 @@ public class PermissionServiceBean {
     @Inject
     DataverseRequestServiceBean dvRequestService;
 
+    @Inject
+    PermissionCacheServiceBean permissionCache;
+
+    @Inject
+    BeanManager beanManager;
+
     /**
      * A request-level permission query (e.g includes IP ras).
      */
@@ -324,9 +334,7 @@ public class PermissionServiceBean {
             }
         }
         
-        Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(req, dvo));
-        ras.add(user);
-        return hasGroupPermissionsFor(ras, dvo, required);
+        return getAssignedPermissions(req, dvo).containsAll(required);
     }
 
     public boolean hasPermissionsFor(RoleAssignee ra, DvObject dvo, Set<Permission> required) {
@@ -347,15 +355,7 @@ public class PermissionServiceBean {
             return true;
         }
         
-        Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(ra, dvo));
-        ras.add(ra);
-        return hasGroupPermissionsFor(ras, dvo, required);
-    }
-    
-    private boolean hasGroupPermissionsFor(Set<RoleAssignee> ras, DvObject dvo, Set<Permission> required) {
-        for (RoleAssignment asmnt : assignmentsFor(ras, dvo)) {
-            required.removeAll(asmnt.getRole().permissions());
-        }
+        required.removeAll(getAssignedPermissions(ra, dvo));
         return required.isEmpty();
     }
 
@@ -375,9 +375,7 @@ public class PermissionServiceBean {
         Set<Permission> permissions = getInferredPermissions(dvo);
 
         // Add permissions gained from ras
-        Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(req, dvo));
-        ras.add(req.getUser());
-        addGroupPermissionsFor(ras, dvo, permissions);
+        permissions.addAll(getAssignedPermissions(req, dvo));
 
         if (!req.getUser().isAuthenticated()) {
             permissions.removeAll(PERMISSIONS_FOR_AUTHENTICATED_USERS_ONLY);
@@ -401,9 +399,7 @@ public class PermissionServiceBean {
 
         Set<Permission> permissions = getInferredPermissions(dvo);
 
-        Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(ra, dvo));
-        ras.add(ra);
-        addGroupPermissionsFor(ras, dvo, permissions);
+        permissions.addAll(getAssignedPermissions(ra, dvo));
 
         if ((ra instanceof User) && (!((User) ra).isAuthenticated())) {
             permissions.removeAll(PERMISSIONS_FOR_AUTHENTICATED_USERS_ONLY);
@@ -417,6 +413,68 @@ public class PermissionServiceBean {
         }
     }
 
+    /**
+     * The permissions the user of {@code req} (and the groups they are in,
+     * in the context of {@code req}) have been assigned over {@code dvo}.
+     * Memoized for the duration of the current request.
+     */
+    private Set<Permission> getAssignedPermissions(DataverseRequest req, DvObject dvo) {
+        return getAssignedPermissions("request " + req.getUser().getIdentifier() + " " + req.getSourceAddress(), dvo, () -> {
+            Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(req, dvo));
+            ras.add(req.getUser());
+            return ras;
+        });
+    }
+
+    /**
+     * The permissions {@code ra} (and the groups it is in) have been assigned
+     * over {@code dvo}. Memoized for the duration of the current request.
+     */
+    private Set<Permission> getAssignedPermissions(RoleAssignee ra, DvObject dvo) {
+        return getAssignedPermissions("assignee " + ra.getIdentifier(), dvo, () -> {
+            Set<RoleAssignee> ras = new HashSet<>(groupService.groupsFor(ra, dvo));
+            ras.add(ra);
+            return ras;
+        });
+    }
+
+    private Set<Permission> getAssignedPermissions(String assigneeKey, DvObject dvo, Supplier<Set<RoleAssignee>> ras) {
+        Supplier<Set<Permission>> computation = () -> {
+            Set<Permission> permissions = EnumSet.noneOf(Permission.class);
+            addGroupPermissionsFor(ras.get(), dvo, permissions);
+            return permissions;
+        };
+        if (dvo.getId() == null || !isPermissionCacheActive()) {
+            return computation.get();
+        }
+        return permissionCache.get(assigneeKey + " " + dvo.getId(), computation);
+    }
+
+    /**
+     * Drops the permissions memoized during the current request, e.g. after
+     * roles or role assignments have been changed.
+     */
+    public void invalidatePermissionCache() {
+        if (isPermissionCacheActive()) {
+            permissionCache.invalidate();
+        }
+    }
+
+    /**
+     * The permission cache is request scoped, so it can only be used while a
+     * request context is active (e.g. not in timers).
+     */
+    private boolean isPermissionCacheActive() {
+        if (permissionCache == null || beanManager == null) {
+            return false;
+        }
+        try {
+            return beanManager.getContext(RequestScoped.class).isActive();
+        } catch (ContextNotActiveException cnae) {
+            return false;
+        }
+    }
+
 
     /**
      * Calculates permissions based on object state and other context
@@ -448,14 +506,9 @@ public class PermissionServiceBean {
             DataFile df = (DataFile) dvo;
 
             if (!df.isRestricted()) {
-                if (df.getOwner().getReleasedVersion() != null) {
-                    if (df.getOwner().getReleasedVersion().getFileMetadatas() != null) {
-                        for (FileMetadata fm : df.getOwner().getReleasedVersion().getFileMetadatas()) {
-                            if (df.equals(fm.getDataFile())) {
-                                return true;
-                            }
-                        }
-                    }
+                DatasetVersion releasedVersion = df.getOwner().getReleasedVersion();
+                if (releasedVersion != null) {
+                    return releasedVersion.containsDataFileId(df.getId());
                 }
             }
         }
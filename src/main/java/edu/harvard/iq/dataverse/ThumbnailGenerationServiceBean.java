@@ -0,0 +1,217 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.dataaccess.ImageThumbConverter;
+import edu.harvard.iq.dataverse.util.FileUtil;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Generates the thumbnails of image and PDF files in the background, so that
+ * the pages that show the files never have to wait for a thumbnail to be
+ * generated (or look for it in the storage): the files are queued when they
+ * are uploaded, or the first time a page finds they have no thumbnail yet,
+ * and their previewImageAvailable flag is set once their thumbnails have
+ * been generated.
+ *
+ * When generating the thumbnails of a file fails, the failure is counted on
+ * the file (previewImageFailCount, previewImageFailTime), and it is tried
+ * again later, as the failure may be a passing one (the storage being
+ * unreachable, for example): after {@link #RETRY_DELAY_MILLIS}, and twice as
+ * long after each further failure, up to {@link #MAX_ATTEMPTS} attempts.
+ *
+ * The files are worked on by a pool of {@link #DEFAULT_THREADS} threads of
+ * their own, unless set with the {@code dataverse.thumbnails.generation-threads}
+ * JVM option; the queue is kept in memory only, and a file that is still
+ * queued when the application stops is queued again the next time it is
+ * shown.
+ *
+ * Also keeps the card images of the recently shown files, as Base64 strings,
+ * across requests and sessions; at most {@link #MAX_CARD_IMAGES} of them, the
+ * least recently used ones are dropped first.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ThumbnailGenerationServiceBean {
+
+    private static final Logger logger = Logger.getLogger(ThumbnailGenerationServiceBean.class.getCanonicalName());
+
+    static final int DEFAULT_THREADS = 2;
+    static final int MAX_QUEUED = 10000;
+    static final int MAX_CARD_IMAGES = 5000;
+    static final int MAX_ATTEMPTS = 5;
+    static final long RETRY_DELAY_MILLIS = 60 * 60 * 1000;
+
+    @EJB
+    DataFileServiceBean dataFileService;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    ExecutorService executor;
+
+    private final Set<Long> queued = ConcurrentHashMap.newKeySet();
+
+    private final Map<String, String> cardImages = Collections.synchronizedMap(new LinkedHashMap<String, String>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+            return size() > MAX_CARD_IMAGES;
+        }
+    });
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, Integer.getInteger("dataverse.thumbnails.generation-threads", DEFAULT_THREADS));
+        ThreadPoolExecutor pool = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(), managedThreadFactory);
+        pool.allowCoreThreadTimeOut(true);
+        executor = pool;
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    /**
+     * Queues a file for its thumbnails to be generated; unless they have
+     * already been (or it is too early to try again), or the file is already
+     * queued.
+     */
+    public void queue(DataFile dataFile) {
+        if (dataFile == null || dataFile.getId() == null
+                || dataFile.isPreviewImageAvailable()
+                || !isAttemptDue(dataFile, System.currentTimeMillis())
+                || !FileUtil.isThumbnailSupported(dataFile)) {
+            return;
+        }
+        Long dataFileId = dataFile.getId();
+        if (queued.size() >= MAX_QUEUED || !queued.add(dataFileId)) {
+            return;
+        }
+        try {
+            executor.execute(() -> {
+                try {
+                    generateThumbnails(dataFileId);
+                } catch (Exception ex) {
+                    logger.log(Level.WARNING, "Could not generate the thumbnails of datafile " + dataFileId, ex);
+                } finally {
+                    queued.remove(dataFileId);
+                }
+            });
+        } catch (RejectedExecutionException rex) {
+            queued.remove(dataFileId);
+            logger.warning("Could not queue datafile " + dataFileId + " for its thumbnails: " + rex.getMessage());
+        }
+    }
+
+    /**
+     * Queues files for their thumbnails to be generated (see
+     * {@link #queue(DataFile)}) once the current transaction, that saves
+     * them, is committed; so that the files are there to be found then.
+     * Without a transaction, they are queued right away.
+     */
+    public void queueOnCommit(Collection<DataFile> dataFiles) {
+        if (dataFiles.isEmpty()) {
+            return;
+        }
+        if (transactionSynchronizationRegistry == null || transactionSynchronizationRegistry.getTransactionKey() == null) {
+            dataFiles.forEach(this::queue);
+            return;
+        }
+        List<DataFile> files = List.copyOf(dataFiles);
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    files.forEach(ThumbnailGenerationServiceBean.this::queue);
+                }
+            }
+        });
+    }
+
+    /**
+     * @return whether generating the thumbnails of a file is to be tried
+     * (again): it hasn't failed yet; or it has failed fewer than
+     * {@link #MAX_ATTEMPTS} times, and long enough before {@code now}.
+     */
+    static boolean isAttemptDue(DvObject dvObject, long now) {
+        int failures = dvObject.getPreviewImageFailCount();
+        if (failures <= 0) {
+            return true;
+        }
+        if (failures >= MAX_ATTEMPTS) {
+            return false;
+        }
+        return dvObject.getPreviewImageFailTime() == null
+                || now - dvObject.getPreviewImageFailTime().getTime() >= RETRY_DELAY_MILLIS << (failures - 1);
+    }
+
+    private void generateThumbnails(Long dataFileId) {
+        DataFile dataFile = dataFileService.find(dataFileId);
+        if (dataFile == null || dataFile.isPreviewImageAvailable()
+                || !isAttemptDue(dataFile, System.currentTimeMillis())) {
+            return;
+        }
+        if (ImageThumbConverter.isThumbnailAvailable(dataFile)) {
+            // The card images are what the pages show; the other sizes are
+            // generated when they are first downloaded:
+            ImageThumbConverter.isThumbnailAvailable(dataFile, ImageThumbConverter.DEFAULT_CARDIMAGE_SIZE);
+            dataFileService.setPreviewImageState(dataFileId, true);
+            logger.fine("Generated the thumbnails of datafile " + dataFileId);
+            return;
+        }
+        dataFileService.setPreviewImageState(dataFileId, false);
+        logger.fine("Could not generate the thumbnails of datafile " + dataFileId
+                + " (attempt " + (dataFile.getPreviewImageFailCount() + 1) + " of " + MAX_ATTEMPTS + ")");
+    }
+
+    /**
+     * @return the thumbnail of a file, of the given size, as a Base64 data
+     * URL; from the cache of recently shown images, or from the storage
+     * (generating it, if needed).
+     */
+    public String getImageThumbnailAsBase64(DataFile dataFile, int size) {
+        if (dataFile.getId() == null) {
+            return ImageThumbConverter.getImageThumbnailAsBase64(dataFile, size);
+        }
+        String key = dataFile.getId() + ":" + size;
+        String image = cardImages.get(key);
+        if (image == null) {
+            image = ImageThumbConverter.getImageThumbnailAsBase64(dataFile, size);
+            if (image != null) {
+                cardImages.put(key, image);
+            }
+        }
+        return image;
+    }
+}
@@ -20,7 +20,10 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.Base64;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import javax.ejb.EJB;
 import javax.enterprise.context.RequestScoped;
 import javax.faces.view.ViewScoped;
@@ -46,9 +49,12 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
     DatasetVersionServiceBean datasetVersionService;
     @EJB
     DataFileServiceBean dataFileService;
+    @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
     
     private Map<Long, String> dvobjectThumbnailsMap = new HashMap<>();
     private Map<Long, DvObject> dvobjectViewMap = new HashMap<>();
+    private Map<Long, String> dataverseLogoFileNames = null;
 
     private String getAssignedDatasetImage(Dataset dataset, int size) {
         if (dataset == null) {
@@ -69,7 +75,7 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
                 return null;
             }
 
-            String imageSourceBase64 = ImageThumbConverter.getImageThumbnailAsBase64(assignedThumbnailFile,
+            String imageSourceBase64 = thumbnailGenerationService.getImageThumbnailAsBase64(assignedThumbnailFile,
                     size);
                     //ImageThumbConverter.DEFAULT_CARDIMAGE_SIZE);
 
@@ -135,7 +141,7 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
                         || permissionsWrapper.hasDownloadFilePermission(result.getEntity()))
                     && dataFileService.isThumbnailAvailable((DataFile) result.getEntity())) {
                 
-                cardImageUrl = ImageThumbConverter.getImageThumbnailAsBase64(
+                cardImageUrl = thumbnailGenerationService.getImageThumbnailAsBase64(
                         (DataFile) result.getEntity(),
                         ImageThumbConverter.DEFAULT_CARDIMAGE_SIZE);
             }
@@ -296,7 +302,7 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
             }
 
             if (dataFileService.isThumbnailAvailable(thumbnailImageFile)) {
-                cardImageUrl = ImageThumbConverter.getImageThumbnailAsBase64(
+                cardImageUrl = thumbnailGenerationService.getImageThumbnailAsBase64(
                         thumbnailImageFile,
                         size);
                         //ImageThumbConverter.DEFAULT_CARDIMAGE_SIZE);
@@ -317,12 +323,30 @@ public class ThumbnailServiceWrapper implements java.io.Serializable  {
     // it's the responsibility of the user - to make sure the search result
     // passed to this method is of the Dataverse type!
     public String getDataverseCardImageAsBase64Url(SolrSearchResult result) {
+        if (dataverseLogoFileNames != null) {
+            return dataverseService.getDataverseLogoThumbnailAsBase64ById(result.getEntityId(), dataverseLogoFileNames.get(result.getEntityId()));
+        }
         return dataverseService.getDataverseLogoThumbnailAsBase64ById(result.getEntityId());
     }
     
+    /**
+     * Looks up the logos of all the dataverse cards on the page with one 
+     * query, instead of one query per card.
+     */
+    public void prefetchDataverseCardImages(List<SolrSearchResult> results) {
+        Set<Long> dataverseIds = new HashSet<>();
+        for (SolrSearchResult result : results) {
+            if ("dataverses".equals(result.getType())) {
+                dataverseIds.add(result.getEntityId());
+            }
+        }
+        dataverseLogoFileNames = dataverseService.getLogoFileNamesByIds(dataverseIds);
+    }
+    
     public void resetObjectMaps() {
         dvobjectThumbnailsMap = new HashMap<>();
         dvobjectViewMap = new HashMap<>();
+        dataverseLogoFileNames = null;
     }
 
     
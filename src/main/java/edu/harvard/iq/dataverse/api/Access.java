@@ -181,6 +181,8 @@ public class Access extends AbstractApiBean {
     PermissionsWrapper permissionsWrapper;
     @Inject
     MakeDataCountLoggingServiceBean mdcLogService;
+    @EJB
+    ZipDownloadPrefetchServiceBean zipDownloadPrefetchService;
     
     
     private static final String API_KEY_HEADER = "X-Dataverse-key";    
@@ -606,6 +608,8 @@ public class Access extends AbstractApiBean {
         }
         downloadInstance = new DownloadInstance(dInfo);
         downloadInstance.setAuxiliaryFile(auxFile);
+        // (for the HTTP Range requests)
+        downloadInstance.setRequestHttpHeaders(headers);
         /*}*/
         
         // Unless this format is explicitly authorized to be publicly available, 
@@ -811,6 +815,11 @@ public class Access extends AbstractApiBean {
                 DataFileZipper zipper = null; 
                 String fileManifest = "";
                 long sizeTotal = 0L;
+                // The files that fit in the size limit are only added to the 
+                // zip stream once they have all been looked up; so that they 
+                // can be read from storage ahead of time, while the ones 
+                // before them are being zipped: 
+                List<DataFile> zippedFiles = new ArrayList<>();
                 
                 if (fileIdParams != null && fileIdParams.length > 0) {
                     logger.fine(fileIdParams.length + " tokens;");
@@ -881,7 +890,8 @@ public class Access extends AbstractApiBean {
                                         size = file.getFilesize();
                                     }
                                     if (sizeTotal + size < zipDownloadSizeLimit) {
-                                        sizeTotal += zipper.addFileToZipStream(file, getOriginal);
+                                        sizeTotal += size;
+                                        zippedFiles.add(file);
                                     } else {
                                         String fileName = file.getFileMetadata().getLabel();
                                         String mimeType = file.getContentType();
@@ -920,6 +930,16 @@ public class Access extends AbstractApiBean {
                     throw new ForbiddenException();
                 }
 
+                zipper.prefetchFiles(zippedFiles, getOriginal, zipDownloadPrefetchService.getExecutor(),
+                        zipDownloadPrefetchService.getBufferPermits(), systemConfig.getZipDownloadPrefetchFiles());
+                try {
+                    for (DataFile file : zippedFiles) {
+                        zipper.addFileToZipStream(file, getOriginal);
+                    }
+                } finally {
+                    zipper.discardPrefetchedFiles();
+                }
+
                 // This will add the generated File Manifest to the zipped output, 
                 // then flush and close the stream:
                 zipper.finalizeZipStream();
@@ -37,6 +37,8 @@ import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailData;
 import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailException;
 import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailInitResponse;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
+import edu.harvard.iq.dataverse.dataaccess.S3DriverRegistry;
+import edu.harvard.iq.dataverse.dataaccess.LocalDiskCache;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
 import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.engine.command.impl.AbstractSubmitToArchiveCommand;
@@ -90,6 +92,7 @@ import edu.harvard.iq.dataverse.engine.command.impl.DeactivateUserCommand;
 import edu.harvard.iq.dataverse.engine.command.impl.DeleteRoleCommand;
 import edu.harvard.iq.dataverse.engine.command.impl.RegisterDvObjectCommand;
 import edu.harvard.iq.dataverse.ingest.IngestServiceBean;
+import edu.harvard.iq.dataverse.settings.SettingsCacheServiceBean;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.userdata.UserListMaker;
 import edu.harvard.iq.dataverse.userdata.UserListResult;
@@ -148,6 +151,8 @@ public class Admin extends AbstractApiBean {
         @EJB
         SettingsServiceBean settingsService;
         @EJB
+        SettingsCacheServiceBean settingsCache;
+        @EJB
         DatasetVersionServiceBean datasetVersionService;
         @EJB
         ExplicitGroupServiceBean explicitGroupService;
@@ -207,6 +212,16 @@ public class Admin extends AbstractApiBean {
 		return ok("Setting " + name + " - " + lang + " deleted.");
 	}
 
+	@Path("settingsCache")
+	@GET
+	public Response getSettingsCacheStatistics() {
+		return ok(jsonObjectBuilder()
+				.add("hits", settingsCache.getHits())
+				.add("misses", settingsCache.getMisses())
+				.add("reloads", settingsCache.getReloads())
+				.add("hitRate", settingsCache.getHitRate()));
+	}
+
 	@Path("authenticationProviderFactories")
 	@GET
 	public Response listAuthProviderFactories() {
@@ -1895,6 +1910,50 @@ public class Admin extends AbstractApiBean {
     	DataAccess.getStorageDriverLabels().entrySet().forEach(s -> bld.add(s.getKey(), s.getValue()));
 		return ok(bld);
     }
+
+    /**
+     * Lists, for each S3 storage driver used since the application started,
+     * how many requests of each type it has sent to the object store.
+     */
+    @GET
+    @Path("/dataverse/storageDrivers/s3/requests")
+    public Response listS3DriverRequestCounts() throws WrappedResponse {
+        try {
+            AuthenticatedUser user = findAuthenticatedUserOrDie();
+            if (!user.isSuperuser()) {
+                return error(Response.Status.FORBIDDEN, "Superusers only.");
+            }
+        } catch (WrappedResponse wr) {
+            return wr.getResponse();
+        }
+        JsonObjectBuilder bld = jsonObjectBuilder();
+        S3DriverRegistry.getRequestCounts().forEach((driverId, counts) -> {
+            JsonObjectBuilder driverBld = jsonObjectBuilder();
+            counts.forEach((type, count) -> driverBld.add(type, count.longValue()));
+            bld.add(driverId, driverBld);
+        });
+        return ok(bld);
+    }
+    
+    @GET
+    @Path("/dataverse/storageDrivers/cache")
+    public Response listStorageDriverCacheMetrics() throws WrappedResponse {
+        try {
+            AuthenticatedUser user = findAuthenticatedUserOrDie();
+            if (!user.isSuperuser()) {
+                return error(Response.Status.FORBIDDEN, "Superusers only.");
+            }
+        } catch (WrappedResponse wr) {
+            return wr.getResponse();
+        }
+        JsonObjectBuilder bld = jsonObjectBuilder();
+        LocalDiskCache.getMetrics().forEach((driverId, metrics) -> {
+            JsonObjectBuilder driverBld = jsonObjectBuilder();
+            metrics.forEach((name, value) -> driverBld.add(name, value.longValue()));
+            bld.add(driverId, driverBld);
+        });
+        return ok(bld);
+    }
     
     @POST
     @Path("/bannerMessage")
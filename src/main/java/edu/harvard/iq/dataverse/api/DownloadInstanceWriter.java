@@ -17,6 +17,7 @@ import javax.ws.rs.WebApplicationException;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.MultivaluedMap;
 import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
 
 import javax.ws.rs.ext.MessageBodyWriter;
 import javax.ws.rs.ext.Provider;
@@ -33,10 +34,13 @@ import edu.harvard.iq.dataverse.util.FileUtil;
 import java.io.File;
 import java.io.FileInputStream;
 import java.net.URI;
+import java.nio.channels.Channels;
 import java.net.URISyntaxException;
 import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.UUID;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.inject.Inject;
@@ -59,6 +63,11 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
 
     private static final Logger logger = Logger.getLogger(DownloadInstanceWriter.class.getCanonicalName());
 
+    /**
+     * Range requests for more ranges than this get the whole content.
+     */
+    static final int MAX_RANGES = 100;
+
     @Override
     public boolean isWriteable(Class<?> clazz, Type type, Annotation[] annotation, MediaType mediaType) {
         return clazz == DownloadInstance.class;
@@ -88,6 +97,14 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                     throw new NotFoundException("Datafile " + dataFile.getId() + ": Failed to locate and/or open physical file.");
                 }
 
+                // HTTP Range requests can be served with ranged reads of the
+                // file, or of its aux object, as stored; i.e., if the file
+                // is downloaded as is, or its saved original or an auxiliary
+                // file is (but not for conversions and subsets):
+                StorageIO<DataFile> rangeStorageIO = storageIO;
+                String rangeAuxTag = null;
+                boolean rangesSupported = di.getConversionParam() == null && di.getAuxiliaryFile() == null;
+
                 // Before we do anything else, check if this download can be handled 
                 // by a redirect to remote storage (only supported on S3, as of 5.4):
                 if (storageIO instanceof S3AccessIO && ((S3AccessIO) storageIO).downloadRedirectEnabled()) {
@@ -264,6 +281,7 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                             logger.fine("tabular data with no var header requested");
                             storageIO.setNoVarHeader(Boolean.TRUE);
                             storageIO.setVarHeader(null);
+                            rangesSupported = true;
                         } else if (di.getConversionParam().equals("format")) {
                             // Conversions, and downloads of "stored originals" are 
                             // now supported on all DataFiles for which StorageIO 
@@ -272,6 +290,8 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                             if ("original".equals(di.getConversionParamValue())) {
                                 logger.fine("stored original of an ingested file requested");
                                 storageIO = StoredOriginalFile.retreive(storageIO);
+                                rangeAuxTag = StoredOriginalFile.SAVED_ORIGINAL_FILENAME_EXTENSION;
+                                rangesSupported = true;
                             } else {
                                 // Other format conversions: 
                                 logger.fine("format conversion on a tabular file requested (" + di.getConversionParamValue() + ")");
@@ -298,6 +318,7 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                             if (di.getExtraArguments() != null && di.getExtraArguments().size() > 0) {
                                 logger.fine("processing extra arguments list of length " + di.getExtraArguments().size());
                                 List<Integer> variablePositionIndex = new ArrayList<>();
+                                List<DataVariable> subsetVariables = new ArrayList<>();
                                 String subsetVariableHeader = null;
                                 for (int i = 0; i < di.getExtraArguments().size(); i++) {
                                     DataVariable variable = (DataVariable) di.getExtraArguments().get(i);
@@ -305,6 +326,7 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                                         if (variable.getDataTable().getDataFile().getId().equals(dataFile.getId())) {
                                             logger.fine("adding variable id " + variable.getId() + " to the list.");
                                             variablePositionIndex.add(variable.getFileOrder());
+                                            subsetVariables.add(variable);
                                             if (subsetVariableHeader == null) {
                                                 subsetVariableHeader = variable.getName();
                                             } else {
@@ -317,7 +339,36 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                                     }
                                 }
 
+                                boolean subsetFromRotatedImage = false;
                                 if (variablePositionIndex.size() > 0) {
+                                    // The tab file can be subset directly from 
+                                    // the rotated image, using the stored column 
+                                    // offsets; without having to read the whole 
+                                    // file, or to create a temp file. (For the 
+                                    // files on remote storage, only the requested 
+                                    // column vectors are retrieved, with ranged 
+                                    // reads of the image saved as an aux object):
+                                    try {
+                                        TabularSubsetInputStream subsetStream = new TabularSubsetInputStream(dataFile, subsetVariables);
+                                        // Make sure to close the InputStream for the main datafile: 
+                                        try {
+                                            storageIO.getInputStream().close();
+                                        } catch (IOException ioex) {
+                                        }
+                                        
+                                        InputStreamIO subsetStreamIO = new InputStreamIO(subsetStream, subsetStream.getSize());
+                                        logger.fine("successfully created subset input stream.");
+                                        subsetStreamIO.setVarHeader(subsetVariableHeader.concat("\n"));
+                                        subsetStreamIO.setFileName(getSubsetFileName(storageIO.getFileName()));
+                                        subsetStreamIO.setMimeType(storageIO.getMimeType());
+                                        storageIO = subsetStreamIO;
+                                        subsetFromRotatedImage = true;
+                                    } catch (IOException ioex) {
+                                        logger.warning("failed to subset the tab file using the rotated image: " + ioex.getMessage() + "; will subset the full file instead.");
+                                    }
+                                }
+                                
+                                if (variablePositionIndex.size() > 0 && !subsetFromRotatedImage) {
 
                                     try {
                                         File tempSubsetFile = File.createTempFile("tempSubsetFile", ".tmp");
@@ -333,17 +384,7 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                                             subsetVariableHeader = subsetVariableHeader.concat("\n");
                                             subsetStreamIO.setVarHeader(subsetVariableHeader);
 
-                                            String tabularFileName = storageIO.getFileName();
-
-                                            if (tabularFileName != null && tabularFileName.endsWith(".tab")) {
-                                                tabularFileName = tabularFileName.replaceAll("\\.tab$", "-subset.tab");
-                                            } else if (tabularFileName != null && !"".equals(tabularFileName)) {
-                                                tabularFileName = tabularFileName.concat("-subset.tab");
-                                            } else {
-                                                tabularFileName = "subset.tab";
-                                            }
-
-                                            subsetStreamIO.setFileName(tabularFileName);
+                                            subsetStreamIO.setFileName(getSubsetFileName(storageIO.getFileName()));
                                             subsetStreamIO.setMimeType(storageIO.getMimeType());
                                             storageIO = subsetStreamIO;
                                         } else {
@@ -382,9 +423,29 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                     auxStreamIO.setFileName(storageIO.getFileName() + "." + auxTag + fileExtension);
                     auxStreamIO.setMimeType(di.getAuxiliaryFile().getContentType());
                     storageIO = auxStreamIO;
+                    rangeAuxTag = auxTag;
+                    rangesSupported = true;
 
                 } 
 
+                // A Range request is answered before the content is opened, 
+                // as the ranges are read on their own; so that no read of the 
+                // whole (possibly remote) object is started for nothing:
+                if (rangesSupported && storageIO.getVarHeader() == null) {
+                    long contentSize = getContentSize(storageIO);
+                    List<long[]> ranges = contentSize > 0 ? getRequestedRanges(di, contentSize) : null;
+                    if (ranges != null) {
+                        Response partialContent = getPartialContentResponse(di, rangeStorageIO, rangeAuxTag, ranges, contentSize, storageIO.getFileName(), storageIO.getMimeType());
+                        if (partialContent != null) {
+                            // Like the redirects above, the 206 response 
+                            // replaces this one (whose status can't be 
+                            // changed here):
+                            storageIO.closeInputStream();
+                            throw new WebApplicationException(partialContent);
+                        }
+                    }
+                }
+
                 try (InputStream instream = storageIO.getInputStream()) {
                     if (instream != null) {
                         // headers:
@@ -411,6 +472,10 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                             //useChunkedTransfer = true;
                         }
 
+                        if (rangesSupported && contentSize > 0 && storageIO.getVarHeader() == null) {
+                            httpHeaders.add("Accept-Ranges", "bytes");
+                        }
+
                         // (the httpHeaders map must be modified *before* writing any
                         // data in the output stream!)
                         int bufsize;
@@ -433,6 +498,12 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                             }
                         }
 
+                        if (instream instanceof TabularSubsetInputStream && !useChunkedTransfer) {
+                            // tabular subsets can be written straight into 
+                            // the output, with no intermediate byte buffers:
+                            ((TabularSubsetInputStream) instream).writeTo(Channels.newChannel(outstream));
+                        }
+
                         while ((bufsize = instream.read(bffr)) != -1) {
                             if (useChunkedTransfer) {
                                 String chunkSizeLine = String.format("%x\r\n", bufsize);
@@ -454,18 +525,7 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
                         // Downloads of thumbnail images (scaled down, low-res versions of graphic image files) and 
                         // "preprocessed metadata" records for tabular data files are NOT considered "real" downloads, 
                         // so these should not produce guestbook entries: 
-                        if (di.getGbr() != null && !(isThumbnailDownload(di) || isPreprocessedMetadataDownload(di))) {
-                            try {
-                                logger.fine("writing guestbook response.");
-                                Command<?> cmd = new CreateGuestbookResponseCommand(di.getDataverseRequestService().getDataverseRequest(), di.getGbr(), di.getGbr().getDataFile().getOwner());
-                                di.getCommand().submit(cmd);
-                                MakeDataCountEntry entry = new MakeDataCountEntry(di.getRequestUriInfo(), di.getRequestHttpHeaders(), di.getDataverseRequestService(), di.getGbr().getDataFile());
-                                mdcLogService.logEntry(entry);
-                            } catch (CommandException e) {
-                            }
-                        } else {
-                            logger.fine("not writing guestbook response");
-                        }
+                        writeGuestbookResponse(di);
 
                         outstream.close();
                         return;
@@ -478,6 +538,171 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
 
     }
 
+    private void writeGuestbookResponse(DownloadInstance di) {
+        if (di.getGbr() != null && !(isThumbnailDownload(di) || isPreprocessedMetadataDownload(di))) {
+            try {
+                logger.fine("writing guestbook response.");
+                Command<?> cmd = new CreateGuestbookResponseCommand(di.getDataverseRequestService().getDataverseRequest(), di.getGbr(), di.getGbr().getDataFile().getOwner());
+                di.getCommand().submit(cmd);
+                MakeDataCountEntry entry = new MakeDataCountEntry(di.getRequestUriInfo(), di.getRequestHttpHeaders(), di.getDataverseRequestService(), di.getGbr().getDataFile());
+                mdcLogService.logEntry(entry);
+            } catch (CommandException e) {
+            }
+        } else {
+            logger.fine("not writing guestbook response");
+        }
+    }
+
+    /**
+     * @return the ranges of the content requested with a Range header, as 
+     * {offset, length} pairs; or null if the whole content should be sent 
+     * (no Range header, an If-Range header, as we don't send validators to 
+     * check it against, or an invalid header, which is ignored).
+     * @throws WebApplicationException (416) if none of the ranges is within 
+     * the content.
+     */
+    private List<long[]> getRequestedRanges(DownloadInstance di, long contentSize) {
+        if (di.getRequestHttpHeaders() == null) {
+            return null;
+        }
+        String rangeHeader = di.getRequestHttpHeaders().getHeaderString("Range");
+        if (rangeHeader == null || di.getRequestHttpHeaders().getHeaderString("If-Range") != null) {
+            return null;
+        }
+        List<long[]> ranges = parseRanges(rangeHeader, contentSize);
+        if (ranges != null && ranges.isEmpty()) {
+            throw new WebApplicationException(Response.status(Response.Status.REQUESTED_RANGE_NOT_SATISFIABLE)
+                    .header("Content-Range", "bytes */" + contentSize).build());
+        }
+        return ranges;
+    }
+
+    /**
+     * Parses a Range header (e.g. "bytes=0-499,1000-", "bytes=-500"). 
+     * 
+     * @return the satisfiable ranges, as {offset, length} pairs, in the 
+     * order requested; an empty list if none is; or null if the header 
+     * is invalid, or asks for more than MAX_RANGES ranges.
+     */
+    static List<long[]> parseRanges(String rangeHeader, long contentSize) {
+        if (!rangeHeader.startsWith("bytes=")) {
+            return null;
+        }
+        String[] specs = rangeHeader.substring("bytes=".length()).split(",");
+        if (specs.length > MAX_RANGES) {
+            return null;
+        }
+        List<long[]> ranges = new ArrayList<>();
+        for (String spec : specs) {
+            spec = spec.trim();
+            int dash = spec.indexOf('-');
+            if (dash < 0) {
+                return null;
+            }
+            long first;
+            long last;
+            try {
+                if (dash == 0) {
+                    // the last N bytes:
+                    long suffixLength = Long.parseLong(spec.substring(1));
+                    if (suffixLength <= 0) {
+                        continue;
+                    }
+                    first = Math.max(0, contentSize - suffixLength);
+                    last = contentSize - 1;
+                } else {
+                    first = Long.parseLong(spec.substring(0, dash));
+                    last = dash == spec.length() - 1 ? Long.MAX_VALUE : Long.parseLong(spec.substring(dash + 1));
+                    if (first < 0 || last < first) {
+                        return null;
+                    }
+                    if (first >= contentSize) {
+                        continue;
+                    }
+                    last = Math.min(last, contentSize - 1);
+                }
+            } catch (NumberFormatException nfe) {
+                return null;
+            }
+            ranges.add(new long[]{first, last - first + 1});
+        }
+        return ranges;
+    }
+
+    /**
+     * @return the 206 response for the requested ranges, which reads them 
+     * straight from storage; or null if the driver can't read ranges.
+     */
+    private Response getPartialContentResponse(DownloadInstance di, StorageIO<DataFile> storageIO, String auxTag, List<long[]> ranges, long contentSize, String fileName, String mimeType) throws IOException {
+        // The ranges are only opened once the response is written; a 
+        // driver that can't read ranges is found before that (the ranges 
+        // of auxiliary files can be read with any driver):
+        if (auxTag == null && !storageIO.isRangeReadSupported()) {
+            return null;
+        }
+
+        // A resumed download is only counted once, when it starts from the 
+        // first byte:
+        if (ranges.get(0)[0] == 0) {
+            writeGuestbookResponse(di);
+        }
+
+        String finalFileName = URLEncoder.encode(fileName, "UTF-8").replaceAll("\\+", "%20");
+        Response.ResponseBuilder response = Response.status(Response.Status.PARTIAL_CONTENT)
+                .header("Content-disposition", "attachment; filename=\"" + finalFileName + "\"")
+                .header("Accept-Ranges", "bytes");
+
+        if (ranges.size() == 1) {
+            long[] range = ranges.get(0);
+            return response.header("Content-Type", mimeType + "; name=\"" + finalFileName + "\"")
+                    .header("Content-Range", getContentRange(range, contentSize))
+                    .header("Content-Length", range[1])
+                    .entity((StreamingOutput) out -> writeRange(openRange(storageIO, auxTag, range), out))
+                    .build();
+        }
+
+        String boundary = UUID.randomUUID().toString();
+        return response.header("Content-Type", "multipart/byteranges; boundary=" + boundary)
+                .entity((StreamingOutput) out -> {
+                    for (long[] range : ranges) {
+                        String partHeader = "\r\n--" + boundary + "\r\n"
+                                + "Content-Type: " + mimeType + "\r\n"
+                                + "Content-Range: " + getContentRange(range, contentSize) + "\r\n\r\n";
+                        out.write(partHeader.getBytes(StandardCharsets.US_ASCII));
+                        writeRange(openRange(storageIO, auxTag, range), out);
+                    }
+                    out.write(("\r\n--" + boundary + "--\r\n").getBytes(StandardCharsets.US_ASCII));
+                })
+                .build();
+    }
+
+    private InputStream openRange(StorageIO<DataFile> storageIO, String auxTag, long[] range) throws IOException {
+        if (auxTag == null) {
+            return storageIO.getRangeAsInputStream(range[0], range[1]);
+        }
+        return storageIO.getAuxFileRangeAsInputStream(auxTag, range[0], range[1]);
+    }
+
+    private void writeRange(InputStream rangeStream, OutputStream outstream) throws IOException {
+        try (InputStream in = rangeStream) {
+            if (in instanceof FileRangeInputStream) {
+                // local files are transferred straight into the output, 
+                // with FileChannel.transferTo():
+                ((FileRangeInputStream) in).writeTo(Channels.newChannel(outstream));
+                return;
+            }
+            int bufsize;
+            byte[] bffr = new byte[4 * 8192];
+            while ((bufsize = in.read(bffr)) != -1) {
+                outstream.write(bffr, 0, bufsize);
+            }
+        }
+    }
+
+    private static String getContentRange(long[] range, long contentSize) {
+        return "bytes " + range[0] + "-" + (range[0] + range[1] - 1) + "/" + contentSize;
+    }
+
     private boolean isAuxiliaryObjectCached(StorageIO storageIO, String auxiliaryTag) {
         try {
             return storageIO.isAuxObjectCached(auxiliaryTag);
@@ -503,6 +728,15 @@ public class DownloadInstanceWriter implements MessageBodyWriter<DownloadInstanc
         return fileExtension;
     }
 
+    private String getSubsetFileName(String tabularFileName) {
+        if (tabularFileName != null && tabularFileName.endsWith(".tab")) {
+            return tabularFileName.replaceAll("\\.tab$", "-subset.tab");
+        } else if (tabularFileName != null && !"".equals(tabularFileName)) {
+            return tabularFileName.concat("-subset.tab");
+        }
+        return "subset.tab";
+    }
+
     private boolean isThumbnailDownload(DownloadInstance downloadInstance) {
         if (downloadInstance == null) {
             return false;
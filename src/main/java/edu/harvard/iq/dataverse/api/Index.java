@@ -14,6 +14,7 @@ import edu.harvard.iq.dataverse.DataverseServiceBean;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.DvObjectServiceBean;
 import edu.harvard.iq.dataverse.FileMetadata;
+import edu.harvard.iq.dataverse.PermissionCacheServiceBean;
 import edu.harvard.iq.dataverse.RoleAssignment;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.authorization.users.GuestUser;
@@ -35,6 +36,7 @@ import edu.harvard.iq.dataverse.search.SearchFields;
 import edu.harvard.iq.dataverse.search.SearchFilesServiceBean;
 import edu.harvard.iq.dataverse.search.SearchUtil;
 import edu.harvard.iq.dataverse.search.SolrIndexServiceBean;
+import edu.harvard.iq.dataverse.search.SolrUpdateBufferService;
 import edu.harvard.iq.dataverse.search.SortBy;
 import edu.harvard.iq.dataverse.util.json.NullSafeJsonBuilder;
 import static edu.harvard.iq.dataverse.util.json.NullSafeJsonBuilder.jsonObjectBuilder;
@@ -94,6 +96,8 @@ public class Index extends AbstractApiBean {
     DatasetFieldServiceBean datasetFieldService;
     @EJB
     SearchFilesServiceBean searchFilesService;
+    @EJB
+    SolrUpdateBufferService solrUpdateBuffer;
 
     public static String contentChanged = "contentChanged";
     public static String contentIndexed = "contentIndexed";
@@ -402,6 +406,74 @@ public class Index extends AbstractApiBean {
             return ok("Index Status Batch Job initiated, check log for job status.");
         }
     }
+    /**
+     * Reports on the buffer the updates are sent to Solr through: how many
+     * are waiting, how many have been sent or have failed, and how often the
+     * indexing had to wait for Solr.
+     */
+    @GET
+    @Path("solrUpdates")
+    public Response solrUpdateBufferStatus() {
+        return ok(jsonObjectBuilder()
+                .add("buffered", solrUpdateBuffer.getBuffered())
+                .add("addedDocs", solrUpdateBuffer.getAddedDocs())
+                .add("deletedDocs", solrUpdateBuffer.getDeletedDocs())
+                .add("flushes", solrUpdateBuffer.getFlushes())
+                .add("failedUpdates", solrUpdateBuffer.getFailedUpdates())
+                .add("backpressureFlushes", solrUpdateBuffer.getBackpressureFlushes())
+                .add("maxFlushMillis", solrUpdateBuffer.getMaxFlushMillis()));
+    }
+
+    /**
+     * Reports how often the permissions granted by role assignments were
+     * found in the request permission cache, and how often they had to be
+     * computed, over all the requests since the application started.
+     */
+    @GET
+    @Path("permissionCache")
+    public Response permissionCacheStatus() {
+        return ok(jsonObjectBuilder()
+                .add("hits", PermissionCacheServiceBean.getTotalHits())
+                .add("misses", PermissionCacheServiceBean.getTotalMisses()));
+    }
+
+    /**
+     * Starts a reindex of everything, with the datasets split in
+     * {@code numPartitions} partitions that are indexed concurrently.
+     *
+     * @param numPartitions how many partitions to index concurrently.
+     * @param skipIndexed only index the objects that have not been indexed yet.
+     * @param resume carry on from the checkpoints of an interrupted reindex
+     * with the same number of partitions, rather than starting over.
+     */
+    @GET
+    @Path("parallel")
+    public Response indexAllInPartitions(@QueryParam("numPartitions") Long numPartitions, @QueryParam("skipIndexed") boolean skipIndexed, @QueryParam("resume") boolean resume) {
+        if (numPartitions == null || numPartitions < 1) {
+            return error(Status.BAD_REQUEST, "numPartitions must be 1 or higher but was " + numPartitions);
+        }
+        if (!indexBatchService.startPartitionedIndexing()) {
+            return error(Status.CONFLICT, "A parallel reindex is already running.");
+        }
+        try {
+            indexBatchService.indexAllInPartitions(numPartitions, skipIndexed, resume);
+        } catch (RuntimeException ex) {
+            indexBatchService.cancelPartitionedIndexing();
+            throw ex;
+        }
+        return ok("Parallel reindex of " + numPartitions + " partitions has begun" + (resume ? ", resuming from the last checkpoints if any." : "."));
+    }
+
+    /**
+     * Reports on the progress and throughput of the partitions of the
+     * current, or last, parallel reindex.
+     */
+    @GET
+    @Path("parallel/status")
+    public Response indexAllInPartitionsStatus() {
+        return ok(indexBatchService.getPartitionedIndexingStatus());
+    }
+
      /**
      * Deletes "orphan" Solr documents (that don't match anything in the database).
      * @param sync - optional parameter, if set, then run the command 
@@ -6,8 +6,10 @@
 package edu.harvard.iq.dataverse.api;
 
 import edu.harvard.iq.dataverse.DatasetServiceBean;
+import edu.harvard.iq.dataverse.export.ExportService;
 import java.util.logging.Logger;
 import javax.ejb.EJB;
+import javax.json.JsonObjectBuilder;
 import javax.ws.rs.GET;
 import javax.ws.rs.Path;
 import javax.ws.rs.Produces;
@@ -18,6 +20,7 @@ import javax.ws.rs.PathParam;
 import javax.ws.rs.PUT;
 import edu.harvard.iq.dataverse.harvest.server.OAISetServiceBean;
 import edu.harvard.iq.dataverse.harvest.server.OAISet;
+import static edu.harvard.iq.dataverse.util.json.NullSafeJsonBuilder.jsonObjectBuilder;
 
 /**
  *
@@ -61,6 +64,21 @@ public class Metadata extends AbstractApiBean {
         return this.accepted();
     } 
 
+    // The number of exports, and the total and longest time taken (in 
+    // milliseconds), for each export format, since the application was 
+    // started.
+    @GET
+    @Path("/exportTimings")
+    @Produces("application/json")
+    public Response exportTimings() {
+        JsonObjectBuilder timings = jsonObjectBuilder();
+        ExportService.getInstance().getExportTimings().forEach((format, timing) -> timings.add(format, jsonObjectBuilder()
+                .add("count", timing[0])
+                .add("totalMillis", timing[1])
+                .add("maxMillis", timing[2])));
+        return ok(timings);
+    }
+
     /**
      * initial attempt at triggering indexing/creation/population of a OAI set without going throught
      * the UI.
@@ -24,7 +24,7 @@ public class SiteMap extends AbstractApiBean {
         if (stageFileExists) {
             return error(Response.Status.BAD_REQUEST, "Sitemap cannot be updated because staged file exists.");
         }
-        siteMapSvc.updateSiteMap(dataverseSvc.findAll(), datasetSvc.findAll());
+        siteMapSvc.updateSiteMap();
         return ok("Sitemap update has begun. Check logs for status.");
     }
 
@@ -0,0 +1,69 @@
+package edu.harvard.iq.dataverse.api;
+
+import edu.harvard.iq.dataverse.dataaccess.DataFileZipper;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+
+/**
+ * The threads the files of the zip downloads are read ahead on (see
+ * {@link DataFileZipper#prefetchFiles}); a pool of their own, made by the
+ * managed thread factory of the container, so that the downloads don't wait
+ * behind the long-running tasks of the default managed executor (reindexing,
+ * thumbnails...). Also bounds the memory the files read ahead take, across
+ * all the downloads.
+ *
+ * The number of threads is set with the
+ * {@code dataverse.zip-download.prefetch-threads} JVM option, and the
+ * memory with {@code dataverse.zip-download.prefetch-buffer-mb}.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ZipDownloadPrefetchServiceBean {
+
+    static final int DEFAULT_THREADS = 8;
+    static final long DEFAULT_BUFFER_MB = 256;
+    static final int MAX_QUEUED = 1000;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    private ThreadPoolExecutor executor;
+    private Semaphore bufferPermits;
+
+    @PostConstruct
+    public void init() {
+        int threads = Math.max(1, Integer.getInteger("dataverse.zip-download.prefetch-threads", DEFAULT_THREADS));
+        executor = new ThreadPoolExecutor(threads, threads, 60, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<>(MAX_QUEUED), managedThreadFactory);
+        executor.allowCoreThreadTimeOut(true);
+        long bufferBytes = Long.getLong("dataverse.zip-download.prefetch-buffer-mb", DEFAULT_BUFFER_MB) * 1024 * 1024;
+        bufferPermits = new Semaphore((int) Math.max(1, bufferBytes / DataFileZipper.PREFETCH_BUFFER_SIZE));
+    }
+
+    @PreDestroy
+    public void close() {
+        executor.shutdownNow();
+    }
+
+    public ExecutorService getExecutor() {
+        return executor;
+    }
+
+    /**
+     * @return one permit for each of the buffers the files can be read ahead
+     * into.
+     */
+    public Semaphore getBufferPermits() {
+        return bufferPermits;
+    }
+}
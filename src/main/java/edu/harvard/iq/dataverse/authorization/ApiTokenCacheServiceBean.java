@@ -0,0 +1,76 @@
+package edu.harvard.iq.dataverse.authorization;
+
+import edu.harvard.iq.dataverse.authorization.users.ApiToken;
+import edu.harvard.iq.dataverse.util.ExpiringLruCache;
+import java.util.Objects;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Remembers which user the recently used API tokens belong to, so that
+ * {@link AuthenticationServiceBean#lookupUser(java.lang.String)} doesn't have
+ * to query the apitoken table on every API call.
+ *
+ * Only the id of the user is kept, and the user is still looked up (and
+ * checked for deactivation) on every call. The entries expire after
+ * {@link #TTL_MILLIS}, which bounds how long a token removed on another
+ * server can still be used here; on this server, the tokens are evicted
+ * explicitly when they are removed or replaced. At most
+ * {@link #MAX_ENTRIES} tokens are kept, the least recently used ones are
+ * dropped first.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class ApiTokenCacheServiceBean {
+
+    static final int MAX_ENTRIES = 10000;
+    static final long TTL_MILLIS = 60 * 1000;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final ExpiringLruCache<String, Long> tokens = new ExpiringLruCache<>(MAX_ENTRIES, TTL_MILLIS);
+
+    /**
+     * @param tokenString the API token
+     * @return the id of the user the token belongs to, or null if the token
+     * is not cached (or has expired).
+     */
+    public Long lookupUserId(String tokenString) {
+        if (tokenString == null) {
+            return null;
+        }
+        return tokens.get(tokenString);
+    }
+
+    /**
+     * Caches a token that has been found to be valid; until the token itself
+     * expires, or for {@link #TTL_MILLIS}, whichever comes first.
+     */
+    public void put(ApiToken token) {
+        long expireTime = token.getExpireTime() != null ? token.getExpireTime().getTime() : Long.MAX_VALUE;
+        tokens.put(token.getTokenString(), token.getAuthenticatedUser().getId(), expireTime);
+    }
+
+    public void evict(String tokenString) {
+        if (tokenString != null) {
+            tokens.invalidate(tokenString);
+        }
+    }
+
+    /**
+     * Evicts all the cached tokens of a user; right away, and once more when
+     * the current transaction completes (so that a token that was looked up
+     * again in the meantime isn't left in the cache).
+     */
+    public void evictUser(Long userId) {
+        tokens.invalidateIf(cachedUserId -> Objects.equals(cachedUserId, userId), transactionSynchronizationRegistry);
+    }
+
+    int size() {
+        return tokens.size();
+    }
+}
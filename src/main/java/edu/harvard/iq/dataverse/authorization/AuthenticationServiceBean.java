@@ -127,6 +127,9 @@ public class AuthenticationServiceBean {
     @EJB
     SavedSearchServiceBean savedSearchService;
 
+    @EJB
+    ApiTokenCacheServiceBean apiTokenCache;
+
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     private EntityManager em;
         
@@ -178,7 +181,21 @@ public class AuthenticationServiceBean {
             if (apiToken != null) {
                 em.remove(apiToken);
             }
+            evictCachedApiTokens(user);
+        }
+    }
+
+    /**
+     * Makes {@link #lookupUser(java.lang.String)} stop accepting the cached
+     * API tokens of the user; right away, and once more when the current
+     * transaction completes (so that a token that was looked up again in
+     * the meantime isn't left in the cache).
+     */
+    public void evictCachedApiTokens(AuthenticatedUser user) {
+        if (user == null || user.getId() == null) {
+            return;
         }
+        apiTokenCache.evictUser(user.getId());
     }
     
     public boolean isOrcidEnabled() {
@@ -209,6 +226,7 @@ public class AuthenticationServiceBean {
             if (apiToken != null) {
                 em.remove(apiToken);
             }
+            evictCachedApiTokens(user);
             // @todo: this should be handed down to the service instead of doing it here.
             ConfirmEmailData confirmEmailData = confirmEmailService.findSingleConfirmEmailDataByUser(user);
             if (confirmEmailData != null) {
@@ -423,6 +441,7 @@ public class AuthenticationServiceBean {
             return null;
         }
 
+        evictCachedApiTokens(au);
         ApiToken apiToken = new ApiToken();
         apiToken.setTokenString(java.util.UUID.randomUUID().toString());
         apiToken.setAuthenticatedUser(au);
@@ -437,7 +456,21 @@ public class AuthenticationServiceBean {
         return apiToken;
     }
 
+    /**
+     * Finds the user the API token belongs to. The tokens that were found
+     * valid recently are served from {@link ApiTokenCacheServiceBean},
+     * without querying the apitoken table.
+     */
     public AuthenticatedUser lookupUser( String apiToken ) {
+        Long cachedUserId = apiTokenCache.lookupUserId(apiToken);
+        if (cachedUserId != null) {
+            AuthenticatedUser user = em.find(AuthenticatedUser.class, cachedUserId);
+            if (user != null && !user.isDeactivated()) {
+                return user;
+            }
+            apiTokenCache.evict(apiToken);
+        }
+
         ApiToken tkn = findApiToken(apiToken);
         if ( tkn == null ) return null;
         
@@ -452,6 +485,7 @@ public class AuthenticationServiceBean {
         
         AuthenticatedUser user = tkn.getAuthenticatedUser();
         if (!user.isDeactivated()) {
+            apiTokenCache.put(tkn);
             return user;
         } else {
             logger.info("attempted access with token from deactivated user: " + apiToken);
@@ -0,0 +1,167 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv4Address;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv4Range;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv6Address;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv6Range;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Keeps the ranges of all the IP groups in memory, in a sorted index, so that
+ * the groups containing an address can be found without a database round trip.
+ *
+ * The index is built from the database on the first lookup after it has been
+ * invalidated, and swapped in as a whole; it's invalidated when an IP group is
+ * stored or deleted on this server, and rebuilt after {@link #TTL_MILLIS}
+ * anyway, which bounds how long a change made on another server goes
+ * unnoticed here. Only one lookup at a time rebuilds it: once it has expired,
+ * the other lookups keep using it until the new one is swapped in; once it
+ * has been invalidated, they wait for the new one.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class IpGroupIndexServiceBean {
+
+    private static final Logger logger = Logger.getLogger(IpGroupIndexServiceBean.class.getCanonicalName());
+
+    static final long TTL_MILLIS = 60 * 1000;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private static class Indexes {
+        final IpRangeIndex<IPv4Address> ipv4;
+        final IpRangeIndex<IPv6Address> ipv6;
+        final long validUntil;
+
+        Indexes(IpRangeIndex<IPv4Address> ipv4, IpRangeIndex<IPv6Address> ipv6, long validUntil) {
+            this.ipv4 = ipv4;
+            this.ipv6 = ipv6;
+            this.validUntil = validUntil;
+        }
+    }
+
+    private volatile Indexes indexes;
+
+    /**
+     * Bumped on every invalidation, so that an index built from data read
+     * before the invalidation is not kept.
+     */
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final ReentrantLock rebuildLock = new ReentrantLock();
+
+    /**
+     * How long a built index is used; only changed by the tests.
+     */
+    long ttlMillis = TTL_MILLIS;
+
+    /**
+     * @param ipa the address to look up.
+     * @return The ids of the IP groups with a range containing {@code ipa}.
+     */
+    public Set<Long> findGroupIdsContaining(IpAddress ipa) {
+        Indexes current = getIndexes();
+        if (ipa instanceof IPv4Address) {
+            return current.ipv4.findGroupIdsContaining((IPv4Address) ipa);
+        } else if (ipa instanceof IPv6Address) {
+            return current.ipv6.findGroupIdsContaining((IPv6Address) ipa);
+        } else {
+            throw new IllegalArgumentException("Unknown IpAddress type: " + ipa.getClass() + " (for IpAddress:" + ipa + ")");
+        }
+    }
+
+    /**
+     * Drops the index; right away, and once more when the current transaction
+     * (if any) completes, so that an index rebuilt in the meantime from the
+     * old data is not kept either.
+     */
+    public void invalidate() {
+        logger.fine("Invalidating the IP group index");
+        drop();
+        if (transactionSynchronizationRegistry != null && transactionSynchronizationRegistry.getTransactionKey() != null) {
+            transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+                @Override
+                public void beforeCompletion() {
+                }
+
+                @Override
+                public void afterCompletion(int status) {
+                    drop();
+                }
+            });
+        }
+    }
+
+    private synchronized void drop() {
+        invalidations.incrementAndGet();
+        indexes = null;
+    }
+
+    private Indexes getIndexes() {
+        Indexes current = indexes;
+        if (current != null && current.validUntil >= System.currentTimeMillis()) {
+            return current;
+        }
+        if (current == null) {
+            // (invalidated: there's no index that can still be used)
+            rebuildLock.lock();
+        } else if (!rebuildLock.tryLock()) {
+            // (expired: another lookup is rebuilding it)
+            return current;
+        }
+        try {
+            Indexes latest = indexes;
+            if (latest != null && latest != current && latest.validUntil >= System.currentTimeMillis()) {
+                // (rebuilt while we were waiting)
+                return latest;
+            }
+            long invalidationsBefore = invalidations.get();
+            Indexes built = buildIndexes();
+            synchronized (this) {
+                if (invalidations.get() == invalidationsBefore) {
+                    indexes = built;
+                }
+            }
+            return built;
+        } finally {
+            rebuildLock.unlock();
+        }
+    }
+
+    private Indexes buildIndexes() {
+        IpRangeIndex.Builder<IPv4Address> ipv4 = new IpRangeIndex.Builder<>();
+        IpRangeIndex.Builder<IPv6Address> ipv6 = new IpRangeIndex.Builder<>();
+        List<IpGroup> groups = em.createNamedQuery("IpGroup.findAll", IpGroup.class).getResultList();
+        for (IpGroup group : groups) {
+            if (group.getIpv4Ranges() != null) {
+                for (IPv4Range range : group.getIpv4Ranges()) {
+                    ipv4.add(range.getBottom(), range.getTop(), group.getId());
+                }
+            }
+            if (group.getIpv6Ranges() != null) {
+                for (IPv6Range range : group.getIpv6Ranges()) {
+                    ipv6.add(range.getBottom(), range.getTop(), group.getId());
+                }
+            }
+        }
+        logger.fine(() -> "Built the IP group index from " + groups.size() + " groups");
+        return new Indexes(ipv4.build(), ipv6.build(), System.currentTimeMillis() + ttlMillis);
+    }
+}
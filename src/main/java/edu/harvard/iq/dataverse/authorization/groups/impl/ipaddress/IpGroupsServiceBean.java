@@ -3,9 +3,8 @@ package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
 import edu.harvard.iq.dataverse.RoleAssigneeServiceBean;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
-import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv4Address;
-import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv6Address;
 import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import edu.harvard.iq.dataverse.search.PermissionFilterCacheServiceBean;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
@@ -37,12 +36,20 @@ public class IpGroupsServiceBean {
     @EJB
     RoleAssigneeServiceBean roleAssigneeSvc;
     
+    @EJB
+    PermissionFilterCacheServiceBean permissionFilterCache;
+    
+    @EJB
+    IpGroupIndexServiceBean ipGroupIndex;
+    
     /**
      * Stores (inserts/updates) the passed IP group.
      * @param grp The group to store.
      * @return Managed version of the group. The provider might be un-set.
      */
     public IpGroup store( IpGroup grp ) {
+        permissionFilterCache.invalidateAll();
+        ipGroupIndex.invalidate();
         ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.GlobalGroups, "ipCreate");
         if ( grp.getGroupProvider() != null ) {
             alr.setInfo( grp.getIdentifier());
@@ -97,27 +104,21 @@ public class IpGroupsServiceBean {
         return em.createNamedQuery("IpGroup.findAll", IpGroup.class).getResultList();
     }
     
+    /**
+     * Finds the groups with a range containing the passed address, using the
+     * in-memory index of the ranges (so the groups are loaded by id).
+     * @param ipa the address
+     * @return the groups containing {@code ipa}.
+     */
     public Set<IpGroup> findAllIncludingIp( IpAddress ipa ) {
-        if ( ipa instanceof IPv4Address ) {
-            IPv4Address ip4 = (IPv4Address) ipa;
-            List<IpGroup> groupList = em.createNamedQuery("IPv4Range.findGroupsContainingAddressAsLong", IpGroup.class)
-                    .setParameter("addressAsLong", ip4.toBigInteger()).getResultList();
-            return new HashSet<>(groupList);
-
-        } else if ( ipa instanceof IPv6Address ) {
-            IPv6Address ip6 = (IPv6Address) ipa;
-            long[] ip6arr = ip6.toLongArray();
-            List<IpGroup> groupList = em.createNamedQuery("IPv6Range.findGroupsContainingABCD", IpGroup.class)
-                    .setParameter("a", ip6arr[0])
-                    .setParameter("b", ip6arr[1])
-                    .setParameter("c", ip6arr[2])
-                    .setParameter("d", ip6arr[3])
-                    .getResultList();
-            return new HashSet<>(groupList);
-
-        } else {
-            throw new IllegalArgumentException( "Unknown IpAddress type: " + ipa.getClass() + " (for IpAddress:" + ipa + ")" );
+        Set<IpGroup> groups = new HashSet<>();
+        for ( Long groupId : ipGroupIndex.findGroupIdsContaining(ipa) ) {
+            IpGroup grp = em.find(IpGroup.class, groupId);
+            if ( grp != null ) {
+                groups.add(grp);
+            }
         }
+        return groups;
     }
     
     /**
@@ -127,6 +128,8 @@ public class IpGroupsServiceBean {
      * @see RoleAssigneeServiceBean#getAssignmentsFor(java.lang.String) 
      */
     public void deleteGroup( IpGroup grp ) {
+        permissionFilterCache.invalidateAll();
+        ipGroupIndex.invalidate();
         ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.GlobalGroups, "ipDelete");
         alr.setInfo( grp.getIdentifier() );
         if ( roleAssigneeSvc.getAssignmentsFor(grp.getIdentifier()).isEmpty() ) {
@@ -0,0 +1,135 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * An immutable index of IP address ranges, that finds the ids of the groups
+ * whose ranges contain a given address in {@code O(log n)}.
+ *
+ * The address space is cut, at the bottom of each range and right after its
+ * top, into segments in which every address is in the same ranges. The
+ * segments are kept sorted, along with the ids of the groups whose ranges
+ * cover them; so a lookup is a binary search for the segment the address
+ * falls into.
+ *
+ * @param <A> The type of the addresses ({@code IPv4Address} or {@code IPv6Address}).
+ */
+public class IpRangeIndex<A extends Comparable<A>> {
+
+    /**
+     * A point at which a segment starts: either at {@code address}, or right
+     * after it.
+     */
+    private static class Boundary<A extends Comparable<A>> implements Comparable<Boundary<A>> {
+        final A address;
+        final boolean after;
+
+        Boundary(A address, boolean after) {
+            this.address = address;
+            this.after = after;
+        }
+
+        @Override
+        public int compareTo(Boundary<A> o) {
+            int cmp = address.compareTo(o.address);
+            if (cmp != 0) {
+                return cmp;
+            }
+            return Boolean.compare(after, o.after);
+        }
+    }
+
+    private static class Event<A extends Comparable<A>> {
+        final Boundary<A> boundary;
+        final Long groupId;
+        final boolean start;
+
+        Event(Boundary<A> boundary, Long groupId, boolean start) {
+            this.boundary = boundary;
+            this.groupId = groupId;
+            this.start = start;
+        }
+    }
+
+    /**
+     * Collects the ranges of the index, see {@link #build()}.
+     */
+    public static class Builder<A extends Comparable<A>> {
+
+        private final List<Event<A>> events = new ArrayList<>();
+
+        public Builder<A> add(A bottom, A top, Long groupId) {
+            if (bottom.compareTo(top) > 0) {
+                // as in the database queries, such a range does not contain anything.
+                return this;
+            }
+            events.add(new Event<>(new Boundary<>(bottom, false), groupId, true));
+            events.add(new Event<>(new Boundary<>(top, true), groupId, false));
+            return this;
+        }
+
+        public IpRangeIndex<A> build() {
+            events.sort((e1, e2) -> e1.boundary.compareTo(e2.boundary));
+
+            List<Boundary<A>> starts = new ArrayList<>();
+            List<Set<Long>> groups = new ArrayList<>();
+            // a group may have overlapping ranges, hence the counts.
+            Map<Long, Integer> openRanges = new HashMap<>();
+
+            int i = 0;
+            while (i < events.size()) {
+                Boundary<A> boundary = events.get(i).boundary;
+                while (i < events.size() && events.get(i).boundary.compareTo(boundary) == 0) {
+                    Event<A> event = events.get(i);
+                    openRanges.merge(event.groupId, event.start ? 1 : -1, Integer::sum);
+                    if (openRanges.get(event.groupId) == 0) {
+                        openRanges.remove(event.groupId);
+                    }
+                    i++;
+                }
+                starts.add(boundary);
+                groups.add(openRanges.isEmpty()
+                        ? Collections.emptySet()
+                        : Collections.unmodifiableSet(new TreeSet<>(openRanges.keySet())));
+            }
+
+            return new IpRangeIndex<>(starts, groups);
+        }
+    }
+
+    private final Boundary<A>[] segmentStarts;
+    private final List<Set<Long>> segmentGroupIds;
+
+    @SuppressWarnings("unchecked")
+    private IpRangeIndex(List<Boundary<A>> segmentStarts, List<Set<Long>> segmentGroupIds) {
+        this.segmentStarts = segmentStarts.toArray(new Boundary[segmentStarts.size()]);
+        this.segmentGroupIds = segmentGroupIds;
+    }
+
+    /**
+     * @param address the address to look up.
+     * @return The ids of the groups that have a range containing {@code address}.
+     */
+    public Set<Long> findGroupIdsContaining(A address) {
+        int idx = Arrays.binarySearch(segmentStarts, new Boundary<>(address, false));
+        if (idx < 0) {
+            // the address is inside the segment starting before the insertion point.
+            idx = -idx - 2;
+        }
+        return (idx < 0) ? Collections.emptySet() : segmentGroupIds.get(idx);
+    }
+
+    /**
+     * @return The number of segments in the index.
+     */
+    int size() {
+        return segmentStarts.length;
+    }
+}
@@ -4,6 +4,7 @@ import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailServiceBean;
+import edu.harvard.iq.dataverse.search.PermissionFilterCacheServiceBean;
 
 import java.util.*;
 import java.util.logging.Logger;
@@ -37,6 +38,8 @@ public class MailDomainGroupServiceBean {
     ConfirmEmailServiceBean confirmEmailSvc;
     @Inject
     ActionLogServiceBean actionLogSvc;
+    @Inject
+    PermissionFilterCacheServiceBean permissionFilterCache;
 	
     MailDomainGroupProvider provider;
     List<MailDomainGroup> simpleGroups = Collections.EMPTY_LIST;
@@ -139,6 +142,7 @@ public class MailDomainGroupServiceBean {
      */
     @Lock(LockType.WRITE)
     public MailDomainGroup saveOrUpdate(Optional<String> groupAlias, MailDomainGroup grp ) {
+        permissionFilterCache.invalidateAll();
         ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.GlobalGroups, "mailDomainCreate");
         alr.setInfo(grp.getIdentifier());
         
@@ -177,6 +181,7 @@ public class MailDomainGroupServiceBean {
      */
     @Lock(LockType.WRITE)
     public void delete(String groupAlias) {
+        permissionFilterCache.invalidateAll();
         ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.GlobalGroups, "mailDomainDelete");
         alr.setInfo(groupAlias);
     
@@ -6,6 +6,7 @@ import edu.harvard.iq.dataverse.actionlogging.ActionLogRecord;
 import edu.harvard.iq.dataverse.actionlogging.ActionLogServiceBean;
 import edu.harvard.iq.dataverse.authorization.groups.GroupServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
+import edu.harvard.iq.dataverse.search.PermissionFilterCacheServiceBean;
 import java.util.ArrayList;
 import java.util.HashSet;
 import java.util.List;
@@ -39,6 +40,8 @@ public class ShibGroupServiceBean {
     GroupServiceBean groupService;
     @EJB
     ActionLogServiceBean actionLogSvc;
+    @EJB
+    PermissionFilterCacheServiceBean permissionFilterCache;
 
     /**
      * @return A ShibGroup or null.
@@ -60,6 +63,7 @@ public class ShibGroupServiceBean {
     }
 
     public ShibGroup save(String name, String shibIdpAttribute, String shibIdp) {
+        permissionFilterCache.invalidateAll();
         ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.GlobalGroups, "shibCreate");
         alr.setInfo(name + ": " + shibIdp + "/" + shibIdpAttribute);
 
@@ -96,6 +100,7 @@ public class ShibGroupServiceBean {
     }
 
     public boolean delete(ShibGroup doomed) throws Exception {
+        permissionFilterCache.invalidateAll();
         ActionLogRecord alr = new ActionLogRecord(ActionLogRecord.ActionType.GlobalGroups, "shibDelete");
         alr.setInfo(doomed.getName() + ":" + doomed.getIdentifier());
 
@@ -25,11 +25,23 @@ import java.io.IOException;
 
 import edu.harvard.iq.dataverse.DataFile;
 import java.io.OutputStream;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
 import java.util.logging.Logger;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipOutputStream;
 
@@ -43,6 +55,23 @@ public class DataFileZipper {
     private static final Logger logger = Logger.getLogger(DataFileZipper.class.getCanonicalName());
     private static final String MANIFEST_FILE_NAME = "MANIFEST.TXT";
     
+    /**
+     * How much of each prefetched file is read ahead of time, and kept in 
+     * memory until the file is added to the zip stream. 
+     */
+    public static final int PREFETCH_BUFFER_SIZE = 4 * 1024 * 1024;
+    
+    /**
+     * Content types that are compressed already; the files of these types 
+     * are stored in the zip stream as they are, rather than deflated again. 
+     * (Along with all the "video/" types.)
+     */
+    private static final Set<String> COMPRESSED_CONTENT_TYPES = new HashSet<>(Arrays.asList(
+            "application/zip", "application/zipped-shapefile", "application/gzip", "application/x-gzip",
+            "application/x-bzip2", "application/x-xz", "application/x-7z-compressed", "application/x-rar-compressed",
+            "image/jpeg", "image/png", "image/gif", "image/webp", "image/jp2",
+            "audio/mpeg", "audio/mp4", "audio/ogg", "audio/aac", "audio/flac"));
+    
     private OutputStream outputStream = null; 
     private ZipOutputStream zipOutputStream = null;
     
@@ -52,6 +81,111 @@ public class DataFileZipper {
     private String fileManifest = "";
     
     private Set<String> zippedFolders = null; 
+    
+    /**
+     * A file opened in storage, with up to PREFETCH_BUFFER_SIZE bytes of its 
+     * content possibly read already (holding a permit of the buffers). 
+     */
+    private static class OpenedFile {
+        final StorageIO<DataFile> accessObject;
+        final InputStream instream;
+        byte[] head = null;
+        boolean headIsContent = false;
+        private Semaphore headPermit = null;
+
+        OpenedFile(StorageIO<DataFile> accessObject, InputStream instream) {
+            this.accessObject = accessObject;
+            this.instream = instream;
+        }
+
+        void readHead(Semaphore bufferPermits) throws IOException {
+            if (instream == null || !bufferPermits.tryAcquire()) {
+                return;
+            }
+            headPermit = bufferPermits;
+            head = instream.readNBytes(PREFETCH_BUFFER_SIZE);
+            headIsContent = head.length < PREFETCH_BUFFER_SIZE;
+        }
+
+        synchronized void releaseHead() {
+            head = null;
+            if (headPermit != null) {
+                headPermit.release();
+                headPermit = null;
+            }
+        }
+
+        void close() {
+            releaseHead();
+            if (instream != null) {
+                try {
+                    instream.close();
+                } catch (IOException ioex) {
+                }
+            }
+        }
+    }
+    
+    /**
+     * A file being opened, and read ahead, on the prefetch executor.
+     */
+    private static class PrefetchedFile {
+        final DataFile dataFile;
+        Future<OpenedFile> future;
+        private OpenedFile openedFile = null;
+        private boolean started = false;
+        private boolean discarded = false;
+
+        PrefetchedFile(DataFile dataFile) {
+            this.dataFile = dataFile;
+        }
+
+        /**
+         * @return whether the file is to be read; i.e. it has not been 
+         * discarded (or taken to be read on the calling thread) yet. 
+         */
+        synchronized boolean start() {
+            started = !discarded;
+            return started;
+        }
+
+        synchronized OpenedFile opened(OpenedFile openedFile) {
+            if (discarded) {
+                openedFile.close();
+            } else {
+                this.openedFile = openedFile;
+            }
+            return openedFile;
+        }
+
+        synchronized void discard() {
+            discarded = true;
+            future.cancel(false);
+            if (openedFile != null) {
+                openedFile.close();
+            }
+        }
+
+        /**
+         * Discards the file if it has not started to be read; as it may be 
+         * queued behind the files of other downloads. 
+         * 
+         * @return whether it was discarded. 
+         */
+        synchronized boolean discardIfNotStarted() {
+            if (started) {
+                return false;
+            }
+            discard();
+            return true;
+        }
+    }
+    
+    private ExecutorService prefetchExecutor = null;
+    private Semaphore prefetchBufferPermits = null;
+    private Iterator<DataFile> upcomingFiles = null;
+    private boolean prefetchOriginals = false;
+    private final Deque<PrefetchedFile> prefetchedFiles = new ArrayDeque<>();
 
     public DataFileZipper() {
         fileNameList = new ArrayList<>();
@@ -89,6 +223,164 @@ public class DataFileZipper {
         this.zipOutputStream = new ZipOutputStream(outputStream);
     }
     
+    /**
+     * Has the files that are going to be added to the zip stream next (in 
+     * this order) opened and read ahead of time, prefetchCount files at a 
+     * time, on the executor; so that the storage latency of each file 
+     * (significant on S3 and Swift) is not added up. Files that are added 
+     * out of this order, or whose prefetching has not started by the time 
+     * they are added (e.g. the executor is busy), are simply read when 
+     * they are added. 
+     * 
+     * @param dataFiles the files, in the order they are going to be added.
+     * @param getOriginal whether the saved originals of tabular files are 
+     * going to be added. 
+     * @param executor the executor to read the files on.
+     * @param bufferPermits the buffers of PREFETCH_BUFFER_SIZE bytes the 
+     * files can be read ahead into, shared with the other downloads; a 
+     * file prefetched when there are none left is only opened. 
+     * @param prefetchCount how many files are read ahead at a time; with 0, 
+     * the files are read one at a time, when they are added. 
+     */
+    public void prefetchFiles(List<DataFile> dataFiles, boolean getOriginal, ExecutorService executor, Semaphore bufferPermits, int prefetchCount) {
+        discardPrefetchedFiles();
+        if (executor == null || prefetchCount <= 0) {
+            return;
+        }
+        this.prefetchExecutor = executor;
+        this.prefetchBufferPermits = bufferPermits;
+        this.upcomingFiles = new ArrayList<>(dataFiles).iterator();
+        this.prefetchOriginals = getOriginal;
+        for (int i = 0; i < prefetchCount; i++) {
+            prefetchNextFile();
+        }
+    }
+    
+    /**
+     * Closes the files that have been prefetched, but not added to the zip 
+     * stream; e.g. when the download is interrupted. 
+     */
+    public void discardPrefetchedFiles() {
+        upcomingFiles = null;
+        PrefetchedFile prefetchedFile;
+        while ((prefetchedFile = prefetchedFiles.poll()) != null) {
+            prefetchedFile.discard();
+        }
+    }
+    
+    private void prefetchNextFile() {
+        if (upcomingFiles == null || !upcomingFiles.hasNext()) {
+            return;
+        }
+        DataFile dataFile = upcomingFiles.next();
+        // The storage drivers look at these lazy relationships; load them 
+        // here, on the thread of the persistence context, rather than on the 
+        // prefetch threads: 
+        dataFile.getFileMetadata();
+        if (dataFile.isTabularData()) {
+            dataFile.getDataTable().getDataVariables().size();
+        }
+        StorageIO<DataFile> accessObject;
+        try {
+            accessObject = DataAccess.getStorageIO(dataFile, new DataAccessRequest());
+        } catch (IOException ioex) {
+            // it will fail again when the file is added, and be reported then
+            return;
+        }
+        if (accessObject == null) {
+            return;
+        }
+        boolean getOriginal = prefetchOriginals;
+        Semaphore bufferPermits = prefetchBufferPermits;
+        PrefetchedFile prefetchedFile = new PrefetchedFile(dataFile);
+        try {
+            prefetchedFile.future = prefetchExecutor.submit(() -> {
+                if (!prefetchedFile.start()) {
+                    return null;
+                }
+                OpenedFile openedFile = openFile(accessObject, getOriginal);
+                try {
+                    if (bufferPermits != null) {
+                        openedFile.readHead(bufferPermits);
+                    }
+                } catch (IOException | RuntimeException ex) {
+                    openedFile.close();
+                    throw ex;
+                }
+                return prefetchedFile.opened(openedFile);
+            });
+        } catch (RejectedExecutionException rex) {
+            // the executor is full; the file is read when it is added
+            return;
+        }
+        prefetchedFiles.add(prefetchedFile);
+    }
+    
+    /**
+     * @return the ids of the files being prefetched, in order. 
+     */
+    List<Long> getPrefetchedFileIds() {
+        return prefetchedFiles.stream().map(prefetchedFile -> prefetchedFile.dataFile.getId()).collect(Collectors.toList());
+    }
+    
+    /**
+     * @return the file, if it has been prefetched, or is being (and then 
+     * the next file is prefetched); or null. 
+     * @throws IOException if the file could not be opened. 
+     */
+    private OpenedFile takePrefetchedFile(DataFile dataFile) throws IOException {
+        if (prefetchedFiles.stream().noneMatch(prefetchedFile -> prefetchedFile.dataFile == dataFile)) {
+            return null;
+        }
+        // The files prefetched before this one have not been added after all:
+        PrefetchedFile prefetchedFile;
+        while ((prefetchedFile = prefetchedFiles.poll()).dataFile != dataFile) {
+            prefetchedFile.discard();
+            prefetchNextFile();
+        }
+        prefetchNextFile();
+        if (prefetchedFile.discardIfNotStarted()) {
+            // rather than waiting for the executor to get to it:
+            return null;
+        }
+        try {
+            return prefetchedFile.future.get();
+        } catch (ExecutionException ee) {
+            if (ee.getCause() instanceof IOException) {
+                throw (IOException) ee.getCause();
+            }
+            throw new IOException("Failed to read datafile " + dataFile.getId() + ": " + ee.getCause(), ee.getCause());
+        } catch (InterruptedException ie) {
+            Thread.currentThread().interrupt();
+            prefetchedFile.discard();
+            throw new IOException("Interrupted while reading datafile " + dataFile.getId(), ie);
+        }
+    }
+    
+    private static OpenedFile openFile(StorageIO<DataFile> accessObject, boolean getOriginal) throws IOException {
+        Boolean gotOriginal = false;
+        if(getOriginal) {
+            StoredOriginalFile sof = new StoredOriginalFile();
+            StorageIO<DataFile> tempAccessObject = sof.retreive(accessObject);
+            if(null != tempAccessObject) { //If there is an original, use it
+                gotOriginal = true;
+                accessObject = tempAccessObject; 
+            } 
+        }
+        if(!gotOriginal) { //if we didn't get this from sof.retreive we have to open it
+            accessObject.open();
+        }
+        return new OpenedFile(accessObject, accessObject.getInputStream());
+    }
+    
+    static boolean isCompressedContentType(String mimeType) {
+        if (mimeType == null) {
+            return false;
+        }
+        String type = mimeType.split(";")[0].trim().toLowerCase();
+        return type.startsWith("video/") || COMPRESSED_CONTENT_TYPES.contains(type);
+    }
+    
     public long addFileToZipStream(DataFile dataFile) throws IOException {
         return addFileToZipStream(dataFile, false);
     }
@@ -100,22 +392,17 @@ public class DataFileZipper {
 
         boolean createManifest = fileManifest != null;
         
-        DataAccessRequest daReq = new DataAccessRequest();
-        StorageIO<DataFile> accessObject = DataAccess.getStorageIO(dataFile, daReq);
-
-        if (accessObject != null) {
-            Boolean gotOriginal = false;
-            if(getOriginal) {
-                StoredOriginalFile sof = new StoredOriginalFile();
-                StorageIO<DataFile> tempAccessObject = sof.retreive(accessObject);
-                if(null != tempAccessObject) { //If there is an original, use it
-                    gotOriginal = true;
-                    accessObject = tempAccessObject; 
-                } 
-            }
-            if(!gotOriginal) { //if we didn't get this from sof.retreive we have to open it
-                accessObject.open();
+        OpenedFile openedFile = takePrefetchedFile(dataFile);
+        if (openedFile == null) {
+            DataAccessRequest daReq = new DataAccessRequest();
+            StorageIO<DataFile> accessObject = DataAccess.getStorageIO(dataFile, daReq);
+            if (accessObject != null) {
+                openedFile = openFile(accessObject, getOriginal);
             }
+        }
+
+        if (openedFile != null) {
+            StorageIO<DataFile> accessObject = openedFile.accessObject;
 
             long byteSize = 0;
 
@@ -128,7 +415,7 @@ public class DataFileZipper {
             //if (sizeTotal + fileSize < sizeLimit) {
             Boolean Success = true;
 
-            InputStream instream = accessObject.getInputStream();
+            InputStream instream = openedFile.instream;
             if (instream == null) {
                 if (createManifest) {
                     addToManifest(fileName
@@ -164,21 +451,45 @@ public class DataFileZipper {
                 ZipEntry e = new ZipEntry(zipEntryName);
                 logger.fine("created new zip entry for " + zipEntryName);
 
+                String varHeaderLine = accessObject.getVarHeader();
+                byte[] varHeader = varHeaderLine != null ? varHeaderLine.getBytes() : new byte[0];
+                
+                // Compressed content is not deflated again; if all of it has 
+                // been read ahead, its size and CRC are known before the 
+                // entry is written, and it can be STORED as it is: 
+                boolean compressed = isCompressedContentType(mimeType);
+                if (compressed && openedFile.headIsContent) {
+                    CRC32 crc = new CRC32();
+                    crc.update(varHeader);
+                    crc.update(openedFile.head);
+                    e.setMethod(ZipEntry.STORED);
+                    e.setSize(varHeader.length + openedFile.head.length);
+                    e.setCompressedSize(varHeader.length + openedFile.head.length);
+                    e.setCrc(crc.getValue());
+                } else {
+                    zipOutputStream.setLevel(compressed ? Deflater.NO_COMPRESSION : Deflater.DEFAULT_COMPRESSION);
+                }
+
                 zipOutputStream.putNextEntry(e);
 
                 // before writing out any bytes from the input stream, flush
                 // any extra content, such as the variable header for the 
                 // subsettable files:
-                String varHeaderLine = accessObject.getVarHeader();
                 if (varHeaderLine != null) {
-                    zipOutputStream.write(varHeaderLine.getBytes());
-                    byteSize += (varHeaderLine.getBytes().length);
+                    zipOutputStream.write(varHeader);
+                    byteSize += varHeader.length;
+                }
+
+                if (openedFile.head != null) {
+                    zipOutputStream.write(openedFile.head);
+                    byteSize += openedFile.head.length;
+                    openedFile.releaseHead();
                 }
 
                 byte[] data = new byte[8192];
 
                 int i = 0;
-                while ((i = instream.read(data)) > 0) {
+                while (!openedFile.headIsContent && (i = instream.read(data)) > 0) {
                     zipOutputStream.write(data, 0, i);
                     logger.fine("wrote " + i + " bytes;");
 
@@ -208,6 +519,8 @@ public class DataFileZipper {
     public void finalizeZipStream() throws IOException {
         boolean createManifest = fileManifest != null;
         
+        discardPrefetchedFiles();
+        
         if (zipOutputStream == null) {
             openZipStream();
         }
@@ -220,6 +533,7 @@ public class DataFileZipper {
             
             ZipEntry e = new ZipEntry(manifestEntry);
 
+            zipOutputStream.setLevel(Deflater.DEFAULT_COMPRESSION);
             zipOutputStream.putNextEntry(e);
             zipOutputStream.write(fileManifest.getBytes());
             zipOutputStream.closeEntry();
@@ -641,6 +641,22 @@ public class FileAccessIO<T extends DvObject> extends StorageIO<T> {
         }
         return in;
     }
+
+    @Override
+    public InputStream getAuxFileRangeAsInputStream(String auxItemTag, long offset, long length) throws IOException {
+        return new FileRangeInputStream(getAuxObjectAsPath(auxItemTag), offset, length);
+    }
+
+    @Override
+    public boolean isRangeReadSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream getRangeAsInputStream(long offset, long length) throws IOException {
+        return new FileRangeInputStream(getFileSystemPath(), offset, length);
+    }
+
     private String stripDriverId(String storageIdentifier) {
     	int separatorIndex = storageIdentifier.indexOf("://");
     	if(separatorIndex>0) {
@@ -0,0 +1,91 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * A range of bytes of a file on local disk, read with positional reads of a
+ * FileChannel; or written straight into an output channel with
+ * {@link FileChannel#transferTo}, with no intermediate byte buffers.
+ */
+public class FileRangeInputStream extends InputStream {
+
+    private final FileChannel channel;
+    private long position;
+    private final long end;
+
+    /**
+     * @param path the file.
+     * @param offset the offset of the first byte of the range.
+     * @param length the number of bytes in the range; the range ends at the
+     * end of the file, if that comes first.
+     * @throws IOException if the file can't be opened.
+     */
+    public FileRangeInputStream(Path path, long offset, long length) throws IOException {
+        this.channel = FileChannel.open(path, StandardOpenOption.READ);
+        this.position = offset;
+        this.end = offset + length;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] b = new byte[1];
+        return read(b, 0, 1) == -1 ? -1 : b[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (position >= end) {
+            return -1;
+        }
+        int read = channel.read(ByteBuffer.wrap(b, off, (int) Math.min(len, end - position)), position);
+        if (read > 0) {
+            position += read;
+        }
+        return read;
+    }
+
+    @Override
+    public long skip(long n) throws IOException {
+        long skipped = Math.max(0, Math.min(n, end - position));
+        position += skipped;
+        return skipped;
+    }
+
+    @Override
+    public int available() throws IOException {
+        return (int) Math.min(Integer.MAX_VALUE, Math.max(0, Math.min(end, channel.size()) - position));
+    }
+
+    /**
+     * Writes the rest of the range into the output channel.
+     *
+     * @return the number of bytes written.
+     */
+    public long writeTo(WritableByteChannel out) throws IOException {
+        long written = 0;
+        long last = Math.min(end, channel.size());
+        while (position < last) {
+            long transferred = channel.transferTo(position, last - position, out);
+            if (transferred <= 0) {
+                break;
+            }
+            position += transferred;
+            written += transferred;
+        }
+        return written;
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,277 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import org.apache.commons.codec.binary.Hex;
+
+/**
+ * A bounded, least-recently-used cache, on local disk, of objects read from a
+ * remote storage driver (S3, Swift); so that the objects read over and over
+ * (the main files streamed through the application, or read to be converted
+ * or zipped; thumbnails, cached exports, converted formats...) are served
+ * from local disk. Downloads redirected to the remote storage, and range
+ * reads, don't go through it.
+ *
+ * The objects are keyed by their location in the remote storage, and stored
+ * with their ETag and size; the drivers check the ETag against the remote
+ * object before serving a cached copy. The cache of a driver is enabled by
+ * setting the {@code dataverse.files.<id>.cache-directory} JVM option; its
+ * size is bounded by {@code dataverse.files.<id>.cache-size} (in bytes), and
+ * larger objects than {@code dataverse.files.<id>.cache-max-object-size} are
+ * not cached. The cache starts empty every time the application starts.
+ */
+public class LocalDiskCache {
+
+    private static final Logger logger = Logger.getLogger(LocalDiskCache.class.getCanonicalName());
+
+    static final long DEFAULT_CACHE_SIZE = 10L * 1024 * 1024 * 1024;
+    static final long DEFAULT_MAX_OBJECT_SIZE = 100L * 1024 * 1024;
+
+    private static final ConcurrentMap<String, Optional<LocalDiskCache>> caches = new ConcurrentHashMap<>();
+
+    private static class Entry {
+        final Path path;
+        final String etag;
+        final long size;
+
+        Entry(Path path, String etag, long size) {
+            this.path = path;
+            this.etag = etag;
+            this.size = size;
+        }
+    }
+
+    private final Path directory;
+    private final long maxSize;
+    private final long maxObjectSize;
+
+    /**
+     * The entries, from the least to the most recently used.
+     */
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long totalSize;
+    private final AtomicLong fileSequence = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    LocalDiskCache(Path directory, long maxSize, long maxObjectSize) throws IOException {
+        this.directory = directory;
+        this.maxSize = maxSize;
+        this.maxObjectSize = Math.min(maxObjectSize, maxSize);
+        Files.createDirectories(directory);
+        // What is left from a previous run is not indexed; drop it:
+        try (DirectoryStream<Path> leftovers = Files.newDirectoryStream(directory)) {
+            for (Path leftover : leftovers) {
+                Files.deleteIfExists(leftover);
+            }
+        }
+    }
+
+    /**
+     * @param driverId the id of a storage driver.
+     * @return the cache of the driver, or {@code null} if it has none (or it
+     * could not be set up).
+     */
+    public static LocalDiskCache forDriver(String driverId) {
+        return caches.computeIfAbsent(driverId, id -> {
+            String directory = System.getProperty("dataverse.files." + id + ".cache-directory");
+            if (directory == null || directory.isEmpty()) {
+                return Optional.empty();
+            }
+            long maxSize = Long.getLong("dataverse.files." + id + ".cache-size", DEFAULT_CACHE_SIZE);
+            long maxObjectSize = Long.getLong("dataverse.files." + id + ".cache-max-object-size", DEFAULT_MAX_OBJECT_SIZE);
+            try {
+                LocalDiskCache cache = new LocalDiskCache(Paths.get(directory, id), maxSize, maxObjectSize);
+                logger.info("Caching the objects of storage driver " + id + " in " + directory + ", up to " + maxSize + " bytes");
+                return Optional.of(cache);
+            } catch (IOException ioex) {
+                logger.warning("Could not set up the local disk cache of storage driver " + id + " in " + directory + ": " + ioex.getMessage());
+                return Optional.empty();
+            }
+        }).orElse(null);
+    }
+
+    /**
+     * @return the ETag of the cached copy of an object, or {@code null} if it
+     * is not cached; to check the remote object against.
+     */
+    public String getETag(String key) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            return entry == null ? null : entry.etag;
+        }
+    }
+
+    /**
+     * Opens the cached copy of an object, if it has the given ETag and size.
+     * A copy that doesn't is dropped.
+     *
+     * @param key the location of the object in the remote storage.
+     * @param etag the current ETag of the remote object.
+     * @param size the current size of the remote object, or -1 if it's not
+     * known (i.e. the ETag alone has been checked).
+     * @return the cached copy, or {@code null} if there is none.
+     */
+    public InputStream get(String key, String etag, long size) {
+        synchronized (entries) {
+            Entry entry = entries.get(key);
+            if (entry == null) {
+                return null;
+            }
+            if (!entry.etag.equals(etag) || (size >= 0 && entry.size != size)) {
+                remove(key);
+                return null;
+            }
+            try {
+                InputStream in = new FileInputStream(entry.path.toFile());
+                hits.increment();
+                return in;
+            } catch (IOException ioex) {
+                logger.warning("Could not open the cached copy of " + key + ": " + ioex.getMessage());
+                remove(key);
+                return null;
+            }
+        }
+    }
+
+    /**
+     * Caches an object read from the remote storage.
+     *
+     * @param key the location of the object in the remote storage.
+     * @param etag the ETag of the object.
+     * @param size the size of the object.
+     * @param content the content of the object; consumed and closed, unless
+     * the object is too large to be cached.
+     * @return the cached copy; or {@code content} itself if the object is too
+     * large to be cached.
+     * @throws IOException if the object can't be read or written to disk.
+     */
+    public InputStream put(String key, String etag, long size, InputStream content) throws IOException {
+        misses.increment();
+        if (etag == null || size < 0 || size > maxObjectSize) {
+            return content;
+        }
+        Path path = directory.resolve(hash(key) + "." + fileSequence.incrementAndGet());
+        try (InputStream in = content) {
+            Files.copy(in, path, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException ioex) {
+            Files.deleteIfExists(path);
+            throw ioex;
+        }
+        synchronized (entries) {
+            remove(key);
+            entries.put(key, new Entry(path, etag, size));
+            totalSize += size;
+            evict();
+            return new FileInputStream(path.toFile());
+        }
+    }
+
+    public void invalidate(String key) {
+        synchronized (entries) {
+            remove(key);
+        }
+    }
+
+    private void remove(String key) {
+        Entry entry = entries.remove(key);
+        if (entry != null) {
+            totalSize -= entry.size;
+            deleteQuietly(entry.path);
+        }
+    }
+
+    /**
+     * Drops the least recently used entries until the cache fits its size.
+     * Streams already open on the dropped copies can still be read.
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Entry>> lru = entries.entrySet().iterator();
+        while (totalSize > maxSize && lru.hasNext()) {
+            Entry entry = lru.next().getValue();
+            lru.remove();
+            totalSize -= entry.size;
+            deleteQuietly(entry.path);
+            evictions.increment();
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ioex) {
+            logger.warning("Could not delete the cached copy " + path + ": " + ioex.getMessage());
+        }
+    }
+
+    private static String hash(String key) {
+        try {
+            return Hex.encodeHexString(MessageDigest.getInstance("SHA-256").digest(key.getBytes(StandardCharsets.UTF_8)));
+        } catch (NoSuchAlgorithmException nsae) {
+            throw new IllegalStateException(nsae);
+        }
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    public long getSize() {
+        synchronized (entries) {
+            return totalSize;
+        }
+    }
+
+    public int getObjectCount() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    /**
+     * @return for each driver with a cache, its hits, misses, evictions, size
+     * (in bytes) and number of cached objects.
+     */
+    public static Map<String, Map<String, Long>> getMetrics() {
+        Map<String, Map<String, Long>> metrics = new TreeMap<>();
+        caches.forEach((driverId, cache) -> cache.ifPresent(c -> {
+            Map<String, Long> driverMetrics = new TreeMap<>();
+            driverMetrics.put("hits", c.getHits());
+            driverMetrics.put("misses", c.getMisses());
+            driverMetrics.put("evictions", c.getEvictions());
+            driverMetrics.put("size", c.getSize());
+            driverMetrics.put("objects", (long) c.getObjectCount());
+            metrics.put(driverId, driverMetrics);
+        }));
+        return metrics;
+    }
+}
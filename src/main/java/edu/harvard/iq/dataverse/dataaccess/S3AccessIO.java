@@ -6,6 +6,7 @@ import com.amazonaws.HttpMethod;
 import com.amazonaws.SdkClientException;
 import com.amazonaws.auth.profile.ProfileCredentialsProvider;
 import com.amazonaws.client.builder.AwsClientBuilder;
+import com.amazonaws.handlers.RequestHandler2;
 import com.amazonaws.services.s3.AmazonS3;
 import com.amazonaws.services.s3.AmazonS3ClientBuilder;
 import com.amazonaws.services.s3.Headers;
@@ -29,7 +30,6 @@ import com.amazonaws.services.s3.model.ResponseHeaderOverrides;
 import com.amazonaws.services.s3.model.S3Object;
 import com.amazonaws.services.s3.model.S3ObjectSummary;
 import com.amazonaws.services.s3.transfer.TransferManager;
-import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
 import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.Dataset;
 import edu.harvard.iq.dataverse.Dataverse;
@@ -54,7 +54,6 @@ import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Date;
-import java.util.HashMap;
 import java.util.List;
 import java.util.Random;
 import java.util.logging.Logger;
@@ -79,31 +78,20 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
 
     private static final Logger logger = Logger.getLogger("edu.harvard.iq.dataverse.dataaccess.S3AccessIO");
 
-    private static HashMap<String, AmazonS3> driverClientMap = new HashMap<String,AmazonS3>();
-    private static HashMap<String, TransferManager> driverTMMap = new HashMap<String,TransferManager>();
-
     public S3AccessIO(T dvObject, DataAccessRequest req, String driverId) {
         super(dvObject, req, driverId);
         this.setIsLocalFile(false);
         
         try {
-            bucketName=getBucketName(driverId);
-            minPartSize = getMinPartSize(driverId);
-            s3=getClient(driverId);
-            tm=getTransferManager(driverId);
-            endpoint = System.getProperty("dataverse.files." + driverId + ".custom-endpoint-url", "");
-            proxy = System.getProperty("dataverse.files." + driverId + ".proxy-url", "");
-            if(!StringUtil.isEmpty(proxy)&&StringUtil.isEmpty(endpoint)) {
-                logger.severe(driverId + " config error: Must specify a custom-endpoint-url if proxy-url is specified");
-            }
-            //Not sure this is needed but moving it from the open method for now since it definitely doesn't need to run every time an object is opened.
-            try {
-                if (bucketName == null || !s3.doesBucketExistV2(bucketName)) {
-                    throw new IOException("ERROR: S3AccessIO - You must create and configure a bucket before creating datasets.");
-                }
-            } catch (SdkClientException sce) {
-                throw new IOException("ERROR: S3AccessIO - Failed to look up bucket "+bucketName+" (is AWS properly configured?): " + sce.getMessage());
-            }
+            // The client is shared by all the S3AccessIOs of the driver, and
+            // the bucket is only checked when the driver is first used:
+            S3DriverRegistry.S3Driver driver = S3DriverRegistry.get(driverId);
+            bucketName = driver.bucketName;
+            minPartSize = driver.minPartSize;
+            s3 = driver.client;
+            tm = driver.transferManager;
+            endpoint = driver.endpoint;
+            proxy = driver.proxy;
         } catch (Exception e) {
             throw new AmazonClientException(
                         "Cannot instantiate a S3 client; check your AWS credentials and region",
@@ -115,7 +103,6 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         this(null, null, driverId);
         // TODO: validate the storage location supplied
         bucketName = storageLocation.substring(0,storageLocation.indexOf('/'));
-        minPartSize = getMinPartSize(driverId);
         key = storageLocation.substring(storageLocation.indexOf('/')+1);
     }
     
@@ -270,7 +257,12 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     public InputStream getInputStream() throws IOException {
         if(super.getInputStream()==null) {
             try {
-                setInputStream(s3.getObject(new GetObjectRequest(bucketName, key)).getObjectContent());
+                LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+                if (cache != null) {
+                    setInputStream(getObjectThroughCache(cache, key));
+                } else {
+                    setInputStream(s3.getObject(new GetObjectRequest(bucketName, key)).getObjectContent());
+                }
             } catch (SdkClientException sce) {
                 throw new IOException("Cannot get S3 object " + key + " ("+sce.getMessage()+")");
             }
@@ -418,6 +410,10 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         try {
             DeleteObjectRequest deleteObjRequest = new DeleteObjectRequest(bucketName, key);
             s3.deleteObject(deleteObjRequest);
+            LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+            if (cache != null) {
+                cache.invalidate(bucketName + "/" + key);
+            }
         } catch (AmazonClientException ase) {
             logger.warning("Caught an AmazonClientException in S3AccessIO.delete(): " + ase.getMessage());
             throw new IOException("Failed to delete storage location " + getStorageLocation());
@@ -654,6 +650,10 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         try {
             DeleteObjectRequest dor = new DeleteObjectRequest(bucketName, destinationKey);
             s3.deleteObject(dor);
+            LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+            if (cache != null) {
+                cache.invalidate(bucketName + "/" + destinationKey);
+            }
         } catch (AmazonClientException ase) {
             logger.warning("S3AccessIO: Unable to delete object    " + ase.getMessage());
         }
@@ -758,6 +758,10 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     public InputStream getAuxFileAsInputStream(String auxItemTag) throws IOException {
         String destinationKey = getDestinationKey(auxItemTag);
         try {
+            LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+            if (cache != null) {
+                return getObjectThroughCache(cache, destinationKey);
+            }
             S3Object s3object = s3.getObject(new GetObjectRequest(bucketName, destinationKey));
             if (s3object != null) {
                 return s3object.getObjectContent();
@@ -769,6 +773,69 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
         }
     }
 
+    /**
+     * Reads an object from the local disk cache of the driver if the cached
+     * copy is still current (the object is only downloaded if its ETag has
+     * changed), or else from S3, caching it.
+     */
+    private InputStream getObjectThroughCache(LocalDiskCache cache, String objectKey) throws IOException {
+        String cacheKey = bucketName + "/" + objectKey;
+        String cachedETag = cache.getETag(cacheKey);
+        GetObjectRequest request = new GetObjectRequest(bucketName, objectKey);
+        if (cachedETag != null) {
+            request.withNonmatchingETagConstraint(cachedETag);
+        }
+        S3Object s3object = s3.getObject(request);
+        if (s3object == null) {
+            // Not modified; unless the cached copy has been evicted since:
+            InputStream cached = cache.get(cacheKey, cachedETag, -1);
+            if (cached != null) {
+                return cached;
+            }
+            s3object = s3.getObject(new GetObjectRequest(bucketName, objectKey));
+            if (s3object == null) {
+                return null;
+            }
+        }
+        ObjectMetadata metadata = s3object.getObjectMetadata();
+        return cache.put(cacheKey, metadata.getETag(), metadata.getContentLength(), s3object.getObjectContent());
+    }
+
+    @Override
+    public boolean isRangeReadSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream getRangeAsInputStream(long offset, long length) throws IOException {
+        if (key == null) {
+            throw new IOException("S3AccessIO: the S3 object has not been opened");
+        }
+        try {
+            S3Object s3object = s3.getObject(new GetObjectRequest(bucketName, key).withRange(offset, offset + length - 1));
+            if (s3object != null) {
+                return s3object.getObjectContent();
+            }
+        } catch (SdkClientException sce) {
+            throw new IOException("Cannot get range " + offset + "-" + (offset + length - 1) + " of S3 object " + key + " (" + sce.getMessage() + ")");
+        }
+        throw new IOException("S3AccessIO: Failed to get range " + offset + "-" + (offset + length - 1) + " of S3 object " + key);
+    }
+
+    @Override
+    public InputStream getAuxFileRangeAsInputStream(String auxItemTag, long offset, long length) throws IOException {
+        String destinationKey = getDestinationKey(auxItemTag);
+        try {
+            S3Object s3object = s3.getObject(new GetObjectRequest(bucketName, destinationKey).withRange(offset, offset + length - 1));
+            if (s3object != null) {
+                return s3object.getObjectContent();
+            }
+        } catch (AmazonClientException ase) {
+            logger.fine("Caught an AmazonClientException in S3AccessIO.getAuxFileRangeAsInputStream() (object not cached?):    " + ase.getMessage());
+        }
+        throw new IOException("S3AccessIO: Failed to get range " + offset + "-" + (offset + length - 1) + " of the aux file " + destinationKey);
+    }
+
     // Rename this getAuxiliaryKey(), maybe? 
     String getDestinationKey(String auxItemTag) throws IOException {
         if (isDirectAccess() || dvObject instanceof DataFile) {
@@ -1065,110 +1132,77 @@ public class S3AccessIO<T extends DvObject> extends StorageIO<T> {
     }
     
     private static String getBucketName(String driverId) {
-        return System.getProperty("dataverse.files." + driverId + ".bucket-name");
-    }
-    
-    private static long getMinPartSize(String driverId) {
-        // as a default, pick 1 GB minimum part size for AWS S3 
-        // (minimum allowed is 5*1024**2 but it probably isn't worth the complexity starting at ~5MB. Also -  confirmed that they use base 2 definitions)
-        long min = 5 * 1024 * 1024l; 
-
-        String partLength = System.getProperty("dataverse.files." + driverId + ".min-part-size");
-        try {
-            if (partLength != null) {
-                long val = Long.parseLong(partLength);
-                if(val>=min) {
-                    min=val;
-                } else {
-                    logger.warning(min + " is the minimum part size allowed for jvm option dataverse.files." + driverId + ".min-part-size" );
-                }
-            } else {
-                min = 1024 * 1024 * 1024l;
-            }
-        } catch (NumberFormatException nfe) {
-            logger.warning("Unable to parse dataverse.files." + driverId + ".min-part-size as long: " + partLength);
-        }
-        return min;
+        return S3DriverRegistry.getBucketName(driverId);
     }
 
-
-    private static TransferManager getTransferManager(String driverId) {
-        if(driverTMMap.containsKey(driverId)) {
-            return driverTMMap.get(driverId);
-        } else {
-            // building a TransferManager instance to support multipart uploading for files over 4gb.
-            TransferManager manager = TransferManagerBuilder.standard()
-                    .withS3Client(getClient(driverId))
-                    .build();
-            driverTMMap.put(driverId,  manager);
-            return manager;
-        }
+    private static AmazonS3 getClient(String driverId) throws IOException {
+        return S3DriverRegistry.get(driverId).client;
     }
 
-
-    private static AmazonS3 getClient(String driverId) {
-        if(driverClientMap.containsKey(driverId)) {
-            return driverClientMap.get(driverId);
-        } else {
-            // get a standard client, using the standard way of configuration the credentials, etc.
-            AmazonS3ClientBuilder s3CB = AmazonS3ClientBuilder.standard();
-
-            ClientConfiguration cc = new ClientConfiguration();
-            Integer poolSize = Integer.getInteger("dataverse.files." + driverId + ".connection-pool-size", 256);
-            cc.setMaxConnections(poolSize);
-            s3CB.setClientConfiguration(cc);
-            
-            /**
-             * Pass in a URL pointing to your S3 compatible storage.
-             * For possible values see https://docs.aws.amazon.com/AWSJavaSDK/latest/javadoc/com/amazonaws/client/builder/AwsClientBuilder.EndpointConfiguration.html
-             */
-            String s3CEUrl = System.getProperty("dataverse.files." + driverId + ".custom-endpoint-url", "");
-            /**
-             * Pass in a region to use for SigV4 signing of requests.
-             * Defaults to "dataverse" as it is not relevant for custom S3 implementations.
-             */
-            String s3CERegion = System.getProperty("dataverse.files." + driverId + ".custom-endpoint-region", "dataverse");
-
-            // if the admin has set a system property (see below) we use this endpoint URL instead of the standard ones.
-            if (!s3CEUrl.isEmpty()) {
-                s3CB.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3CEUrl, s3CERegion));
-            }
-            /**
-             * Pass in a boolean value if path style access should be used within the S3 client.
-             * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
-             */
-            Boolean s3pathStyleAccess = Boolean.parseBoolean(System.getProperty("dataverse.files." + driverId + ".path-style-access", "false"));
-            // some custom S3 implementations require "PathStyleAccess" as they us a path, not a subdomain. default = false
-            s3CB.withPathStyleAccessEnabled(s3pathStyleAccess);
-
-            /**
-             * Pass in a boolean value if payload signing should be used within the S3 client.
-             * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
-             */
-            Boolean s3payloadSigning = Boolean.parseBoolean(System.getProperty("dataverse.files." + driverId + ".payload-signing","false"));
-            /**
-             * Pass in a boolean value if chunked encoding should not be used within the S3 client.
-             * Anything but case-insensitive "false" will lead to value of true, which is default value, too.
-             */
-            Boolean s3chunkedEncoding = Boolean.parseBoolean(System.getProperty("dataverse.files." + driverId + ".chunked-encoding","true"));
-            // Openstack SWIFT S3 implementations require "PayloadSigning" set to true. default = false
-            s3CB.setPayloadSigningEnabled(s3payloadSigning);
-            // Openstack SWIFT S3 implementations require "ChunkedEncoding" set to false. default = true
-            // Boolean is inverted, otherwise setting dataverse.files.<id>.chunked-encoding=false would result in leaving Chunked Encoding enabled
-            s3CB.setChunkedEncodingDisabled(!s3chunkedEncoding);
-
-            /**
-             * Pass in a string value if this storage driver should use a non-default AWS S3 profile.
-             * The default is "default" which should work when only one profile exists.
-             */
-            String s3profile = System.getProperty("dataverse.files." + driverId + ".profile","default");
-
-            s3CB.setCredentials(new ProfileCredentialsProvider(s3profile));
-            // let's build the client :-)
-            AmazonS3 client =  s3CB.build();
-            driverClientMap.put(driverId,  client);
-            return client;
+    /**
+     * Builds a client for a driver; see {@link S3DriverRegistry}, which keeps
+     * the clients.
+     *
+     * @param requestHandler is passed the requests the client sends.
+     */
+    static AmazonS3 buildClient(String driverId, RequestHandler2 requestHandler) {
+        // get a standard client, using the standard way of configuration the credentials, etc.
+        AmazonS3ClientBuilder s3CB = AmazonS3ClientBuilder.standard();
+
+        ClientConfiguration cc = new ClientConfiguration();
+        Integer poolSize = Integer.getInteger("dataverse.files." + driverId + ".connection-pool-size", 256);
+        cc.setMaxConnections(poolSize);
+        s3CB.setClientConfiguration(cc);
+        
+        /**
+         * Pass in a URL pointing to your S3 compatible storage.
+         * For possible values see https://docs.aws.amazon.com/AWSJavaSDK/latest/javadoc/com/amazonaws/client/builder/AwsClientBuilder.EndpointConfiguration.html
+         */
+        String s3CEUrl = System.getProperty("dataverse.files." + driverId + ".custom-endpoint-url", "");
+        /**
+         * Pass in a region to use for SigV4 signing of requests.
+         * Defaults to "dataverse" as it is not relevant for custom S3 implementations.
+         */
+        String s3CERegion = System.getProperty("dataverse.files." + driverId + ".custom-endpoint-region", "dataverse");
+
+        // if the admin has set a system property (see below) we use this endpoint URL instead of the standard ones.
+        if (!s3CEUrl.isEmpty()) {
+            s3CB.setEndpointConfiguration(new AwsClientBuilder.EndpointConfiguration(s3CEUrl, s3CERegion));
         }
+        /**
+         * Pass in a boolean value if path style access should be used within the S3 client.
+         * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
+         */
+        Boolean s3pathStyleAccess = Boolean.parseBoolean(System.getProperty("dataverse.files." + driverId + ".path-style-access", "false"));
+        // some custom S3 implementations require "PathStyleAccess" as they us a path, not a subdomain. default = false
+        s3CB.withPathStyleAccessEnabled(s3pathStyleAccess);
+
+        /**
+         * Pass in a boolean value if payload signing should be used within the S3 client.
+         * Anything but case-insensitive "true" will lead to value of false, which is default value, too.
+         */
+        Boolean s3payloadSigning = Boolean.parseBoolean(System.getProperty("dataverse.files." + driverId + ".payload-signing","false"));
+        /**
+         * Pass in a boolean value if chunked encoding should not be used within the S3 client.
+         * Anything but case-insensitive "false" will lead to value of true, which is default value, too.
+         */
+        Boolean s3chunkedEncoding = Boolean.parseBoolean(System.getProperty("dataverse.files." + driverId + ".chunked-encoding","true"));
+        // Openstack SWIFT S3 implementations require "PayloadSigning" set to true. default = false
+        s3CB.setPayloadSigningEnabled(s3payloadSigning);
+        // Openstack SWIFT S3 implementations require "ChunkedEncoding" set to false. default = true
+        // Boolean is inverted, otherwise setting dataverse.files.<id>.chunked-encoding=false would result in leaving Chunked Encoding enabled
+        s3CB.setChunkedEncodingDisabled(!s3chunkedEncoding);
+
+        /**
+         * Pass in a string value if this storage driver should use a non-default AWS S3 profile.
+         * The default is "default" which should work when only one profile exists.
+         */
+        String s3profile = System.getProperty("dataverse.files." + driverId + ".profile","default");
+
+        s3CB.setCredentials(new ProfileCredentialsProvider(s3profile));
+        s3CB.withRequestHandlers(requestHandler);
+        // let's build the client :-)
+        return s3CB.build();
     }
 
     public void removeTempTag() throws IOException {
@@ -0,0 +1,209 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import com.amazonaws.Request;
+import com.amazonaws.Response;
+import com.amazonaws.SdkClientException;
+import com.amazonaws.handlers.RequestHandler2;
+import com.amazonaws.services.s3.AmazonS3;
+import com.amazonaws.services.s3.transfer.TransferManager;
+import com.amazonaws.services.s3.transfer.TransferManagerBuilder;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+
+/**
+ * Keeps, for each S3 storage driver, the client, the TransferManager and the
+ * configuration read from the {@code dataverse.files.<id>.*} JVM options.
+ * They are set up, and the bucket of the driver is checked, on the first use
+ * of the driver; rather than every time an {@link S3AccessIO} is created.
+ *
+ * Each driver also counts the requests its client sends to the object store,
+ * by type of request.
+ */
+public class S3DriverRegistry {
+
+    private static final Logger logger = Logger.getLogger(S3DriverRegistry.class.getCanonicalName());
+
+    /**
+     * How long a driver that failed to be set up (e.g. its bucket couldn't
+     * be found) keeps failing with the same error, before it is tried again.
+     */
+    static final long SETUP_RETRY_MILLIS = 30 * 1000;
+
+    private static final ConcurrentMap<String, Setup> drivers = new ConcurrentHashMap<>();
+
+    /**
+     * Either a driver, or why it couldn't be set up.
+     */
+    private static class Setup {
+        final S3Driver driver;
+        final IOException failure;
+        final long retryAfter;
+
+        Setup(S3Driver driver, IOException failure, long retryAfter) {
+            this.driver = driver;
+            this.failure = failure;
+            this.retryAfter = retryAfter;
+        }
+    }
+
+    /**
+     * A configured S3 storage driver, whose bucket has been found to exist.
+     */
+    static class S3Driver {
+
+        final String driverId;
+        final String bucketName;
+        final long minPartSize;
+        final String endpoint;
+        final String proxy;
+        final AmazonS3 client;
+        final TransferManager transferManager;
+        final RequestCounter requests;
+
+        S3Driver(String driverId, String bucketName, long minPartSize, String endpoint, String proxy,
+                AmazonS3 client, TransferManager transferManager, RequestCounter requests) {
+            this.driverId = driverId;
+            this.bucketName = bucketName;
+            this.minPartSize = minPartSize;
+            this.endpoint = endpoint;
+            this.proxy = proxy;
+            this.client = client;
+            this.transferManager = transferManager;
+            this.requests = requests;
+        }
+    }
+
+    /**
+     * Counts the requests sent by a client, by type (e.g. GetObjectRequest),
+     * and the requests that failed.
+     */
+    static class RequestCounter extends RequestHandler2 {
+
+        final ConcurrentMap<String, LongAdder> requests = new ConcurrentHashMap<>();
+        final LongAdder errors = new LongAdder();
+
+        @Override
+        public void beforeRequest(Request<?> request) {
+            String type = request.getOriginalRequest() == null ? "Unknown" : request.getOriginalRequest().getClass().getSimpleName();
+            requests.computeIfAbsent(type, t -> new LongAdder()).increment();
+        }
+
+        @Override
+        public void afterError(Request<?> request, Response<?> response, Exception e) {
+            errors.increment();
+        }
+    }
+
+    private S3DriverRegistry() {
+    }
+
+    /**
+     * @param driverId the id of an S3 storage driver.
+     * @return the driver, set up on the first call.
+     * @throws IOException if the bucket of the driver is not configured or
+     * can't be found; the calls in the next {@link #SETUP_RETRY_MILLIS} fail
+     * the same way, the next one tries again.
+     */
+    static S3Driver get(String driverId) throws IOException {
+        // The client of a driver is only built (and its bucket checked) once,
+        // by the first thread that needs it; the other drivers are not held up
+        // meanwhile:
+        Setup setup = drivers.computeIfAbsent(driverId, S3DriverRegistry::setUp);
+        if (setup.driver == null && System.currentTimeMillis() >= setup.retryAfter) {
+            drivers.remove(driverId, setup);
+            setup = drivers.computeIfAbsent(driverId, S3DriverRegistry::setUp);
+        }
+        if (setup.driver == null) {
+            throw new IOException(setup.failure.getMessage(), setup.failure);
+        }
+        return setup.driver;
+    }
+
+    private static Setup setUp(String driverId) {
+        try {
+            return new Setup(create(driverId), null, 0);
+        } catch (IOException ioe) {
+            logger.warning("Could not set up S3 storage driver " + driverId + ": " + ioe.getMessage());
+            return new Setup(null, ioe, System.currentTimeMillis() + SETUP_RETRY_MILLIS);
+        }
+    }
+
+    private static S3Driver create(String driverId) throws IOException {
+        String bucketName = getBucketName(driverId);
+        String endpoint = System.getProperty("dataverse.files." + driverId + ".custom-endpoint-url", "");
+        String proxy = System.getProperty("dataverse.files." + driverId + ".proxy-url", "");
+        if (!proxy.isEmpty() && endpoint.isEmpty()) {
+            logger.severe(driverId + " config error: Must specify a custom-endpoint-url if proxy-url is specified");
+        }
+        RequestCounter requests = new RequestCounter();
+        AmazonS3 client = S3AccessIO.buildClient(driverId, requests);
+        try {
+            if (bucketName == null || !client.doesBucketExistV2(bucketName)) {
+                throw new IOException("ERROR: S3AccessIO - You must create and configure a bucket before creating datasets.");
+            }
+        } catch (SdkClientException sce) {
+            client.shutdown();
+            throw new IOException("ERROR: S3AccessIO - Failed to look up bucket " + bucketName + " (is AWS properly configured?): " + sce.getMessage());
+        } catch (IOException ioe) {
+            client.shutdown();
+            throw ioe;
+        }
+        // building a TransferManager instance to support multipart uploading for files over 4gb.
+        TransferManager transferManager = TransferManagerBuilder.standard()
+                .withS3Client(client)
+                .build();
+        logger.info("Set up S3 storage driver " + driverId + " with bucket " + bucketName);
+        return new S3Driver(driverId, bucketName, getMinPartSize(driverId), endpoint, proxy, client, transferManager, requests);
+    }
+
+    static String getBucketName(String driverId) {
+        return System.getProperty("dataverse.files." + driverId + ".bucket-name");
+    }
+
+    static long getMinPartSize(String driverId) {
+        // as a default, pick 1 GB minimum part size for AWS S3
+        // (minimum allowed is 5*1024**2 but it probably isn't worth the complexity starting at ~5MB. Also -  confirmed that they use base 2 definitions)
+        long min = 5 * 1024 * 1024l;
+
+        String partLength = System.getProperty("dataverse.files." + driverId + ".min-part-size");
+        try {
+            if (partLength != null) {
+                long val = Long.parseLong(partLength);
+                if(val>=min) {
+                    min=val;
+                } else {
+                    logger.warning(min + " is the minimum part size allowed for jvm option dataverse.files." + driverId + ".min-part-size" );
+                }
+            } else {
+                min = 1024 * 1024 * 1024l;
+            }
+        } catch (NumberFormatException nfe) {
+            logger.warning("Unable to parse dataverse.files." + driverId + ".min-part-size as long: " + partLength);
+        }
+        return min;
+    }
+
+    /**
+     * @return for each S3 driver set up so far, the number of requests sent,
+     * by type, with the number of failed requests as {@code "errors"}.
+     */
+    public static Map<String, Map<String, Long>> getRequestCounts() {
+        Map<String, Map<String, Long>> counts = new TreeMap<>();
+        for (Setup setup : drivers.values()) {
+            S3Driver driver = setup.driver;
+            if (driver == null) {
+                continue;
+            }
+            Map<String, Long> driverCounts = new TreeMap<>();
+            driver.requests.requests.forEach((type, count) -> driverCounts.put(type, count.sum()));
+            driverCounts.put("errors", driver.requests.errors.sum());
+            counts.put(driver.driverId, driverCounts);
+        }
+        return counts;
+    }
+}
@@ -37,6 +37,9 @@ import java.nio.file.Path;
 import java.util.Iterator;
 import java.util.List;
 
+import org.apache.commons.io.IOUtils;
+import org.apache.commons.io.input.BoundedInputStream;
+
 
 //import org.apache.commons.httpclient.Header;
 //import org.apache.commons.httpclient.methods.GetMethod;
@@ -134,9 +137,54 @@ public abstract class StorageIO<T extends DvObject> {
     // thumbnails for images, etc. - in physical files with the same file 
     // name but various reserved extensions. 
    
+    /**
+     * Retrieves a range of bytes of the main file as an InputStream, for 
+     * the HTTP Range requests of the Access API. Only the drivers that can 
+     * read a range without reading the file from the start (i.e., with a 
+     * ranged GET on the remote storage) support it. 
+     * 
+     * @param offset the offset of the first byte of the range
+     * @param length the number of bytes in the range
+     * @return InputStream of the requested bytes
+     * @throws UnsupportedDataAccessOperationException if the driver does 
+     * not support ranged reads. 
+     * @throws IOException if the file cannot be opened.
+     */
+    public InputStream getRangeAsInputStream(long offset, long length) throws IOException {
+        throw new UnsupportedDataAccessOperationException("StorageIO: ranged reads are not supported by this driver.");
+    }
+
+    /**
+     * @return whether the driver supports {@link #getRangeAsInputStream(long, long)}.
+     */
+    public boolean isRangeReadSupported() {
+        return false;
+    }
+    
     //This function retrieves auxiliary files related to datasets, and returns them as inputstream
     public abstract InputStream getAuxFileAsInputStream(String auxItemTag) throws IOException ;
     
+    /**
+     * Retrieves a range of bytes of an auxiliary file as an InputStream. 
+     * The default implementation simply skips to the offset in the full 
+     * stream; the drivers for the remote storage systems override it so that 
+     * only the requested bytes are actually transferred. 
+     * 
+     * @param auxItemTag String representing this Auxiliary type ("extension")
+     * @param offset the offset of the first byte of the range
+     * @param length the number of bytes in the range
+     * @return InputStream of the requested bytes
+     * @throws IOException if the auxiliary file cannot be opened.
+     */
+    public InputStream getAuxFileRangeAsInputStream(String auxItemTag, long offset, long length) throws IOException {
+        InputStream in = getAuxFileAsInputStream(auxItemTag);
+        if (in == null) {
+            throw new IOException("Failed to open auxiliary file " + auxItemTag);
+        }
+        IOUtils.skipFully(in, offset);
+        return new BoundedInputStream(in, length);
+    }
+    
     public abstract Channel openAuxChannel(String auxItemTag, DataAccessOption... option) throws IOException;
     
     public abstract long getAuxObjectSize(String auxItemTag) throws IOException; 
@@ -28,6 +28,8 @@ import javax.crypto.spec.SecretKeySpec;
 import org.javaswift.joss.client.factory.AccountFactory;
 import static org.javaswift.joss.client.factory.AuthenticationMethod.BASIC;
 import static org.javaswift.joss.client.factory.AuthenticationMethod.KEYSTONE_V3;
+import org.javaswift.joss.headers.object.range.MidPartRange;
+import org.javaswift.joss.instructions.DownloadInstructions;
 import org.javaswift.joss.model.Account;
 import org.javaswift.joss.model.Container;
 import org.javaswift.joss.model.StoredObject;
@@ -254,6 +256,10 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
         
         swiftFileObject = initializeSwiftFileDirectAccess();
         swiftFileObject.delete();
+        LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+        if (cache != null) {
+            cache.invalidate(swiftFileObject.getPublicURL());
+        }
     }
     
 
@@ -435,6 +441,10 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
         }
 
         swiftAuxObject.delete();
+        LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+        if (cache != null) {
+            cache.invalidate(swiftAuxObject.getPublicURL());
+        }
     }
 
     @Override
@@ -721,9 +731,29 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
         swiftFileObject = initializeSwiftFileObject(false);
         this.setSize(swiftFileObject.getContentLength());
 
+        LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+        if (cache != null) {
+            return getObjectThroughCache(cache, swiftFileObject);
+        }
         return swiftFileObject.downloadObjectAsInputStream();
     }
 
+    /**
+     * Reads an object from the local disk cache of the driver, if the cached
+     * copy has the same ETag and size as the Swift object; or else from
+     * Swift, caching it.
+     */
+    private InputStream getObjectThroughCache(LocalDiskCache cache, StoredObject swiftObject) throws IOException {
+        String cacheKey = swiftObject.getPublicURL();
+        String etag = swiftObject.getEtag();
+        long size = swiftObject.getContentLength();
+        InputStream cached = cache.get(cacheKey, etag, size);
+        if (cached != null) {
+            return cached;
+        }
+        return cache.put(cacheKey, etag, size, swiftObject.downloadObjectAsInputStream());
+    }
+
     private InputStream openSwiftAuxFileAsInputStream(String auxItemTag) throws IOException {
         return initializeSwiftFileObject(false, auxItemTag).downloadObjectAsInputStream();
     }
@@ -858,12 +888,42 @@ public class SwiftAccessIO<T extends DvObject> extends StorageIO<T> {
     @Override
     public InputStream getAuxFileAsInputStream(String auxItemTag) throws IOException {        
         if (this.isAuxObjectCached(auxItemTag)) {
+            LocalDiskCache cache = LocalDiskCache.forDriver(driverId);
+            if (cache != null) {
+                return getObjectThroughCache(cache, openSwiftAuxFile(auxItemTag));
+            }
             return openSwiftAuxFileAsInputStream(auxItemTag);
         } else {
             throw new IOException("SwiftAccessIO: Failed to get aux file as input stream");
         }
     }
 
+    @Override
+    public boolean isRangeReadSupported() {
+        return true;
+    }
+
+    @Override
+    public InputStream getRangeAsInputStream(long offset, long length) throws IOException {
+        if (swiftFileObject == null) {
+            swiftFileObject = initializeSwiftFileObject(false);
+        }
+        DownloadInstructions downloadInstructions = new DownloadInstructions();
+        downloadInstructions.setRange(new MidPartRange(offset, offset + length - 1));
+        return swiftFileObject.downloadObjectAsInputStream(downloadInstructions);
+    }
+
+    @Override
+    public InputStream getAuxFileRangeAsInputStream(String auxItemTag, long offset, long length) throws IOException {
+        if (this.isAuxObjectCached(auxItemTag)) {
+            DownloadInstructions downloadInstructions = new DownloadInstructions();
+            downloadInstructions.setRange(new MidPartRange(offset, offset + length - 1));
+            return openSwiftAuxFile(auxItemTag).downloadObjectAsInputStream(downloadInstructions);
+        } else {
+            throw new IOException("SwiftAccessIO: Failed to get aux file range as input stream");
+        }
+    }
+
     @Override
     public String getSwiftContainerName() {
         if (dvObject instanceof DataFile) {
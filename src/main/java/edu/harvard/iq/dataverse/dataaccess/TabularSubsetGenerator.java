@@ -34,6 +34,9 @@ import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Scanner;
 import java.util.Set;
@@ -41,13 +44,24 @@ import java.math.BigDecimal;
 import java.math.MathContext;
 import java.math.RoundingMode;
 import java.nio.ByteBuffer;
+import java.nio.LongBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
 import java.nio.channels.FileChannel;
+import java.nio.channels.ReadableByteChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
 import java.nio.file.StandardOpenOption;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
 import java.util.logging.Logger;
 import java.util.regex.Matcher;
 
 
+import org.apache.commons.io.IOUtils;
 import org.apache.commons.lang3.StringUtils;
 
 
@@ -62,13 +76,18 @@ public class TabularSubsetGenerator implements SubsetGenerator {
 
     private static Logger dbgLog = Logger.getLogger(TabularSubsetGenerator.class.getPackage().getName());
 
-    private static int COLUMN_TYPE_STRING = 1;
-    private static int COLUMN_TYPE_LONG   = 2;
-    private static int COLUMN_TYPE_DOUBLE = 3; 
-    private static int COLUMN_TYPE_FLOAT = 4; 
+    public static final int COLUMN_TYPE_STRING = 1;
+    public static final int COLUMN_TYPE_LONG   = 2;
+    public static final int COLUMN_TYPE_DOUBLE = 3; 
+    public static final int COLUMN_TYPE_FLOAT = 4; 
     
     private static int MAX_COLUMN_BUFFER = 8192;
     
+    // The rotated ("90 degrees") image of the tab file is saved next to the 
+    // file itself, with this extension; the image starts with the table of 
+    // the byte offsets of the individual column vectors: 
+    public static final String ROTATED_IMAGE_EXTENSION = "90d";
+    
     private FileChannel fileChannel = null; 
     
     private int varcount; 
@@ -86,6 +105,27 @@ public class TabularSubsetGenerator implements SubsetGenerator {
     private long[] columnTotalOffsets;
     private long[] columnTotalLengths;
     
+    // Memory-mapped views of the requested column vectors in the rotated 
+    // image, for multi-column subsets; (null if the columns could not be 
+    // mapped, in which case the buffered reads above are used)
+    private MappedByteBuffer[] columnMappedBuffers; 
+    private ByteBuffer[] columnMappedViews;
+    private int currentSubsetColumn = 0;
+    private int casesRead = 0;
+    
+    // For the files on remote storage (S3, Swift), a single requested column
+    // vector is read sequentially from a ranged request against the rotated 
+    // image, saved as an auxiliary object: 
+    private ReadableByteChannel[] columnChannels; 
+    
+    // The ranges of the column vectors of a multi-column subset of a remote 
+    // file are merged when they are no further apart than this: 
+    static final long MAX_MERGED_RANGE_GAP = 1024 * 1024;
+    
+    // Generating the rotated image of a file is serialized, so that 
+    // concurrent subset requests don't each generate (and save) it: 
+    private static final ConcurrentMap<Object, Object> rotatedImageLocks = new ConcurrentHashMap<>();
+    
     public TabularSubsetGenerator() {
         
     }
@@ -101,17 +141,20 @@ public class TabularSubsetGenerator implements SubsetGenerator {
            
         
         StorageIO<DataFile> dataAccess = datafile.getStorageIO();
-        if (!dataAccess.isLocalFile()) {
-            throw new IOException("Subsetting is supported on local files only!");
-        }
+        LongBuffer columnEndOffsets; 
+        boolean remote = !dataAccess.isLocalFile();
         
-        //File tabfile = datafile.getFileSystemLocation().toFile();
-        File tabfile = dataAccess.getFileSystemPath().toFile();
-        
-        File rotatedImageFile = getRotatedImage(tabfile, getVarCount(), getCaseCount());
-        long[] columnEndOffsets = extractColumnOffsets(rotatedImageFile, getVarCount(), getCaseCount()); 
-        
-        fileChannel = (FileChannel.open(Paths.get(rotatedImageFile.getAbsolutePath()), StandardOpenOption.READ));
+        if (!remote) {
+            //File tabfile = datafile.getFileSystemLocation().toFile();
+            File tabfile = dataAccess.getFileSystemPath().toFile();
+
+            File rotatedImageFile = getRotatedImage(tabfile, getVarCount(), getCaseCount());
+
+            fileChannel = (FileChannel.open(Paths.get(rotatedImageFile.getAbsolutePath()), StandardOpenOption.READ));
+            columnEndOffsets = mapColumnOffsets(fileChannel); 
+        } else {
+            columnEndOffsets = getRemoteColumnOffsetIndex(dataAccess);
+        }
         
         if (variables == null || variables.size() < 1 || variables.size() > getVarCount()) {
             throw new IOException("Illegal number of variables in the subset request");
@@ -128,10 +171,15 @@ public class TabularSubsetGenerator implements SubsetGenerator {
             if (!datafile.getDataTable().getId().equals(variables.get(0).getDataTable().getId())) {
                 throw new IOException("Variable in the subset request does not belong to the datafile.");
             }
-            dbgLog.fine("single variable subset; setting fileChannel position to "+extractColumnOffset(columnEndOffsets, variables.get(0).getFileOrder()));
-            fileChannel.position(extractColumnOffset(columnEndOffsets, variables.get(0).getFileOrder()));
             columnTotalLengths[0] = extractColumnLength(columnEndOffsets, variables.get(0).getFileOrder());
             columnTotalOffsets[0] = 0;
+            if (remote) {
+                columnChannels = new ReadableByteChannel[1];
+                columnChannels[0] = openRemoteColumnChannel(dataAccess, extractColumnOffset(columnEndOffsets, variables.get(0).getFileOrder()), columnTotalLengths[0]);
+            } else {
+                dbgLog.fine("single variable subset; setting fileChannel position to "+extractColumnOffset(columnEndOffsets, variables.get(0).getFileOrder()));
+                fileChannel.position(extractColumnOffset(columnEndOffsets, variables.get(0).getFileOrder()));
+            }
         } else {
             columnEntries = new byte[subsetcount][];
 
@@ -139,22 +187,54 @@ public class TabularSubsetGenerator implements SubsetGenerator {
             columnBufferOffsets = new int[subsetcount];
             columnStartOffsets = new long[subsetcount];
 
+            boolean mappable = true; 
             int i = 0;
             for (DataVariable var : variables) {
                 if (!datafile.getDataTable().getId().equals(var.getDataTable().getId())) {
                     throw new IOException("Variable in the subset request does not belong to the datafile.");
                 }
-                columnByteBuffers[i] = ByteBuffer.allocate(MAX_COLUMN_BUFFER);
                 columnTotalLengths[i] = extractColumnLength(columnEndOffsets, var.getFileOrder());
                 columnStartOffsets[i] = extractColumnOffset(columnEndOffsets, var.getFileOrder());
+                if (columnTotalLengths[i] > Integer.MAX_VALUE) {
+                    mappable = false; 
+                }
+                i++;
+            }
+            
+            if (remote) {
+                // Rather than holding a ranged request open for every column
+                // (a subset of a few hundred variables would take as many 
+                // connections to the storage), the column vectors are 
+                // downloaded into a local temp file first, one merged range 
+                // at a time; and then read from there, same as for a local 
+                // file: 
+                fileChannel = spoolRemoteColumns(dataAccess);
+            }
+            
+            if (mappable) {
+                // Map the column vectors directly; the subset lines can 
+                // then be assembled by copying the bytes straight from the 
+                // mapped buffers into the output buffer, without any 
+                // intermediate byte arrays: 
+                columnMappedBuffers = new MappedByteBuffer[subsetcount];
+                columnMappedViews = new ByteBuffer[subsetcount];
+                for (i = 0; i < subsetcount; i++) {
+                    columnMappedBuffers[i] = fileChannel.map(FileChannel.MapMode.READ_ONLY, columnStartOffsets[i], columnTotalLengths[i]);
+                    columnMappedViews[i] = columnMappedBuffers[i].duplicate();
+                }
+                return; 
+            }
+            
+            dbgLog.fine("column vector(s) too large to map; using buffered reads.");
+            
+            for (i = 0; i < subsetcount; i++) {
+                columnByteBuffers[i] = ByteBuffer.allocate(MAX_COLUMN_BUFFER);
                 if (columnTotalLengths[i] < MAX_COLUMN_BUFFER) {
                     columnByteBuffers[i].limit((int)columnTotalLengths[i]);
                 }
-                fileChannel.position(columnStartOffsets[i]);
-                columnBufferSizes[i] = fileChannel.read(columnByteBuffers[i]);
+                columnBufferSizes[i] = readColumnBytes(i, columnByteBuffers[i]);
                 columnBufferOffsets[i] = 0;
                 columnTotalOffsets[i] = columnBufferSizes[i];
-                i++;
             }
         }
     }
@@ -185,14 +265,14 @@ public class TabularSubsetGenerator implements SubsetGenerator {
      * columns, in an order that doesn't have to follow the physical order
      * of the columns in the file. 
     */
-    private long extractColumnOffset(long[] columnEndOffsets, int column) throws IOException {
-        if (columnEndOffsets == null || columnEndOffsets.length <= column) {
+    private long extractColumnOffset(LongBuffer columnEndOffsets, int column) throws IOException {
+        if (columnEndOffsets == null || columnEndOffsets.limit() <= column) {
             throw new IOException("Offsets table not initialized; or column out of bounds.");
         }
         long columnOffset;
         
         if (column > 0) {
-            columnOffset = columnEndOffsets[column - 1];
+            columnOffset = columnEndOffsets.get(column - 1);
         } else {
             columnOffset = getVarCount() * 8; 
         }
@@ -202,16 +282,16 @@ public class TabularSubsetGenerator implements SubsetGenerator {
     /* 
      * See the comment for the method above. 
      */
-    private long extractColumnLength(long[] columnEndOffsets, int column) throws IOException {
-        if (columnEndOffsets == null || columnEndOffsets.length <= column) {
+    private long extractColumnLength(LongBuffer columnEndOffsets, int column) throws IOException {
+        if (columnEndOffsets == null || columnEndOffsets.limit() <= column) {
             throw new IOException("Offsets table not initialized; or column out of bounds.");
         }
         long columnLength; 
         
         if (column > 0) {
-            columnLength = columnEndOffsets[column] - columnEndOffsets[column - 1];
+            columnLength = columnEndOffsets.get(column) - columnEndOffsets.get(column - 1);
         } else {
-            columnLength = columnEndOffsets[0] - varcount * 8;  
+            columnLength = columnEndOffsets.get(0) - varcount * 8;  
         }
         
         return columnLength; 
@@ -222,19 +302,37 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         if (columnTotalOffsets[column] >= columnTotalLengths[column]) {
             throw new IOException("attempt to buffer bytes past the column boundary");
         }
-        fileChannel.position(columnStartOffsets[column] + columnTotalOffsets[column]);
         
         columnByteBuffers[column].clear();
         if (columnTotalLengths[column] < columnTotalOffsets[column] + MAX_COLUMN_BUFFER) {
             dbgLog.fine("Limiting the buffer to "+(columnTotalLengths[column] - columnTotalOffsets[column])+" bytes");
             columnByteBuffers[column].limit((int) (columnTotalLengths[column] - columnTotalOffsets[column]));
         }
-        columnBufferSizes[column] = fileChannel.read(columnByteBuffers[column]);
+        columnBufferSizes[column] = readColumnBytes(column, columnByteBuffers[column]);
         dbgLog.fine("Read "+columnBufferSizes[column]+" bytes for subset column "+column);
         columnBufferOffsets[column] = 0;
         columnTotalOffsets[column] += columnBufferSizes[column];
     }
     
+    /*
+     * Reads the next bytes of the subset column into the buffer; from the 
+     * rotated image file, or from the ranged stream of the column vector, 
+     * for the files on remote storage. 
+     */
+    private int readColumnBytes(int column, ByteBuffer buffer) throws IOException {
+        int bytesread; 
+        if (columnChannels != null) {
+            bytesread = columnChannels[column].read(buffer);
+        } else {
+            fileChannel.position(columnStartOffsets[column] + columnTotalOffsets[column]);
+            bytesread = fileChannel.read(buffer);
+        }
+        if (bytesread < 0) {
+            throw new IOException("Unexpected end of the column vector in the rotated image (subset column "+column+")");
+        }
+        return bytesread; 
+    }
+    
     public byte[] readColumnEntryBytes(int column) {
         return readColumnEntryBytes(column, true);
     }
@@ -303,6 +401,130 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         return ret;
     }
     
+    public boolean isMapped() {
+        return columnMappedBuffers != null;
+    }
+    
+    /*
+     * Fills the buffer with as many bytes of the (multi-column) subset as will 
+     * fit, copying them directly from the memory-mapped column vectors. 
+     * An entry that doesn't fit into the buffer is continued on the next 
+     * call. Returns the number of bytes added to the buffer, or -1 if the 
+     * end of the subset has been reached. 
+     */
+    public int readMappedSubsetBytes(ByteBuffer buffer) throws IOException {
+        if (!isMapped()) {
+            throw new IOException("Subset columns are not memory-mapped.");
+        }
+        
+        int start = buffer.position();
+        
+        while (buffer.hasRemaining() && casesRead < casecount) {
+            MappedByteBuffer column = columnMappedBuffers[currentSubsetColumn];
+            int entryStart = column.position();
+            int scanLimit = Math.min(column.limit(), entryStart + buffer.remaining());
+            int entryEnd = entryStart;
+            
+            while (entryEnd < scanLimit && column.get(entryEnd) != '\n') {
+                entryEnd++;
+            }
+            
+            if (entryEnd == column.limit()) {
+                throw new IOException("Unexpected end of the column vector in the rotated image (subset column "+currentSubsetColumn+", case "+casesRead+")");
+            }
+            
+            // copy the bytes of the entry (or as many of them as will fit):
+            ByteBuffer view = columnMappedViews[currentSubsetColumn];
+            view.limit(entryEnd).position(entryStart);
+            buffer.put(view);
+            column.position(entryEnd);
+            
+            if (entryEnd < scanLimit) {
+                // We have found the end of the entry; and the buffer is 
+                // guaranteed to have room for the delimiter:
+                column.position(entryEnd + 1);
+                if (currentSubsetColumn < subsetcount - 1) {
+                    buffer.put((byte) '\t');
+                    currentSubsetColumn++;
+                } else {
+                    buffer.put((byte) '\n');
+                    currentSubsetColumn = 0;
+                    casesRead++;
+                }
+            }
+        }
+        
+        int bytesread = buffer.position() - start;
+        return bytesread > 0 || casesRead < casecount ? bytesread : -1;
+    }
+    
+    /*
+     * Writes the entire subset into the channel supplied; the single column 
+     * subsets are transferred straight from the file channel, the multi-column
+     * ones are assembled from the memory-mapped column vectors in a direct 
+     * buffer. 
+     */
+    public long writeSubset(WritableByteChannel out) throws IOException {
+        long byteswritten = 0; 
+        
+        if (subsetcount == 1 && columnChannels != null) {
+            ByteBuffer outputBuffer = ByteBuffer.allocate(4 * MAX_COLUMN_BUFFER);
+            while (columnTotalOffsets[0] < columnTotalLengths[0]) {
+                if (columnTotalLengths[0] - columnTotalOffsets[0] < outputBuffer.capacity()) {
+                    outputBuffer.limit((int) (columnTotalLengths[0] - columnTotalOffsets[0]));
+                }
+                int bytesread = columnChannels[0].read(outputBuffer);
+                if (bytesread < 0) {
+                    throw new IOException("Unexpected end of the column vector in the rotated image");
+                }
+                columnTotalOffsets[0] += bytesread;
+                outputBuffer.flip();
+                while (outputBuffer.hasRemaining()) {
+                    byteswritten += out.write(outputBuffer);
+                }
+                outputBuffer.clear();
+            }
+            return byteswritten;
+        }
+        
+        if (subsetcount == 1) {
+            long columnStart = fileChannel.position() - columnTotalOffsets[0];
+            while (columnTotalOffsets[0] < columnTotalLengths[0]) {
+                long transferred = fileChannel.transferTo(columnStart + columnTotalOffsets[0], columnTotalLengths[0] - columnTotalOffsets[0], out);
+                if (transferred < 1) {
+                    break; 
+                }
+                columnTotalOffsets[0] += transferred;
+                byteswritten += transferred;
+            }
+            return byteswritten;
+        }
+        
+        if (!isMapped()) {
+            // (the columns are too large to be mapped; so this has to be 
+            // done one line at a time)
+            while (casesRead < casecount) {
+                ByteBuffer lineBuffer = ByteBuffer.wrap(readSubsetLineBytes());
+                while (lineBuffer.hasRemaining()) {
+                    byteswritten += out.write(lineBuffer);
+                }
+                casesRead++;
+            }
+            return byteswritten;
+        }
+        
+        ByteBuffer outputBuffer = ByteBuffer.allocateDirect(4 * MAX_COLUMN_BUFFER);
+        
+        while (readMappedSubsetBytes(outputBuffer) > -1) {
+            outputBuffer.flip();
+            while (outputBuffer.hasRemaining()) {
+                byteswritten += out.write(outputBuffer);
+            }
+            outputBuffer.clear();
+        }
+        return byteswritten;
+    }
+    
     public int readSingleColumnSubset(byte[] buffer) throws IOException {
         if (columnTotalOffsets[0] == columnTotalLengths[0]) {
             return -1;
@@ -313,8 +535,11 @@ public class TabularSubsetGenerator implements SubsetGenerator {
             columnByteBuffers[0] = ByteBuffer.allocate(buffer.length);
         }
                 
-        int bytesread = fileChannel.read(columnByteBuffers[0]);
+        int bytesread = columnChannels != null ? columnChannels[0].read(columnByteBuffers[0]) : fileChannel.read(columnByteBuffers[0]);
         dbgLog.fine("single column subset: read "+bytesread+" bytes.");
+        if (bytesread < 0) {
+            throw new IOException("Unexpected end of the column vector in the rotated image");
+        }
         if (columnTotalOffsets[0] + bytesread > columnTotalLengths[0]) {
             bytesread = (int)(columnTotalLengths[0] - columnTotalOffsets[0]);
         }
@@ -350,6 +575,8 @@ public class TabularSubsetGenerator implements SubsetGenerator {
     
     
     public void close() {
+        columnMappedBuffers = null; 
+        columnMappedViews = null;
         if (fileChannel != null) {
             try {
                 fileChannel.close();
@@ -357,6 +584,31 @@ public class TabularSubsetGenerator implements SubsetGenerator {
                 // don't care.
             }
         }
+        if (columnChannels != null) {
+            for (ReadableByteChannel columnChannel : columnChannels) {
+                if (columnChannel != null) {
+                    try {
+                        columnChannel.close();
+                    } catch (IOException ioe) {
+                        // don't care.
+                    }
+                }
+            }
+        }
+    }
+    
+    /*
+     * The total size, in bytes, of the subset produced by this generator; 
+     * (the column entries are separated by tabs, instead of the new lines
+     * in the rotated image; so the size of the subset is simply the sum of 
+     * the lengths of the column vectors)
+     */
+    public long getSubsetSize() {
+        long subsetSize = 0;
+        for (int i = 0; i < subsetcount; i++) {
+            subsetSize += columnTotalLengths[i];
+        }
+        return subsetSize;
     }
     
     public void subsetFile(String infile, String outfile, List<Integer> columns, Long numCases) {
@@ -425,25 +677,7 @@ public class TabularSubsetGenerator implements SubsetGenerator {
             if (scanner.hasNext()) {
                 String[] line = (scanner.next()).split("\t", -1);
 
-                // Verified: new Double("nan") works correctly, 
-                // resulting in Double.NaN;
-                // Double("[+-]Inf") doesn't work however; 
-                // (the constructor appears to be expecting it
-                // to be spelled as "Infinity", "-Infinity", etc. 
-                if ("inf".equalsIgnoreCase(line[column]) || "+inf".equalsIgnoreCase(line[column])) {
-                    retVector[caseIndex] = java.lang.Double.POSITIVE_INFINITY;
-                } else if ("-inf".equalsIgnoreCase(line[column])) {
-                    retVector[caseIndex] = java.lang.Double.NEGATIVE_INFINITY;
-                } else if (line[column] == null || line[column].equals("")) {
-                    // missing value:
-                    retVector[caseIndex] = null;
-                } else {
-                    try {
-                        retVector[caseIndex] = new Double(line[column]);
-                    } catch (NumberFormatException ex) {
-                        retVector[caseIndex] = null; // missing value
-                    }
-                }
+                retVector[caseIndex] = parseDoubleEntry(line[column]);
 
             } else {
                 scanner.close();
@@ -478,25 +712,7 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         for (int caseIndex = 0; caseIndex < numCases; caseIndex++) {
             if (scanner.hasNext()) {
                 String[] line = (scanner.next()).split("\t", -1);
-                // Verified: new Float("nan") works correctly, 
-                // resulting in Float.NaN;
-                // Float("[+-]Inf") doesn't work however; 
-                // (the constructor appears to be expecting it
-                // to be spelled as "Infinity", "-Infinity", etc. 
-                if ("inf".equalsIgnoreCase(line[column]) || "+inf".equalsIgnoreCase(line[column])) {
-                    retVector[caseIndex] = java.lang.Float.POSITIVE_INFINITY;
-                } else if ("-inf".equalsIgnoreCase(line[column])) {
-                    retVector[caseIndex] = java.lang.Float.NEGATIVE_INFINITY;
-                } else if (line[column] == null || line[column].equals("")) {
-                    // missing value:
-                    retVector[caseIndex] = null;
-                } else {
-                    try {
-                        retVector[caseIndex] = new Float(line[column]);
-                    } catch (NumberFormatException ex) {
-                        retVector[caseIndex] = null; // missing value
-                    }
-                }
+                retVector[caseIndex] = parseFloatEntry(line[column]);
             } else {
                 scanner.close();
                 throw new RuntimeException("Tab file has fewer rows than the stored number of cases!");
@@ -530,11 +746,7 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         for (int caseIndex = 0; caseIndex < numCases; caseIndex++) {
             if (scanner.hasNext()) {
                 String[] line = (scanner.next()).split("\t", -1);
-                try {
-                    retVector[caseIndex] = new Long(line[column]);
-                } catch (NumberFormatException ex) {
-                    retVector[caseIndex] = null; // assume missing value
-                }
+                retVector[caseIndex] = parseLongEntry(line[column]);
             } else {
                 scanner.close();
                 throw new RuntimeException("Tab file has fewer rows than the stored number of cases!");
@@ -568,51 +780,7 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         for (int caseIndex = 0; caseIndex < numCases; caseIndex++) {
             if (scanner.hasNext()) {
                 String[] line = (scanner.next()).split("\t", -1);
-                retVector[caseIndex] = line[column];
-                
-                
-                if ("".equals(line[column])) {
-                    // An empty string is a string missing value!
-                    // An empty string in quotes is an empty string!
-                    retVector[caseIndex] = null;
-                } else {
-                    // Strip the outer quotes:
-                    line[column] = line[column].replaceFirst("^\\\"", "");
-                    line[column] = line[column].replaceFirst("\\\"$", "");
-
-                    // We need to restore the special characters that 
-                    // are stored in tab files escaped - quotes, new lines 
-                    // and tabs. Before we do that however, we need to 
-                    // take care of any escaped backslashes stored in 
-                    // the tab file. I.e., "foo\t" should be transformed 
-                    // to "foo<TAB>"; but "foo\\t" should be transformed 
-                    // to "foo\t". This way new lines and tabs that were
-                    // already escaped in the original data are not 
-                    // going to be transformed to unescaped tab and 
-                    // new line characters!
-                    String[] splitTokens = line[column].split(Matcher.quoteReplacement("\\\\"), -2);
-
-                    // (note that it's important to use the 2-argument version 
-                    // of String.split(), and set the limit argument to a
-                    // negative value; otherwise any trailing backslashes 
-                    // are lost.)
-                    for (int i = 0; i < splitTokens.length; i++) {
-                        splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\\""), "\"");
-                        splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\t"), "\t");
-                        splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\n"), "\n");
-                        splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\r"), "\r");
-                    }
-                    // TODO: 
-                    // Make (some of?) the above optional; for ex., we 
-                    // do need to restore the newlines when calculating UNFs;
-                    // But if we are subsetting these vectors in order to 
-                    // create a new tab-delimited file, they will 
-                    // actually break things! -- L.A. Jul. 28 2014
-
-                    line[column] = StringUtils.join(splitTokens, '\\');
-
-                    retVector[caseIndex] = line[column];
-                }
+                retVector[caseIndex] = parseStringEntry(line[column]);
 
             } else {
                 scanner.close();
@@ -635,6 +803,244 @@ public class TabularSubsetGenerator implements SubsetGenerator {
 
     }
 
+    /*
+     * Single-pass method for subsetting multiple columns at once: the tab file
+     * is read and tokenized only once, and every requested column is extracted
+     * into a vector of the requested type (COLUMN_TYPE_STRING, COLUMN_TYPE_LONG,
+     * COLUMN_TYPE_DOUBLE or COLUMN_TYPE_FLOAT). The same column may be
+     * requested more than once, with different types. 
+     * The vectors are returned in the order of the requests; the numeric 
+     * columns as primitive long[], double[] and float[] arrays (a boxed 
+     * Double takes several times the memory of a primitive double), with 
+     * the individual values parsed exactly the same way as in the 
+     * single-column methods above. Since a primitive vector cannot store a 
+     * null, the missing values are recorded in the BitSets in the
+     * missingValues array (one per requested column; the bit for each 
+     * case that has a missing value is set; the value stored in the vector 
+     * for such a case is 0, or NaN for the floating point types). 
+     * The character columns are returned as String[] arrays, with the 
+     * missing values stored as nulls. 
+     * Note that all the requested vectors are kept in memory at the same time; 
+     * it is the caller's responsibility to keep the number of columns 
+     * requested in one pass reasonable. 
+     */
+    public static Object[] subsetPrimitiveVectors(InputStream in, int[] columns, int[] columnTypes, int numCases, BitSet[] missingValues) throws IOException {
+        if (columns == null || columnTypes == null || columns.length != columnTypes.length) {
+            throw new IOException("Illegal column subset request.");
+        }
+        if (missingValues == null || missingValues.length != columns.length) {
+            throw new IOException("Illegal column subset request (missing value maps).");
+        }
+
+        Object[] retVectors = new Object[columns.length];
+
+        for (int j = 0; j < columns.length; j++) {
+            if (columnTypes[j] == COLUMN_TYPE_STRING) {
+                retVectors[j] = new String[numCases];
+            } else if (columnTypes[j] == COLUMN_TYPE_DOUBLE) {
+                retVectors[j] = new double[numCases];
+            } else if (columnTypes[j] == COLUMN_TYPE_LONG) {
+                retVectors[j] = new long[numCases];
+            } else if (columnTypes[j] == COLUMN_TYPE_FLOAT) {
+                retVectors[j] = new float[numCases];
+            } else {
+                throw new IOException("Unsupported column type: " + columnTypes[j]);
+            }
+            missingValues[j].clear();
+        }
+
+        Scanner scanner = new Scanner(in);
+        scanner.useDelimiter("\\n");
+
+        for (int caseIndex = 0; caseIndex < numCases; caseIndex++) {
+            if (scanner.hasNext()) {
+                String[] line = (scanner.next()).split("\t", -1);
+
+                for (int j = 0; j < columns.length; j++) {
+                    String entry = line[columns[j]];
+
+                    if (columnTypes[j] == COLUMN_TYPE_STRING) {
+                        ((String[]) retVectors[j])[caseIndex] = parseStringEntry(entry);
+                    } else if (columnTypes[j] == COLUMN_TYPE_DOUBLE) {
+                        ((double[]) retVectors[j])[caseIndex] = parseDoubleEntry(entry, missingValues[j], caseIndex);
+                    } else if (columnTypes[j] == COLUMN_TYPE_LONG) {
+                        ((long[]) retVectors[j])[caseIndex] = parseLongEntry(entry, missingValues[j], caseIndex);
+                    } else {
+                        ((float[]) retVectors[j])[caseIndex] = parseFloatEntry(entry, missingValues[j], caseIndex);
+                    }
+                }
+            } else {
+                scanner.close();
+                throw new IOException("Tab file has fewer rows than the stored number of cases!");
+            }
+        }
+
+        int tailIndex = numCases;
+        while (scanner.hasNext()) {
+            String nextLine = scanner.next();
+            if (!"".equals(nextLine)) {
+                scanner.close();
+                throw new IOException("Tab file has more nonempty rows than the stored number of cases (" + numCases + ")! current index: " + tailIndex + ", line: " + nextLine);
+            }
+            tailIndex++;
+        }
+
+        scanner.close();
+        return retVectors;
+    }
+    
+    public static double[] subsetDoubleVector(InputStream in, int column, int numCases, BitSet missingValues) throws IOException {
+        return (double[]) subsetPrimitiveVectors(in, new int[]{column}, new int[]{COLUMN_TYPE_DOUBLE}, numCases, new BitSet[]{missingValues})[0];
+    }
+    
+    public static float[] subsetFloatVector(InputStream in, int column, int numCases, BitSet missingValues) throws IOException {
+        return (float[]) subsetPrimitiveVectors(in, new int[]{column}, new int[]{COLUMN_TYPE_FLOAT}, numCases, new BitSet[]{missingValues})[0];
+    }
+    
+    public static long[] subsetLongVector(InputStream in, int column, int numCases, BitSet missingValues) throws IOException {
+        return (long[]) subsetPrimitiveVectors(in, new int[]{column}, new int[]{COLUMN_TYPE_LONG}, numCases, new BitSet[]{missingValues})[0];
+    }
+    
+    /*
+     * Parsers for the individual tab file entries, shared by the single-column 
+     * and the multi-column subsetting methods above: 
+     */
+    
+    private static Double parseDoubleEntry(String entry) {
+        // Verified: new Double("nan") works correctly, 
+        // resulting in Double.NaN;
+        // Double("[+-]Inf") doesn't work however; 
+        // (the constructor appears to be expecting it
+        // to be spelled as "Infinity", "-Infinity", etc. 
+        if ("inf".equalsIgnoreCase(entry) || "+inf".equalsIgnoreCase(entry)) {
+            return java.lang.Double.POSITIVE_INFINITY;
+        } else if ("-inf".equalsIgnoreCase(entry)) {
+            return java.lang.Double.NEGATIVE_INFINITY;
+        } else if (entry == null || entry.equals("")) {
+            // missing value:
+            return null;
+        }
+        try {
+            return new Double(entry);
+        } catch (NumberFormatException ex) {
+            return null; // missing value
+        }
+    }
+
+    private static Float parseFloatEntry(String entry) {
+        // (same as above - "[+-]Inf" needs to be handled explicitly)
+        if ("inf".equalsIgnoreCase(entry) || "+inf".equalsIgnoreCase(entry)) {
+            return java.lang.Float.POSITIVE_INFINITY;
+        } else if ("-inf".equalsIgnoreCase(entry)) {
+            return java.lang.Float.NEGATIVE_INFINITY;
+        } else if (entry == null || entry.equals("")) {
+            // missing value:
+            return null;
+        }
+        try {
+            return new Float(entry);
+        } catch (NumberFormatException ex) {
+            return null; // missing value
+        }
+    }
+
+    private static Long parseLongEntry(String entry) {
+        try {
+            return new Long(entry);
+        } catch (NumberFormatException ex) {
+            return null; // assume missing value
+        }
+    }
+
+    /*
+     * Primitive versions of the numeric parsers above: instead of returning 
+     * a null, they record the missing value in the supplied BitSet. 
+     */
+    
+    private static double parseDoubleEntry(String entry, BitSet missingValues, int caseIndex) {
+        if ("inf".equalsIgnoreCase(entry) || "+inf".equalsIgnoreCase(entry)) {
+            return java.lang.Double.POSITIVE_INFINITY;
+        } else if ("-inf".equalsIgnoreCase(entry)) {
+            return java.lang.Double.NEGATIVE_INFINITY;
+        } else if (entry != null && !entry.equals("")) {
+            try {
+                return java.lang.Double.parseDouble(entry);
+            } catch (NumberFormatException ex) {
+                // missing value - see below
+            }
+        }
+        missingValues.set(caseIndex);
+        return java.lang.Double.NaN;
+    }
+
+    private static float parseFloatEntry(String entry, BitSet missingValues, int caseIndex) {
+        if ("inf".equalsIgnoreCase(entry) || "+inf".equalsIgnoreCase(entry)) {
+            return java.lang.Float.POSITIVE_INFINITY;
+        } else if ("-inf".equalsIgnoreCase(entry)) {
+            return java.lang.Float.NEGATIVE_INFINITY;
+        } else if (entry != null && !entry.equals("")) {
+            try {
+                return java.lang.Float.parseFloat(entry);
+            } catch (NumberFormatException ex) {
+                // missing value - see below
+            }
+        }
+        missingValues.set(caseIndex);
+        return java.lang.Float.NaN;
+    }
+
+    private static long parseLongEntry(String entry, BitSet missingValues, int caseIndex) {
+        try {
+            return java.lang.Long.parseLong(entry);
+        } catch (NumberFormatException ex) {
+            // assume missing value
+            missingValues.set(caseIndex);
+            return 0L;
+        }
+    }
+
+    private static String parseStringEntry(String entry) {
+        if ("".equals(entry)) {
+            // An empty string is a string missing value!
+            // An empty string in quotes is an empty string!
+            return null;
+        }
+        // Strip the outer quotes:
+        entry = entry.replaceFirst("^\\\"", "");
+        entry = entry.replaceFirst("\\\"$", "");
+
+        // We need to restore the special characters that 
+        // are stored in tab files escaped - quotes, new lines 
+        // and tabs. Before we do that however, we need to 
+        // take care of any escaped backslashes stored in 
+        // the tab file. I.e., "foo\t" should be transformed 
+        // to "foo<TAB>"; but "foo\\t" should be transformed 
+        // to "foo\t". This way new lines and tabs that were
+        // already escaped in the original data are not 
+        // going to be transformed to unescaped tab and 
+        // new line characters!
+        String[] splitTokens = entry.split(Matcher.quoteReplacement("\\\\"), -2);
+
+        // (note that it's important to use the 2-argument version 
+        // of String.split(), and set the limit argument to a
+        // negative value; otherwise any trailing backslashes 
+        // are lost.)
+        for (int i = 0; i < splitTokens.length; i++) {
+            splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\\""), "\"");
+            splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\t"), "\t");
+            splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\n"), "\n");
+            splitTokens[i] = splitTokens[i].replaceAll(Matcher.quoteReplacement("\\r"), "\r");
+        }
+        // TODO: 
+        // Make (some of?) the above optional; for ex., we 
+        // do need to restore the newlines when calculating UNFs;
+        // But if we are subsetting these vectors in order to 
+        // create a new tab-delimited file, they will 
+        // actually break things! -- L.A. Jul. 28 2014
+
+        return StringUtils.join(splitTokens, '\\');
+    }
+
     /*
      * Straightforward method for subsetting a tab-delimited data file, extracting
      * all the columns representing continuous variables and returning them as 
@@ -1107,24 +1513,160 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         return byteOffsets; 
     }
     
-    private File getRotatedImage(File tabfile, int varcount, int casecount)  throws IOException {
+    /*
+     * The byte offsets of the column vectors are stored in the header of the 
+     * rotated image (varcount * 8 bytes, which can be substantial for a file 
+     * with thousands of variables); the header is memory-mapped, so only the 
+     * pages holding the offsets of the requested columns ever need to be 
+     * read. 
+     */
+    private LongBuffer mapColumnOffsets(FileChannel rotatedImageChannel) throws IOException {
+        long indexSize = getVarCount() * 8L; 
+        if (rotatedImageChannel.size() < indexSize) {
+            throw new IOException("Could not read "+indexSize+" header bytes from the rotated file.");
+        }
+        return rotatedImageChannel.map(FileChannel.MapMode.READ_ONLY, 0, indexSize).asLongBuffer();
+    }
+    
+    /*
+     * For the files on remote storage, the rotated image is generated once, 
+     * from a temporary local copy of the tab file, and saved as an auxiliary 
+     * object next to it. After that, only the header of the image (the table 
+     * of the column offsets) and the requested column vectors themselves are 
+     * ever retrieved, with ranged reads. 
+     */
+    private LongBuffer getRemoteColumnOffsetIndex(StorageIO<DataFile> dataAccess) throws IOException {
+        int indexSize = getVarCount() * 8; 
+        
+        Object datafileId = dataAccess.getDataFile().getId();
+        Object lock = rotatedImageLocks.computeIfAbsent(datafileId, k -> new Object());
+        try {
+            synchronized (lock) {
+                if (!dataAccess.isAuxObjectCached(ROTATED_IMAGE_EXTENSION)) {
+                    File tabfile = DataConverter.downloadFromStorageIO(dataAccess);
+                    if (tabfile == null) {
+                        throw new IOException("Failed to retrieve the tab file for datafile "+dataAccess.getDataFile().getId());
+                    }
+                    File rotatedImageFile = null; 
+                    try {
+                        rotatedImageFile = generateRotatedImage(tabfile, getVarCount(), getCaseCount());
+                        long[] columnEndOffsets = extractColumnOffsets(rotatedImageFile, getVarCount(), getCaseCount());
+                        dataAccess.savePathAsAux(rotatedImageFile.toPath(), ROTATED_IMAGE_EXTENSION);
+                        return LongBuffer.wrap(columnEndOffsets);
+                    } finally {
+                        tabfile.delete();
+                        if (rotatedImageFile != null) {
+                            rotatedImageFile.delete();
+                        }
+                    }
+                }
+            }
+        } finally {
+            rotatedImageLocks.remove(datafileId, lock);
+        }
+        
+        byte[] offsetHeader = new byte[indexSize];
+        try (InputStream headerStream = dataAccess.getAuxFileRangeAsInputStream(ROTATED_IMAGE_EXTENSION, 0, indexSize)) {
+            int readlen = IOUtils.read(headerStream, offsetHeader);
+            if (readlen != indexSize) {
+                throw new IOException("Could not read "+indexSize+" header bytes from the rotated image.");
+            }
+        }
+        return ByteBuffer.wrap(offsetHeader).asLongBuffer();
+    }
+    
+    /*
+     * Downloads the column vectors of a multi-column subset of a remote file 
+     * into a temp file (deleted when the returned channel is closed), one 
+     * ranged request at a time; the ranges of the columns that are next to 
+     * (or near) each other in the rotated image are merged into one. The 
+     * column start offsets are updated to point into the temp file. 
+     */
+    private FileChannel spoolRemoteColumns(StorageIO<DataFile> dataAccess) throws IOException {
+        Integer[] order = new Integer[subsetcount];
+        for (int i = 0; i < subsetcount; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingLong(i -> columnStartOffsets[i]));
+        
+        Path spoolFile = Files.createTempFile("columnSubset", ".tmp");
+        FileChannel spoolChannel = FileChannel.open(spoolFile, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+        try {
+            long[] spooledOffsets = new long[subsetcount];
+            long spoolPosition = 0; 
+            int first = 0; 
+            while (first < subsetcount) {
+                long rangeStart = columnStartOffsets[order[first]];
+                long rangeEnd = rangeStart + columnTotalLengths[order[first]];
+                int last = first; 
+                while (last + 1 < subsetcount && columnStartOffsets[order[last + 1]] - rangeEnd <= MAX_MERGED_RANGE_GAP) {
+                    last++;
+                    rangeEnd = Math.max(rangeEnd, columnStartOffsets[order[last]] + columnTotalLengths[order[last]]);
+                }
+                
+                try (InputStream rangeStream = dataAccess.getAuxFileRangeAsInputStream(ROTATED_IMAGE_EXTENSION, rangeStart, rangeEnd - rangeStart)) {
+                    ReadableByteChannel rangeChannel = Channels.newChannel(rangeStream);
+                    long position = spoolPosition; 
+                    long end = spoolPosition + (rangeEnd - rangeStart);
+                    while (position < end) {
+                        long transferred = spoolChannel.transferFrom(rangeChannel, position, end - position);
+                        if (transferred <= 0) {
+                            throw new IOException("Unexpected end of the column vectors in the rotated image");
+                        }
+                        position += transferred;
+                    }
+                }
+                
+                for (int k = first; k <= last; k++) {
+                    spooledOffsets[order[k]] = spoolPosition + (columnStartOffsets[order[k]] - rangeStart);
+                }
+                spoolPosition += rangeEnd - rangeStart;
+                first = last + 1; 
+            }
+            dbgLog.fine("spooled "+subsetcount+" column vectors ("+spoolPosition+" bytes) of datafile "+dataAccess.getDataFile().getId());
+            columnStartOffsets = spooledOffsets;
+            return spoolChannel; 
+        } catch (IOException | RuntimeException ex) {
+            spoolChannel.close();
+            throw ex; 
+        }
+    }
+    
+    private ReadableByteChannel openRemoteColumnChannel(StorageIO<DataFile> dataAccess, long offset, long length) throws IOException {
+        InputStream columnStream = dataAccess.getAuxFileRangeAsInputStream(ROTATED_IMAGE_EXTENSION, offset, length);
+        return Channels.newChannel(new BufferedInputStream(columnStream, MAX_COLUMN_BUFFER));
+    }
+    
+    File getRotatedImage(File tabfile, int varcount, int casecount)  throws IOException {
         String fileName = tabfile.getAbsolutePath();
-        String rotatedImageFileName = fileName + ".90d";
+        String rotatedImageFileName = fileName + "." + ROTATED_IMAGE_EXTENSION;
         File rotatedImageFile = new File(rotatedImageFileName); 
+        // (the image is only ever there once it's complete; see 
+        // generateRotatedImage())
         if (rotatedImageFile.exists()) {
             //System.out.println("Image already exists!");
             return rotatedImageFile;
         }
         
-        return generateRotatedImage(tabfile, varcount, casecount);
-        
+        Object lock = rotatedImageLocks.computeIfAbsent(fileName, k -> new Object());
+        try {
+            synchronized (lock) {
+                // (it may have been generated while we were waiting)
+                if (rotatedImageFile.exists()) {
+                    return rotatedImageFile;
+                }
+                return generateRotatedImage(tabfile, varcount, casecount);
+            }
+        } finally {
+            rotatedImageLocks.remove(fileName, lock);
+        }
     }
     
     private File generateRotatedImage (File tabfile, int varcount, int casecount) throws IOException {
         // TODO: throw exceptions if bad file, zero varcount, etc. ...
         
         String fileName = tabfile.getAbsolutePath();
-        String rotatedImageFileName = fileName + ".90d";
+        String rotatedImageFileName = fileName + "." + ROTATED_IMAGE_EXTENSION;
         
         int MAX_OUTPUT_STREAMS = 32;
         int MAX_BUFFERED_BYTES = 10 * 1024 * 1024; // 10 MB - for now?
@@ -1235,60 +1777,70 @@ public class TabularSubsetGenerator implements SubsetGenerator {
         // We now need to go through all these buffers and create the final 
         // rotated image file. 
         
-        BufferedOutputStream finalOut = new BufferedOutputStream(new FileOutputStream (new File(rotatedImageFileName)));
+        // The image is written into a temp file next to its final location, 
+        // and only moved there once it is complete; so that a request that 
+        // finds the image there (see getRotatedImage()) never reads a 
+        // partially written one: 
+        Path rotatedImageTempPath = Files.createTempFile(tabfile.getAbsoluteFile().toPath().getParent(), tabfile.getName() + ".", "." + ROTATED_IMAGE_EXTENSION + ".tmp");
+        try {
+            BufferedOutputStream finalOut = new BufferedOutputStream(new FileOutputStream (rotatedImageTempPath.toFile()));
         
-        // but first we should create the offset header and write it out into 
-        // the final file; because it should be at the head, doh!
+            // but first we should create the offset header and write it out into 
+            // the final file; because it should be at the head, doh!
         
-        long columnOffset = varcount * 8;
-        // (this is the offset of the first column vector; it is equal to the
-        // size of the offset header, i.e. varcount * 8 bytes)
+            long columnOffset = varcount * 8;
+            // (this is the offset of the first column vector; it is equal to the
+            // size of the offset header, i.e. varcount * 8 bytes)
       
-        for (int varindex = 0; varindex < varcount; varindex++) {
-            long totalColumnBytes = cachedfileSizes[varindex] + bufferedSizes[varindex];
-            columnOffset+=totalColumnBytes;
-            //totalColumnBytes;
-            byte[] columnOffsetByteArray = ByteBuffer.allocate(8).putLong(columnOffset).array();
-            System.arraycopy(columnOffsetByteArray, 0, offsetHeader, varindex * 8, 8);
-        }
+            for (int varindex = 0; varindex < varcount; varindex++) {
+                long totalColumnBytes = cachedfileSizes[varindex] + bufferedSizes[varindex];
+                columnOffset+=totalColumnBytes;
+                //totalColumnBytes;
+                byte[] columnOffsetByteArray = ByteBuffer.allocate(8).putLong(columnOffset).array();
+                System.arraycopy(columnOffsetByteArray, 0, offsetHeader, varindex * 8, 8);
+            }
         
-        finalOut.write(offsetHeader, 0, varcount * 8);
+            finalOut.write(offsetHeader, 0, varcount * 8);
         
-        for (int varindex = 0; varindex < varcount; varindex++) {
-            long cachedBytesRead = 0; 
+            for (int varindex = 0; varindex < varcount; varindex++) {
+                long cachedBytesRead = 0; 
             
-            // check if there is a cached temp file:
+                // check if there is a cached temp file:
             
-            File cachedTempFile = columnTempFiles[varindex]; 
-            if (cachedTempFile != null) {
-                byte[] cachedBytes = new byte[MAX_COLUMN_BUFFER];
-                BufferedInputStream cachedIn = new BufferedInputStream(new FileInputStream(cachedTempFile));
-                int readlen = 0; 
-                while ((readlen = cachedIn.read(cachedBytes)) > -1) {
-                    finalOut.write(cachedBytes, 0, readlen);
-                    cachedBytesRead += readlen;
-                }
-                cachedIn.close();
-                // delete the temp file: 
-                cachedTempFile.delete();
+                File cachedTempFile = columnTempFiles[varindex]; 
+                if (cachedTempFile != null) {
+                    byte[] cachedBytes = new byte[MAX_COLUMN_BUFFER];
+                    BufferedInputStream cachedIn = new BufferedInputStream(new FileInputStream(cachedTempFile));
+                    int readlen = 0; 
+                    while ((readlen = cachedIn.read(cachedBytes)) > -1) {
+                        finalOut.write(cachedBytes, 0, readlen);
+                        cachedBytesRead += readlen;
+                    }
+                    cachedIn.close();
+                    // delete the temp file: 
+                    cachedTempFile.delete();
                 
-            }
+                }
             
-            if (cachedBytesRead != cachedfileSizes[varindex]) {
-                finalOut.close();
-                throw new IOException("Could not read the correct number of bytes cached for column "+varindex+"; "+
-                        cachedfileSizes[varindex] + " bytes expected, "+cachedBytesRead+" read.");
-            }
+                if (cachedBytesRead != cachedfileSizes[varindex]) {
+                    finalOut.close();
+                    throw new IOException("Could not read the correct number of bytes cached for column "+varindex+"; "+
+                            cachedfileSizes[varindex] + " bytes expected, "+cachedBytesRead+" read.");
+                }
             
-            // then check if there are any bytes buffered for this column:
+                // then check if there are any bytes buffered for this column:
             
-            if (bufferedSizes[varindex] > 0) {
-                finalOut.write(bufferedColumns[varindex], 0, bufferedSizes[varindex]);
-            }
+                if (bufferedSizes[varindex] > 0) {
+                    finalOut.write(bufferedColumns[varindex], 0, bufferedSizes[varindex]);
+                }
             
-        }
+            }
         
-        finalOut.close();
+            finalOut.close();
+            Files.move(rotatedImageTempPath, Paths.get(rotatedImageFileName), StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(rotatedImageTempPath);
+        }
         return new File(rotatedImageFileName);
 
     }
@@ -10,6 +10,8 @@ import edu.harvard.iq.dataverse.DataFile;
 import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -48,6 +50,31 @@ public class TabularSubsetInputStream extends InputStream {
         throw new IOException("read() method not implemented; do not use.");
     }
 
+    /*
+     * The size of the subset is known in advance - it is calculated from 
+     * the stored column offsets. 
+     */
+    public long getSize() {
+        return subsetGenerator.getSubsetSize();
+    }
+    
+    //@Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        // (this is what Channels.newChannel(InputStream) uses)
+        if (off == 0 && len == b.length) {
+            return read(b);
+        }
+        if (len == 0) {
+            return 0;
+        }
+        byte[] buffer = new byte[len];
+        int bytesread = read(buffer);
+        if (bytesread > 0) {
+            System.arraycopy(buffer, 0, b, off, bytesread);
+        }
+        return bytesread;
+    }
+
     //@Override
     public int read(byte[] b) throws IOException {
         // TODO: 
@@ -59,6 +86,10 @@ public class TabularSubsetInputStream extends InputStream {
             return subsetGenerator.readSingleColumnSubset(b);
         }
         
+        if (subsetGenerator.isMapped()) {
+            return subsetGenerator.readMappedSubsetBytes(ByteBuffer.wrap(b));
+        }
+        
         int bytesread = 0; 
         byte [] linebuffer; 
         
@@ -105,6 +136,17 @@ public class TabularSubsetInputStream extends InputStream {
         return bytesread > 0 ? bytesread : -1;
     }
     
+    /*
+     * Writes the remainder of the subset directly into the channel; 
+     * bypassing the byte array reads above. 
+     */
+    public long writeTo(WritableByteChannel out) throws IOException {
+        long byteswritten = subsetGenerator.writeSubset(out);
+        numberOfObservationsRead = numberOfObservations;
+        leftoverBytes = null;
+        return byteswritten;
+    }
+    
     //@Override
     public void close() {
         if (subsetGenerator != null) {
@@ -38,6 +38,7 @@ public class DeactivateUserCommand extends AbstractCommand<AuthenticatedUser> {
         userToDeactivate.setDeactivated(true);
         userToDeactivate.setDeactivatedTime(new Timestamp(new Date().getTime()));
         AuthenticatedUser deactivatedUser = ctxt.authentication().save(userToDeactivate);
+        ctxt.authentication().evictCachedApiTokens(userToDeactivate);
         return deactivatedUser;
     }
 
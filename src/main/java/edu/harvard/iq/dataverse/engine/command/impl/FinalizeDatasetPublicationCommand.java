@@ -309,14 +309,23 @@ public class FinalizeDatasetPublicationCommand extends AbstractPublishDatasetCom
 
     private void validateDataFiles(Dataset dataset, CommandContext ctxt) throws CommandException {
         try {
+            // All the files in the dataset are validated on every major
+            // release; except, if :FileValidationOnPublishMaxAge is set, the
+            // files that were validated (with the same checksum) recently:
+            long maxAgeDays = ctxt.systemConfig().getFileValidationOnPublishMaxAge();
+            long now = System.currentTimeMillis();
+            List<DataFile> dataFilesToValidate = new ArrayList<>();
             for (DataFile dataFile : dataset.getFiles()) {
-                // TODO: Should we validate all the files in the dataset, or only 
-                // the files that haven't been published previously?
-                // (the decision was made to validate all the files on every  
-                // major release; we can revisit the decision if there's any 
-                // indication that this makes publishing take significantly longer.
-                logger.log(Level.FINE, "validating DataFile {0}", dataFile.getId());
-                FileUtil.validateDataFileChecksum(dataFile);
+                if (FileUtil.isChecksumValidationDue(dataFile, maxAgeDays, now)) {
+                    dataFilesToValidate.add(dataFile);
+                } else {
+                    logger.log(Level.FINE, "skipping DataFile {0}, validated on {1}", new Object[]{dataFile.getId(), dataFile.getChecksumValidationTime()});
+                }
+            }
+            ctxt.files().validateDataFileChecksums(dataFilesToValidate);
+            Timestamp validationTime = new Timestamp(now);
+            for (DataFile dataFile : dataFilesToValidate) {
+                dataFile.setChecksumValidationTime(validationTime);
             }
         } catch (Throwable e) {
             
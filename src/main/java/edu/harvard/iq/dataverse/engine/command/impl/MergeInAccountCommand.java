@@ -15,7 +15,6 @@ import edu.harvard.iq.dataverse.UserNotification;
 import edu.harvard.iq.dataverse.authorization.AuthenticatedUserLookup;
 import edu.harvard.iq.dataverse.authorization.providers.builtin.BuiltinUser;
 import edu.harvard.iq.dataverse.authorization.providers.oauth2.OAuth2TokenData;
-import edu.harvard.iq.dataverse.authorization.users.ApiToken;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.batch.util.LoggingUtil;
 import edu.harvard.iq.dataverse.confirmemail.ConfirmEmailData;
@@ -186,10 +185,7 @@ public class MergeInAccountCommand extends AbstractVoidCommand {
         //  authenticated user
         //  AuthenticatedUserLookup
         //  apiToken
-        ApiToken toRemove = ctxt.authentication().findApiTokenByUser(consumedAU);
-        if(null != toRemove) { //not all users have apiTokens
-            ctxt.em().remove(toRemove);
-        }
+        ctxt.authentication().removeApiToken(consumedAU);
         AuthenticatedUserLookup consumedAUL = consumedAU.getAuthenticatedUserLookup();
         ctxt.em().remove(consumedAUL);
         ctxt.em().remove(consumedAU);
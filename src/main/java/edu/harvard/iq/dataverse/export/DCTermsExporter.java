@@ -47,6 +47,11 @@ public class DCTermsExporter implements Exporter {
     public Boolean isHarvestable() {
         return false;
     }
+
+    @Override
+    public Boolean isJsonOnly() {
+        return true;
+    }
     
     @Override
     public Boolean isAvailableToUsers() {
@@ -47,6 +47,11 @@ public class DublinCoreExporter implements Exporter {
     public Boolean isHarvestable() {
         return true;
     }
+
+    @Override
+    public Boolean isJsonOnly() {
+        return true;
+    }
     
     @Override
     public Boolean isAvailableToUsers() {
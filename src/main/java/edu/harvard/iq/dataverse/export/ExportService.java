@@ -27,12 +27,22 @@ import java.util.ArrayList;
 import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.ServiceConfigurationError;
 import java.util.ServiceLoader;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.json.JsonObject;
 import javax.json.JsonObjectBuilder;
+import javax.naming.InitialContext;
+import javax.naming.NamingException;
 import javax.ws.rs.core.MediaType;
 
 import org.apache.commons.io.IOUtils;
@@ -46,6 +56,20 @@ public class ExportService {
     private static ExportService service;
     private ServiceLoader<Exporter> loader;
 
+    /**
+     * The exporters that work from the dataset JSON only (see
+     * {@link Exporter#isJsonOnly()}) are run concurrently by
+     * exportAllFormats(), on the default managed executor of the container
+     * (this class is not a bean, so it is looked up rather than injected).
+     * Publishing waits for the exports; so the default executor is kept for
+     * short tasks such as these, the long-running background work
+     * (reindexing, full-text extraction, thumbnails) runs on pools of its
+     * own.
+     */
+    private static final String MANAGED_EXECUTOR_JNDI_NAME = "java:comp/DefaultManagedExecutorService";
+
+    private final Map<String, ExportTiming> exportTimings = new ConcurrentHashMap<>();
+
     private ExportService() {
         loader = ServiceLoader.load(Exporter.class);
     }
@@ -144,13 +168,52 @@ public class ExportService {
             final JsonObjectBuilder datasetAsJsonBuilder = JsonPrinter.jsonAsDatasetDto(releasedVersion);
             JsonObject datasetAsJson = datasetAsJsonBuilder.build();
 
-            Iterator<Exporter> exporters = loader.iterator();
-            while (exporters.hasNext()) {
-                Exporter e = exporters.next();
-                String formatName = e.getProviderName();
-
-                cacheExport(releasedVersion, formatName, datasetAsJson, e);
-
+            // The exporters working from the JSON only are handed to the 
+            // executor, with the storage already opened on this thread. The 
+            // others (that may need to load more of the version from the 
+            // database, or that use the output of another exporter, like the 
+            // HTML codebook that is made from the DDI) run right here, in 
+            // order, in the meantime: 
+            ExecutorService exportExecutor = lookupExportExecutor();
+            List<Future<?>> concurrentExports = new ArrayList<>();
+            ExportException exportException = null;
+            try {
+                Iterator<Exporter> exporters = loader.iterator();
+                while (exporters.hasNext()) {
+                    Exporter e = exporters.next();
+                    String formatName = e.getProviderName();
+
+                    if (e.isJsonOnly() && exportExecutor != null) {
+                        StorageIO<Dataset> storageIO = openStorageIO(dataset, formatName);
+                        concurrentExports.add(exportExecutor.submit(() -> {
+                            cacheExport(storageIO, releasedVersion, formatName, datasetAsJson, e);
+                            return null;
+                        }));
+                    } else {
+                        cacheExport(releasedVersion, formatName, datasetAsJson, e);
+                    }
+                }
+            } finally {
+                // Wait for the exports already handed to the executor, even 
+                // if one of the exports on this thread has failed (and then 
+                // only report the first failure): 
+                for (Future<?> concurrentExport : concurrentExports) {
+                    try {
+                        concurrentExport.get();
+                    } catch (ExecutionException ex) {
+                        if (exportException == null) {
+                            exportException = (ex.getCause() instanceof ExportException) ? (ExportException) ex.getCause()
+                                    : new ExportException("Exception thrown during export: " + ex.getCause());
+                        }
+                    } catch (InterruptedException ex) {
+                        Thread.currentThread().interrupt();
+                        concurrentExports.forEach(export -> export.cancel(true));
+                        throw new ExportException("Interrupted while waiting for the exports of dataset " + dataset.getGlobalId().toString());
+                    }
+                }
+            }
+            if (exportException != null) {
+                throw exportException;
             }
         } catch (ServiceConfigurationError serviceError) {
             throw new ExportException("Service configuration error during export. " + serviceError.getMessage());
@@ -162,6 +225,20 @@ public class ExportService {
 
     }
 
+    /**
+     * @return the default managed executor of the container; or null, outside
+     * of the container, in which case all the exports run on the calling
+     * thread.
+     */
+    private static ExecutorService lookupExportExecutor() {
+        try {
+            return InitialContext.doLookup(MANAGED_EXECUTOR_JNDI_NAME);
+        } catch (NamingException ex) {
+            logger.fine("No managed executor to run the exports on: " + ex.getMessage());
+            return null;
+        }
+    }
+
     public void clearAllCachedFormats(Dataset dataset) throws IOException {
         try {
             Iterator<Exporter> exporters = loader.iterator();
@@ -221,14 +298,42 @@ public class ExportService {
         throw new ExportException("No such Exporter: " + formatName);
     }
 
+    /**
+     * @return the number of exports, and the total and longest time taken, in
+     * milliseconds, by each format, since the application was started.
+     */
+    public Map<String, long[]> getExportTimings() {
+        Map<String, long[]> timings = new TreeMap<>();
+        exportTimings.forEach((format, timing) -> timings.put(format, new long[]{
+            timing.count.sum(), timing.totalNanos.sum() / 1000000, timing.maxNanos.get() / 1000000}));
+        return timings;
+    }
+
+    private static class ExportTiming {
+        final LongAdder count = new LongAdder();
+        final LongAdder totalNanos = new LongAdder();
+        final LongAccumulator maxNanos = new LongAccumulator(Long::max, 0);
+    }
+
+    private StorageIO<Dataset> openStorageIO(Dataset dataset, String format) throws ExportException {
+        try {
+            return DataAccess.getStorageIO(dataset);
+        } catch (IOException ioex) {
+            throw new ExportException("IO Exception thrown before exporting as " + "export_" + format + ".cached");
+        }
+    }
+
+    private void cacheExport(DatasetVersion version, String format, JsonObject datasetAsJson, Exporter exporter) throws ExportException {
+        cacheExport(openStorageIO(version.getDataset(), format), version, format, datasetAsJson, exporter);
+    }
+
     // This method runs the selected metadata exporter, caching the output 
     // in a file in the dataset directory / container based on its DOI:
-    private void cacheExport(DatasetVersion version, String format, JsonObject datasetAsJson, Exporter exporter) throws ExportException {
+    private void cacheExport(StorageIO<Dataset> storageIO, DatasetVersion version, String format, JsonObject datasetAsJson, Exporter exporter) throws ExportException {
     	boolean tempFileUsed = false;
     	File tempFile = null;
     	OutputStream outputStream = null;
-    	Dataset dataset = version.getDataset();
-    	StorageIO<Dataset> storageIO = null;
+    	long startTime = System.nanoTime();
     	try {
     		// With some storage drivers, we can open a WritableChannel, or OutputStream 
     		// to directly write the generated metadata export that we want to cache; 
@@ -237,7 +342,6 @@ public class ExportService {
     		// to save the output into a temp file, and then copy it over to the 
     		// permanent storage using the IO "save" command: 
     		try {
-    			storageIO = DataAccess.getStorageIO(dataset);
     			Channel outputChannel = storageIO.openAuxChannel("export_" + format + ".cached", DataAccessOption.WRITE_ACCESS);
     			outputStream = Channels.newOutputStream((WritableByteChannel) outputChannel);
     		} catch (IOException ioex) {
@@ -273,6 +377,12 @@ public class ExportService {
     		throw new ExportException("IO Exception thrown before exporting as " + "export_" + format + ".cached");
     	} finally {
     		IOUtils.closeQuietly(outputStream);
+    		long elapsedNanos = System.nanoTime() - startTime;
+    		ExportTiming timing = exportTimings.computeIfAbsent(format, f -> new ExportTiming());
+    		timing.count.increment();
+    		timing.totalNanos.add(elapsedNanos);
+    		timing.maxNanos.accumulate(elapsedNanos);
+    		logger.fine("export_" + format + ".cached took " + (elapsedNanos / 1000000) + " ms");
     	}
 
     }
@@ -46,6 +46,11 @@ public class JSONExporter implements Exporter {
     public Boolean isHarvestable() {
         return true;
     }
+
+    @Override
+    public Boolean isJsonOnly() {
+        return true;
+    }
     
     @Override
     public Boolean isAvailableToUsers() {
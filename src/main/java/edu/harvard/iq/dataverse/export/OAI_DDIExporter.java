@@ -49,6 +49,11 @@ public class OAI_DDIExporter implements Exporter {
     public Boolean isHarvestable() {
         return true;
     }
+
+    @Override
+    public Boolean isJsonOnly() {
+        return true;
+    }
     
     @Override
     public Boolean isAvailableToUsers() {
@@ -48,6 +48,11 @@ public class OpenAireExporter implements Exporter {
         return true;
     }
 
+    @Override
+    public Boolean isJsonOnly() {
+        return true;
+    }
+
     @Override
     public Boolean isAvailableToUsers() {
         return true;
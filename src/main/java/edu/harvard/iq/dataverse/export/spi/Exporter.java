@@ -38,6 +38,14 @@ public interface Exporter {
     
     public Boolean isAvailableToUsers();
     
+    /* Exporters that write their output from the JSON alone, without using the 
+       DatasetVersion (a JPA entity that may load more from the database as 
+       it's navigated), can be run on another thread, concurrently with the 
+       other exporters, when all the formats are exported: */
+    public default Boolean isJsonOnly() {
+        return false;
+    }
+    
     /* These should throw an ExportException if called on an Exporter that is not isXMLFormat(): */
     public String getXMLNameSpace() throws ExportException;
     public String getXMLSchemaLocation() throws ExportException; 
@@ -295,6 +295,58 @@ public class OAIRecordServiceBean implements java.io.Serializable {
     }
     
     public List<OAIRecord> findOaiRecordsBySetName(String setName, Date from, Date until, boolean excludeSet) {
+        TypedQuery<OAIRecord> query = createOaiRecordsQuery(setName, from, until, excludeSet, null, null);
+                
+        try {
+            return query.getResultList();      
+        } catch (Exception ex) {
+            logger.fine("Caught exception; returning null.");
+            return null;
+        }
+    }
+    
+    /**
+     * Retrieves one page of the records in the set, ordered by the global id. 
+     * The page starts right after the record with the global id lastGlobalId, 
+     * if supplied (so that the database can find it using the index on 
+     * (setName, globalId), instead of counting the records up to the offset); 
+     * or at the offset otherwise. 
+     */
+    public List<OAIRecord> findOaiRecordsBySetName(String setName, Date from, Date until, String lastGlobalId, int offset, int maxResults) {
+        TypedQuery<OAIRecord> query = createOaiRecordsQuery(setName, from, until, false, lastGlobalId, null);
+        if (offset > 0) {
+            query.setFirstResult(offset);
+        }
+        query.setMaxResults(maxResults);
+        
+        try {
+            return query.getResultList();      
+        } catch (Exception ex) {
+            logger.fine("Caught exception; returning null.");
+            return null;
+        }
+    }
+    
+    /**
+     * Finds the records for the datasets with the supplied global ids that 
+     * are in sets *other* than this set. (Used to list all the sets 
+     * a dataset is in, for one page of the records in this set). 
+     */
+    public List<OAIRecord> findOaiRecordsNotInThisSet(String setName, Date from, Date until, List<String> globalIds) {
+        if (globalIds == null || globalIds.isEmpty()) {
+            return null;
+        }
+        TypedQuery<OAIRecord> query = createOaiRecordsQuery(setName, from, until, true, null, globalIds);
+        
+        try {
+            return query.getResultList();      
+        } catch (Exception ex) {
+            logger.fine("Caught exception; returning null.");
+            return null;
+        }
+    }
+    
+    private TypedQuery<OAIRecord> createOaiRecordsQuery(String setName, Date from, Date until, boolean excludeSet, String lastGlobalId, List<String> globalIds) {
                 
         if (setName == null) {
             setName = "";
@@ -309,6 +361,8 @@ public class OAIRecordServiceBean implements java.io.Serializable {
         
         queryString += from != null ? " and h.lastUpdateTime >= :from" : "";
         queryString += until != null ? " and h.lastUpdateTime<=:until" : "";
+        queryString += lastGlobalId != null ? " and h.globalId > :lastGlobalId" : "";
+        queryString += globalIds != null ? " and h.globalId in :globalIds" : "";
         queryString += " order by h.globalId";
 
         logger.fine("Query: "+queryString);
@@ -316,6 +370,8 @@ public class OAIRecordServiceBean implements java.io.Serializable {
         TypedQuery<OAIRecord> query = em.createQuery(queryString, OAIRecord.class);
         if (setName != null) { query.setParameter("setName",setName); }
         if (from != null) { query.setParameter("from",from,TemporalType.TIMESTAMP); }
+        if (lastGlobalId != null) { query.setParameter("lastGlobalId",lastGlobalId); }
+        if (globalIds != null) { query.setParameter("globalIds",globalIds); }
         // In order to achieve inclusivity on the "until" matching, we need to do 
         // the following (if the "until" parameter is supplied):
         // 1) if the supplied "until" parameter has the time portion (and is not just
@@ -329,6 +385,8 @@ public class OAIRecordServiceBean implements java.io.Serializable {
         // match " <= 2016-10-23" - which is really going to be interpreted as 
         // "2016-10-23T00:00:00.000". 
         // -- L.A. 4.6
+        // (The incremented value is a copy; the same "until" date is used 
+        // for more than one query per request)
         
         if (until != null) { 
             // 24 * 3600 * 1000 = number of milliseconds in a day. 
@@ -337,20 +395,15 @@ public class OAIRecordServiceBean implements java.io.Serializable {
                 // The supplied "until" parameter is a date, with no time
                 // portion. 
                 logger.fine("plain date. incrementing by one day");
-                until.setTime(until.getTime()+(24 * 3600 * 1000));
+                until = new Date(until.getTime()+(24 * 3600 * 1000));
             } else {
                 logger.fine("date and time. incrementing by one second");
-                until.setTime(until.getTime()+1000);
+                until = new Date(until.getTime()+1000);
             }
             query.setParameter("until",until,TemporalType.TIMESTAMP); 
         }
-                
-        try {
-            return query.getResultList();      
-        } catch (Exception ex) {
-            logger.fine("Caught exception; returning null.");
-            return null;
-        }
+        
+        return query;
     }
     
     // This method is to only get the records NOT marked as "deleted":
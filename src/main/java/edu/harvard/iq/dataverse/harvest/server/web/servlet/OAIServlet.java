@@ -12,7 +12,6 @@ import com.lyncode.xoai.dataprovider.repository.Repository;
 import com.lyncode.xoai.dataprovider.repository.RepositoryConfiguration;
 import com.lyncode.xoai.dataprovider.model.Context;
 import com.lyncode.xoai.dataprovider.model.MetadataFormat;
-import com.lyncode.xoai.services.impl.SimpleResumptionTokenFormat;
 import com.lyncode.xoai.dataprovider.repository.ItemRepository;
 import com.lyncode.xoai.dataprovider.repository.SetRepository;
 import com.lyncode.xoai.model.oaipmh.DeletedRecord;
@@ -37,6 +36,7 @@ import edu.harvard.iq.dataverse.harvest.server.xoai.XgetRecord;
 import edu.harvard.iq.dataverse.harvest.server.xoai.XitemRepository;
 import edu.harvard.iq.dataverse.harvest.server.xoai.XsetRepository;
 import edu.harvard.iq.dataverse.harvest.server.xoai.XlistRecords;
+import edu.harvard.iq.dataverse.harvest.server.xoai.XresumptionTokenFormat;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.util.MailUtil;
 import edu.harvard.iq.dataverse.util.SystemConfig;
@@ -114,7 +114,7 @@ public class OAIServlet extends HttpServlet {
         xoaiRepository = new Repository()
             .withSetRepository(setRepository)
             .withItemRepository(itemRepository)
-            .withResumptionTokenFormatter(new SimpleResumptionTokenFormat())
+            .withResumptionTokenFormatter(new XresumptionTokenFormat())
             .withConfiguration(repositoryConfiguration);
         
         dataProvider = new XdataProvider(getXoaiContext(), getXoaiRepository());
@@ -251,7 +251,7 @@ public class OAIServlet extends HttpServlet {
             } else if (isListRecords(request) && !handle.hasErrors()) {
                 writeListRecords(response, handle);
             } else {
-                XmlWriter xmlWriter = new XmlWriter(response.getOutputStream());
+                XmlWriter xmlWriter = new XmlWriter(response.getOutputStream(), new XmlWriter.WriterContext(Granularity.Second, xoaiRepository.getResumptionTokenFormatter()));
                 xmlWriter.write(handle);
                 xmlWriter.flush();
                 xmlWriter.close();
@@ -118,14 +118,33 @@ public class XitemRepository implements ItemRepository {
                 + ", from=" + from
                 + ", until=" + until);
 
-        List<OAIRecord> oaiRecords = recordService.findOaiRecordsBySetName(setSpec, from, until);
+        return getItemIdentifiersPage(null, offset, length, setSpec, from, until);
+    }
+    
+    /*
+     * Retrieves the page of item identifiers that follows the record with 
+     * the global id lastKey (saved in the resumption token of the previous 
+     * page). 
+     */
+    public ListItemIdentifiersResult getItemIdentifiersAfter(String lastKey, int length, String setSpec, Date from, Date until) throws OAIException {
+        logger.fine("calling getItemIdentifiersAfter; lastKey=" + lastKey
+                + ", length=" + length
+                + ", setSpec=" + setSpec
+                + ", from=" + from
+                + ", until=" + until);
 
-        logger.fine("total " + oaiRecords.size() + " returned");
+        return getItemIdentifiersPage(lastKey, 0, length, setSpec, from, until);
+    }
+    
+    private ListItemIdentifiersResult getItemIdentifiersPage(String lastKey, int offset, int length, String setSpec, Date from, Date until) throws OAIException {
+        // (one extra record is requested, to find out if there are more pages)
+        List<OAIRecord> oaiRecords = recordService.findOaiRecordsBySetName(setSpec, from, until, lastKey, offset, length + 1);
 
         List<ItemIdentifier> xoaiItems = new ArrayList<>();
         if (oaiRecords != null && !oaiRecords.isEmpty()) {
+            logger.fine("total " + oaiRecords.size() + " returned");
 
-            for (int i = offset; i < offset + length && i < oaiRecords.size(); i++) {
+            for (int i = 0; i < length && i < oaiRecords.size(); i++) {
                 OAIRecord record = oaiRecords.get(i);
                 xoaiItems.add(new Xitem(record));
             }
@@ -135,7 +154,7 @@ public class XitemRepository implements ItemRepository {
             // formatted output in the header:
             addExtraSets(xoaiItems, setSpec, from, until);
             
-            boolean hasMore = offset + length < oaiRecords.size();
+            boolean hasMore = length < oaiRecords.size();
             ListItemIdentifiersResult result = new ListItemIdentifiersResult(hasMore, xoaiItems);
             logger.fine("returning result with " + xoaiItems.size() + " items.");
             return result;
@@ -187,14 +206,32 @@ public class XitemRepository implements ItemRepository {
                 + ", from=" + from
                 + ", until=" + until);
 
-        List<OAIRecord> oaiRecords = recordService.findOaiRecordsBySetName(setSpec, from, until);
+        return getItemsPage(null, offset, length, setSpec, from, until);
+    }
+    
+    /*
+     * Retrieves the page of items that follows the record with the global 
+     * id lastKey (saved in the resumption token of the previous page). 
+     */
+    public ListItemsResults getItemsAfter(String lastKey, int length, String setSpec, Date from, Date until) throws OAIException {
+        logger.fine("calling getItemsAfter; lastKey=" + lastKey
+                + ", length=" + length
+                + ", setSpec=" + setSpec
+                + ", from=" + from
+                + ", until=" + until);
 
-        logger.fine("total " + oaiRecords.size() + " returned");
+        return getItemsPage(lastKey, 0, length, setSpec, from, until);
+    }
+    
+    private ListItemsResults getItemsPage(String lastKey, int offset, int length, String setSpec, Date from, Date until) throws OAIException {
+        // (one extra record is requested, to find out if there are more pages)
+        List<OAIRecord> oaiRecords = recordService.findOaiRecordsBySetName(setSpec, from, until, lastKey, offset, length + 1);
 
         List<Item> xoaiItems = new ArrayList<>();
         if (oaiRecords != null && !oaiRecords.isEmpty()) {
+            logger.fine("total " + oaiRecords.size() + " returned");
 
-            for (int i = offset; i < offset + length && i < oaiRecords.size(); i++) {
+            for (int i = 0; i < length && i < oaiRecords.size(); i++) {
                 OAIRecord oaiRecord = oaiRecords.get(i);
                 Dataset dataset = datasetService.findByGlobalId(oaiRecord.getGlobalId());
                 if (dataset != null) {
@@ -205,7 +242,7 @@ public class XitemRepository implements ItemRepository {
             
             addExtraSets(xoaiItems, setSpec, from, until);
             
-            boolean hasMore = offset + length < oaiRecords.size();
+            boolean hasMore = length < oaiRecords.size();
             ListItemsResults result = new ListItemsResults(hasMore, xoaiItems);
             logger.fine("returning result with " + xoaiItems.size() + " items.");
             return result;
@@ -218,7 +255,13 @@ public class XitemRepository implements ItemRepository {
         
         List<Xitem> xoaiItems = (List<Xitem>)xoaiItemsList;
         
-        List<OAIRecord> oaiRecords = recordService.findOaiRecordsNotInThisSet(setSpec, from, until);
+        // (only the records for the datasets on this page need to be looked up)
+        List<String> globalIds = new ArrayList<>();
+        for (Xitem xitem : xoaiItems) {
+            globalIds.add(xitem.getIdentifier());
+        }
+        
+        List<OAIRecord> oaiRecords = recordService.findOaiRecordsNotInThisSet(setSpec, from, until, globalIds);
         
         if (oaiRecords == null || oaiRecords.isEmpty()) {
             return;
@@ -6,7 +6,6 @@ import com.lyncode.xoai.model.oaipmh.ListRecords;
 import com.lyncode.xoai.model.oaipmh.Record;
 import com.lyncode.xoai.model.oaipmh.ResumptionToken;
 import com.lyncode.xoai.xml.XmlWriter;
-import static com.lyncode.xoai.xml.XmlWriter.defaultContext;
 import java.io.ByteArrayOutputStream;
 
 import java.io.IOException;
@@ -58,7 +57,7 @@ public class XlistRecords extends ListRecords {
     private String resumptionTokenToString(ResumptionToken token) {
         try {
             ByteArrayOutputStream byteOutputStream = new ByteArrayOutputStream();
-            XmlWriter writer = new XmlWriter(byteOutputStream, defaultContext());
+            XmlWriter writer = new XmlWriter(byteOutputStream, new XmlWriter.WriterContext(Second, new XresumptionTokenFormat()));
 
             writer.writeStartElement(RESUMPTION_TOKEN_FIELD);
             
@@ -35,6 +35,9 @@ import java.util.List;
  * It is customized to support the optimizations that allows 
  * Dataverse to directly output pre-exported metadata records to the output 
  * stream, bypassing expensive XML parsing and writing. 
+ * The resumption tokens it issues carry the global id of the last record 
+ * on the page, so that the next page can be looked up directly (see 
+ * XresumptionTokenFormat). 
  */
 public class XlistRecordsHandler extends VerbHandler<ListRecords> {
     private static java.util.logging.Logger logger = java.util.logging.Logger.getLogger("XlistRecordsHandler");
@@ -56,8 +59,13 @@ public class XlistRecordsHandler extends VerbHandler<ListRecords> {
             throw new DoesNotSupportSetsException();
 
         int offset = getOffset(parameters);
+        String lastKey = getLastKey(parameters);
         ListItemsResults result;
-        if (!parameters.hasSet()) {
+        if (lastKey != null) {
+            result = ((XitemRepository) getRepository().getItemRepository()).getItemsAfter(lastKey,
+                    length, parameters.getSet(), parameters.getFrom(),
+                    parameters.getUntil());
+        } else if (!parameters.hasSet()) {
             if (parameters.hasFrom() && !parameters.hasUntil())
                 result = itemRepositoryHelper.getItems(getContext(), offset,
                         length, parameters.getMetadataPrefix(),
@@ -110,7 +118,8 @@ public class XlistRecordsHandler extends VerbHandler<ListRecords> {
         }
 
         XresumptionTokenHelper resumptionTokenHelper = new XresumptionTokenHelper(currentResumptionToken,
-                getRepository().getConfiguration().getMaxListRecords());
+                getRepository().getConfiguration().getMaxListRecords())
+                .withLastKey(results.get(results.size() - 1).getIdentifier());
         res.withResumptionToken(resumptionTokenHelper.resolve(result.hasMore()));
 
         return res;
@@ -124,6 +133,14 @@ public class XlistRecordsHandler extends VerbHandler<ListRecords> {
             return 0;
         return parameters.getResumptionToken().getOffset().intValue();
     }
+    
+    private String getLastKey(OAICompiledRequest parameters) {
+        if (!parameters.hasResumptionToken())
+            return null;
+        if (!(parameters.getResumptionToken() instanceof XresumptionTokenValue))
+            return null;
+        return ((XresumptionTokenValue) parameters.getResumptionToken()).getLastKey();
+    }
 
     private Record createRecord(OAICompiledRequest parameters, Item item)
             throws BadArgumentException, CannotDisseminateRecordException,
@@ -0,0 +1,55 @@
+package edu.harvard.iq.dataverse.harvest.server.xoai;
+
+import com.lyncode.xoai.exceptions.InvalidResumptionTokenException;
+import com.lyncode.xoai.model.oaipmh.ResumptionToken;
+import com.lyncode.xoai.services.api.ResumptionTokenFormat;
+import com.lyncode.xoai.services.impl.SimpleResumptionTokenFormat;
+import com.lyncode.xoai.util.Base64Utils;
+
+/**
+ *
+ * Dataverse's own resumption token format: the XOAI "simple" format (the 
+ * base64-encoded offset, set, from, until and metadata prefix), with the 
+ * global id of the last record served appended as an extra field. 
+ * Tokens issued in the simple format are still accepted. 
+ */
+public class XresumptionTokenFormat implements ResumptionTokenFormat {
+    
+    private static final String LAST_KEY_FIELD = "|6:";
+    
+    private final SimpleResumptionTokenFormat simpleFormat = new SimpleResumptionTokenFormat();
+
+    @Override
+    public ResumptionToken.Value parse(String resumptionToken) throws InvalidResumptionTokenException {
+        if (resumptionToken == null || "".equals(resumptionToken.trim())) {
+            return simpleFormat.parse(resumptionToken);
+        }
+        
+        String decodedToken;
+        try {
+            decodedToken = Base64Utils.decode(resumptionToken);
+        } catch (Exception ex) {
+            throw new InvalidResumptionTokenException(ex);
+        }
+        
+        int lastKeyIndex = decodedToken.indexOf(LAST_KEY_FIELD);
+        if (lastKeyIndex < 0) {
+            return simpleFormat.parse(resumptionToken);
+        }
+        
+        ResumptionToken.Value value = simpleFormat.parse(Base64Utils.encode(decodedToken.substring(0, lastKeyIndex)));
+        return XresumptionTokenValue.copyOf(value).withLastKey(decodedToken.substring(lastKeyIndex + LAST_KEY_FIELD.length()));
+    }
+
+    @Override
+    public String format(ResumptionToken.Value value) {
+        String resumptionToken = simpleFormat.format(value);
+        
+        if (value instanceof XresumptionTokenValue && ((XresumptionTokenValue) value).hasLastKey()) {
+            resumptionToken = Base64Utils.encode(Base64Utils.decode(resumptionToken) + LAST_KEY_FIELD + ((XresumptionTokenValue) value).getLastKey());
+        }
+        
+        return resumptionToken;
+    }
+    
+}
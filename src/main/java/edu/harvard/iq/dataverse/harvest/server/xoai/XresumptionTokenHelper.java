@@ -19,6 +19,7 @@ public class XresumptionTokenHelper {
     private ResumptionToken.Value current;
     private long maxPerPage;
     private Long totalResults;
+    private String lastKey;
 
     public XresumptionTokenHelper(ResumptionToken.Value current, long maxPerPage) {
         this.current = current;
@@ -30,11 +31,23 @@ public class XresumptionTokenHelper {
         return this;
     }
 
+    /*
+     * The global id of the last record on the current page; the next page 
+     * will start right after it. 
+     */
+    public XresumptionTokenHelper withLastKey(String lastKey) {
+        this.lastKey = lastKey;
+        return this;
+    }
+
     public ResumptionToken resolve (boolean hasMoreResults) {
         if (isInitialOffset() && !hasMoreResults) return null;
         else {
             if (hasMoreResults) {
                 ResumptionToken.Value next = current.next(maxPerPage);
+                if (lastKey != null) {
+                    next = XresumptionTokenValue.copyOf(next).withLastKey(lastKey);
+                }
                 return populate(new ResumptionToken(next));
             } else {
                 ResumptionToken resumptionToken = new ResumptionToken();
@@ -0,0 +1,40 @@
+package edu.harvard.iq.dataverse.harvest.server.xoai;
+
+import com.lyncode.xoai.model.oaipmh.ResumptionToken;
+
+/**
+ *
+ * A resumption token value that, in addition to the offset, carries the 
+ * global id of the last record on the page already served. The next page 
+ * can then be looked up in the database starting right after that id, 
+ * instead of skipping through all the records up to the offset. 
+ */
+public class XresumptionTokenValue extends ResumptionToken.Value {
+    
+    private String lastKey;
+    
+    public static XresumptionTokenValue copyOf(ResumptionToken.Value value) {
+        XresumptionTokenValue copy = new XresumptionTokenValue();
+        copy.withSetSpec(value.getSetSpec())
+                .withFrom(value.getFrom())
+                .withUntil(value.getUntil())
+                .withMetadataPrefix(value.getMetadataPrefix());
+        if (value.hasOffset()) {
+            copy.withOffset(value.getOffset());
+        }
+        return copy;
+    }
+    
+    public XresumptionTokenValue withLastKey(String lastKey) {
+        this.lastKey = lastKey;
+        return this;
+    }
+    
+    public String getLastKey() {
+        return lastKey;
+    }
+    
+    public boolean hasLastKey() {
+        return lastKey != null;
+    }
+}
@@ -39,6 +39,7 @@ import edu.harvard.iq.dataverse.DatasetVersion;
 import edu.harvard.iq.dataverse.DvObject;
 import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.MetadataBlock;
+import edu.harvard.iq.dataverse.ThumbnailGenerationServiceBean;
 import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
 import edu.harvard.iq.dataverse.dataaccess.DataAccess;
 import edu.harvard.iq.dataverse.dataaccess.DataAccessOption;
@@ -89,6 +90,7 @@ import java.nio.file.StandardCopyOption;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
+import java.util.BitSet;
 import java.util.Collection;
 import java.util.List;
 import java.util.Iterator;
@@ -134,6 +136,8 @@ public class IngestServiceBean {
     @EJB
     DataFileServiceBean fileService; 
     @EJB
+    ThumbnailGenerationServiceBean thumbnailGenerationService;
+    @EJB
     SystemConfig systemConfig;
 
     @Resource(lookup = "java:app/jms/queue/ingest")
@@ -146,6 +150,11 @@ public class IngestServiceBean {
     private static String dateTimeFormat_ymdhmsS = "yyyy-MM-dd HH:mm:ss.SSS";
     private static String dateFormat_ymd = "yyyy-MM-dd";
     
+    // Upper limit on the number of values (rows x columns) subset from a tab 
+    // file in a single pass, when calculating summary statistics, UNFs and 
+    // frequencies:
+    private static final long MAX_SUBSET_CELLS_PER_PASS = 10000000L;
+    
     // This method tries to permanently store new files on the filesystem. 
     // Then it adds the files that *have been successfully saved* to the 
     // dataset (by attaching the DataFiles to the Dataset, and the corresponding
@@ -446,6 +455,7 @@ public class IngestServiceBean {
     // -- L.A. 4.6
     public void startIngestJobsForDataset(Dataset dataset, AuthenticatedUser user) {
         List<DataFile> scheduledFiles = new ArrayList<>();
+        List<DataFile> newFiles = new ArrayList<>();
                 
         for (DataFile dataFile : dataset.getFiles()) {
             if (dataFile.isIngestScheduled()) {
@@ -454,9 +464,16 @@ public class IngestServiceBean {
                 // (switching to refinding via id resolves that)                
                 dataFile = fileService.find(dataFile.getId());
                 scheduledFiles.add(dataFile);
+            } else if (!dataFile.isReleased()) {
+                newFiles.add(dataFile);
             }
         }
 
+        // the thumbnails of new image and PDF files are generated in the 
+        // background, before the pages showing them ask for them; once the 
+        // files are saved:
+        thumbnailGenerationService.queueOnCommit(newFiles);
+
         startIngestJobs(scheduledFiles, user);
     }
     
@@ -568,108 +585,84 @@ public class IngestServiceBean {
         /*
         logger.info("Skipping summary statistics and UNF.");
          */
-        produceDiscreteNumericSummaryStatistics(dataFile, generatedTabularFile); 
-        produceContinuousSummaryStatistics(dataFile, generatedTabularFile);
-        produceCharacterSummaryStatistics(dataFile, generatedTabularFile);
-        
-        recalculateDataFileUNF(dataFile);
-        recalculateDatasetVersionUNF(dataFile.getFileMetadata().getDatasetVersion());
+        produceSummaryStatistics(dataFile, generatedTabularFile, false);
     }
     
-    public void produceContinuousSummaryStatistics(DataFile dataFile, File generatedTabularFile) throws IOException {
-
-        /* 
-        // quick, but memory-inefficient way:
-        // - this method just loads the entire file-worth of continuous vectors 
-        // into a Double[][] matrix. 
-        //Double[][] variableVectors = subsetContinuousVectors(dataFile);
-        //calculateContinuousSummaryStatistics(dataFile, variableVectors);
-        
-        // A more sophisticated way: this subsets one column at a time, using 
-        // the new optimized subsetting that does not have to read any extra 
-        // bytes from the file to extract the column:
-        
-        TabularSubsetGenerator subsetGenerator = new TabularSubsetGenerator();
-        */
-        
-        for (int i = 0; i < dataFile.getDataTable().getVarQuantity(); i++) {
-            if (dataFile.getDataTable().getDataVariables().get(i).isIntervalContinuous()) {
-                logger.fine("subsetting continuous vector");
-
-                if ("float".equals(dataFile.getDataTable().getDataVariables().get(i).getFormat())) {
-                    Float[] variableVector = TabularSubsetGenerator.subsetFloatVector(new FileInputStream(generatedTabularFile), i, dataFile.getDataTable().getCaseQuantity().intValue());
-                    logger.fine("Calculating summary statistics on a Float vector;");
-                    calculateContinuousSummaryStatistics(dataFile, i, variableVector);
-                    // calculate the UNF while we are at it:
-                    logger.fine("Calculating UNF on a Float vector;");
-                    calculateUNF(dataFile, i, variableVector);
-                    variableVector = null; 
-                } else {
-                    Double[] variableVector = TabularSubsetGenerator.subsetDoubleVector(new FileInputStream(generatedTabularFile), i, dataFile.getDataTable().getCaseQuantity().intValue());
-                    logger.fine("Calculating summary statistics on a Double vector;");
-                    calculateContinuousSummaryStatistics(dataFile, i, variableVector);
-                    // calculate the UNF while we are at it:
-                    logger.fine("Calculating UNF on a Double vector;");
-                    calculateUNF(dataFile, i, variableVector);
-                    variableVector = null; 
-                }
-                logger.fine("Done! (continuous);");
-            }
-        }
+    /*
+     * Same as above, but the frequencies of the categorical values are 
+     * calculated too, in the same pass(es) through the tab file. 
+     */
+    public void produceSummaryAndFrequencyStatistics(DataFile dataFile, File generatedTabularFile) throws IOException {
+        produceSummaryStatistics(dataFile, generatedTabularFile, true);
     }
     
-    public void produceDiscreteNumericSummaryStatistics(DataFile dataFile, File generatedTabularFile) throws IOException {
-        
-        //TabularSubsetGenerator subsetGenerator = new TabularSubsetGenerator();
+    private void produceSummaryStatistics(DataFile dataFile, File generatedTabularFile, boolean withFrequencies) throws IOException {
+        List<DataVariable> vars = dataFile.getDataTable().getDataVariables();
+        List<SubsetColumnRequest> columnRequests = new ArrayList<>();
         
         for (int i = 0; i < dataFile.getDataTable().getVarQuantity(); i++) {
-            if (dataFile.getDataTable().getDataVariables().get(i).isIntervalDiscrete()
-                    && dataFile.getDataTable().getDataVariables().get(i).isTypeNumeric()) {
-                logger.fine("subsetting discrete-numeric vector");
-
-                Long[] variableVector = TabularSubsetGenerator.subsetLongVector(new FileInputStream(generatedTabularFile), i, dataFile.getDataTable().getCaseQuantity().intValue());
+            DataVariable var = vars.get(i);
+            SubsetColumnRequest request = null;
+            
+            if (var.isIntervalContinuous()) {
+                // Continuous vectors stored as "float" are subset as Floats 
+                // (see the comment in front of toDoubleVector(float[]) below)
+                if ("float".equals(var.getFormat())) {
+                    request = new SubsetColumnRequest(i, TabularSubsetGenerator.COLUMN_TYPE_FLOAT);
+                } else {
+                    request = new SubsetColumnRequest(i, TabularSubsetGenerator.COLUMN_TYPE_DOUBLE);
+                }
+            } else if (var.isIntervalDiscrete() && var.isTypeNumeric()) {
                 // We are discussing calculating the same summary stats for 
                 // all numerics (the same kind of sumstats that we've been calculating
                 // for numeric continuous type)  -- L.A. Jul. 2014
-                calculateContinuousSummaryStatistics(dataFile, i, variableVector);
-                // calculate the UNF while we are at it:
-                logger.fine("Calculating UNF on a Long vector");
-                calculateUNF(dataFile, i, variableVector);
-                logger.fine("Done! (discrete numeric)");
-                variableVector = null; 
+                request = new SubsetColumnRequest(i, TabularSubsetGenerator.COLUMN_TYPE_LONG);
+            } else if (var.isTypeCharacter()) {
+                /* 
+                    At this point it's still not clear what kinds of summary stats we
+                    want for character types; so for the character vectors 
+                    we are only calculating the UNFs. -- L.A. Jul. 2014 
+                */
+                request = new SubsetColumnRequest(i, TabularSubsetGenerator.COLUMN_TYPE_STRING);
+            }
+            
+            if (request != null) {
+                request.summaryStatistics = true;
+                columnRequests.add(request);
+            }
+            
+            if (withFrequencies) {
+                addFrequencyColumnRequest(columnRequests, request, var, i);
             }
         }
-    }
-    
-    public void produceCharacterSummaryStatistics(DataFile dataFile, File generatedTabularFile) throws IOException {
-
-        /* 
-            At this point it's still not clear what kinds of summary stats we
-            want for character types. Though we are pretty confident we don't 
-            want to keep doing what we used to do in the past, i.e. simply 
-            store the total counts for all the unique values; even if it's a 
-            very long vector, and *every* value in it is unique. (As a result 
-            of this, our Categorical Variable Value table is the single 
-            largest in the production database. With no evidence whatsoever, 
-            that this information is at all useful. 
-                -- L.A. Jul. 2014 
         
-        TabularSubsetGenerator subsetGenerator = new TabularSubsetGenerator();
-        */
-        
-        for (int i = 0; i < dataFile.getDataTable().getVarQuantity(); i++) {
-            if (dataFile.getDataTable().getDataVariables().get(i).isTypeCharacter()) {
-
-                logger.fine("subsetting character vector");
-                String[] variableVector = TabularSubsetGenerator.subsetStringVector(new FileInputStream(generatedTabularFile), i, dataFile.getDataTable().getCaseQuantity().intValue());
-                //calculateCharacterSummaryStatistics(dataFile, i, variableVector);
-                // calculate the UNF while we are at it:
-                logger.fine("Calculating UNF on a String vector");
-                calculateUNF(dataFile, i, variableVector);
-                logger.fine("Done! (character)");
-                variableVector = null; 
+        subsetColumnVectors(generatedTabularFile, dataFile.getDataTable().getCaseQuantity().intValue(), columnRequests, (request, variableVector, missingValues) -> {
+            if (request.summaryStatistics) {
+                int i = request.column;
+                if (request.columnType == TabularSubsetGenerator.COLUMN_TYPE_FLOAT) {
+                    logger.fine("Calculating summary statistics and UNF on a float vector;");
+                    assignContinuousSummaryStatistics(vars.get(i), SumStatCalculator.calculateSummaryStatistics((float[]) variableVector, missingValues));
+                    calculateUNF(dataFile, i, toDoubleVector((float[]) variableVector), missingValues);
+                } else if (request.columnType == TabularSubsetGenerator.COLUMN_TYPE_DOUBLE) {
+                    logger.fine("Calculating summary statistics and UNF on a double vector;");
+                    assignContinuousSummaryStatistics(vars.get(i), SumStatCalculator.calculateSummaryStatistics((double[]) variableVector, missingValues));
+                    calculateUNF(dataFile, i, (double[]) variableVector, missingValues);
+                } else if (request.columnType == TabularSubsetGenerator.COLUMN_TYPE_LONG) {
+                    logger.fine("Calculating summary statistics and UNF on a long vector;");
+                    assignContinuousSummaryStatistics(vars.get(i), SumStatCalculator.calculateSummaryStatistics((long[]) variableVector, missingValues));
+                    calculateUNF(dataFile, i, toDoubleVector((long[]) variableVector), missingValues);
+                } else {
+                    logger.fine("Calculating UNF on a String vector;");
+                    calculateUNF(dataFile, i, (String[]) variableVector);
+                }
             }
-        }
+            if (request.frequencies) {
+                assignFrequencies(vars.get(request.column), variableVector, missingValues);
+            }
+        });
+        
+        recalculateDataFileUNF(dataFile);
+        recalculateDatasetVersionUNF(dataFile.getFileMetadata().getDatasetVersion());
     }
 
     public static void produceFrequencyStatistics(DataFile dataFile, File generatedTabularFile) throws IOException {
@@ -680,42 +673,140 @@ public class IngestServiceBean {
     }
 
     public static void produceFrequencies( File generatedTabularFile, List<DataVariable> vars) throws IOException {
+        List<SubsetColumnRequest> columnRequests = new ArrayList<>();
 
         for (int i = 0; i < vars.size(); i++) {
+            addFrequencyColumnRequest(columnRequests, null, vars.get(i), i);
+        }
+        
+        if (columnRequests.isEmpty()) {
+            return;
+        }
+        
+        int caseQuantity = vars.get(0).getDataTable().getCaseQuantity().intValue();
 
-            Collection<VariableCategory> cats = vars.get(i).getCategories();
-            int caseQuantity = vars.get(i).getDataTable().getCaseQuantity().intValue();
-            boolean isNumeric = vars.get(i).isTypeNumeric();
-            Object[] variableVector = null;
-            if (cats.size() > 0) {
-                if (isNumeric) {
-                    variableVector = TabularSubsetGenerator.subsetFloatVector(new FileInputStream(generatedTabularFile), i, caseQuantity);
-                }
-                else {
-                    variableVector = TabularSubsetGenerator.subsetStringVector(new FileInputStream(generatedTabularFile), i, caseQuantity);
-                }
-                if (variableVector != null) {
-                    Hashtable<Object, Double> freq = calculateFrequency(variableVector);
-                    for (VariableCategory cat : cats) {
-                        Object catValue;
-                        if (isNumeric) {
-                            catValue = new Float(cat.getValue());
-                        } else {
-                            catValue = cat.getValue();
-                        }
-                        Double numberFreq = freq.get(catValue);
-                        if (numberFreq != null) {
-                            cat.setFrequency(numberFreq);
-                        } else {
-                            cat.setFrequency(0D);
-                        }
-                    }
-                } else {
-                    logger.fine("variableVector is null for variable " + vars.get(i).getName());
-                }
+        subsetColumnVectors(generatedTabularFile, caseQuantity, columnRequests, (request, variableVector, missingValues) -> {
+            assignFrequencies(vars.get(request.column), variableVector, missingValues);
+        });
+    }
+    
+    private static void addFrequencyColumnRequest(List<SubsetColumnRequest> columnRequests, SubsetColumnRequest summaryStatsRequest, DataVariable var, int column) {
+        if (var.getCategories().size() < 1) {
+            return; 
+        }
+        int columnType = var.isTypeNumeric() ? TabularSubsetGenerator.COLUMN_TYPE_FLOAT : TabularSubsetGenerator.COLUMN_TYPE_STRING;
+        
+        // If the vector of the same type is already being subset for the 
+        // summary statistics, the frequencies can be calculated on it as well: 
+        if (summaryStatsRequest != null && summaryStatsRequest.columnType == columnType) {
+            summaryStatsRequest.frequencies = true;
+        } else {
+            SubsetColumnRequest request = new SubsetColumnRequest(column, columnType);
+            request.frequencies = true;
+            columnRequests.add(request);
+        }
+    }
+    
+    private static void assignFrequencies(DataVariable var, Object variableVector, BitSet missingValues) {
+        if (variableVector == null) {
+            logger.fine("variableVector is null for variable " + var.getName());
+            return;
+        }
+        
+        Hashtable<Object, Double> freq;
+        if (variableVector instanceof float[]) {
+            freq = calculateFrequency((float[]) variableVector, missingValues);
+        } else {
+            freq = calculateFrequency((Object[]) variableVector);
+        }
+        for (VariableCategory cat : var.getCategories()) {
+            Object catValue;
+            if (var.isTypeNumeric()) {
+                catValue = new Float(cat.getValue());
+            } else {
+                catValue = cat.getValue();
+            }
+            Double numberFreq = freq.get(catValue);
+            if (numberFreq != null) {
+                cat.setFrequency(numberFreq);
+            } else {
+                cat.setFrequency(0D);
             }
         }
     }
+    
+    /*
+     * Extracts the requested column vectors from the tab file, tokenizing the 
+     * file once per pass, instead of once per column. As many columns as 
+     * MAX_SUBSET_CELLS_PER_PASS allows are extracted during each pass, so 
+     * a file with a moderate number of rows is only read once, no matter 
+     * how many variables it has; but the vectors of a very tall file are 
+     * not all kept in memory at the same time. 
+     */
+    private static void subsetColumnVectors(File tabFile, int caseQuantity, List<SubsetColumnRequest> columnRequests, SubsetColumnVectorHandler handler) throws IOException {
+        int columnsPerPass = (int) Math.max(1L, Math.min(columnRequests.size(), MAX_SUBSET_CELLS_PER_PASS / Math.max(1, caseQuantity)));
+        
+        for (int start = 0; start < columnRequests.size(); start += columnsPerPass) {
+            List<SubsetColumnRequest> passRequests = columnRequests.subList(start, Math.min(start + columnsPerPass, columnRequests.size()));
+            int[] columns = new int[passRequests.size()];
+            int[] columnTypes = new int[passRequests.size()];
+            
+            for (int j = 0; j < passRequests.size(); j++) {
+                columns[j] = passRequests.get(j).column;
+                columnTypes[j] = passRequests.get(j).columnType;
+            }
+            
+            BitSet[] missingValues = new BitSet[passRequests.size()];
+            for (int j = 0; j < passRequests.size(); j++) {
+                missingValues[j] = new BitSet(caseQuantity);
+            }
+            
+            logger.fine("subsetting " + columns.length + " vectors in a single pass through the tab file");
+            Object[] variableVectors;
+            try (InputStream tabInputStream = new BufferedInputStream(new FileInputStream(tabFile))) {
+                variableVectors = TabularSubsetGenerator.subsetPrimitiveVectors(tabInputStream, columns, columnTypes, caseQuantity, missingValues);
+            }
+            
+            for (int j = 0; j < passRequests.size(); j++) {
+                handler.handle(passRequests.get(j), variableVectors[j], missingValues[j]);
+                // release the vector as soon as we are done with it:
+                variableVectors[j] = null;
+                missingValues[j] = null;
+            }
+            logger.fine("Done! (" + columns.length + " vectors)");
+        }
+    }
+    
+    private static class SubsetColumnRequest {
+        final int column;
+        final int columnType;
+        boolean summaryStatistics = false;
+        boolean frequencies = false;
+        
+        SubsetColumnRequest(int column, int columnType) {
+            this.column = column;
+            this.columnType = columnType;
+        }
+    }
+    
+    @FunctionalInterface
+    private interface SubsetColumnVectorHandler {
+        // the vector is a String[], or a primitive long[], double[] or float[] 
+        // array, with the missing values recorded in the BitSet
+        void handle(SubsetColumnRequest request, Object variableVector, BitSet missingValues) throws IOException;
+    }
+
+    public static Hashtable<Object, Double> calculateFrequency(float[] variableVector, BitSet missingValues) {
+        Hashtable<Object, Double> freq = new Hashtable<Object, Double>();
+
+        for (int j = 0; j < variableVector.length; j++) {
+            if (!missingValues.get(j)) {
+                freq.merge(variableVector[j], 1D, Double::sum);
+            }
+        }
+
+        return freq;
+    }
 
     public static Hashtable<Object, Double> calculateFrequency( Object[] variableVector) {
         Hashtable<Object, Double> freq = new Hashtable<Object, Double>();
@@ -934,8 +1025,7 @@ public class IngestServiceBean {
                 tabDataIngest.getDataTable().setOriginalFileName(originalFileName);
                 
                 try {
-                    produceSummaryStatistics(dataFile, tabFile);
-                    produceFrequencyStatistics(dataFile, tabFile);
+                    produceSummaryAndFrequencyStatistics(dataFile, tabFile);
                     postIngestTasksSuccessful = true;
                 } catch (IOException postIngestEx) {
 
@@ -1544,11 +1634,6 @@ public class IngestServiceBean {
         return contVarFields;
     }
     
-    private void calculateContinuousSummaryStatistics(DataFile dataFile, int varnum, Number[] dataVector) throws IOException {
-        double[] sumStats = SumStatCalculator.calculateSummaryStatistics(dataVector);
-        assignContinuousSummaryStatistics(dataFile.getDataTable().getDataVariables().get(varnum), sumStats);
-    }
-    
     private void assignContinuousSummaryStatistics(DataVariable variable, double[] sumStats) throws IOException {
         if (sumStats == null || sumStats.length != variableService.summaryStatisticTypes.length) {
             throw new IOException ("Wrong number of summary statistics types calculated! ("+sumStats.length+")");
@@ -1568,14 +1653,25 @@ public class IngestServiceBean {
 
     }
     
-    private void calculateUNF(DataFile dataFile, int varnum, Double[] dataVector) {
+    private void calculateUNF(DataFile dataFile, int varnum, double[] dataVector, BitSet missingValues) {
         String unf = null;
         try {
-            unf = UNFUtil.calculateUNF(dataVector);
+            if (missingValues.isEmpty()) {
+                unf = UNFUtil.calculateUNF(dataVector);
+            } else {
+                // The UNF library only knows how to handle missing values 
+                // in vectors of boxed Numbers (as nulls); so this is the 
+                // only case where the vector needs to be boxed:
+                Double[] boxedVector = new Double[dataVector.length];
+                for (int i = 0; i < dataVector.length; i++) {
+                    boxedVector[i] = missingValues.get(i) ? null : dataVector[i];
+                }
+                unf = UNFUtil.calculateUNF(boxedVector);
+            }
         } catch (IOException iex) {
-            logger.warning("exception thrown when attempted to calculate UNF signature for (numeric, continuous) variable " + varnum);
+            logger.warning("exception thrown when attempted to calculate UNF signature for numeric variable " + varnum);
         } catch (UnfException uex) {
-            logger.warning("UNF Exception: thrown when attempted to calculate UNF signature for (numeric, continuous) variable " + varnum);
+            logger.warning("UNF Exception: thrown when attempted to calculate UNF signature for numeric variable " + varnum);
         }
         
         if (unf != null) {
@@ -1585,21 +1681,34 @@ public class IngestServiceBean {
         }
     }
     
-    private void calculateUNF(DataFile dataFile, int varnum, Long[] dataVector) {
-        String unf = null;
-        try {
-            unf = UNFUtil.calculateUNF(dataVector);
-        } catch (IOException iex) {
-            logger.warning("exception thrown when attempted to calculate UNF signature for (numeric, discrete) variable " + varnum);
-        }  catch (UnfException uex) {
-            logger.warning("UNF Exception: thrown when attempted to calculate UNF signature for (numeric, discrete) variable " + varnum);
+    // Calculating UNFs from *floats*, not *doubles* - this is to test dataverse
+    // 4.0 Ingest against DVN 3.*; because of the nature of the UNF bug, reading
+    // the tab file entry with 7+ digits of precision as a Double will result
+    // in a UNF signature *different* from what was produced by the v. 3.* ingest,
+    // from a STATA float value directly. 
+    // (the float values are widened to doubles exactly the way the UNF 
+    // library used to do it for boxed Floats)
+    // TODO: remove this from the final production 4.0!
+    // -- L.A., Jul 2014
+    
+    private static double[] toDoubleVector(float[] dataVector) {
+        double[] retVector = new double[dataVector.length];
+        for (int i = 0; i < dataVector.length; i++) {
+            retVector[i] = dataVector[i];
         }
-        
-        if (unf != null) {
-            dataFile.getDataTable().getDataVariables().get(varnum).setUnf(unf);
-        } else {
-            logger.warning("failed to calculate UNF signature for variable " + varnum);
+        return retVector;
+    }
+    
+    // Note that we are not using UNFUtil.calculateUNF(long[]) - it treats 
+    // Long.MAX_VALUE as a missing value, unlike the Number[] version that 
+    // we have always used for the discrete numeric vectors. 
+    
+    private static double[] toDoubleVector(long[] dataVector) {
+        double[] retVector = new double[dataVector.length];
+        for (int i = 0; i < dataVector.length; i++) {
+            retVector[i] = dataVector[i];
         }
+        return retVector;
     }
     
     private void calculateUNF(DataFile dataFile, int varnum, String[] dataVector) throws IOException {
@@ -1702,31 +1811,6 @@ public class IngestServiceBean {
         }
     }
     
-    // Calculating UNFs from *floats*, not *doubles* - this is to test dataverse
-    // 4.0 Ingest against DVN 3.*; because of the nature of the UNF bug, reading
-    // the tab file entry with 7+ digits of precision as a Double will result
-    // in a UNF signature *different* from what was produced by the v. 3.* ingest,
-    // from a STATA float value directly. 
-    // TODO: remove this from the final production 4.0!
-    // -- L.A., Jul 2014
-    
-    private void calculateUNF(DataFile dataFile, int varnum, Float[] dataVector) {
-        String unf = null;
-        try {
-            unf = UNFUtil.calculateUNF(dataVector);
-        } catch (IOException iex) {
-            logger.warning("exception thrown when attempted to calculate UNF signature for numeric, \"continuous\" (float) variable " + varnum);
-        } catch (UnfException uex) {
-            logger.warning("UNF Exception: thrown when attempted to calculate UNF signature for numeric, \"continuous\" (float) variable" + varnum);
-        }
-        
-        if (unf != null) {
-            dataFile.getDataTable().getDataVariables().get(varnum).setUnf(unf);
-        } else {
-            logger.warning("failed to calculate UNF signature for variable " + varnum);
-        }
-    }
-    
     // This method takes a list of file ids, checks the format type of the ingested 
     // original, and attempts to fix it if it's missing. 
     // Note the @Asynchronous attribute - this allows us to just kick off and run this 
@@ -0,0 +1,214 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.dataaccess.DataAccess;
+import edu.harvard.iq.dataverse.dataaccess.DataAccessRequest;
+import edu.harvard.iq.dataverse.dataaccess.StorageIO;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.logging.Logger;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedThreadFactory;
+import org.apache.tika.io.IOUtils;
+import org.apache.tika.metadata.Metadata;
+import org.apache.tika.parser.AutoDetectParser;
+import org.apache.tika.parser.ParseContext;
+import org.apache.tika.sax.BodyContentHandler;
+import org.xml.sax.ContentHandler;
+
+/**
+ * Extracts the text of the files for full-text indexing, with Apache Tika.
+ *
+ * The extraction runs on a pool of {@link #EXTRACTION_THREADS} worker threads
+ * (made by the managed thread factory of the container, and shut down with
+ * this bean), outside of the indexing transaction; the indexing thread only opens the
+ * storage (which needs the file entity) and waits for the text. The
+ * extracted text is saved, gzipped, as an auxiliary object of the file, named
+ * after the checksum of the file; so it is only extracted again once the
+ * content of the file has changed.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class FullTextExtractionServiceBean {
+
+    private static final Logger logger = Logger.getLogger(FullTextExtractionServiceBean.class.getCanonicalName());
+
+    static final String FULL_TEXT_AUX_PREFIX = "fulltext_";
+    static final String FULL_TEXT_AUX_SUFFIX = ".txt.gz";
+
+    static final int EXTRACTION_THREADS = Math.min(4, Runtime.getRuntime().availableProcessors());
+
+    private ExecutorService extractionExecutor;
+
+    /**
+     * A full-text extraction submitted with {@link #submit(edu.harvard.iq.dataverse.DataFile, long)}.
+     */
+    public static class PendingFullText {
+
+        final StorageIO<DataFile> storageIO;
+        final String auxItemTag;
+        // set once the text has been extracted (rather than read from the
+        // cached auxiliary object), and is to be cached:
+        final AtomicBoolean extracted = new AtomicBoolean();
+        Future<String> text;
+
+        PendingFullText(StorageIO<DataFile> storageIO, String auxItemTag) {
+            this.storageIO = storageIO;
+            this.auxItemTag = auxItemTag;
+        }
+    }
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
+
+    @PostConstruct
+    public void init() {
+        extractionExecutor = Executors.newFixedThreadPool(EXTRACTION_THREADS, managedThreadFactory);
+    }
+
+    @PreDestroy
+    public void close() {
+        extractionExecutor.shutdownNow();
+    }
+
+    /**
+     * Starts getting the text of {@code dataFile}: from the cached auxiliary
+     * object if there is one, or else by extracting it on a worker thread.
+     * The storage of the file is opened on the calling thread.
+     *
+     * @param dataFile the file
+     * @param maxSize the text of larger files is not extracted.
+     * @return the pending text, to be passed to {@link #getFullText(edu.harvard.iq.dataverse.search.FullTextExtractionServiceBean.PendingFullText)}.
+     */
+    public PendingFullText submit(DataFile dataFile, long maxSize) {
+        final StorageIO<DataFile> storageIO;
+        try {
+            storageIO = DataAccess.getStorageIO(dataFile, new DataAccessRequest());
+            storageIO.open();
+        } catch (Exception e) {
+            PendingFullText failed = new PendingFullText(null, null);
+            failed.text = CompletableFuture.failedFuture(e);
+            return failed;
+        }
+        String auxItemTag = getAuxItemTag(dataFile);
+        boolean cached = false;
+        try {
+            cached = (auxItemTag != null) && storageIO.isAuxObjectCached(auxItemTag);
+        } catch (IOException ioe) {
+            logger.fine("Could not check for the cached full text of " + dataFile.getId() + ": " + ioe.getMessage());
+        }
+
+        final boolean readCached = cached;
+        PendingFullText pending = new PendingFullText(storageIO, auxItemTag);
+        pending.text = extractionExecutor.submit(() -> {
+            try {
+                if (readCached) {
+                    try {
+                        return readFullText(storageIO, auxItemTag);
+                    } catch (IOException ioe) {
+                        // extract the text again, and overwrite the cached copy:
+                        logger.warning("Could not read the cached full text of " + dataFile.getId() + ", extracting it again: " + ioe.getMessage());
+                    }
+                }
+                // If the size is >max, we don't use the stream. However, we still want to
+                // close the one the storage may have opened already (see
+                // https://github.com/IQSS/dataverse/issues/5165).
+                if (storageIO.getSize() > maxSize) {
+                    return null;
+                }
+                String text = extractFullText(storageIO.getInputStream());
+                pending.extracted.set(true);
+                return text;
+            } finally {
+                storageIO.closeInputStream();
+            }
+        });
+        return pending;
+    }
+
+    /**
+     * Waits for the text of a file, and caches it as an auxiliary object of
+     * the file if it has just been extracted.
+     *
+     * @param pending the pending text
+     * @return the text of the file, or {@code null} if the file is too large.
+     * @throws ExecutionException if the text could not be extracted.
+     * @throws InterruptedException if interrupted while waiting.
+     */
+    public String getFullText(PendingFullText pending) throws ExecutionException, InterruptedException {
+        String text = pending.text.get();
+        if (text != null && pending.extracted.get() && pending.auxItemTag != null) {
+            try {
+                byte[] compressed = compress(text);
+                pending.storageIO.saveInputStreamAsAux(new ByteArrayInputStream(compressed), pending.auxItemTag, (long) compressed.length);
+            } catch (IOException ioe) {
+                logger.warning("Could not cache the full text of " + pending.storageIO.getDataFile().getId() + ": " + ioe.getMessage());
+            }
+        }
+        return text;
+    }
+
+    /**
+     * @return the tag of the auxiliary object with the text of {@code dataFile},
+     * or {@code null} if the file has no checksum to key it on.
+     */
+    static String getAuxItemTag(DataFile dataFile) {
+        if (dataFile.getChecksumValue() == null || dataFile.getChecksumValue().isEmpty()) {
+            return null;
+        }
+        return FULL_TEXT_AUX_PREFIX + dataFile.getChecksumValue() + FULL_TEXT_AUX_SUFFIX;
+    }
+
+    static String extractFullText(InputStream instream) throws Exception {
+        AutoDetectParser autoParser = new AutoDetectParser();
+        ContentHandler textHandler = new BodyContentHandler(-1);
+        Metadata metadata = new Metadata();
+        ParseContext context = new ParseContext();
+        /*
+         * Try parsing the file. Note that, other than by limiting size, there's been no
+         * check see whether this file is a good candidate for text extraction (e.g.
+         * based on type).
+         */
+        autoParser.parse(instream, textHandler, metadata, context);
+        return textHandler.toString();
+    }
+
+    static byte[] compress(String text) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        }
+        return bytes.toByteArray();
+    }
+
+    static String decompress(InputStream compressed) throws IOException {
+        try (InputStream in = new GZIPInputStream(compressed)) {
+            return new String(IOUtils.toByteArray(in), StandardCharsets.UTF_8);
+        }
+    }
+
+    private static String readFullText(StorageIO<DataFile> storageIO, String auxItemTag) throws IOException {
+        InputStream in = storageIO.getAuxFileAsInputStream(auxItemTag);
+        if (in == null) {
+            throw new IOException("The cached full text " + auxItemTag + " could not be read");
+        }
+        return decompress(in);
+    }
+}
@@ -8,13 +8,21 @@ import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Resource;
 import javax.ejb.AsyncResult;
 import javax.ejb.Asynchronous;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
+import javax.ejb.TransactionAttribute;
+import static javax.ejb.TransactionAttributeType.NOT_SUPPORTED;
+import javax.enterprise.concurrent.ManagedThreadFactory;
 import javax.inject.Named;
 import javax.json.Json;
 import javax.json.JsonArrayBuilder;
@@ -30,6 +38,25 @@ public class IndexBatchServiceBean {
 
     private static final Logger logger = Logger.getLogger(IndexBatchServiceBean.class.getCanonicalName());
 
+    /**
+     * How many datasets a partition of a parallel reindex indexes between two
+     * checkpoints; i.e. at most how many it indexes again when resumed.
+     */
+    static final int CHECKPOINT_INTERVAL = 20;
+
+    /**
+     * At most how many partitions of a parallel reindex are indexed at the
+     * same time (unless set with the
+     * {@code dataverse.search.parallel-reindex-threads} JVM option); the
+     * others wait for a thread.
+     */
+    static final int DEFAULT_PARTITION_THREADS = 8;
+
+    /**
+     * Only one parallel reindex runs at a time on this server.
+     */
+    private static final AtomicBoolean partitionedIndexingRunning = new AtomicBoolean();
+
     @PersistenceContext(unitName = "VDCNet-ejbPU")
     private EntityManager em;
 
@@ -45,6 +72,13 @@ public class IndexBatchServiceBean {
     DvObjectServiceBean dvObjectService;
     @EJB
     SystemConfig systemConfig;
+    @EJB
+    IndexCheckpointServiceBean indexCheckpointService;
+    @EJB
+    SolrUpdateBufferService solrUpdateBuffer;
+
+    @Resource
+    ManagedThreadFactory managedThreadFactory;
     
     @Asynchronous
     public Future<JsonObjectBuilder> indexStatus() {
@@ -70,7 +104,8 @@ public class IndexBatchServiceBean {
                 .add("contentInDatabaseButStaleInOrMissingFromIndex", contentInDatabaseButStaleInOrMissingFromSolr)
                 .add("contentInIndexButNotDatabase", contentInSolrButNotDatabase)
                 .add("permissionsInDatabaseButStaleInOrMissingFromIndex", permissionsInDatabaseButStaleInOrMissingFromSolr)
-                .add("permissionsInIndexButNotDatabase", permissionsInSolrButNotDatabase);
+                .add("permissionsInIndexButNotDatabase", permissionsInSolrButNotDatabase)
+                .add("partitionedIndexing", getPartitionedIndexingStatus());
 
         logger.log(Level.INFO, "contentInDatabaseButStaleInOrMissingFromIndex: {0}", contentInDatabaseButStaleInOrMissingFromSolr);
         logger.log(Level.INFO, "contentInIndexButNotDatabase: {0}", contentInSolrButNotDatabase);
@@ -181,22 +216,8 @@ public class IndexBatchServiceBean {
         // The method below returns the ids of all the unindexed dataverses.
         List<Long> dataverseIds = dataverseIds = dataverseService.findDataverseIdsForIndexing(skipIndexed);
         
-        int dataverseIndexCount = 0;
-        int dataverseFailureCount = 0;
-        //for (Dataverse dataverse : dataverses) {
-        for (Long id : dataverseIds) {
-            try {
-                dataverseIndexCount++;
-                Dataverse dataverse = dataverseService.find(id);
-                logger.info("indexing dataverse " + dataverseIndexCount + " of " + dataverseIds.size() + " (id=" + id + ", persistentId=" + dataverse.getAlias() + ")");
-                Future<String> result = indexService.indexDataverseInNewTransaction(dataverse);
-                dataverse = null;
-            } catch (Exception e) {
-                //We want to keep running even after an exception so throw some more info into the log
-                dataverseFailureCount++;
-                logger.info("FAILURE indexing dataverse " + dataverseIndexCount + " of " + dataverseIds.size() + " (id=" + id + ") Exception info: " + e.getMessage());
-            }
-        }
+        int dataverseIndexCount = dataverseIds.size();
+        int dataverseFailureCount = indexDataverses(dataverseIds);
 
         int datasetIndexCount = 0;
         int datasetFailureCount = 0;
@@ -225,6 +246,287 @@ public class IndexBatchServiceBean {
         logger.info(status);
         return new AsyncResult<>(status);
     }
+    /**
+     * Indexes the dataverses, one after the other, each in a transaction of
+     * its own.
+     *
+     * @return the number of dataverses that failed to index.
+     */
+    private int indexDataverses(List<Long> dataverseIds) {
+        int dataverseIndexCount = 0;
+        int dataverseFailureCount = 0;
+        //for (Dataverse dataverse : dataverses) {
+        for (Long id : dataverseIds) {
+            try {
+                dataverseIndexCount++;
+                Dataverse dataverse = dataverseService.find(id);
+                logger.info("indexing dataverse " + dataverseIndexCount + " of " + dataverseIds.size() + " (id=" + id + ", persistentId=" + dataverse.getAlias() + ")");
+                Future<String> result = indexService.indexDataverseInNewTransaction(dataverse);
+                dataverse = null;
+            } catch (Exception e) {
+                //We want to keep running even after an exception so throw some more info into the log
+                dataverseFailureCount++;
+                logger.info("FAILURE indexing dataverse " + dataverseIndexCount + " of " + dataverseIds.size() + " (id=" + id + ") Exception info: " + e.getMessage());
+            }
+        }
+        return dataverseFailureCount;
+    }
+
+    /**
+     * Reindexes everything, with the datasets split in {@code numPartitions}
+     * partitions that are indexed concurrently, on the managed executor of the
+     * application server. The dataverses are indexed first, on the calling
+     * thread.
+     *
+     * The progress of each partition is checkpointed every
+     * {@link #CHECKPOINT_INTERVAL} datasets (once their documents have been
+     * sent to Solr); so that, with {@code resume}, a reindex with the same
+     * number of partitions that was interrupted (e.g. by a restart) carries on
+     * from its last checkpoints, without indexing the dataverses again.
+     *
+     * Only to be called once {@link #startPartitionedIndexing()} has returned
+     * {@code true}; the reindex is marked as done when this returns.
+     *
+     * @param numPartitions how many partitions to index concurrently.
+     * @param skipIndexed only index the objects that have not been indexed yet.
+     * @param resume resume the previous reindex, if it had the same number of
+     * partitions; otherwise start over.
+     * @return a summary of the reindex.
+     */
+    @Asynchronous
+    @TransactionAttribute(NOT_SUPPORTED)
+    public Future<JsonObjectBuilder> indexAllInPartitions(long numPartitions, boolean skipIndexed, boolean resume) {
+        JsonObjectBuilder response = Json.createObjectBuilder();
+        ExecutorService partitionExecutor = null;
+        try {
+            long start = System.currentTimeMillis();
+            List<IndexCheckpoint> checkpoints = resume ? indexCheckpointService.findAll() : new ArrayList<>();
+            boolean resuming = !checkpoints.isEmpty() && checkpoints.size() == numPartitions;
+            for (IndexCheckpoint checkpoint : checkpoints) {
+                resuming &= checkpoint.getNumPartitions() == numPartitions;
+            }
+            if (resume && !resuming) {
+                logger.info("No checkpoints of a parallel reindex with " + numPartitions + " partitions to resume from; starting over.");
+            }
+
+            int dataverseFailureCount = 0;
+            List<List<Long>> partitionDatasetIds = new ArrayList<>();
+            if (resuming) {
+                for (IndexCheckpoint checkpoint : checkpoints) {
+                    List<Long> datasetIds = new ArrayList<>();
+                    if (!checkpoint.isFinished()) {
+                        for (Long id : datasetService.findAllOrSubset(numPartitions, checkpoint.getPartitionId(), skipIndexed)) {
+                            if (checkpoint.getLastDatasetId() == null || id > checkpoint.getLastDatasetId()) {
+                                datasetIds.add(id);
+                            }
+                        }
+                        indexCheckpointService.resume(checkpoint.getPartitionId());
+                    }
+                    logger.info("resuming partition " + checkpoint.getPartitionId() + " of the parallel reindex after dataset " + checkpoint.getLastDatasetId() + ": " + datasetIds.size() + " datasets left");
+                    partitionDatasetIds.add(datasetIds);
+                }
+            } else {
+                indexCheckpointService.deleteAll();
+                dataverseFailureCount = indexDataverses(dataverseService.findDataverseIdsForIndexing(skipIndexed));
+                for (long partitionId = 0; partitionId < numPartitions; partitionId++) {
+                    List<Long> datasetIds = datasetService.findAllOrSubset(numPartitions, partitionId, skipIndexed);
+                    indexCheckpointService.start(partitionId, numPartitions, datasetIds.size());
+                    partitionDatasetIds.add(datasetIds);
+                }
+            }
+
+            // The partitions run for hours, on threads of their own; rather
+            // than on the default managed executor, which the short tasks
+            // that publishing waits for (checksum validation, exports) run on:
+            int threads = (int) Math.min(numPartitions, Math.max(1, Integer.getInteger("dataverse.search.parallel-reindex-threads", DEFAULT_PARTITION_THREADS)));
+            partitionExecutor = Executors.newFixedThreadPool(threads, managedThreadFactory);
+            List<Future<?>> partitions = new ArrayList<>();
+            for (int partitionId = 0; partitionId < numPartitions; partitionId++) {
+                final long id = partitionId;
+                final List<Long> datasetIds = partitionDatasetIds.get(partitionId);
+                final IndexCheckpoint checkpoint = resuming ? checkpoints.get(partitionId) : null;
+                if (datasetIds.isEmpty() && checkpoint != null && checkpoint.isFinished()) {
+                    continue;
+                }
+                partitions.add(partitionExecutor.submit(() -> indexPartition(id, datasetIds, checkpoint)));
+            }
+            for (Future<?> partition : partitions) {
+                try {
+                    partition.get();
+                } catch (ExecutionException e) {
+                    logger.log(Level.WARNING, "A partition of the parallel reindex failed", e.getCause());
+                } catch (InterruptedException e) {
+                    logger.warning("Interrupted while waiting for the parallel reindex; cancelling it. It can be resumed from its checkpoints.");
+                    for (Future<?> other : partitions) {
+                        other.cancel(true);
+                    }
+                    Thread.currentThread().interrupt();
+                    break;
+                }
+            }
+
+            String status = "parallel reindex of " + numPartitions + " partitions took " + (System.currentTimeMillis() - start) + " milliseconds";
+            if (dataverseFailureCount > 0) {
+                status += "; " + dataverseFailureCount + " dataverse(s) failed to index. Please check the log for more information.";
+            }
+            logger.info(status);
+            response.add("message", status);
+            response.add("partitionedIndexing", getPartitionedIndexingStatus());
+            return new AsyncResult<>(response);
+        } finally {
+            if (partitionExecutor != null) {
+                partitionExecutor.shutdownNow();
+            }
+            partitionedIndexingRunning.set(false);
+        }
+    }
+
+    /**
+     * Marks a parallel reindex as running, unless one already is.
+     *
+     * @return whether the reindex can be started, with
+     * {@link #indexAllInPartitions(long, boolean, boolean)}.
+     */
+    public boolean startPartitionedIndexing() {
+        return partitionedIndexingRunning.compareAndSet(false, true);
+    }
+
+    /**
+     * Marks a parallel reindex as done; if it could not be started after all.
+     */
+    public void cancelPartitionedIndexing() {
+        partitionedIndexingRunning.set(false);
+    }
+
+    public boolean isPartitionedIndexingRunning() {
+        return partitionedIndexingRunning.get();
+    }
+
+    /**
+     * Indexes the datasets of a partition, in the order of their ids, and
+     * checkpoints its progress every {@link #CHECKPOINT_INTERVAL} datasets.
+     *
+     * The checkpoint only moves past datasets whose documents Solr has taken:
+     * if any update sent to Solr in the meantime failed (including the ones
+     * sent by the periodic flush of the {@link SolrUpdateBufferService}),
+     * the datasets since the last checkpoint are indexed once more; and if
+     * that fails again, the partition stops, to be resumed later.
+     *
+     * @param checkpoint the checkpoint the partition resumes from, or
+     * {@code null} if it starts from scratch.
+     */
+    private void indexPartition(long partitionId, List<Long> datasetIds, IndexCheckpoint checkpoint) {
+        long indexedCount = checkpoint == null ? 0 : checkpoint.getIndexedCount();
+        long failedCount = checkpoint == null ? 0 : checkpoint.getFailedCount();
+        Long lastDatasetId = checkpoint == null ? null : checkpoint.getLastDatasetId();
+        int from = 0;
+        boolean retrying = false;
+        while (from < datasetIds.size()) {
+            int to = Math.min(from + CHECKPOINT_INTERVAL, datasetIds.size());
+            long failedUpdates = solrUpdateBuffer.getFailedUpdates();
+            long intervalIndexedCount = 0;
+            long intervalFailedCount = 0;
+            for (int i = from; i < to; i++) {
+                Long id = datasetIds.get(i);
+                if (Thread.currentThread().isInterrupted()) {
+                    logger.info("partition " + partitionId + " of the parallel reindex stopped after dataset " + lastDatasetId);
+                    return;
+                }
+                try {
+                    logger.fine("partition " + partitionId + ": indexing dataset " + (i + 1) + " of " + datasetIds.size() + " (id=" + id + ")");
+                    indexService.indexDatasetInNewTransaction(id);
+                    intervalIndexedCount++;
+                } catch (Exception e) {
+                    //We want to keep running even after an exception so throw some more info into the log
+                    intervalFailedCount++;
+                    logger.info("FAILURE indexing dataset " + (i + 1) + " of " + datasetIds.size() + " in partition " + partitionId + " (id=" + id + ") Exception info: " + e.getMessage());
+                }
+            }
+            if (!sendToSolr(partitionId, failedUpdates)) {
+                if (retrying) {
+                    logger.warning("partition " + partitionId + " of the parallel reindex stopped after dataset " + lastDatasetId
+                            + ", as Solr failed to take the documents of the next datasets; it can be resumed from its checkpoint.");
+                    return;
+                }
+                logger.info("partition " + partitionId + ": Solr failed to take some documents; indexing the datasets after " + lastDatasetId + " again.");
+                retrying = true;
+                continue;
+            }
+            retrying = false;
+            indexedCount += intervalIndexedCount;
+            failedCount += intervalFailedCount;
+            lastDatasetId = datasetIds.get(to - 1);
+            from = to;
+            saveCheckpoint(partitionId, lastDatasetId, indexedCount, failedCount, from == datasetIds.size());
+        }
+        if (datasetIds.isEmpty()) {
+            saveCheckpoint(partitionId, lastDatasetId, indexedCount, failedCount, true);
+        }
+        logger.info("partition " + partitionId + " of the parallel reindex done: " + indexedCount + " datasets indexed, " + failedCount + " failed");
+    }
+
+    /**
+     * Sends the buffered documents to Solr.
+     *
+     * @param failedUpdates the number of failed updates before the documents
+     * of the partition were buffered.
+     * @return whether no update has failed since; the failed ones may have
+     * been documents of the partition.
+     */
+    private boolean sendToSolr(long partitionId, long failedUpdates) {
+        try {
+            solrUpdateBuffer.flush();
+        } catch (SolrServerException | IOException | RuntimeException e) {
+            logger.warning("Could not send the documents of partition " + partitionId + " of the parallel reindex to Solr: " + e.getMessage());
+            return false;
+        }
+        return solrUpdateBuffer.getFailedUpdates() == failedUpdates;
+    }
+
+    /**
+     * Saves the progress of a partition, once the documents of the datasets
+     * indexed so far have been sent to Solr.
+     */
+    private void saveCheckpoint(long partitionId, Long lastDatasetId, long indexedCount, long failedCount, boolean finished) {
+        try {
+            indexCheckpointService.update(partitionId, lastDatasetId, indexedCount, failedCount, finished);
+        } catch (RuntimeException e) {
+            logger.warning("Could not checkpoint partition " + partitionId + " of the parallel reindex: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the progress and throughput of each partition of the current,
+     * or last, parallel reindex.
+     */
+    public JsonObjectBuilder getPartitionedIndexingStatus() {
+        JsonArrayBuilder partitions = Json.createArrayBuilder();
+        long datasetCount = 0;
+        long indexedCount = 0;
+        long failedCount = 0;
+        double datasetsPerSecond = 0;
+        for (IndexCheckpoint checkpoint : indexCheckpointService.findAll()) {
+            partitions.add(Json.createObjectBuilder()
+                    .add("partitionId", checkpoint.getPartitionId())
+                    .add("datasetCount", checkpoint.getDatasetCount())
+                    .add("indexed", checkpoint.getIndexedCount())
+                    .add("failed", checkpoint.getFailedCount())
+                    .add("lastDatasetId", checkpoint.getLastDatasetId() == null ? -1 : checkpoint.getLastDatasetId())
+                    .add("datasetsPerSecond", checkpoint.getDatasetsPerSecond())
+                    .add("finished", checkpoint.isFinished()));
+            datasetCount += checkpoint.getDatasetCount();
+            indexedCount += checkpoint.getIndexedCount();
+            failedCount += checkpoint.getFailedCount();
+            datasetsPerSecond += checkpoint.getDatasetsPerSecond();
+        }
+        return Json.createObjectBuilder()
+                .add("running", partitionedIndexingRunning.get())
+                .add("datasetCount", datasetCount)
+                .add("indexed", indexedCount)
+                .add("failed", failedCount)
+                .add("datasetsPerSecond", datasetsPerSecond)
+                .add("partitions", partitions);
+    }
         
     @Asynchronous
     public void indexDataverseRecursively(Dataverse dataverse) {
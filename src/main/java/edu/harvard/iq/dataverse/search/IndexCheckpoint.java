@@ -0,0 +1,162 @@
+package edu.harvard.iq.dataverse.search;
+
+import java.io.Serializable;
+import java.sql.Timestamp;
+import javax.persistence.Column;
+import javax.persistence.Entity;
+import javax.persistence.Id;
+import javax.persistence.NamedQueries;
+import javax.persistence.NamedQuery;
+
+/**
+ * The progress of one partition of a parallel reindex.
+ *
+ * @see IndexCheckpointServiceBean
+ */
+@NamedQueries({
+    @NamedQuery(name = "IndexCheckpoint.findAll",
+            query = "SELECT o FROM IndexCheckpoint o ORDER BY o.partitionId"),
+    @NamedQuery(name = "IndexCheckpoint.deleteAll",
+            query = "DELETE FROM IndexCheckpoint o")
+})
+@Entity
+public class IndexCheckpoint implements Serializable {
+
+    @Id
+    private long partitionId;
+    @Column(nullable = false)
+    private long numPartitions;
+    @Column(nullable = false)
+    private long datasetCount;
+    private Long lastDatasetId;
+    @Column(nullable = false)
+    private long indexedCount;
+    @Column(nullable = false)
+    private long failedCount;
+    @Column(nullable = false)
+    private long processedAtStart;
+    @Column(nullable = false)
+    private Timestamp startTime;
+    @Column(nullable = false)
+    private Timestamp updateTime;
+    private Timestamp finishTime;
+
+    public IndexCheckpoint() {
+    }
+
+    public IndexCheckpoint(long partitionId, long numPartitions, long datasetCount, Long lastDatasetId,
+            long indexedCount, long failedCount, long processedAtStart,
+            Timestamp startTime, Timestamp updateTime, Timestamp finishTime) {
+        this.partitionId = partitionId;
+        this.numPartitions = numPartitions;
+        this.datasetCount = datasetCount;
+        this.lastDatasetId = lastDatasetId;
+        this.indexedCount = indexedCount;
+        this.failedCount = failedCount;
+        this.processedAtStart = processedAtStart;
+        this.startTime = startTime;
+        this.updateTime = updateTime;
+        this.finishTime = finishTime;
+    }
+
+    public long getPartitionId() {
+        return partitionId;
+    }
+
+    public long getNumPartitions() {
+        return numPartitions;
+    }
+
+    /**
+     * @return the number of datasets in the partition when the reindex
+     * started.
+     */
+    public long getDatasetCount() {
+        return datasetCount;
+    }
+
+    /**
+     * @return the id of the last dataset processed, or {@code null} if none
+     * has been yet. The datasets of a partition are processed in the order of
+     * their ids.
+     */
+    public Long getLastDatasetId() {
+        return lastDatasetId;
+    }
+
+    public void setLastDatasetId(Long lastDatasetId) {
+        this.lastDatasetId = lastDatasetId;
+    }
+
+    public long getIndexedCount() {
+        return indexedCount;
+    }
+
+    public void setIndexedCount(long indexedCount) {
+        this.indexedCount = indexedCount;
+    }
+
+    public long getFailedCount() {
+        return failedCount;
+    }
+
+    public void setFailedCount(long failedCount) {
+        this.failedCount = failedCount;
+    }
+
+    public long getProcessedCount() {
+        return indexedCount + failedCount;
+    }
+
+    /**
+     * @return the number of datasets that had been processed already when the
+     * partition was (re)started, i.e. before it was resumed.
+     */
+    public long getProcessedAtStart() {
+        return processedAtStart;
+    }
+
+    public void setProcessedAtStart(long processedAtStart) {
+        this.processedAtStart = processedAtStart;
+    }
+
+    public Timestamp getStartTime() {
+        return startTime;
+    }
+
+    public void setStartTime(Timestamp startTime) {
+        this.startTime = startTime;
+    }
+
+    public Timestamp getUpdateTime() {
+        return updateTime;
+    }
+
+    public void setUpdateTime(Timestamp updateTime) {
+        this.updateTime = updateTime;
+    }
+
+    public Timestamp getFinishTime() {
+        return finishTime;
+    }
+
+    public void setFinishTime(Timestamp finishTime) {
+        this.finishTime = finishTime;
+    }
+
+    public boolean isFinished() {
+        return finishTime != null;
+    }
+
+    /**
+     * @return the number of datasets processed per second since the partition
+     * was (re)started, up to the last checkpoint.
+     */
+    public double getDatasetsPerSecond() {
+        long millis = updateTime.getTime() - startTime.getTime();
+        if (millis <= 0) {
+            return 0;
+        }
+        return (getProcessedCount() - processedAtStart) * 1000.0 / millis;
+    }
+}
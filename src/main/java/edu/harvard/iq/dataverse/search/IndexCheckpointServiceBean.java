@@ -0,0 +1,78 @@
+package edu.harvard.iq.dataverse.search;
+
+import java.sql.Timestamp;
+import java.util.List;
+import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * Saves the progress of the partitions of a parallel reindex, as
+ * {@link IndexCheckpoint}s. Each method runs in a transaction of its own, so
+ * the progress is saved as the reindex goes.
+ *
+ * @see IndexBatchServiceBean#indexAllInPartitions(long, boolean, boolean)
+ */
+@Stateless
+public class IndexCheckpointServiceBean {
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    public List<IndexCheckpoint> findAll() {
+        return em.createNamedQuery("IndexCheckpoint.findAll", IndexCheckpoint.class).getResultList();
+    }
+
+    public void deleteAll() {
+        em.createNamedQuery("IndexCheckpoint.deleteAll").executeUpdate();
+    }
+
+    /**
+     * Saves the checkpoint of a partition that is starting from scratch.
+     */
+    public void start(long partitionId, long numPartitions, long datasetCount) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        em.persist(new IndexCheckpoint(partitionId, numPartitions, datasetCount, null, 0, 0, 0, now, now, null));
+    }
+
+    /**
+     * Marks a partition as restarted, from its last checkpoint; so that its
+     * throughput is measured from now on.
+     */
+    public void resume(long partitionId) {
+        IndexCheckpoint checkpoint = em.find(IndexCheckpoint.class, partitionId);
+        if (checkpoint == null) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        checkpoint.setProcessedAtStart(checkpoint.getProcessedCount());
+        checkpoint.setStartTime(now);
+        checkpoint.setUpdateTime(now);
+        checkpoint.setFinishTime(null);
+    }
+
+    /**
+     * Saves the progress of a partition.
+     *
+     * @param partitionId the partition
+     * @param lastDatasetId the last dataset processed (and sent to Solr), or
+     * {@code null} to leave it as it is.
+     * @param indexedCount the number of datasets indexed so far.
+     * @param failedCount the number of datasets that failed to index so far.
+     * @param finished whether the partition is done.
+     */
+    public void update(long partitionId, Long lastDatasetId, long indexedCount, long failedCount, boolean finished) {
+        IndexCheckpoint checkpoint = em.find(IndexCheckpoint.class, partitionId);
+        if (checkpoint == null) {
+            return;
+        }
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        if (lastDatasetId != null) {
+            checkpoint.setLastDatasetId(lastDatasetId);
+        }
+        checkpoint.setIndexedCount(indexedCount);
+        checkpoint.setFailedCount(failedCount);
+        checkpoint.setUpdateTime(now);
+        checkpoint.setFinishTime(finished ? now : null);
+    }
+}
@@ -19,32 +19,33 @@ import edu.harvard.iq.dataverse.FileMetadata;
 import edu.harvard.iq.dataverse.PermissionServiceBean;
 import edu.harvard.iq.dataverse.authorization.AuthenticationServiceBean;
 import edu.harvard.iq.dataverse.authorization.providers.builtin.BuiltinUserServiceBean;
-import edu.harvard.iq.dataverse.dataaccess.DataAccess;
-import edu.harvard.iq.dataverse.dataaccess.DataAccessRequest;
-import edu.harvard.iq.dataverse.dataaccess.StorageIO;
 import edu.harvard.iq.dataverse.datavariable.DataVariable;
 import edu.harvard.iq.dataverse.datavariable.VariableMetadata;
 import edu.harvard.iq.dataverse.datavariable.VariableMetadataUtil;
 import edu.harvard.iq.dataverse.datavariable.VariableServiceBean;
 import edu.harvard.iq.dataverse.harvest.client.HarvestingClient;
+import edu.harvard.iq.dataverse.search.FullTextExtractionServiceBean.PendingFullText;
 import edu.harvard.iq.dataverse.settings.SettingsServiceBean;
 import edu.harvard.iq.dataverse.util.FileUtil;
 import edu.harvard.iq.dataverse.util.StringUtil;
 import edu.harvard.iq.dataverse.util.SystemConfig;
 import java.io.IOException;
-import java.io.InputStream;
 import java.sql.Timestamp;
 import java.text.SimpleDateFormat;
 import java.util.ArrayList;
 import java.util.Calendar;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Locale;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.Future;
 import java.util.function.Function;
 import java.util.logging.Logger;
@@ -68,17 +69,10 @@ import org.apache.solr.client.solrj.SolrQuery.SortClause;
 import org.apache.solr.client.solrj.SolrServerException;
 import org.apache.solr.client.solrj.impl.HttpSolrClient;
 import org.apache.solr.client.solrj.response.QueryResponse;
-import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrDocument;
 import org.apache.solr.common.SolrDocumentList;
 import org.apache.solr.common.SolrInputDocument;
 import org.apache.solr.common.params.CursorMarkParams;
-import org.apache.tika.parser.AutoDetectParser;
-import org.apache.tika.io.IOUtils;
-import org.apache.tika.metadata.Metadata;
-import org.apache.tika.parser.ParseContext;
-import org.apache.tika.sax.BodyContentHandler;
-import org.xml.sax.ContentHandler;
 
 @Stateless
 @Named
@@ -92,6 +86,8 @@ public class IndexServiceBean {
     @EJB
     DvObjectServiceBean dvObjectService;
     @EJB
+    FullTextExtractionServiceBean fullTextExtractionService;
+    @EJB
     DataverseServiceBean dataverseService;
     @EJB
     DatasetServiceBean datasetService;
@@ -115,6 +111,8 @@ public class IndexServiceBean {
     SettingsServiceBean settingsService;
     @EJB
     SolrClientService solrClientService;
+    @EJB
+    SolrUpdateBufferService solrUpdateBuffer;
 
     @EJB
     VariableServiceBean variableService;
@@ -138,6 +136,16 @@ public class IndexServiceBean {
     private static final String IN_REVIEW_STRING = "In Review";
     private static final String DEACCESSIONED_STRING = "Deaccessioned";
     public static final String HARVESTED = "Harvested";
+
+    /**
+     * How many files to have the text extracted of, in advance of the one
+     * being indexed, see {@link FullTextExtractionServiceBean}; and how many
+     * bytes of them, at most (the texts are held in memory until their files
+     * are indexed). A file bigger than that is still extracted on its own.
+     */
+    private static final int FULL_TEXT_EXTRACTIONS_AHEAD = 2 * FullTextExtractionServiceBean.EXTRACTION_THREADS;
+    private static final long FULL_TEXT_BYTES_AHEAD = 64L * 1024 * 1024;
+
     private String rootDataverseName;
     private Dataverse rootDataverseCached;
     private SolrClient solrServer;
@@ -287,27 +295,13 @@ public class IndexServiceBean {
         solrInputDocument.addField(SearchFields.SUBTREE, dataversePaths);
         docs.add(solrInputDocument);
 
-        String status;
-        try {
-            if (dataverse.getId() != null) {
-                solrClientService.getSolrClient().add(docs);
-            } else {
-                logger.info("WARNING: indexing of a dataverse with no id attempted");
-            }
-        } catch (SolrServerException | IOException ex) {
-            status = ex.toString();
-            logger.info(status);
-            return new AsyncResult<>(status);
-        }
-        try {
-            solrClientService.getSolrClient().commit();
-        } catch (SolrServerException | IOException ex) {
-            status = ex.toString();
-            logger.info(status);
-            return new AsyncResult<>(status);
+        // the index time is set once the document has been sent:
+        if (dataverse.getId() != null) {
+            solrUpdateBuffer.add(docs, dataverse.getId());
+        } else {
+            logger.info("WARNING: indexing of a dataverse with no id attempted");
         }
 
-        dvObjectService.updateContentIndexTime(dataverse);
         IndexResponse indexResponse = solrIndexService.indexPermissionsForOneDvObject(dataverse);
         String msg = "indexed dataverse " + dataverse.getId() + ":" + dataverse.getAlias() + ". Response from permission indexing: " + indexResponse.getMessage();
         return new AsyncResult<>(msg);
@@ -912,44 +906,43 @@ public class IndexServiceBean {
         List<String> filesIndexed = new ArrayList<>();
         if (datasetVersion != null) {
             List<FileMetadata> fileMetadatas = datasetVersion.getFileMetadatas();
-            boolean checkForDuplicateMetadata = false;
+            // the file metadatas of a draft that are unchanged since the released version, and needn't be indexed again:
+            Set<FileMetadata> unchangedFileMetadatas = Collections.newSetFromMap(new IdentityHashMap<>());
             if (datasetVersion.isDraft() && dataset.isReleased() && dataset.getReleasedVersion() != null) {
-                checkForDuplicateMetadata = true;
                 logger.fine(
                         "We are indexing a draft version of a dataset that has a released version. We'll be checking file metadatas if they are exact clones of the released versions.");
+                // the released file metadatas, by the id of their file:
+                Map<Long, FileMetadata> releasedFileMetadatas = new HashMap<>();
+                for (FileMetadata releasedFileMetadata : dataset.getReleasedVersion().getFileMetadatas()) {
+                    if (releasedFileMetadata.getDataFile() != null) {
+                        releasedFileMetadatas.putIfAbsent(releasedFileMetadata.getDataFile().getId(), releasedFileMetadata);
+                    }
+                }
+                for (FileMetadata fileMetadata : fileMetadatas) {
+                    if (isUnchangedSinceRelease(fileMetadata, releasedFileMetadatas)) {
+                        unchangedFileMetadatas.add(fileMetadata);
+                    }
+                }
             }
-            for (FileMetadata fileMetadata : fileMetadatas) {
-                
-                boolean indexThisMetadata = true;
-                if (checkForDuplicateMetadata) {
-                    
-                    logger.fine("Checking if this file metadata is a duplicate.");
-                    for (FileMetadata releasedFileMetadata : dataset.getReleasedVersion().getFileMetadatas()) {
-                        if (fileMetadata.getDataFile() != null && fileMetadata.getDataFile().equals(releasedFileMetadata.getDataFile())) {
-                            /*
-                             * Duplicate if metadata matches and, for full text indexing and the
-                             * SearchFields.ACCESS field, if the restricted status of the file hasn't
-                             * changed. To address the case where full text indexing was on when a file was
-                             * not restricted and it is now restricted and full text indexing has been shut
-                             * off, we need to check for the change in restricted status regardless of
-                             * whether full text indexing is on now.
-                             */
-                            if ((fileMetadata.getDataFile().isRestricted() == releasedFileMetadata.getDataFile().isRestricted())) {
-                                if (fileMetadata.contentEquals(releasedFileMetadata)
-                                        && variableMetadataUtil.compareVariableMetadata(releasedFileMetadata,fileMetadata)
-                                        ) {
-                                    indexThisMetadata = false;
-                                    logger.fine("This file metadata hasn't changed since the released version; skipping indexing.");
-                                } else {
-                                    logger.fine("This file metadata has changed since the released version; we want to index it!");
-                                }
-                            } else {
-                                logger.fine("This file's restricted status has changed since the released version; we want to index it!");
-                            }
-                            break;
-                        }
+
+            // The text of the files is extracted on the worker threads of the
+            // FullTextExtractionServiceBean, a few files ahead of the one being indexed:
+            List<FileMetadata> fullTextFileMetadatas = new ArrayList<>();
+            if (doFullTextIndexing && !dataset.isHarvested()) {
+                for (FileMetadata fileMetadata : fileMetadatas) {
+                    if (!unchangedFileMetadatas.contains(fileMetadata)
+                            && !fileMetadata.getDataFile().isRestricted() && !fileMetadata.getDataFile().isFilePackage()) {
+                        fullTextFileMetadatas.add(fileMetadata);
                     }
                 }
+            }
+            Map<FileMetadata, PendingFullText> pendingFullTexts = new IdentityHashMap<>();
+            int nextFullText = 0;
+            long pendingFullTextBytes = 0;
+
+            for (FileMetadata fileMetadata : fileMetadatas) {
+                
+                boolean indexThisMetadata = !unchangedFileMetadatas.contains(fileMetadata);
                 if (indexThisMetadata) {
                     
 
@@ -964,49 +957,43 @@ public class IndexServiceBean {
 
                     /* Full-text indexing using Apache Tika */
                     if (doFullTextIndexing) {
-                        if (!dataset.isHarvested() && !fileMetadata.getDataFile().isRestricted() && !fileMetadata.getDataFile().isFilePackage()) {
-                            StorageIO<DataFile> accessObject = null;
-                            InputStream instream = null;
-                            ContentHandler textHandler = null;
+                        // keep the workers busy with the next files:
+                        while (nextFullText < fullTextFileMetadatas.size()
+                                && pendingFullTexts.size() < FULL_TEXT_EXTRACTIONS_AHEAD) {
+                            FileMetadata nextFileMetadata = fullTextFileMetadatas.get(nextFullText);
+                            long nextBytes = getFullTextSizeEstimate(nextFileMetadata.getDataFile(), maxSize);
+                            if (!pendingFullTexts.isEmpty() && pendingFullTextBytes + nextBytes > FULL_TEXT_BYTES_AHEAD) {
+                                break;
+                            }
+                            nextFullText++;
+                            pendingFullTextBytes += nextBytes;
+                            pendingFullTexts.put(nextFileMetadata, fullTextExtractionService.submit(nextFileMetadata.getDataFile(), maxSize));
+                        }
+                        PendingFullText pendingFullText = pendingFullTexts.remove(fileMetadata);
+                        if (pendingFullText != null) {
+                            pendingFullTextBytes -= getFullTextSizeEstimate(fileMetadata.getDataFile(), maxSize);
                             try {
-                                accessObject = DataAccess.getStorageIO(fileMetadata.getDataFile(),
-                                        new DataAccessRequest());
-                                if (accessObject != null) {
-                                    accessObject.open();
-                                    // If the size is >max, we don't use the stream. However, for S3, the stream is
-                                    // currently opened in the call above (see
-                                    // https://github.com/IQSS/dataverse/issues/5165), so we want to get a handle so
-                                    // we can close it below.
-                                    instream = accessObject.getInputStream();
-                                    if (accessObject.getSize() <= maxSize) {
-                                        AutoDetectParser autoParser = new AutoDetectParser();
-                                        textHandler = new BodyContentHandler(-1);
-                                        Metadata metadata = new Metadata();
-                                        ParseContext context = new ParseContext();
-                                        /*
-                                         * Try parsing the file. Note that, other than by limiting size, there's been no
-                                         * check see whether this file is a good candidate for text extraction (e.g.
-                                         * based on type).
-                                         */
-                                        autoParser.parse(instream, textHandler, metadata, context);
-                                        datafileSolrInputDocument.addField(SearchFields.FULL_TEXT,
-                                                textHandler.toString());
-                                    }
+                                String fullText = fullTextExtractionService.getFullText(pendingFullText);
+                                if (fullText != null) {
+                                    datafileSolrInputDocument.addField(SearchFields.FULL_TEXT, fullText);
+                                }
+                            } catch (InterruptedException e) {
+                                Thread.currentThread().interrupt();
+                                logger.warning(String.format("Full-text indexing for %s was interrupted",
+                                        fileMetadata.getDataFile().getDisplayName()));
+                                continue;
+                            } catch (ExecutionException e) {
+                                if (e.getCause() instanceof OutOfMemoryError) {
+                                    logger.warning(String.format("Full-text indexing for %s failed due to OutOfMemoryError",
+                                            fileMetadata.getDataFile().getDisplayName()));
+                                    continue;
                                 }
-                            } catch (Exception e) {
                                 // Needs better logging of what went wrong in order to
                                 // track down "bad" documents.
                                 logger.warning(String.format("Full-text indexing for %s failed",
                                         fileMetadata.getDataFile().getDisplayName()));
                                 e.printStackTrace();
                                 continue;
-                            } catch (OutOfMemoryError e) {
-                                textHandler = null;
-                                logger.warning(String.format("Full-text indexing for %s failed due to OutOfMemoryError",
-                                        fileMetadata.getDataFile().getDisplayName()));
-                                continue;
-                            } finally {
-                                IOUtils.closeQuietly(instream);
                             }
                         }
                     }
@@ -1224,31 +1211,57 @@ public class IndexServiceBean {
             }
         }
         
-        try {
-            solrClientService.getSolrClient().add(docs);
-            solrClientService.getSolrClient().commit();
-        } catch (SolrServerException | IOException ex) {
-            if (ex.getCause() instanceof SolrServerException) {
-                throw new SolrServerException(ex);
-            } else if (ex.getCause() instanceof IOException) {
-                throw new IOException(ex);
-            }
-        }
-
         Long dsId = dataset.getId();
-        /// Dataset updatedDataset =
-        /// (Dataset)dvObjectService.updateContentIndexTime(dataset);
-        /// updatedDataset = null;
-        // instead of making a call to dvObjectService, let's try and
-        // modify the index time stamp using the local EntityManager:
-        DvObject dvObjectToModify = em.find(DvObject.class, dsId);
-        dvObjectToModify.setIndexTime(new Timestamp(new Date().getTime()));
-        dvObjectToModify = em.merge(dvObjectToModify);
-        dvObjectToModify = null;
+        // the index time is set once the documents have been sent:
+        solrUpdateBuffer.add(docs, dsId);
 
         return "indexed dataset " + dsId + " as " + datasetSolrDocId + ". filesIndexed: " + filesIndexed;
     }
 
+    /**
+     * Checks whether a file metadata of a draft is a clone of the one of the
+     * released version, so that the file needn't be indexed again.
+     */
+    private boolean isUnchangedSinceRelease(FileMetadata fileMetadata, Map<Long, FileMetadata> releasedFileMetadatas) {
+        logger.fine("Checking if this file metadata is a duplicate.");
+        FileMetadata releasedFileMetadata = (fileMetadata.getDataFile() != null)
+                ? releasedFileMetadatas.get(fileMetadata.getDataFile().getId())
+                : null;
+        if (releasedFileMetadata != null) {
+            /*
+             * Duplicate if metadata matches and, for full text indexing and the
+             * SearchFields.ACCESS field, if the restricted status of the file hasn't
+             * changed. To address the case where full text indexing was on when a file was
+             * not restricted and it is now restricted and full text indexing has been shut
+             * off, we need to check for the change in restricted status regardless of
+             * whether full text indexing is on now.
+             */
+            if ((fileMetadata.getDataFile().isRestricted() == releasedFileMetadata.getDataFile().isRestricted())) {
+                if (fileMetadata.contentEquals(releasedFileMetadata)
+                        && variableMetadataUtil.compareVariableMetadata(releasedFileMetadata,fileMetadata)
+                        ) {
+                    logger.fine("This file metadata hasn't changed since the released version; skipping indexing.");
+                    return true;
+                } else {
+                    logger.fine("This file metadata has changed since the released version; we want to index it!");
+                }
+            } else {
+                logger.fine("This file's restricted status has changed since the released version; we want to index it!");
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @return roughly how many bytes the extracted text of a file takes, to
+     * bound the texts extracted in advance: its size, or nothing if it is too
+     * big to be extracted.
+     */
+    private static long getFullTextSizeEstimate(DataFile dataFile, long maxSize) {
+        long size = dataFile.getFilesize();
+        return (size < 0 || size > maxSize) ? 0 : size;
+    }
+
     /**
      * If the "Topic Classification" has a "Vocabulary", return both the "Term"
      * and the "Vocabulary" with the latter in parentheses. For example, the
@@ -1454,8 +1467,7 @@ public class IndexServiceBean {
 
             sid.removeField(SearchFields.SUBTREE);
             sid.addField(SearchFields.SUBTREE, paths);
-            UpdateResponse addResponse = solrClientService.getSolrClient().add(sid);
-            UpdateResponse commitResponse = solrClientService.getSolrClient().commit();
+            solrUpdateBuffer.add(sid);
             if (object.isInstanceofDataset()) {
                 for (DataFile df : datasetService.find(object.getId()).getFiles()) {
                     solrQuery.setQuery(SearchUtil.constructQuery(SearchFields.ENTITY_ID, df.getId().toString()));
@@ -1468,8 +1480,7 @@ public class IndexServiceBean {
                         }
                         sid.removeField(SearchFields.SUBTREE);
                         sid.addField(SearchFields.SUBTREE, paths);
-                        addResponse = solrClientService.getSolrClient().add(sid);
-                        commitResponse = solrClientService.getSolrClient().commit();
+                        solrUpdateBuffer.add(sid);
                     }
                 }
             }
@@ -1504,18 +1515,13 @@ public class IndexServiceBean {
 
     public String delete(Dataverse doomed) {
         logger.fine("deleting Solr document for dataverse " + doomed.getId());
-        UpdateResponse updateResponse;
+        solrUpdateBuffer.deleteById(solrDocIdentifierDataverse + doomed.getId());
         try {
-            updateResponse = solrClientService.getSolrClient().deleteById(solrDocIdentifierDataverse + doomed.getId());
+            solrUpdateBuffer.flush();
         } catch (SolrServerException | IOException ex) {
             return ex.toString();
         }
-        try {
-            solrClientService.getSolrClient().commit();
-        } catch (SolrServerException | IOException ex) {
-            return ex.toString();
-        }
-        String response = "Successfully deleted dataverse " + doomed.getId() + " from Solr index. updateReponse was: " + updateResponse.toString();
+        String response = "Successfully deleted dataverse " + doomed.getId() + " from Solr index.";
         logger.fine(response);
         return response;
     }
@@ -1529,18 +1535,13 @@ public class IndexServiceBean {
     public String removeSolrDocFromIndex(String doomed) {
 
         logger.fine("deleting Solr document: " + doomed);
-        UpdateResponse updateResponse;
-        try {
-            updateResponse = solrClientService.getSolrClient().deleteById(doomed);
-        } catch (SolrServerException | IOException ex) {
-            return ex.toString();
-        }
+        solrUpdateBuffer.deleteById(doomed);
         try {
-            solrClientService.getSolrClient().commit();
+            solrUpdateBuffer.flush();
         } catch (SolrServerException | IOException ex) {
             return ex.toString();
         }
-        String response = "Attempted to delete " + doomed + " from Solr index. updateReponse was: " + updateResponse.toString();
+        String response = "Attempted to delete " + doomed + " from Solr index.";
         logger.fine(response);
         return response;
     }
@@ -0,0 +1,62 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.util.ExpiringLruCache;
+import java.util.logging.Logger;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * Remembers the groups part of the Solr permission filter query (the
+ * {@code " OR group_..."} clauses for the DISCOVERABLE_BY join), per user and
+ * source IP address; so that the groups don't have to be resolved through
+ * all the group providers on every search.
+ *
+ * The entries expire after {@link #TTL_MILLIS} (which bounds how long a
+ * group change made on another server goes unnoticed here), and all of them
+ * are dropped whenever a group, or its membership, is changed on this server.
+ * At most {@link #MAX_ENTRIES} entries are kept, the least recently used ones
+ * are dropped first.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class PermissionFilterCacheServiceBean {
+
+    private static final Logger logger = Logger.getLogger(PermissionFilterCacheServiceBean.class.getCanonicalName());
+
+    static final int MAX_ENTRIES = 10000;
+    static final long TTL_MILLIS = 60 * 1000;
+
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+
+    private final ExpiringLruCache<String, String> entries = new ExpiringLruCache<>(MAX_ENTRIES, TTL_MILLIS);
+
+    /**
+     * @param key the user and the source address of the request
+     * @return the cached groups filter, or null if there's none (or it has
+     * expired).
+     */
+    public String get(String key) {
+        return entries.get(key);
+    }
+
+    public void put(String key, String groupsFilter) {
+        entries.put(key, groupsFilter);
+    }
+
+    /**
+     * Drops all the cached entries; right away, and once more when the
+     * current transaction (if any) completes.
+     */
+    public void invalidateAll() {
+        logger.fine("Clearing the permission filter cache");
+        entries.invalidateAll(transactionSynchronizationRegistry);
+    }
+
+    int size() {
+        return entries.size();
+    }
+}
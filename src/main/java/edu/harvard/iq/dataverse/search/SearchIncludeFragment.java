@@ -1252,6 +1252,7 @@ public class SearchIncludeFragment implements java.io.Serializable {
     public void setDisplayCardValues() {
 
         Set<Long> harvestedDatasetIds = null;
+        thumbnailServiceWrapper.prefetchDataverseCardImages(searchResultsList);
         for (SolrSearchResult result : searchResultsList) {
             //logger.info("checking DisplayImage for the search result " + i++);
             if (result.getType().equals("dataverses")) {
@@ -1317,11 +1318,12 @@ public class SearchIncludeFragment implements java.io.Serializable {
         if (!this.isRootDv()) {
             // (nothing is "linked" if it's the root DV!)
             Set<Long> dvObjectParentIds = new HashSet<>();
+            Long rootDataverseId = dataverseService.findRootDataverse().getId();
             for (SolrSearchResult result : searchResultsList) {
                 if (dataverse.getId().equals(result.getParentIdAsLong())) {
                     // definitely NOT linked:
                     result.setIsInTree(true);
-                } else if (result.getParentIdAsLong() == dataverseService.findRootDataverse().getId()) {
+                } else if (rootDataverseId.equals(result.getParentIdAsLong())) {
                     // the object's parent is the root Dv; and the current 
                     // Dv is NOT root... definitely linked:
                     result.setIsInTree(false);
@@ -28,7 +28,6 @@ import javax.inject.Named;
 import javax.json.Json;
 import javax.json.JsonObjectBuilder;
 import org.apache.solr.client.solrj.SolrServerException;
-import org.apache.solr.client.solrj.response.UpdateResponse;
 import org.apache.solr.common.SolrInputDocument;
 
 @Named
@@ -53,6 +52,8 @@ public class SolrIndexServiceBean {
     IndexServiceBean indexService;
     @EJB
     SolrClientService solrClientService;
+    @EJB
+    SolrUpdateBufferService solrUpdateBuffer;
 
     public static String numRowsClearedByClearAllIndexTimes = "numRowsClearedByClearAllIndexTimes";
     public static String messageString = "message";
@@ -305,19 +306,13 @@ public class SolrIndexServiceBean {
             logger.info("adding to list of docs to index " + dvObjectSolrDoc.getSolrId());
             docs.add(solrInputDocument);
         }
-        try {
-            persistToSolr(docs);
-            /**
-             * @todo Do we need a separate permissionIndexTime timestamp?
-             * Probably. Update it here.
-             */
-            for (DvObject dvObject : all) {
-                dvObjectService.updatePermissionIndexTime(dvObject);
-            }
-            return new IndexResponse("indexed all permissions");
-        } catch (SolrServerException | IOException ex) {
-            return new IndexResponse("problem indexing");
+        // the permission index times are set once the documents have been sent:
+        List<Long> allIds = new ArrayList<>(all.size());
+        for (DvObject dvObject : all) {
+            allIds.add(dvObject.getId());
         }
+        solrUpdateBuffer.addPermissions(docs, allIds);
+        return new IndexResponse("indexed all permissions");
 
     }
 
@@ -334,19 +329,9 @@ public class SolrIndexServiceBean {
             SolrInputDocument solrInputDocument = SearchUtil.createSolrDoc(dvObjectSolrDoc);
             docs.add(solrInputDocument);
         }
-        try {
-            persistToSolr(docs);
-            boolean updatePermissionTimeSuccessful = false;
-            if (dvObject != null) {
-                DvObject savedDvObject = dvObjectService.updatePermissionIndexTime(dvObject);
-                if (savedDvObject != null) {
-                    updatePermissionTimeSuccessful = true;
-                }
-            }
-            return new IndexResponse("attempted to index permissions for DvObject " + dvObjectId + " and updatePermissionTimeSuccessful was " + updatePermissionTimeSuccessful);
-        } catch (SolrServerException | IOException ex) {
-            return new IndexResponse("problem indexing");
-        }
+        // the permission index time is set once the documents have been sent:
+        solrUpdateBuffer.addPermissions(docs, List.of(dvObjectId));
+        return new IndexResponse("queued the permissions of DvObject " + dvObjectId + " for indexing");
 
     }
 
@@ -357,11 +342,7 @@ public class SolrIndexServiceBean {
             return;
         }
         logger.fine("persisting to Solr...");
-        /**
-         * @todo Do something with these responses from Solr.
-         */
-        UpdateResponse addResponse = solrClientService.getSolrClient().add(docs);
-        UpdateResponse commitResponse = solrClientService.getSolrClient().commit();
+        solrUpdateBuffer.add(docs);
     }
 
     public IndexResponse indexPermissionsOnSelfAndChildren(long definitionPointId) {
@@ -500,25 +481,19 @@ public class SolrIndexServiceBean {
         if (solrIdsToDelete.isEmpty()) {
             return new IndexResponse("nothing to delete");
         }
+        solrUpdateBuffer.deleteById(solrIdsToDelete);
         try {
-            solrClientService.getSolrClient().deleteById(solrIdsToDelete);
+            solrUpdateBuffer.flush();
         } catch (SolrServerException | IOException ex) {
-            /**
-             * @todo mark these for re-deletion
-             */
             return new IndexResponse("problem deleting the following documents from Solr: " + solrIdsToDelete);
         }
-        try {
-            solrClientService.getSolrClient().commit();
-        } catch (SolrServerException | IOException ex) {
-            return new IndexResponse("problem committing deletion of the following documents from Solr: " + solrIdsToDelete);
-        }
         return new IndexResponse("no known problem deleting the following documents from Solr:" + solrIdsToDelete);
     }
 
     public JsonObjectBuilder deleteAllFromSolrAndResetIndexTimes() throws SolrServerException, IOException {
         JsonObjectBuilder response = Json.createObjectBuilder();
         logger.info("attempting to delete all Solr documents before a complete re-index");
+        solrUpdateBuffer.flush();
         solrClientService.getSolrClient().deleteByQuery("*:*");
         solrClientService.getSolrClient().commit();
         int numRowsAffected = dvObjectService.clearAllIndexTimes();
@@ -0,0 +1,336 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.DvObjectServiceBean;
+import java.io.IOException;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.logging.Level;
+import java.util.logging.Logger;
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.annotation.Resource;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.EJB;
+import javax.ejb.Singleton;
+import javax.enterprise.concurrent.ManagedScheduledExecutorService;
+import org.apache.solr.client.solrj.SolrServerException;
+import org.apache.solr.common.SolrInputDocument;
+
+/**
+ * Buffers the document additions and deletions sent to Solr, and sends them
+ * in batches, with {@code commitWithin} instead of an explicit commit after
+ * each dataverse, dataset or deletion; so that bulk operations don't have
+ * Solr commit (and open a new searcher) for every object.
+ *
+ * The buffer is flushed every {@link #FLUSH_INTERVAL_MILLIS}, or as soon as
+ * {@link #FLUSH_SIZE} updates are waiting; the updates are then visible in
+ * the search results at most {@link #COMMIT_WITHIN_MILLIS} later. The
+ * updates are sent in the order they were made. When more than
+ * {@link #MAX_BUFFERED} updates are waiting (e.g. Solr is slow), the
+ * indexing threads flush the buffer themselves, which slows them down to the
+ * pace of Solr.
+ *
+ * The index time (or permission index time) of the objects whose documents
+ * are added with {@link #add(Collection, Long)} (or
+ * {@link #addPermissions(Collection, Collection)}) is only set once the documents
+ * have been sent; so that the objects of a batch Solr failed to take are
+ * still found stale, and indexed again.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+public class SolrUpdateBufferService {
+
+    private static final Logger logger = Logger.getLogger(SolrUpdateBufferService.class.getCanonicalName());
+
+    static final int COMMIT_WITHIN_MILLIS = 1000;
+    static final long FLUSH_INTERVAL_MILLIS = 1000;
+    static final int FLUSH_SIZE = 500;
+    static final int MAX_BUFFERED = 5000;
+
+    @EJB
+    SolrClientService solrClientService;
+    @EJB
+    DvObjectServiceBean dvObjectService;
+
+    @Resource
+    ManagedScheduledExecutorService flushExecutor;
+
+    /**
+     * Either documents to add, or ids of documents to delete.
+     */
+    private static class Update {
+        final SolrInputDocument doc;
+        final String deletedId;
+
+        Update(SolrInputDocument doc, String deletedId) {
+            this.doc = doc;
+            this.deletedId = deletedId;
+        }
+    }
+
+    /**
+     * An object to set the index time (or permission index time) of, once
+     * the updates queued before it have been sent.
+     */
+    private static class IndexTimeStamp {
+        final Long dvObjectId;
+        final boolean permissions;
+        final long queued = System.currentTimeMillis();
+
+        IndexTimeStamp(Long dvObjectId, boolean permissions) {
+            this.dvObjectId = dvObjectId;
+            this.permissions = permissions;
+        }
+    }
+
+    // both guarded by buffer:
+    private final List<Update> buffer = new ArrayList<>();
+    private final List<IndexTimeStamp> stamps = new ArrayList<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+    private ScheduledFuture<?> flushTask;
+
+    private final LongAdder addedDocs = new LongAdder();
+    private final LongAdder deletedDocs = new LongAdder();
+    private final LongAdder flushes = new LongAdder();
+    private final LongAdder failedUpdates = new LongAdder();
+    private final LongAdder backpressureFlushes = new LongAdder();
+    private final AtomicLong maxFlushMillis = new AtomicLong();
+
+    @PostConstruct
+    public void init() {
+        flushTask = flushExecutor.scheduleWithFixedDelay(this::flushQuietly, FLUSH_INTERVAL_MILLIS, FLUSH_INTERVAL_MILLIS, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void close() {
+        flushTask.cancel(false);
+        flushQuietly();
+    }
+
+    public void add(Collection<SolrInputDocument> docs) {
+        enqueue(toUpdates(docs), List.of());
+    }
+
+    public void add(SolrInputDocument doc) {
+        enqueue(List.of(new Update(doc, null)), List.of());
+    }
+
+    /**
+     * Adds the documents of an object, and sets its index time once they
+     * have been sent.
+     */
+    public void add(Collection<SolrInputDocument> docs, Long dvObjectId) {
+        enqueue(toUpdates(docs), List.of(new IndexTimeStamp(dvObjectId, false)));
+    }
+
+    /**
+     * Adds the permission documents of some objects, and sets their
+     * permission index time once they have been sent.
+     */
+    public void addPermissions(Collection<SolrInputDocument> docs, Collection<Long> dvObjectIds) {
+        List<IndexTimeStamp> newStamps = new ArrayList<>(dvObjectIds.size());
+        for (Long dvObjectId : dvObjectIds) {
+            newStamps.add(new IndexTimeStamp(dvObjectId, true));
+        }
+        enqueue(toUpdates(docs), newStamps);
+    }
+
+    public void deleteById(Collection<String> ids) {
+        List<Update> updates = new ArrayList<>(ids.size());
+        for (String id : ids) {
+            updates.add(new Update(null, id));
+        }
+        enqueue(updates, List.of());
+    }
+
+    public void deleteById(String id) {
+        enqueue(List.of(new Update(null, id)), List.of());
+    }
+
+    private static List<Update> toUpdates(Collection<SolrInputDocument> docs) {
+        List<Update> updates = new ArrayList<>(docs.size());
+        for (SolrInputDocument doc : docs) {
+            updates.add(new Update(doc, null));
+        }
+        return updates;
+    }
+
+    private void enqueue(List<Update> updates, List<IndexTimeStamp> newStamps) {
+        if (updates.isEmpty() && newStamps.isEmpty()) {
+            return;
+        }
+        int buffered;
+        synchronized (buffer) {
+            buffer.addAll(updates);
+            stamps.addAll(newStamps);
+            buffered = buffer.size();
+        }
+        if (buffered > MAX_BUFFERED) {
+            backpressureFlushes.increment();
+            flushQuietly();
+        } else if (buffered >= FLUSH_SIZE) {
+            try {
+                flushExecutor.execute(this::flushQuietly);
+            } catch (RejectedExecutionException rex) {
+                // left to the next scheduled flush
+                logger.fine("Could not start a flush: " + rex.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Sends all the buffered updates to Solr now, e.g. before an operation
+     * that needs them to be in the index already. If Solr fails to take
+     * them, they are dropped, and the index times of their objects are left
+     * as they were.
+     *
+     * @throws SolrServerException if Solr rejects the updates.
+     * @throws IOException if Solr can't be reached.
+     */
+    public void flush() throws SolrServerException, IOException {
+        List<IndexTimeStamp> sentStamps;
+        flushLock.lock();
+        try {
+            List<Update> updates;
+            synchronized (buffer) {
+                if (buffer.isEmpty() && stamps.isEmpty()) {
+                    return;
+                }
+                updates = new ArrayList<>(buffer);
+                buffer.clear();
+                sentStamps = new ArrayList<>(stamps);
+                stamps.clear();
+            }
+            long start = System.currentTimeMillis();
+            try {
+                send(updates);
+            } catch (SolrServerException | IOException | RuntimeException ex) {
+                failedUpdates.add(updates.size());
+                throw ex;
+            } finally {
+                flushes.increment();
+                maxFlushMillis.accumulateAndGet(System.currentTimeMillis() - start, Math::max);
+            }
+        } finally {
+            flushLock.unlock();
+        }
+        if (!sentStamps.isEmpty()) {
+            // Not on the indexing thread (that may be flushing because of the
+            // backpressure), whose transaction may have the objects locked:
+            try {
+                flushExecutor.execute(() -> updateIndexTimes(sentStamps));
+            } catch (RejectedExecutionException rex) {
+                updateIndexTimes(sentStamps);
+            }
+        }
+    }
+
+    /**
+     * Sets the index times of the objects whose documents were sent; to the
+     * time the first of them was queued, so that a change made to any of
+     * them since then is not taken to be indexed.
+     */
+    private void updateIndexTimes(List<IndexTimeStamp> sentStamps) {
+        List<Long> indexed = new ArrayList<>();
+        List<Long> permissionsIndexed = new ArrayList<>();
+        long queued = Long.MAX_VALUE;
+        for (IndexTimeStamp stamp : sentStamps) {
+            (stamp.permissions ? permissionsIndexed : indexed).add(stamp.dvObjectId);
+            queued = Math.min(queued, stamp.queued);
+        }
+        Timestamp time = new Timestamp(queued);
+        try {
+            dvObjectService.updateIndexTimes(indexed, false, time);
+            dvObjectService.updateIndexTimes(permissionsIndexed, true, time);
+        } catch (RuntimeException ex) {
+            logger.log(Level.WARNING, "Failed to update the index times of the objects sent to Solr: {0}", ex.toString());
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (SolrServerException | IOException | RuntimeException ex) {
+            logger.log(Level.WARNING, "Failed to send updates to Solr; the objects may need to be reindexed: {0}", ex.toString());
+        }
+    }
+
+    /**
+     * Sends the runs of consecutive additions, and of consecutive deletions,
+     * as one request each; keeping the order of the updates.
+     */
+    private void send(List<Update> updates) throws SolrServerException, IOException {
+        List<SolrInputDocument> docs = new ArrayList<>();
+        List<String> deletedIds = new ArrayList<>();
+        for (Update update : updates) {
+            if (update.doc != null) {
+                if (!deletedIds.isEmpty()) {
+                    sendDeletions(deletedIds);
+                }
+                docs.add(update.doc);
+            } else {
+                if (!docs.isEmpty()) {
+                    sendAdditions(docs);
+                }
+                deletedIds.add(update.deletedId);
+            }
+        }
+        if (!docs.isEmpty()) {
+            sendAdditions(docs);
+        }
+        if (!deletedIds.isEmpty()) {
+            sendDeletions(deletedIds);
+        }
+    }
+
+    private void sendAdditions(List<SolrInputDocument> docs) throws SolrServerException, IOException {
+        solrClientService.getSolrClient().add(docs, COMMIT_WITHIN_MILLIS);
+        addedDocs.add(docs.size());
+        docs.clear();
+    }
+
+    private void sendDeletions(List<String> ids) throws SolrServerException, IOException {
+        solrClientService.getSolrClient().deleteById(ids, COMMIT_WITHIN_MILLIS);
+        deletedDocs.add(ids.size());
+        ids.clear();
+    }
+
+    public int getBuffered() {
+        synchronized (buffer) {
+            return buffer.size();
+        }
+    }
+
+    public long getAddedDocs() {
+        return addedDocs.sum();
+    }
+
+    public long getDeletedDocs() {
+        return deletedDocs.sum();
+    }
+
+    public long getFlushes() {
+        return flushes.sum();
+    }
+
+    public long getFailedUpdates() {
+        return failedUpdates.sum();
+    }
+
+    public long getBackpressureFlushes() {
+        return backpressureFlushes.sum();
+    }
+
+    public long getMaxFlushMillis() {
+        return maxFlushMillis.get();
+    }
+}
@@ -0,0 +1,162 @@
+package edu.harvard.iq.dataverse.settings;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.logging.Logger;
+import javax.ejb.ConcurrencyManagement;
+import javax.ejb.ConcurrencyManagementType;
+import javax.ejb.Singleton;
+import javax.ejb.TransactionAttribute;
+import javax.ejb.TransactionAttributeType;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
+
+/**
+ * An in-memory snapshot of the whole setting table, for the
+ * {@link SettingsServiceBean} to serve lookups from, instead of querying the
+ * database on every call.
+ *
+ * A database trigger increments the single row of the settingsversion table
+ * whenever the setting table is modified (by any node, or by hand). The
+ * snapshot is checked against that version at most once every
+ * {@link #VERSION_CHECK_INTERVAL_MILLIS}, and reloaded when it has changed;
+ * so the settings modified on another node are picked up within that
+ * interval. The settings modified on this node are picked up right after the
+ * transaction commits, see {@link #invalidate()}.
+ *
+ * The snapshot is read outside of the caller's transaction (if any), so that
+ * uncommitted changes never make it into the cache.
+ */
+@Singleton
+@ConcurrencyManagement(ConcurrencyManagementType.BEAN)
+@TransactionAttribute(TransactionAttributeType.NOT_SUPPORTED)
+public class SettingsCacheServiceBean {
+
+    private static final Logger logger = Logger.getLogger(SettingsCacheServiceBean.class.getCanonicalName());
+
+    static final long VERSION_CHECK_INTERVAL_MILLIS = 1000;
+
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    EntityManager em;
+
+    private static class Snapshot {
+        final long version;
+        final Map<List<String>, Setting> settings;
+
+        Snapshot(long version, Map<List<String>, Setting> settings) {
+            this.version = version;
+            this.settings = settings;
+        }
+    }
+
+    private volatile Snapshot snapshot;
+    private volatile long nextVersionCheck = 0;
+    private final AtomicLong invalidations = new AtomicLong();
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder reloads = new LongAdder();
+
+    /**
+     * @param name the name of the setting
+     * @param lang the language of the setting, or null for the setting
+     * without a language
+     * @return the content of the setting, or null if it's not set.
+     */
+    public String get(String name, String lang) {
+        Setting s = getSnapshot().settings.get(key(name, lang));
+        return (s != null) ? s.getContent() : null;
+    }
+
+    public Set<Setting> listAll() {
+        return new HashSet<>(getSnapshot().settings.values());
+    }
+
+    /**
+     * Makes the next lookup check the settings version in the database, and
+     * reload the settings if they've changed; to be called once the
+     * modifications of the setting table are committed.
+     */
+    public void invalidate() {
+        invalidations.incrementAndGet();
+        nextVersionCheck = 0;
+    }
+
+    /**
+     * @return the lookups served from memory, without querying the database.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the lookups that had to check the settings version in the
+     * database (and to reload the settings, if it had changed).
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public long getReloads() {
+        return reloads.sum();
+    }
+
+    public double getHitRate() {
+        long h = getHits();
+        long total = h + getMisses();
+        return (total > 0) ? (double) h / total : 0.0;
+    }
+
+    private Snapshot getSnapshot() {
+        Snapshot current = snapshot;
+        if (current != null && System.currentTimeMillis() < nextVersionCheck) {
+            hits.increment();
+            return current;
+        }
+        return checkVersion();
+    }
+
+    private synchronized Snapshot checkVersion() {
+        Snapshot current = snapshot;
+        long now = System.currentTimeMillis();
+        if (current != null && now < nextVersionCheck) {
+            // another thread has just checked
+            hits.increment();
+            return current;
+        }
+        misses.increment();
+        long invalidationsBefore = invalidations.get();
+
+        // (the version is read before the settings; so that if they are
+        // modified in between, the next check will reload them again.)
+        long version = findVersion();
+        if (current == null || current.version != version) {
+            Map<List<String>, Setting> settings = new HashMap<>();
+            for (Setting s : em.createNamedQuery("Setting.findAll", Setting.class).getResultList()) {
+                settings.put(key(s.getName(), s.getLang()), s);
+            }
+            current = new Snapshot(version, settings);
+            snapshot = current;
+            reloads.increment();
+            logger.fine("Loaded " + settings.size() + " settings, version " + version + "; hit rate so far: " + getHitRate());
+        }
+        if (invalidations.get() == invalidationsBefore) {
+            nextVersionCheck = now + VERSION_CHECK_INTERVAL_MILLIS;
+        }
+        return current;
+    }
+
+    private long findVersion() {
+        return ((Number) em.createNativeQuery("SELECT version FROM settingsversion WHERE id = 1").getSingleResult()).longValue();
+    }
+
+    private static List<String> key(String name, String lang) {
+        return Arrays.asList(name, lang);
+    }
+}
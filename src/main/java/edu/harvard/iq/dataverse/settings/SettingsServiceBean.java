@@ -8,11 +8,11 @@ import edu.harvard.iq.dataverse.engine.command.DataverseRequest;
 import edu.harvard.iq.dataverse.util.StringUtil;
 
 import java.io.StringReader;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.logging.Level;
 import java.util.logging.Logger;
+import javax.annotation.Resource;
 import javax.ejb.EJB;
 import javax.ejb.Stateless;
 import javax.inject.Named;
@@ -20,6 +20,9 @@ import javax.json.Json;
 import javax.json.JsonObject;
 import javax.persistence.EntityManager;
 import javax.persistence.PersistenceContext;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
 
 /**
  * Service bean accessing a persistent hash map, used as settings in the application.
@@ -207,6 +210,8 @@ public class SettingsServiceBean {
         /** Optionally override version number in guides. */
         GuidesVersion,
         ZipDownloadLimit,
+        /* the number of files read from storage ahead of time, while zipping a multi-file download */
+        ZipDownloadPrefetchFiles,
         /* zip upload number of files limit */
         ZipUploadFilesLimit,
         /* the number of files the GUI user is allowed to upload in one batch, 
@@ -418,6 +423,13 @@ public class SettingsServiceBean {
          * Validate physical files for all the datafiles in the dataset when publishing
          */
         FileValidationOnPublishEnabled,
+        /**
+         * How many days a successful validation of a physical file is good
+         * for, i.e. files validated more recently are not validated again
+         * when the dataset is published. If not set (or negative), all the
+         * files are validated on every publish.
+         */
+        FileValidationOnPublishMaxAge,
         /**
          * If defined, this is the URL of the zipping service outside 
          * the main Application Service where zip downloads should be directed
@@ -461,20 +473,22 @@ public class SettingsServiceBean {
     @EJB
     ActionLogServiceBean actionLogSvc;
     
+    @EJB
+    SettingsCacheServiceBean settingsCache;
+    
+    @Resource
+    TransactionSynchronizationRegistry transactionSynchronizationRegistry;
+    
     /**
      * Basic functionality - get the name, return the setting, or {@code null}.
+     * The settings are served from memory, see {@link SettingsCacheServiceBean};
+     * a setting modified in the current transaction is only seen here once
+     * the transaction is committed.
      * @param name of the setting
      * @return the actual setting, or {@code null}.
      */
     public String get( String name ) {
-        List<Setting> tokens = em.createNamedQuery("Setting.findByName", Setting.class)
-                .setParameter("name", name )
-                .getResultList();
-        String val = null;
-        if(tokens.size() > 0) {
-            val = tokens.get(0).getContent();
-        }
-        return (val!=null) ? val : null;
+        return settingsCache.get(name, null);
     }
     
     /**
@@ -567,14 +581,7 @@ public class SettingsServiceBean {
     }
 
     public String get(String name, String lang, String defaultValue ) {
-        List<Setting> tokens = em.createNamedQuery("Setting.findByNameAndLang", Setting.class)
-                .setParameter("name", name )
-                .setParameter("lang", lang )
-                .getResultList();
-        String val = null;
-        if(tokens.size() > 0) {
-            val = tokens.get(0).getContent();
-        }
+        String val = settingsCache.get(name, lang);
         return (val!=null) ? val : defaultValue;
     }
     
@@ -604,6 +611,7 @@ public class SettingsServiceBean {
         }
         
         s = em.merge(s);
+        invalidateCacheOnCommit();
         actionLogSvc.log( new ActionLogRecord(ActionLogRecord.ActionType.Setting, "set")
                             .setInfo(name + ": " + content));
         return s;
@@ -628,6 +636,7 @@ public class SettingsServiceBean {
         }
         
         em.merge(s);
+        invalidateCacheOnCommit();
         actionLogSvc.log( new ActionLogRecord(ActionLogRecord.ActionType.Setting, "set")
                 .setInfo(name + ": " +lang + ": " + content));
         return s;
@@ -667,6 +676,7 @@ public class SettingsServiceBean {
         em.createNamedQuery("Setting.deleteByName")
                 .setParameter("name", name)
                 .executeUpdate();
+        invalidateCacheOnCommit();
     }
 
     public void delete( String name, String lang ) {
@@ -676,10 +686,30 @@ public class SettingsServiceBean {
                 .setParameter("name", name)
                 .setParameter("lang", lang)
                 .executeUpdate();
+        invalidateCacheOnCommit();
     }
     
     public Set<Setting> listAll() {
-        return new HashSet<>(em.createNamedQuery("Setting.findAll", Setting.class).getResultList());
+        return settingsCache.listAll();
+    }
+    
+    /**
+     * Makes the settings cache pick up the modifications made in the current
+     * transaction, once (and only if) it's committed.
+     */
+    private void invalidateCacheOnCommit() {
+        transactionSynchronizationRegistry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                if (status == Status.STATUS_COMMITTED) {
+                    settingsCache.invalidate();
+                }
+            }
+        });
     }
     
     
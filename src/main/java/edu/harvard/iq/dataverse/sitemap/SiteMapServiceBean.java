@@ -1,17 +1,79 @@
 package edu.harvard.iq.dataverse.sitemap;
 
-import edu.harvard.iq.dataverse.Dataset;
-import edu.harvard.iq.dataverse.Dataverse;
+import edu.harvard.iq.dataverse.DatasetVersion;
+import edu.harvard.iq.dataverse.GlobalId;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Date;
 import java.util.List;
 import javax.ejb.Asynchronous;
 import javax.ejb.Stateless;
+import javax.persistence.EntityManager;
+import javax.persistence.PersistenceContext;
 
 @Stateless
 public class SiteMapServiceBean {
 
+    @PersistenceContext(unitName = "VDCNet-ejbPU")
+    private EntityManager em;
+
+    /**
+     * The dataverses and datasets are retrieved in pages of this many rows,
+     * and only the fields needed for the sitemap entries are selected; so
+     * that neither the entities, nor the full list of them, are ever held
+     * in memory.
+     */
+    private static final int PAGE_SIZE = 1000;
+
     @Asynchronous
-    public void updateSiteMap(List<Dataverse> dataverses, List<Dataset> datasets) {
-        SiteMapUtil.updateSiteMap(dataverses, datasets);
+    public void updateSiteMap() {
+        SiteMapUtil.updateSiteMap(writer -> {
+            writeDataverseUrls(writer);
+            writeDatasetUrls(writer);
+        });
+    }
+
+    private void writeDataverseUrls(SiteMapWriter writer) throws IOException {
+        Long lastId = 0L;
+        List<Object[]> page;
+        do {
+            page = em.createQuery("SELECT d.id, d.alias, d.modificationTime FROM Dataverse d"
+                    + " WHERE d.publicationDate IS NOT NULL AND d.id > :lastId ORDER BY d.id", Object[].class)
+                    .setParameter("lastId", lastId)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            for (Object[] row : page) {
+                lastId = (Long) row[0];
+                writer.addUrl(SiteMapUtil.getDataverseUrl((String) row[1]), SiteMapUtil.getLastModDate((Date) row[2]));
+            }
+        } while (page.size() == PAGE_SIZE);
+    }
+
+    /**
+     * Released datasets that are not harvested or deaccessioned. (Same as
+     * Dataset.isDeaccessioned(): a dataset is deaccessioned if it has a
+     * deaccessioned version, and no released or draft versions.)
+     */
+    private void writeDatasetUrls(SiteMapWriter writer) throws IOException {
+        Long lastId = 0L;
+        List<Object[]> page;
+        do {
+            page = em.createQuery("SELECT d.id, d.protocol, d.authority, d.identifier, d.modificationTime FROM Dataset d"
+                    + " WHERE d.publicationDate IS NOT NULL AND d.harvestedFrom IS NULL AND d.id > :lastId"
+                    + " AND (EXISTS (SELECT v.id FROM DatasetVersion v WHERE v.dataset = d AND v.versionState IN :activeStates)"
+                    + " OR NOT EXISTS (SELECT v.id FROM DatasetVersion v WHERE v.dataset = d AND v.versionState = :deaccessioned))"
+                    + " ORDER BY d.id", Object[].class)
+                    .setParameter("lastId", lastId)
+                    .setParameter("activeStates", Arrays.asList(DatasetVersion.VersionState.RELEASED, DatasetVersion.VersionState.DRAFT))
+                    .setParameter("deaccessioned", DatasetVersion.VersionState.DEACCESSIONED)
+                    .setMaxResults(PAGE_SIZE)
+                    .getResultList();
+            for (Object[] row : page) {
+                lastId = (Long) row[0];
+                String datasetPid = new GlobalId((String) row[1], (String) row[2], (String) row[3]).asString();
+                writer.addUrl(SiteMapUtil.getDatasetUrl(datasetPid), SiteMapUtil.getLastModDate((Date) row[4]));
+            }
+        } while (page.size() == PAGE_SIZE);
     }
 
 }
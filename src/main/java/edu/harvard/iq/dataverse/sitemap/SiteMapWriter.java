@@ -0,0 +1,247 @@
+package edu.harvard.iq.dataverse.sitemap;
+
+import edu.harvard.iq.dataverse.util.SystemConfig;
+import edu.harvard.iq.dataverse.util.xml.XmlValidator;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.MalformedURLException;
+import java.net.URL;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Logger;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamWriter;
+import org.xml.sax.SAXException;
+
+/**
+ * Writes the sitemap one URL at a time, with a StAX stream writer, so that
+ * the entries never have to be held in memory.
+ *
+ * "each Sitemap file that you provide must have no more than 50,000 URLs"
+ * https://www.sitemaps.org/protocol.html
+ *
+ * If there are more URLs than that, they are split into the files
+ * sitemap1.xml, sitemap2.xml, etc., and sitemap.xml becomes the sitemap
+ * index listing them. All the files are first written as ".staged" and
+ * validated, and only then moved into place; closing the writer deletes the
+ * staged files that haven't been, whatever went wrong.
+ */
+public class SiteMapWriter implements Closeable {
+
+    private static final Logger logger = Logger.getLogger(SiteMapWriter.class.getCanonicalName());
+
+    private static final String SITEMAP_NAMESPACE = "http://www.sitemaps.org/schemas/sitemap/0.9";
+    private static final String SITEMAP_SCHEMA = "https://www.sitemaps.org/schemas/sitemap/0.9/sitemap.xsd";
+    private static final String SITEMAP_INDEX_SCHEMA = "https://www.sitemaps.org/schemas/sitemap/0.9/siteindex.xsd";
+    private static final String STAGED_EXTENSION = ".staged";
+
+    private final String sitemapPathString;
+    private final int maxUrlsPerFile;
+
+    private final List<String> stagedFiles = new ArrayList<>();
+    private OutputStream outputStream;
+    private XMLStreamWriter xmlw;
+    private int urlsInFile = 0;
+
+    SiteMapWriter(String sitemapPathString, int maxUrlsPerFile) {
+        this.sitemapPathString = sitemapPathString;
+        this.maxUrlsPerFile = maxUrlsPerFile;
+    }
+
+    /**
+     * Adds a URL to the sitemap; starting a new sitemap file, if the
+     * current one is full.
+     */
+    public void addUrl(String loc, String lastmod) throws IOException {
+        try {
+            if (xmlw == null || urlsInFile == maxUrlsPerFile) {
+                closeFile();
+                // The first file is staged as sitemap.xml.staged; it's renamed
+                // if it turns out there's more than one file:
+                openFile(stagedFiles.isEmpty() ? SiteMapUtil.SITEMAP_FILENAME_STAGED : getSitemapFileName(stagedFiles.size() + 1) + STAGED_EXTENSION, "urlset");
+            }
+            xmlw.writeStartElement("url");
+            writeElement("loc", loc);
+            writeElement("lastmod", lastmod);
+            xmlw.writeEndElement(); // url
+            urlsInFile++;
+        } catch (XMLStreamException ex) {
+            throw new IOException(ex);
+        }
+    }
+
+    /**
+     * Writes the sitemap index, if more than one sitemap file was written,
+     * checks the staged files, and moves them in place.
+     *
+     * @return true if the sitemap was updated.
+     */
+    public boolean finish() {
+        try {
+            if (xmlw == null) {
+                // an empty sitemap:
+                openFile(SiteMapUtil.SITEMAP_FILENAME_STAGED, "urlset");
+            }
+            closeFile();
+
+            if (stagedFiles.size() > 1) {
+                Path firstSitemapPath = Paths.get(sitemapPathString, getSitemapFileName(1) + STAGED_EXTENSION);
+                Files.move(Paths.get(sitemapPathString, SiteMapUtil.SITEMAP_FILENAME_STAGED), firstSitemapPath, StandardCopyOption.REPLACE_EXISTING);
+                stagedFiles.set(0, firstSitemapPath.getFileName().toString());
+
+                List<String> sitemapFiles = new ArrayList<>(stagedFiles);
+                openFile(SiteMapUtil.SITEMAP_FILENAME_STAGED, "sitemapindex");
+                for (int i = 0; i < sitemapFiles.size(); i++) {
+                    xmlw.writeStartElement("sitemap");
+                    writeElement("loc", SystemConfig.getDataverseSiteUrlStatic() + "/sitemap/" + getSitemapFileName(i + 1));
+                    xmlw.writeEndElement(); // sitemap
+                }
+                closeFile();
+            }
+        } catch (XMLStreamException | IOException ex) {
+            logger.warning("Unable to update sitemap! Unable to write staged sitemap in " + sitemapPathString + ". Exception: " + ex.getLocalizedMessage());
+            return false;
+        }
+
+        for (int i = 0; i < stagedFiles.size(); i++) {
+            boolean isIndex = stagedFiles.size() > 1 && i == stagedFiles.size() - 1;
+            if (!validateStagedFile(sitemapPathString + File.separator + stagedFiles.get(i), isIndex ? SITEMAP_INDEX_SCHEMA : SITEMAP_SCHEMA)) {
+                return false;
+            }
+        }
+
+        // Move the numbered sitemap files first, and the sitemap.xml (the
+        // index, or the only sitemap file) last:
+        for (int i = 0; i < stagedFiles.size(); i++) {
+            String stagedSitemapPathAndFileString = sitemapPathString + File.separator + stagedFiles.get(i);
+            String finalSitemapPathAndFileString = stagedSitemapPathAndFileString.substring(0, stagedSitemapPathAndFileString.length() - STAGED_EXTENSION.length());
+            logger.info("Copying staged sitemap from " + stagedSitemapPathAndFileString + " to " + finalSitemapPathAndFileString);
+            try {
+                Files.move(Paths.get(stagedSitemapPathAndFileString), Paths.get(finalSitemapPathAndFileString), StandardCopyOption.REPLACE_EXISTING);
+            } catch (IOException ex) {
+                logger.warning("Unable to update sitemap! Unable to copy staged sitemap from " + stagedSitemapPathAndFileString + " to " + finalSitemapPathAndFileString + ". IOException: " + ex.getLocalizedMessage());
+                return false;
+            }
+        }
+
+        // Remove any numbered sitemap files left over from a previous, larger sitemap:
+        int numberedFiles = stagedFiles.size() > 1 ? stagedFiles.size() - 1 : 0;
+        for (int i = numberedFiles + 1; Files.exists(Paths.get(sitemapPathString, getSitemapFileName(i))); i++) {
+            try {
+                Files.delete(Paths.get(sitemapPathString, getSitemapFileName(i)));
+            } catch (IOException ex) {
+                logger.warning("Unable to delete the old sitemap file " + getSitemapFileName(i) + ": " + ex.getLocalizedMessage());
+                break;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Closes the file being written, if any, and deletes the staged files
+     * that haven't been moved into place; so that a failed update doesn't
+     * prevent the next ones.
+     */
+    @Override
+    public void close() {
+        if (xmlw != null) {
+            try {
+                xmlw.close();
+            } catch (XMLStreamException ex) {
+                // the stream is closed below
+            }
+            xmlw = null;
+        }
+        if (outputStream != null) {
+            try {
+                outputStream.close();
+            } catch (IOException ex) {
+                logger.warning("Unable to close the staged sitemap file: " + ex.getLocalizedMessage());
+            }
+            outputStream = null;
+        }
+        for (String stagedFile : stagedFiles) {
+            try {
+                Files.deleteIfExists(Paths.get(sitemapPathString, stagedFile));
+            } catch (IOException ex) {
+                logger.warning("Unable to delete the staged sitemap file " + stagedFile + ": " + ex.getLocalizedMessage());
+            }
+        }
+    }
+
+    static String getSitemapFileName(int fileNumber) {
+        return "sitemap" + fileNumber + ".xml";
+    }
+
+    private void openFile(String stagedFileName, String rootElement) throws IOException, XMLStreamException {
+        File directory = new File(sitemapPathString);
+        if (!directory.exists()) {
+            directory.mkdir();
+        }
+        String stagedSitemapPathAndFileString = sitemapPathString + File.separator + stagedFileName;
+        logger.info("Writing staged sitemap to " + stagedSitemapPathAndFileString);
+
+        outputStream = new BufferedOutputStream(new FileOutputStream(stagedSitemapPathAndFileString));
+        xmlw = XMLOutputFactory.newInstance().createXMLStreamWriter(outputStream, "UTF-8");
+        xmlw.writeStartDocument("UTF-8", "1.0");
+        xmlw.writeStartElement(rootElement);
+        xmlw.writeDefaultNamespace(SITEMAP_NAMESPACE);
+        if ("urlset".equals(rootElement)) {
+            xmlw.writeNamespace("xhtml", "http://www.w3.org/1999/xhtml");
+        }
+        stagedFiles.add(stagedFileName);
+        urlsInFile = 0;
+    }
+
+    private void closeFile() throws IOException, XMLStreamException {
+        if (xmlw == null) {
+            return;
+        }
+        xmlw.writeEndElement();
+        xmlw.writeEndDocument();
+        xmlw.close();
+        xmlw = null;
+        outputStream.close();
+        outputStream = null;
+    }
+
+    private void writeElement(String name, String value) throws XMLStreamException {
+        xmlw.writeStartElement(name);
+        xmlw.writeCharacters(value);
+        xmlw.writeEndElement();
+    }
+
+    private boolean validateStagedFile(String stagedSitemapPathAndFileString, String schema) {
+        logger.info("Checking staged sitemap for well-formedness. The staged file is " + stagedSitemapPathAndFileString);
+        try {
+            XmlValidator.validateXmlWellFormed(stagedSitemapPathAndFileString);
+        } catch (Exception ex) {
+            logger.warning("Unable to update sitemap! Staged sitemap file is not well-formed XML! The exception for " + stagedSitemapPathAndFileString + " is " + ex.getLocalizedMessage());
+            return false;
+        }
+
+        logger.info("Checking staged sitemap against XML schema. The staged file is " + stagedSitemapPathAndFileString);
+        URL schemaUrl = null;
+        try {
+            schemaUrl = new URL(schema);
+        } catch (MalformedURLException ex) {
+            // This URL is hard coded and it's fine. We should never get MalformedURLException so we just swallow the exception and carry on.
+        }
+        try {
+            XmlValidator.validateXmlSchema(stagedSitemapPathAndFileString, schemaUrl);
+        } catch (SAXException | IOException ex) {
+            logger.warning("Unable to update sitemap! Exception caught while checking XML staged file (" + stagedSitemapPathAndFileString + " ) against XML schema: " + ex.getLocalizedMessage());
+            return false;
+        }
+        return true;
+    }
+}
@@ -0,0 +1,159 @@
+package edu.harvard.iq.dataverse.util;
+
+import java.util.LinkedHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+
+/**
+ * A thread-safe, capped-size cache whose entries also expire after a while;
+ * the least recently used entries are dropped first when the cache is full.
+ *
+ * The expiration bounds how long a change made on another server goes
+ * unnoticed; changes made on this server should invalidate the entries
+ * explicitly, with the methods taking a
+ * {@link TransactionSynchronizationRegistry}: these invalidate the entries
+ * right away, and once more when the current transaction completes, so that
+ * the entries looked up again in the meantime (from the data being changed)
+ * are not kept either.
+ *
+ * @param <K> Class for the cache keys
+ * @param <V> Class for the cache values
+ */
+public class ExpiringLruCache<K, V> {
+
+    private static class Entry<V> {
+        final V value;
+        final long validUntil;
+
+        Entry(V value, long validUntil) {
+            this.value = value;
+            this.validUntil = validUntil;
+        }
+    }
+
+    private final LinkedHashMap<K, Entry<V>> cache = new LinkedHashMap<>(16, 0.75f, true);
+    private final ReentrantLock cacheLock = new ReentrantLock();
+    private final int maxSize;
+    private final long ttlMillis;
+
+    /**
+     * @param maxSize the maximum number of entries.
+     * @param ttlMillis how long an entry is kept, at most.
+     */
+    public ExpiringLruCache(int maxSize, long ttlMillis) {
+        if (maxSize < 1) {
+            throw new IllegalArgumentException("Max cache size can't be less than 1");
+        }
+        this.maxSize = maxSize;
+        this.ttlMillis = ttlMillis;
+    }
+
+    /**
+     * @param k The key to get
+     * @return The value associated with {@code k}, or {@code null}, if there
+     * isn't any (or it has expired).
+     */
+    public V get(K k) {
+        try {
+            cacheLock.lock();
+            Entry<V> entry = cache.get(k);
+            if (entry == null) {
+                return null;
+            }
+            if (entry.validUntil < System.currentTimeMillis()) {
+                cache.remove(k);
+                return null;
+            }
+            return entry.value;
+        } finally { cacheLock.unlock(); }
+    }
+
+    /**
+     * Associates {@code k} with {@code v}, for the time to live of the cache.
+     */
+    public void put(K k, V v) {
+        put(k, v, Long.MAX_VALUE);
+    }
+
+    /**
+     * Associates {@code k} with {@code v}, for the time to live of the cache
+     * or until {@code expireTime} (in milliseconds), whichever comes first.
+     */
+    public void put(K k, V v, long expireTime) {
+        long validUntil = Math.min(System.currentTimeMillis() + ttlMillis, expireTime);
+        try {
+            cacheLock.lock();
+            cache.put(k, new Entry<>(v, validUntil));
+            while (cache.size() > maxSize) {
+                cache.remove(cache.entrySet().iterator().next().getKey());
+            }
+        } finally { cacheLock.unlock(); }
+    }
+
+    public int size() {
+        try {
+            cacheLock.lock();
+            return cache.size();
+        } finally { cacheLock.unlock(); }
+    }
+
+    public void invalidate() {
+        try {
+            cacheLock.lock();
+            cache.clear();
+        } finally { cacheLock.unlock(); }
+    }
+
+    public void invalidate(K k) {
+        try {
+            cacheLock.lock();
+            cache.remove(k);
+        } finally { cacheLock.unlock(); }
+    }
+
+    /**
+     * Drops the entries whose values match {@code predicate}.
+     */
+    public void invalidateIf(Predicate<V> predicate) {
+        try {
+            cacheLock.lock();
+            cache.values().removeIf(entry -> predicate.test(entry.value));
+        } finally { cacheLock.unlock(); }
+    }
+
+    /**
+     * Drops all the entries; right away, and again when the current
+     * transaction (if any) completes.
+     */
+    public void invalidateAll(TransactionSynchronizationRegistry registry) {
+        invalidate();
+        afterTransaction(registry, this::invalidate);
+    }
+
+    /**
+     * Drops the entries whose values match {@code predicate}; right away, and
+     * again when the current transaction (if any) completes.
+     */
+    public void invalidateIf(Predicate<V> predicate, TransactionSynchronizationRegistry registry) {
+        invalidateIf(predicate);
+        afterTransaction(registry, () -> invalidateIf(predicate));
+    }
+
+    private static void afterTransaction(TransactionSynchronizationRegistry registry, Runnable action) {
+        if (registry == null || registry.getTransactionKey() == null) {
+            return;
+        }
+        registry.registerInterposedSynchronization(new Synchronization() {
+            @Override
+            public void beforeCompletion() {
+            }
+
+            @Override
+            public void afterCompletion(int status) {
+                action.run();
+            }
+        });
+    }
+}
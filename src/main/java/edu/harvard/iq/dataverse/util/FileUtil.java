@@ -77,6 +77,7 @@ import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import javax.activation.MimetypesFileTypeMap;
@@ -1852,6 +1853,21 @@ public class FileUtil implements java.io.Serializable  {
         logger.log(Level.INFO, "successfully validated DataFile {0}; checksum {1}", new Object[]{dataFile.getId(), recalculatedChecksum});
     }
     
+    /**
+     * @param dataFile the file
+     * @param maxAgeDays for how many days a successful validation holds; a
+     * negative value means it doesn't.
+     * @param now the current time, in milliseconds.
+     * @return whether the physical file should be validated (again), i.e.
+     * whether it hasn't been validated within the last {@code maxAgeDays}.
+     */
+    public static boolean isChecksumValidationDue(DataFile dataFile, long maxAgeDays, long now) {
+        if (maxAgeDays < 0 || dataFile.getChecksumValidationTime() == null) {
+            return true;
+        }
+        return dataFile.getChecksumValidationTime().getTime() <= now - TimeUnit.DAYS.toMillis(maxAgeDays);
+    }
+
     public static String getStorageIdentifierFromLocation(String location) {
     	int driverEnd = location.indexOf("://") + 3;
     	int bucketEnd = driverEnd + location.substring(driverEnd).indexOf("/");
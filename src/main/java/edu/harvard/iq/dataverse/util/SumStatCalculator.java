@@ -21,6 +21,7 @@
 package edu.harvard.iq.dataverse.util;
 import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.BitSet;
 import java.util.List;
 import java.util.logging.Logger;
 
@@ -59,6 +60,69 @@ public class SumStatCalculator {
         double[] newx = prepareForSummaryStatsAlternative(x, x.length - invalid);
         logger.fine("prepared double vector for summary stats calculation ("+newx.length+" double values);");        
         
+        calculateSummaryStatistics(newx, nx);
+        return nx;
+    }  
+
+    /**
+     * Calculates the summary statistics on a primitive double vector; the 
+     * entries for which the corresponding bit in missingValues is set are 
+     * treated as missing (same as nulls in the Number[] version above). 
+     * NaNs are counted as invalid values, as above. 
+     */
+    public static double[] calculateSummaryStatistics(double[] x, BitSet missingValues) {
+        logger.fine("entering calculate summary statistics ("+x.length+" double values);");
+        
+        double[] newx = new double[x.length];
+        int c = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (!missingValues.get(i) && !Double.isNaN(x[i])) {
+                newx[c++] = x[i];
+            }
+        }
+        return calculateSummaryStatistics(x.length, c, newx);
+    }
+
+    public static double[] calculateSummaryStatistics(float[] x, BitSet missingValues) {
+        logger.fine("entering calculate summary statistics ("+x.length+" float values);");
+        
+        double[] newx = new double[x.length];
+        int c = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (!missingValues.get(i) && !Float.isNaN(x[i])) {
+                newx[c++] = x[i];
+            }
+        }
+        return calculateSummaryStatistics(x.length, c, newx);
+    }
+
+    public static double[] calculateSummaryStatistics(long[] x, BitSet missingValues) {
+        logger.fine("entering calculate summary statistics ("+x.length+" long values);");
+        
+        double[] newx = new double[x.length];
+        int c = 0;
+        for (int i = 0; i < x.length; i++) {
+            if (!missingValues.get(i)) {
+                newx[c++] = x[i];
+            }
+        }
+        return calculateSummaryStatistics(x.length, c, newx);
+    }
+    
+    private static double[] calculateSummaryStatistics(int length, int valid, double[] validValues) {
+        double[] nx = new double[8];
+        
+        nx[3] = valid;
+        nx[4] = length - valid;
+        logger.fine("counted valid values: "+nx[3]+", invalid values: "+nx[4]);
+        
+        double[] newx = validValues.length == valid ? validValues : Arrays.copyOf(validValues, valid);
+        calculateSummaryStatistics(newx, nx);
+        return nx;
+    }
+    
+    private static void calculateSummaryStatistics(double[] newx, double[] nx) {
+        //("mean", "medn", "mode", "vald", "invd", "min", "max", "stdev");
         ////nx[0] = StatUtils.mean(newx);
         nx[0] = calculateMean(newx);
         logger.fine("calculated mean: "+nx[0]);
@@ -73,8 +137,7 @@ public class SumStatCalculator {
         logger.fine("calculated max: "+nx[6]);
         nx[7] = Math.sqrt(StatUtils.variance(newx));
         logger.fine("calculated stdev: "+nx[7]);
-        return nx;
-    }  
+    }
 
     private static double[] prepareForSummaryStats(Number[] x) {
         Double[] z = numberToDouble(x);
@@ -94,6 +94,7 @@ public class SystemConfig {
      */
     private static final int defaultZipUploadFilesLimit = 1000; 
     private static final long defaultZipDownloadLimit = 104857600L; // 100MB
+    private static final int defaultZipDownloadPrefetchFiles = 4;
     private static final int defaultMultipleUploadFilesLimit = 1000;
     private static final int defaultLoginSessionTimeout = 480; // = 8 hours
 
@@ -432,6 +433,17 @@ public class SystemConfig {
         return getLongLimitFromStringOrDefault(zipLimitOption, defaultZipDownloadLimit);
     }
     
+    /**
+     * The number of files read from storage ahead of time, concurrently, 
+     * while zipping a multi-file download; 
+     * returns defaultZipDownloadPrefetchFiles if not specified; 
+     * set to 0 to read the files one at a time.
+     */
+    public int getZipDownloadPrefetchFiles() {
+        String prefetchOption = settingsService.getValueForKey(SettingsServiceBean.Key.ZipDownloadPrefetchFiles);
+        return getIntLimitFromStringOrDefault(prefetchOption, defaultZipDownloadPrefetchFiles);
+    }
+    
     public int getZipUploadFilesLimit() {
         String limitOption = settingsService.getValueForKey(SettingsServiceBean.Key.ZipUploadFilesLimit);
         return getIntLimitFromStringOrDefault(limitOption, defaultZipUploadFilesLimit);
@@ -1060,6 +1072,14 @@ public class SystemConfig {
         return settingsService.isTrueForKey(SettingsServiceBean.Key.FileValidationOnPublishEnabled, safeDefaultIfKeyNotFound);
     }
 
+    /**
+     * @return for how many days a successful validation of a file on publish
+     * holds; or -1 (the default) to validate all the files on every publish.
+     */
+    public long getFileValidationOnPublishMaxAge() {
+        return getLongLimitFromStringOrDefault(settingsService.getValueForKey(SettingsServiceBean.Key.FileValidationOnPublishMaxAge), -1L);
+    }
+
 	public boolean directUploadEnabled(DvObjectContainer container) {
     	return Boolean.getBoolean("dataverse.files." + container.getEffectiveStorageDriverId() + ".upload-redirect");
 	}
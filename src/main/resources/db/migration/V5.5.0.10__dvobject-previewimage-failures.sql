@@ -0,0 +1,5 @@
+-- How many times generating the thumbnail of a file has failed, and when it
+-- last did; so that it is tried again later, but not on every page that shows
+-- the file (see previewimageavailable):
+ALTER TABLE dvobject ADD COLUMN IF NOT EXISTS previewimagefailcount INTEGER NOT NULL DEFAULT 0;
+ALTER TABLE dvobject ADD COLUMN IF NOT EXISTS previewimagefailtime TIMESTAMP;
@@ -0,0 +1,5 @@
+-- The OAI ListIdentifiers and ListRecords pages are retrieved in the order 
+-- of the global ids of the records in the set, starting after the last id 
+-- on the previous page; this index allows the database to go straight to 
+-- the start of the page:
+CREATE INDEX IF NOT EXISTS index_oairecord_setname_globalid ON oairecord (setname, globalid);
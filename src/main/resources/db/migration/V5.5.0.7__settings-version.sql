@@ -0,0 +1,20 @@
+-- The settings are cached in memory by each application server; the version
+-- below is incremented whenever the setting table is modified, so that the
+-- servers can cheaply check whether their cached copy is still current:
+CREATE TABLE IF NOT EXISTS settingsversion (
+    id INTEGER PRIMARY KEY,
+    version BIGINT NOT NULL
+);
+INSERT INTO settingsversion (id, version) VALUES (1, 0) ON CONFLICT DO NOTHING;
+
+CREATE OR REPLACE FUNCTION incrementsettingsversion() RETURNS trigger AS $$
+BEGIN
+    UPDATE settingsversion SET version = version + 1 WHERE id = 1;
+    RETURN NULL;
+END;
+$$ LANGUAGE plpgsql;
+
+DROP TRIGGER IF EXISTS setting_version_trigger ON setting;
+CREATE TRIGGER setting_version_trigger
+    AFTER INSERT OR UPDATE OR DELETE OR TRUNCATE ON setting
+    FOR EACH STATEMENT EXECUTE PROCEDURE incrementsettingsversion();
@@ -0,0 +1,14 @@
+-- Progress of the partitions of a parallel reindex (one row per partition),
+-- so that a reindex that was interrupted can resume where it stopped:
+CREATE TABLE IF NOT EXISTS indexcheckpoint (
+    partitionid BIGINT PRIMARY KEY,
+    numpartitions BIGINT NOT NULL,
+    datasetcount BIGINT NOT NULL,
+    lastdatasetid BIGINT,
+    indexedcount BIGINT NOT NULL DEFAULT 0,
+    failedcount BIGINT NOT NULL DEFAULT 0,
+    processedatstart BIGINT NOT NULL DEFAULT 0,
+    starttime TIMESTAMP NOT NULL,
+    updatetime TIMESTAMP NOT NULL,
+    finishtime TIMESTAMP
+);
@@ -0,0 +1,4 @@
+-- When the physical file was last found to match its checksum, so that files
+-- validated recently can be skipped when a dataset is published again
+-- (see :FileValidationOnPublishMaxAge):
+ALTER TABLE datafile ADD COLUMN IF NOT EXISTS checksumvalidationtime TIMESTAMP;
@@ -6,6 +6,7 @@ import java.io.StringReader;
 import java.sql.Timestamp;
 import java.text.ParseException;
 import java.text.SimpleDateFormat;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.Date;
@@ -95,6 +96,53 @@ public class DatasetVersionTest {
         assertFalse(nonDraft.isInReview());
     }
 
+    @Test
+    public void testContainsDataFileId() {
+        DatasetVersion dsv = new DatasetVersion();
+        dsv.setVersionState(DatasetVersion.VersionState.DRAFT);
+        DataFile inVersion = MocksFactory.makeDataFile();
+        DataFile notInVersion = MocksFactory.makeDataFile();
+        FileMetadata fmd = new FileMetadata();
+        fmd.setDataFile(inVersion);
+        dsv.getFileMetadatas().add(fmd);
+
+        assertTrue(dsv.containsDataFileId(inVersion.getId()));
+        assertFalse(dsv.containsDataFileId(notInVersion.getId()));
+
+        // files added after the first check are found too
+        FileMetadata addedFmd = new FileMetadata();
+        addedFmd.setDataFile(notInVersion);
+        dsv.getFileMetadatas().add(addedFmd);
+        assertTrue(dsv.containsDataFileId(notInVersion.getId()));
+
+        // a file replaced in a draft (the number of files staying the same)
+        DataFile replacement = MocksFactory.makeDataFile();
+        FileMetadata replacementFmd = new FileMetadata();
+        replacementFmd.setDataFile(replacement);
+        dsv.getFileMetadatas().set(0, replacementFmd);
+        assertFalse(dsv.containsDataFileId(inVersion.getId()));
+        assertTrue(dsv.containsDataFileId(replacement.getId()));
+
+        dsv.setFileMetadatas(new ArrayList<>());
+        assertFalse(dsv.containsDataFileId(inVersion.getId()));
+    }
+
+    @Test
+    public void testContainsDataFileIdOfReleasedVersion() {
+        DatasetVersion dsv = new DatasetVersion();
+        dsv.setVersionState(DatasetVersion.VersionState.RELEASED);
+        DataFile inVersion = MocksFactory.makeDataFile();
+        FileMetadata fmd = new FileMetadata();
+        fmd.setDataFile(inVersion);
+        dsv.getFileMetadatas().add(fmd);
+
+        assertTrue(dsv.containsDataFileId(inVersion.getId()));
+        assertFalse(dsv.containsDataFileId(MocksFactory.makeDataFile().getId()));
+
+        dsv.setFileMetadatas(new ArrayList<>());
+        assertFalse(dsv.containsDataFileId(inVersion.getId()));
+    }
+
     /**
      * See also SchemaDotOrgExporterTest.java for more extensive tests.
      */
@@ -0,0 +1,68 @@
+package edu.harvard.iq.dataverse;
+
+import edu.harvard.iq.dataverse.authorization.Permission;
+import java.util.EnumSet;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PermissionCacheServiceBeanTest {
+
+    @Test
+    public void testGetComputesOnce() {
+        PermissionCacheServiceBean sut = new PermissionCacheServiceBean();
+        AtomicInteger computations = new AtomicInteger();
+
+        for (int i = 0; i < 3; i++) {
+            Set<Permission> permissions = sut.get("assignee @jdoe 1", () -> {
+                computations.incrementAndGet();
+                return EnumSet.of(Permission.ViewUnpublishedDataset);
+            });
+            assertEquals(EnumSet.of(Permission.ViewUnpublishedDataset), permissions);
+            // the callers get a copy, which they may modify
+            permissions.add(Permission.EditDataset);
+        }
+
+        assertEquals(1, computations.get());
+        assertEquals(1, sut.getMisses());
+        assertEquals(2, sut.getHits());
+    }
+
+    @Test
+    public void testEmptyPermissionsAreCached() {
+        PermissionCacheServiceBean sut = new PermissionCacheServiceBean();
+
+        assertTrue(sut.get("assignee :guest 1", () -> EnumSet.noneOf(Permission.class)).isEmpty());
+        assertTrue(sut.get("assignee :guest 1", () -> EnumSet.allOf(Permission.class)).isEmpty());
+        assertEquals(1, sut.getHits());
+    }
+
+    @Test
+    public void testTotalsAddUpAllRequests() {
+        long hitsBefore = PermissionCacheServiceBean.getTotalHits();
+        long missesBefore = PermissionCacheServiceBean.getTotalMisses();
+
+        PermissionCacheServiceBean first = new PermissionCacheServiceBean();
+        first.get("assignee @jdoe 1", () -> EnumSet.noneOf(Permission.class));
+        first.get("assignee @jdoe 1", () -> EnumSet.noneOf(Permission.class));
+        PermissionCacheServiceBean second = new PermissionCacheServiceBean();
+        second.get("assignee @jdoe 1", () -> EnumSet.noneOf(Permission.class));
+
+        assertEquals(1, PermissionCacheServiceBean.getTotalHits() - hitsBefore);
+        assertEquals(2, PermissionCacheServiceBean.getTotalMisses() - missesBefore);
+    }
+
+    @Test
+    public void testInvalidate() {
+        PermissionCacheServiceBean sut = new PermissionCacheServiceBean();
+
+        sut.get("assignee @jdoe 1", () -> EnumSet.noneOf(Permission.class));
+        sut.invalidate();
+        Set<Permission> permissions = sut.get("assignee @jdoe 1", () -> EnumSet.of(Permission.AddDataset));
+
+        assertEquals(EnumSet.of(Permission.AddDataset), permissions);
+        assertEquals(2, sut.getMisses());
+        assertEquals(0, sut.getHits());
+    }
+}
@@ -0,0 +1,121 @@
+package edu.harvard.iq.dataverse;
+
+import java.sql.Timestamp;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import javax.transaction.Status;
+import javax.transaction.Synchronization;
+import javax.transaction.TransactionSynchronizationRegistry;
+import org.junit.Before;
+import org.junit.Test;
+import org.mockito.ArgumentCaptor;
+import static org.junit.Assert.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+public class ThumbnailGenerationServiceBeanTest {
+
+    private ThumbnailGenerationServiceBean service;
+
+    @Before
+    public void setUp() {
+        service = new ThumbnailGenerationServiceBean();
+        service.executor = mock(ExecutorService.class);
+    }
+
+    private static DataFile makeFile(long id, String contentType) {
+        DataFile dataFile = new DataFile(contentType);
+        dataFile.setId(id);
+        dataFile.setStorageIdentifier("file://" + id);
+        return dataFile;
+    }
+
+    private static DataFile makeFailedFile(long id, int failures, long failedMillisAgo) {
+        DataFile dataFile = makeFile(id, "image/png");
+        dataFile.setPreviewImageFailCount(failures);
+        dataFile.setPreviewImageFailTime(new Timestamp(System.currentTimeMillis() - failedMillisAgo));
+        return dataFile;
+    }
+
+    @Test
+    public void testEachFileIsQueuedOnce() {
+        DataFile dataFile = makeFile(1, "image/png");
+        service.queue(dataFile);
+        service.queue(dataFile);
+        service.queue(makeFile(2, "application/pdf"));
+        verify(service.executor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testFilesNotNeedingThumbnailsAreNotQueued() {
+        DataFile available = makeFile(1, "image/png");
+        available.setPreviewImageAvailable(true);
+        service.queue(available);
+
+        service.queue(makeFailedFile(2, 1, 0));
+        service.queue(makeFailedFile(3, ThumbnailGenerationServiceBean.MAX_ATTEMPTS, 30 * ThumbnailGenerationServiceBean.RETRY_DELAY_MILLIS));
+
+        service.queue(makeFile(4, "text/plain"));
+        service.queue(makeFile(5, "image/fits"));
+        service.queue(new DataFile("image/png"));
+
+        verify(service.executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testFailedFilesAreTriedAgainLater() {
+        long delay = ThumbnailGenerationServiceBean.RETRY_DELAY_MILLIS;
+        long now = System.currentTimeMillis();
+
+        assertTrue(ThumbnailGenerationServiceBean.isAttemptDue(makeFile(1, "image/png"), now));
+        assertFalse(ThumbnailGenerationServiceBean.isAttemptDue(makeFailedFile(2, 1, delay / 2), now));
+        assertTrue(ThumbnailGenerationServiceBean.isAttemptDue(makeFailedFile(3, 1, delay + 60000), now));
+        // the wait doubles with each failure:
+        assertFalse(ThumbnailGenerationServiceBean.isAttemptDue(makeFailedFile(4, 3, 3 * delay), now));
+        assertTrue(ThumbnailGenerationServiceBean.isAttemptDue(makeFailedFile(5, 3, 4 * delay + 60000), now));
+        // and the file is given up on after MAX_ATTEMPTS:
+        assertFalse(ThumbnailGenerationServiceBean.isAttemptDue(makeFailedFile(6, ThumbnailGenerationServiceBean.MAX_ATTEMPTS, 100 * delay), now));
+    }
+
+    @Test
+    public void testFilesAreQueuedOnCommit() {
+        service.transactionSynchronizationRegistry = mock(TransactionSynchronizationRegistry.class);
+        when(service.transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+
+        service.queueOnCommit(List.of(makeFile(1, "image/png"), makeFile(2, "image/png")));
+        verify(service.transactionSynchronizationRegistry).registerInterposedSynchronization(synchronization.capture());
+        verify(service.executor, never()).execute(any(Runnable.class));
+
+        synchronization.getValue().afterCompletion(Status.STATUS_COMMITTED);
+        verify(service.executor, times(2)).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testFilesAreNotQueuedOnRollback() {
+        service.transactionSynchronizationRegistry = mock(TransactionSynchronizationRegistry.class);
+        when(service.transactionSynchronizationRegistry.getTransactionKey()).thenReturn(new Object());
+        ArgumentCaptor<Synchronization> synchronization = ArgumentCaptor.forClass(Synchronization.class);
+
+        service.queueOnCommit(List.of(makeFile(1, "image/png")));
+        verify(service.transactionSynchronizationRegistry).registerInterposedSynchronization(synchronization.capture());
+
+        synchronization.getValue().afterCompletion(Status.STATUS_ROLLEDBACK);
+        verify(service.executor, never()).execute(any(Runnable.class));
+    }
+
+    @Test
+    public void testIsThumbnailAvailableDoesNotWait() {
+        DataFileServiceBean fileService = new DataFileServiceBean();
+        fileService.thumbnailGenerationService = service;
+
+        DataFile available = makeFile(1, "image/png");
+        available.setPreviewImageAvailable(true);
+        assertTrue(fileService.isThumbnailAvailable(available));
+
+        assertFalse(fileService.isThumbnailAvailable(makeFailedFile(2, 1, 0)));
+
+        assertFalse(fileService.isThumbnailAvailable(makeFile(3, "image/png")));
+        verify(service.executor, times(1)).execute(any(Runnable.class));
+    }
+}
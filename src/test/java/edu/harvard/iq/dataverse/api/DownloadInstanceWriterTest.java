@@ -0,0 +1,46 @@
+package edu.harvard.iq.dataverse.api;
+
+import java.util.List;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DownloadInstanceWriterTest {
+
+    @Test
+    public void testParseSingleRanges() {
+        List<long[]> ranges = DownloadInstanceWriter.parseRanges("bytes=0-499", 1000);
+        assertEquals(1, ranges.size());
+        assertArrayEquals(new long[]{0, 500}, ranges.get(0));
+
+        // open-ended, as sent to resume a download:
+        assertArrayEquals(new long[]{600, 400}, DownloadInstanceWriter.parseRanges("bytes=600-", 1000).get(0));
+        // the last bytes:
+        assertArrayEquals(new long[]{800, 200}, DownloadInstanceWriter.parseRanges("bytes=-200", 1000).get(0));
+        assertArrayEquals(new long[]{0, 1000}, DownloadInstanceWriter.parseRanges("bytes=-2000", 1000).get(0));
+        // past the end:
+        assertArrayEquals(new long[]{900, 100}, DownloadInstanceWriter.parseRanges("bytes=900-5000", 1000).get(0));
+    }
+
+    @Test
+    public void testParseMultipleRanges() {
+        List<long[]> ranges = DownloadInstanceWriter.parseRanges("bytes=0-9, 100-199,2000-3000", 1000);
+        assertEquals(2, ranges.size());
+        assertArrayEquals(new long[]{0, 10}, ranges.get(0));
+        assertArrayEquals(new long[]{100, 100}, ranges.get(1));
+    }
+
+    @Test
+    public void testParseUnsatisfiableRanges() {
+        assertTrue(DownloadInstanceWriter.parseRanges("bytes=1000-", 1000).isEmpty());
+        assertTrue(DownloadInstanceWriter.parseRanges("bytes=-0", 1000).isEmpty());
+    }
+
+    @Test
+    public void testParseInvalidRanges() {
+        assertNull(DownloadInstanceWriter.parseRanges("items=0-10", 1000));
+        assertNull(DownloadInstanceWriter.parseRanges("bytes=10-5", 1000));
+        assertNull(DownloadInstanceWriter.parseRanges("bytes=abc", 1000));
+        assertNull(DownloadInstanceWriter.parseRanges("bytes=1-x", 1000));
+        assertNull(DownloadInstanceWriter.parseRanges("bytes=" + "0-1,".repeat(DownloadInstanceWriter.MAX_RANGES + 1), 1000));
+    }
+}
@@ -0,0 +1,73 @@
+package edu.harvard.iq.dataverse.authorization;
+
+import edu.harvard.iq.dataverse.authorization.users.ApiToken;
+import edu.harvard.iq.dataverse.authorization.users.AuthenticatedUser;
+import edu.harvard.iq.dataverse.mocks.MocksFactory;
+import java.sql.Timestamp;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ApiTokenCacheServiceBeanTest {
+
+    private static ApiToken makeToken(AuthenticatedUser user, String tokenString, long expireTime) {
+        ApiToken token = new ApiToken();
+        token.setTokenString(tokenString);
+        token.setAuthenticatedUser(user);
+        token.setExpireTime(new Timestamp(expireTime));
+        return token;
+    }
+
+    @Test
+    public void testLookupAndEvict() {
+        ApiTokenCacheServiceBean cache = new ApiTokenCacheServiceBean();
+        AuthenticatedUser user = MocksFactory.makeAuthenticatedUser("Jane", "Doe");
+        AuthenticatedUser otherUser = MocksFactory.makeAuthenticatedUser("John", "Doe");
+        long nextYear = System.currentTimeMillis() + 365L * 24 * 60 * 60 * 1000;
+
+        assertNull(cache.lookupUserId("token1"));
+        assertNull(cache.lookupUserId(null));
+
+        cache.put(makeToken(user, "token1", nextYear));
+        cache.put(makeToken(user, "token2", nextYear));
+        cache.put(makeToken(otherUser, "token3", nextYear));
+        assertEquals(user.getId(), cache.lookupUserId("token1"));
+        assertEquals(otherUser.getId(), cache.lookupUserId("token3"));
+
+        cache.evict("token1");
+        assertNull(cache.lookupUserId("token1"));
+        assertEquals(user.getId(), cache.lookupUserId("token2"));
+
+        cache.evictUser(user.getId());
+        assertNull(cache.lookupUserId("token2"));
+        assertEquals(otherUser.getId(), cache.lookupUserId("token3"));
+    }
+
+    @Test
+    public void testExpiredTokenNotServed() {
+        ApiTokenCacheServiceBean cache = new ApiTokenCacheServiceBean();
+        AuthenticatedUser user = MocksFactory.makeAuthenticatedUser("Jane", "Doe");
+
+        cache.put(makeToken(user, "expired", System.currentTimeMillis() - 1000));
+        assertNull(cache.lookupUserId("expired"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        ApiTokenCacheServiceBean cache = new ApiTokenCacheServiceBean();
+        AuthenticatedUser user = MocksFactory.makeAuthenticatedUser("Jane", "Doe");
+        long nextYear = System.currentTimeMillis() + 365L * 24 * 60 * 60 * 1000;
+
+        for (int i = 0; i <= ApiTokenCacheServiceBean.MAX_ENTRIES; i++) {
+            cache.put(makeToken(user, "token" + i, nextYear));
+            if (i == 0) {
+                continue;
+            }
+            // keep the first token recently used:
+            cache.lookupUserId("token0");
+        }
+        assertEquals(ApiTokenCacheServiceBean.MAX_ENTRIES, cache.size());
+        assertEquals(user.getId(), cache.lookupUserId("token0"));
+        assertNull(cache.lookupUserId("token1"));
+    }
+}
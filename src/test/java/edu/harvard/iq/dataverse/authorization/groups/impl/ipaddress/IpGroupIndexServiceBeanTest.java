@@ -0,0 +1,124 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IpAddress;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+import static org.mockito.Mockito.*;
+
+public class IpGroupIndexServiceBeanTest {
+
+    private static final int CALLERS = 8;
+
+    private IpGroupIndexServiceBean service;
+    private ExecutorService callers;
+    private final AtomicInteger builds = new AtomicInteger();
+    private volatile CountDownLatch buildGate;
+
+    @Before
+    @SuppressWarnings("unchecked")
+    public void setUp() {
+        service = new IpGroupIndexServiceBean();
+        service.em = mock(EntityManager.class);
+        TypedQuery<IpGroup> query = mock(TypedQuery.class);
+        when(service.em.createNamedQuery("IpGroup.findAll", IpGroup.class)).thenReturn(query);
+        when(query.getResultList()).thenAnswer(invocation -> {
+            builds.incrementAndGet();
+            CountDownLatch gate = buildGate;
+            if (gate != null) {
+                gate.await(10, TimeUnit.SECONDS);
+            }
+            return new ArrayList<IpGroup>();
+        });
+        callers = Executors.newFixedThreadPool(CALLERS);
+    }
+
+    @After
+    public void tearDown() {
+        callers.shutdownNow();
+    }
+
+    @Test
+    public void testCallersWaitForASingleRebuildAfterInvalidation() throws Exception {
+        buildGate = new CountDownLatch(1);
+        List<Future<?>> lookups = lookUpConcurrently();
+
+        // all the callers are blocked; one in the build, the others on it
+        Thread.sleep(200);
+        assertEquals(1, builds.get());
+        lookups.forEach(lookup -> assertFalse(lookup.isDone()));
+
+        buildGate.countDown();
+        for (Future<?> lookup : lookups) {
+            lookup.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(1, builds.get());
+    }
+
+    @Test
+    public void testCallersUseTheExpiredIndexWhileItIsRebuilt() throws Exception {
+        service.ttlMillis = 0;
+        lookUp();
+        assertEquals(1, builds.get());
+        Thread.sleep(5);
+
+        buildGate = new CountDownLatch(1);
+        List<Future<?>> lookups = lookUpConcurrently();
+        // all but the caller rebuilding it return right away
+        long done = 0;
+        for (int attempt = 0; attempt < 100 && done < CALLERS - 1; attempt++) {
+            Thread.sleep(20);
+            done = lookups.stream().filter(Future::isDone).count();
+        }
+        assertEquals(CALLERS - 1, done);
+        assertEquals(2, builds.get());
+
+        buildGate.countDown();
+        for (Future<?> lookup : lookups) {
+            lookup.get(10, TimeUnit.SECONDS);
+        }
+        assertEquals(2, builds.get());
+    }
+
+    @Test
+    public void testInvalidationDuringABuildIsNotLost() throws Exception {
+        buildGate = new CountDownLatch(1);
+        Future<?> first = callers.submit(this::lookUp);
+        while (builds.get() == 0) {
+            Thread.sleep(5);
+        }
+        service.invalidate();
+        buildGate.countDown();
+        first.get(10, TimeUnit.SECONDS);
+
+        // the index built from the old data was not kept
+        buildGate = null;
+        lookUp();
+        assertEquals(2, builds.get());
+        lookUp();
+        assertEquals(2, builds.get());
+    }
+
+    private List<Future<?>> lookUpConcurrently() {
+        List<Future<?>> lookups = new ArrayList<>();
+        for (int i = 0; i < CALLERS; i++) {
+            lookups.add(callers.submit(this::lookUp));
+        }
+        return lookups;
+    }
+
+    private void lookUp() {
+        assertTrue(service.findGroupIdsContaining(IpAddress.valueOf("10.0.0.1")).isEmpty());
+    }
+}
@@ -0,0 +1,60 @@
+package edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress;
+
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv4Address;
+import edu.harvard.iq.dataverse.authorization.groups.impl.ipaddress.ip.IPv6Address;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashSet;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IpRangeIndexTest {
+
+    private static IPv4Address v4(String s) {
+        return IPv4Address.valueOf(s);
+    }
+
+    @Test
+    public void testFindGroupIdsContainingIPv4() {
+        IpRangeIndex<IPv4Address> sut = new IpRangeIndex.Builder<IPv4Address>()
+                .add(v4("10.0.0.0"), v4("10.0.0.255"), 1L)
+                .add(v4("10.0.0.128"), v4("10.0.1.10"), 2L)
+                .add(v4("192.168.1.7"), v4("192.168.1.7"), 3L)
+                // overlapping ranges of the same group
+                .add(v4("10.0.0.0"), v4("10.0.0.10"), 1L)
+                .build();
+
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("0.0.0.0")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("9.255.255.255")));
+        assertEquals(Collections.singleton(1L), sut.findGroupIdsContaining(v4("10.0.0.0")));
+        assertEquals(Collections.singleton(1L), sut.findGroupIdsContaining(v4("10.0.0.11")));
+        assertEquals(Collections.singleton(1L), sut.findGroupIdsContaining(v4("10.0.0.127")));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), sut.findGroupIdsContaining(v4("10.0.0.128")));
+        assertEquals(new HashSet<>(Arrays.asList(1L, 2L)), sut.findGroupIdsContaining(v4("10.0.0.255")));
+        assertEquals(Collections.singleton(2L), sut.findGroupIdsContaining(v4("10.0.1.0")));
+        assertEquals(Collections.singleton(2L), sut.findGroupIdsContaining(v4("10.0.1.10")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("10.0.1.11")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("192.168.1.6")));
+        assertEquals(Collections.singleton(3L), sut.findGroupIdsContaining(v4("192.168.1.7")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("192.168.1.8")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("255.255.255.255")));
+    }
+
+    @Test
+    public void testFindGroupIdsContainingIPv6() {
+        IpRangeIndex<IPv6Address> sut = new IpRangeIndex.Builder<IPv6Address>()
+                .add(IPv6Address.valueOf("fe80::"), IPv6Address.valueOf("fe80::ffff"), 4L)
+                .build();
+
+        assertEquals(Collections.singleton(4L), sut.findGroupIdsContaining(IPv6Address.valueOf("fe80::1")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(IPv6Address.valueOf("fe80::1:0")));
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(IPv6Address.valueOf("::1")));
+    }
+
+    @Test
+    public void testEmptyIndex() {
+        IpRangeIndex<IPv4Address> sut = new IpRangeIndex.Builder<IPv4Address>().build();
+        assertEquals(0, sut.size());
+        assertEquals(Collections.emptySet(), sut.findGroupIdsContaining(v4("127.0.0.1")));
+    }
+}
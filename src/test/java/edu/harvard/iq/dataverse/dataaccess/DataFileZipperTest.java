@@ -0,0 +1,278 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import edu.harvard.iq.dataverse.DataFile;
+import edu.harvard.iq.dataverse.Dataset;
+import edu.harvard.iq.dataverse.mocks.MocksFactory;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.AbstractExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.apache.commons.io.FileUtils;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class DataFileZipperTest {
+
+    private static final String DRIVER_ID = "zippertest";
+
+    private Path filesDirectory;
+    private Dataset dataset;
+    private ManualExecutor executor;
+    private ByteArrayOutputStream zipped;
+    private DataFileZipper zipper;
+    private final Map<String, ZipEntry> entries = new HashMap<>();
+    private final Map<String, byte[]> contents = new HashMap<>();
+
+    /**
+     * Runs the tasks submitted to it only when asked to; so that the tests
+     * decide when the files are prefetched.
+     */
+    private static class ManualExecutor extends AbstractExecutorService {
+
+        private final List<Runnable> tasks = new ArrayList<>();
+
+        @Override
+        public void execute(Runnable task) {
+            tasks.add(task);
+        }
+
+        void runAll() {
+            List<Runnable> submitted = new ArrayList<>(tasks);
+            tasks.clear();
+            submitted.forEach(Runnable::run);
+        }
+
+        @Override
+        public void shutdown() {
+        }
+
+        @Override
+        public List<Runnable> shutdownNow() {
+            return new ArrayList<>();
+        }
+
+        @Override
+        public boolean isShutdown() {
+            return false;
+        }
+
+        @Override
+        public boolean isTerminated() {
+            return false;
+        }
+
+        @Override
+        public boolean awaitTermination(long timeout, TimeUnit unit) {
+            return true;
+        }
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        filesDirectory = Files.createTempDirectory("zippertest");
+        System.setProperty("dataverse.files." + DRIVER_ID + ".type", "file");
+        System.setProperty("dataverse.files." + DRIVER_ID + ".directory", filesDirectory.toString());
+        dataset = MocksFactory.makeDataset();
+        dataset.setAuthority("tmp");
+        dataset.setIdentifier("dataset");
+        executor = new ManualExecutor();
+        zipped = new ByteArrayOutputStream();
+        zipper = new DataFileZipper(zipped);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        System.clearProperty("dataverse.files." + DRIVER_ID + ".type");
+        System.clearProperty("dataverse.files." + DRIVER_ID + ".directory");
+        FileUtils.deleteDirectory(filesDirectory.toFile());
+    }
+
+    @Test
+    public void testIsCompressedContentType() {
+        assertTrue(DataFileZipper.isCompressedContentType("application/zip"));
+        assertTrue(DataFileZipper.isCompressedContentType("image/JPEG"));
+        assertTrue(DataFileZipper.isCompressedContentType("video/mp4"));
+        assertTrue(DataFileZipper.isCompressedContentType("application/gzip; charset=binary"));
+
+        assertFalse(DataFileZipper.isCompressedContentType("text/tab-separated-values"));
+        assertFalse(DataFileZipper.isCompressedContentType("application/octet-stream"));
+        assertFalse(DataFileZipper.isCompressedContentType("audio/x-wav"));
+        assertFalse(DataFileZipper.isCompressedContentType(null));
+    }
+
+    @Test
+    public void testFilesArePrefetchedInOrder() throws IOException {
+        DataFile a = makeFile("a.txt", "text/plain", text("first file"));
+        DataFile b = makeFile("b.txt", "text/plain", text("second file"));
+        DataFile c = makeFile("c.txt", "text/plain", text("third file"));
+        DataFile d = makeFile("d.txt", "text/plain", text("fourth file"));
+        Semaphore bufferPermits = new Semaphore(4);
+
+        zipper.prefetchFiles(List.of(a, b, c, d), false, executor, bufferPermits, 2);
+        assertEquals(List.of(a.getId(), b.getId()), zipper.getPrefetchedFileIds());
+        executor.runAll();
+        assertEquals(2, bufferPermits.availablePermits());
+
+        zipper.addFileToZipStream(a);
+        assertEquals(List.of(b.getId(), c.getId()), zipper.getPrefetchedFileIds());
+        executor.runAll();
+        zipper.addFileToZipStream(b);
+        assertEquals(List.of(c.getId(), d.getId()), zipper.getPrefetchedFileIds());
+        executor.runAll();
+        zipper.addFileToZipStream(c);
+        assertEquals(List.of(d.getId()), zipper.getPrefetchedFileIds());
+        zipper.addFileToZipStream(d);
+        assertTrue(zipper.getPrefetchedFileIds().isEmpty());
+        zipper.finalizeZipStream();
+
+        assertEquals(4, bufferPermits.availablePermits());
+        readZip();
+        assertArrayEquals(text("first file"), contents.get("a.txt"));
+        assertArrayEquals(text("second file"), contents.get("b.txt"));
+        assertArrayEquals(text("third file"), contents.get("c.txt"));
+        assertArrayEquals(text("fourth file"), contents.get("d.txt"));
+    }
+
+    @Test
+    public void testSkippedAndOutOfOrderFiles() throws IOException {
+        DataFile a = makeFile("a.txt", "text/plain", text("first file"));
+        DataFile b = makeFile("b.txt", "text/plain", text("second file"));
+        DataFile c = makeFile("c.txt", "text/plain", text("third file"));
+        DataFile d = makeFile("d.txt", "text/plain", text("fourth file"));
+        Semaphore bufferPermits = new Semaphore(4);
+
+        zipper.prefetchFiles(List.of(a, b, c, d), false, executor, bufferPermits, 2);
+        executor.runAll();
+
+        // a is skipped: it is discarded, and its buffer released
+        zipper.addFileToZipStream(b);
+        assertEquals(List.of(c.getId(), d.getId()), zipper.getPrefetchedFileIds());
+        assertEquals(4, bufferPermits.availablePermits());
+        executor.runAll();
+        assertEquals(2, bufferPermits.availablePermits());
+
+        // a comes after all: it is read when it is added
+        zipper.addFileToZipStream(a);
+        assertEquals(List.of(c.getId(), d.getId()), zipper.getPrefetchedFileIds());
+
+        // c is skipped
+        zipper.addFileToZipStream(d);
+        assertTrue(zipper.getPrefetchedFileIds().isEmpty());
+        zipper.finalizeZipStream();
+
+        assertEquals(4, bufferPermits.availablePermits());
+        readZip();
+        assertArrayEquals(text("first file"), contents.get("a.txt"));
+        assertArrayEquals(text("second file"), contents.get("b.txt"));
+        assertFalse(contents.containsKey("c.txt"));
+        assertArrayEquals(text("fourth file"), contents.get("d.txt"));
+    }
+
+    @Test
+    public void testFileNotPrefetchedYetIsReadWhenAdded() throws IOException {
+        DataFile a = makeFile("a.txt", "text/plain", text("first file"));
+        DataFile b = makeFile("b.txt", "text/plain", text("second file"));
+        Semaphore bufferPermits = new Semaphore(4);
+
+        zipper.prefetchFiles(List.of(a, b), false, executor, bufferPermits, 2);
+        // the executor hasn't got to a yet; it is not waited for
+        zipper.addFileToZipStream(a);
+        executor.runAll();
+        // only b has been read ahead
+        assertEquals(3, bufferPermits.availablePermits());
+        zipper.addFileToZipStream(b);
+        zipper.finalizeZipStream();
+
+        assertEquals(4, bufferPermits.availablePermits());
+        readZip();
+        assertArrayEquals(text("first file"), contents.get("a.txt"));
+        assertArrayEquals(text("second file"), contents.get("b.txt"));
+    }
+
+    @Test
+    public void testCompressedFileIsStored() throws IOException {
+        byte[] content = new byte[100000];
+        new Random(42).nextBytes(content);
+        DataFile archive = makeFile("data.zip", "application/zip", content);
+        DataFile notes = makeFile("notes.txt", "text/plain", text("some notes"));
+
+        zipper.prefetchFiles(List.of(archive, notes), false, executor, new Semaphore(2), 2);
+        executor.runAll();
+        zipper.addFileToZipStream(archive);
+        zipper.addFileToZipStream(notes);
+        zipper.finalizeZipStream();
+
+        readZip();
+        ZipEntry entry = entries.get("data.zip");
+        assertEquals(ZipEntry.STORED, entry.getMethod());
+        assertEquals(content.length, entry.getSize());
+        assertEquals(crc(content), entry.getCrc());
+        assertArrayEquals(content, contents.get("data.zip"));
+        assertEquals(ZipEntry.DEFLATED, entries.get("notes.txt").getMethod());
+        assertArrayEquals(text("some notes"), contents.get("notes.txt"));
+    }
+
+    @Test
+    public void testCompressedFileNotReadAheadIsNotStored() throws IOException {
+        byte[] content = new byte[100000];
+        new Random(42).nextBytes(content);
+        DataFile archive = makeFile("data.zip", "application/zip", content);
+
+        // no buffer left to read it ahead into: it is only opened
+        zipper.prefetchFiles(List.of(archive), false, executor, new Semaphore(0), 1);
+        executor.runAll();
+        zipper.addFileToZipStream(archive);
+        zipper.finalizeZipStream();
+
+        readZip();
+        assertEquals(ZipEntry.DEFLATED, entries.get("data.zip").getMethod());
+        assertArrayEquals(content, contents.get("data.zip"));
+    }
+
+    private DataFile makeFile(String name, String contentType, byte[] content) throws IOException {
+        DataFile dataFile = MocksFactory.makeDataFile();
+        dataFile.setOwner(dataset);
+        dataFile.setContentType(contentType);
+        dataFile.setStorageIdentifier(DRIVER_ID + "://" + name);
+        dataFile.getFileMetadata().setLabel(name);
+        Path path = filesDirectory.resolve("tmp").resolve("dataset").resolve(name);
+        Files.createDirectories(path.getParent());
+        Files.write(path, content);
+        return dataFile;
+    }
+
+    private void readZip() throws IOException {
+        try (ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(zipped.toByteArray()))) {
+            ZipEntry entry;
+            while ((entry = in.getNextEntry()) != null) {
+                contents.put(entry.getName(), in.readAllBytes());
+                entries.put(entry.getName(), entry);
+            }
+        }
+    }
+
+    private static byte[] text(String text) {
+        return text.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static long crc(byte[] content) {
+        CRC32 crc = new CRC32();
+        crc.update(content);
+        return crc.getValue();
+    }
+}
@@ -0,0 +1,88 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import org.apache.commons.io.IOUtils;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+import static org.junit.Assert.*;
+
+public class LocalDiskCacheTest {
+
+    @Rule
+    public TemporaryFolder tempFolder = new TemporaryFolder();
+
+    private LocalDiskCache cache;
+
+    @Before
+    public void setUp() throws IOException {
+        cache = new LocalDiskCache(tempFolder.getRoot().toPath().resolve("s3"), 10, 6);
+    }
+
+    private static InputStream content(String s) {
+        return new ByteArrayInputStream(s.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String read(InputStream in) throws IOException {
+        try (InputStream is = in) {
+            return IOUtils.toString(is, StandardCharsets.UTF_8);
+        }
+    }
+
+    @Test
+    public void testPutAndGet() throws IOException {
+        assertNull(cache.get("bucket/thumb", "e1", 4));
+        assertEquals("abcd", read(cache.put("bucket/thumb", "e1", 4, content("abcd"))));
+        assertEquals("e1", cache.getETag("bucket/thumb"));
+        assertEquals("abcd", read(cache.get("bucket/thumb", "e1", 4)));
+        assertEquals("abcd", read(cache.get("bucket/thumb", "e1", -1)));
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+        assertEquals(4, cache.getSize());
+    }
+
+    @Test
+    public void testChangedObjectIsDropped() throws IOException {
+        read(cache.put("bucket/thumb", "e1", 4, content("abcd")));
+        assertNull(cache.get("bucket/thumb", "e2", 4));
+        assertNull(cache.getETag("bucket/thumb"));
+        assertEquals(0, cache.getSize());
+
+        read(cache.put("bucket/thumb", "e2", 4, content("efgh")));
+        assertNull(cache.get("bucket/thumb", "e2", 5));
+        assertEquals(0, cache.getObjectCount());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        read(cache.put("a", "ea", 4, content("aaaa")));
+        read(cache.put("b", "eb", 4, content("bbbb")));
+        read(cache.get("a", "ea", 4));
+        read(cache.put("c", "ec", 4, content("cccc")));
+        assertEquals(1, cache.getEvictions());
+        assertEquals(8, cache.getSize());
+        assertNull(cache.getETag("b"));
+        assertEquals("aaaa", read(cache.get("a", "ea", 4)));
+        assertEquals("cccc", read(cache.get("c", "ec", 4)));
+    }
+
+    @Test
+    public void testLargeObjectIsNotCached() throws IOException {
+        InputStream in = content("abcdefg");
+        assertSame(in, cache.put("big", "e1", 7, in));
+        assertNull(cache.getETag("big"));
+        assertEquals(0, cache.getObjectCount());
+    }
+
+    @Test
+    public void testInvalidate() throws IOException {
+        read(cache.put("bucket/thumb", "e1", 4, content("abcd")));
+        cache.invalidate("bucket/thumb");
+        assertNull(cache.get("bucket/thumb", "e1", 4));
+        assertEquals(0, cache.getSize());
+    }
+}
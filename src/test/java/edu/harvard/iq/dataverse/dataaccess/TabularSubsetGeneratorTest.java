@@ -0,0 +1,162 @@
+package edu.harvard.iq.dataverse.dataaccess;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.BitSet;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.apache.commons.io.FileUtils;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class TabularSubsetGeneratorTest {
+
+    private static final String TAB_FILE =
+            "1\t1.5\t\"foo\"\t2.5\n"
+            + "2\tinf\t\"bar\\tbaz\"\tnan\n"
+            + "\t\t\t-inf\n";
+
+    private InputStream tabInputStream() {
+        return new ByteArrayInputStream(TAB_FILE.getBytes(StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testSubsetPrimitiveVectorsMatchesSingleColumnSubsets() throws IOException {
+        int[] columns = {0, 1, 2, 3, 3};
+        int[] columnTypes = {
+            TabularSubsetGenerator.COLUMN_TYPE_LONG,
+            TabularSubsetGenerator.COLUMN_TYPE_DOUBLE,
+            TabularSubsetGenerator.COLUMN_TYPE_STRING,
+            TabularSubsetGenerator.COLUMN_TYPE_FLOAT,
+            TabularSubsetGenerator.COLUMN_TYPE_DOUBLE
+        };
+        BitSet[] missingValues = {new BitSet(), new BitSet(), new BitSet(), new BitSet(), new BitSet()};
+
+        Object[] vectors = TabularSubsetGenerator.subsetPrimitiveVectors(tabInputStream(), columns, columnTypes, 3, missingValues);
+
+        assertEquals(5, vectors.length);
+        Long[] longs = TabularSubsetGenerator.subsetLongVector(tabInputStream(), 0, 3);
+        Double[] doubles = TabularSubsetGenerator.subsetDoubleVector(tabInputStream(), 1, 3);
+        Float[] floats = TabularSubsetGenerator.subsetFloatVector(tabInputStream(), 3, 3);
+        Double[] floatsAsDoubles = TabularSubsetGenerator.subsetDoubleVector(tabInputStream(), 3, 3);
+        for (int i = 0; i < 3; i++) {
+            assertEquals(longs[i] == null, missingValues[0].get(i));
+            if (longs[i] != null) {
+                assertEquals(longs[i].longValue(), ((long[]) vectors[0])[i]);
+            }
+            assertEquals(doubles[i] == null, missingValues[1].get(i));
+            if (doubles[i] != null) {
+                assertEquals(doubles[i], ((double[]) vectors[1])[i], 0.0);
+            }
+            assertEquals(floats[i] == null, missingValues[3].get(i));
+            if (floats[i] != null) {
+                assertEquals(floats[i], ((float[]) vectors[3])[i], 0.0f);
+            }
+            assertEquals(floatsAsDoubles[i] == null, missingValues[4].get(i));
+            if (floatsAsDoubles[i] != null) {
+                assertEquals(floatsAsDoubles[i], ((double[]) vectors[4])[i], 0.0);
+            }
+        }
+        assertArrayEquals(TabularSubsetGenerator.subsetStringVector(tabInputStream(), 2, 3), (String[]) vectors[2]);
+    }
+
+    @Test
+    public void testSubsetPrimitiveVectors() throws IOException {
+        int[] columns = {0, 1, 2, 3};
+        int[] columnTypes = {
+            TabularSubsetGenerator.COLUMN_TYPE_LONG,
+            TabularSubsetGenerator.COLUMN_TYPE_DOUBLE,
+            TabularSubsetGenerator.COLUMN_TYPE_STRING,
+            TabularSubsetGenerator.COLUMN_TYPE_FLOAT
+        };
+        BitSet[] missingValues = {new BitSet(), new BitSet(), new BitSet(), new BitSet()};
+
+        Object[] vectors = TabularSubsetGenerator.subsetPrimitiveVectors(tabInputStream(), columns, columnTypes, 3, missingValues);
+
+        assertArrayEquals(new long[]{1L, 2L, 0L}, (long[]) vectors[0]);
+        assertEquals(2, missingValues[0].nextSetBit(0));
+        assertEquals(1, missingValues[0].cardinality());
+
+        double[] doubles = (double[]) vectors[1];
+        assertEquals(1.5, doubles[0], 0.0);
+        assertEquals(Double.POSITIVE_INFINITY, doubles[1], 0.0);
+        assertTrue(missingValues[1].get(2));
+        assertEquals(1, missingValues[1].cardinality());
+
+        assertArrayEquals(new String[]{"foo", "bar\tbaz", null}, (String[]) vectors[2]);
+        assertTrue(missingValues[2].isEmpty());
+
+        // (an unparseable "nan" is a missing value, same as in the boxed vectors)
+        float[] floats = (float[]) vectors[3];
+        assertEquals(2.5f, floats[0], 0.0f);
+        assertTrue(Float.isNaN(floats[1]));
+        assertEquals(Float.NEGATIVE_INFINITY, floats[2], 0.0f);
+        assertTrue(missingValues[3].get(1));
+        assertEquals(1, missingValues[3].cardinality());
+    }
+
+    @Test(expected = IOException.class)
+    public void testSubsetPrimitiveVectorsTooFewRows() throws IOException {
+        TabularSubsetGenerator.subsetPrimitiveVectors(tabInputStream(), new int[]{0}, new int[]{TabularSubsetGenerator.COLUMN_TYPE_LONG}, 4, new BitSet[]{new BitSet()});
+    }
+
+    @Test
+    public void testRotatedImageIsNeverSeenPartiallyWritten() throws Exception {
+        int varcount = 50;
+        int casecount = 20000;
+        Path directory = Files.createTempDirectory("rotatedimage");
+        try {
+            StringBuilder tab = new StringBuilder();
+            for (int caseIndex = 0; caseIndex < casecount; caseIndex++) {
+                for (int varIndex = 0; varIndex < varcount; varIndex++) {
+                    tab.append(varIndex > 0 ? "\t" : "").append(caseIndex * varIndex);
+                }
+                tab.append("\n");
+            }
+            File tabfile = directory.resolve("data.tab").toFile();
+            Files.write(tabfile.toPath(), tab.toString().getBytes(StandardCharsets.UTF_8));
+            File rotatedImageFile = new File(tabfile.getAbsolutePath() + "." + TabularSubsetGenerator.ROTATED_IMAGE_EXTENSION);
+
+            TabularSubsetGenerator generator = new TabularSubsetGenerator();
+            ExecutorService executor = Executors.newSingleThreadExecutor();
+            try {
+                Future<File> generated = executor.submit(() -> generator.getRotatedImage(tabfile, varcount, casecount));
+                // a request that finds the image while it is being generated
+                // must find all of it:
+                while (!generated.isDone()) {
+                    if (rotatedImageFile.exists()) {
+                        assertCompleteRotatedImage(rotatedImageFile, varcount);
+                    }
+                }
+                assertEquals(rotatedImageFile.getAbsoluteFile(), generated.get().getAbsoluteFile());
+            } finally {
+                executor.shutdownNow();
+            }
+            assertCompleteRotatedImage(rotatedImageFile, varcount);
+            // and no temp file is left behind:
+            assertEquals(2, directory.toFile().list().length);
+        } finally {
+            FileUtils.deleteDirectory(directory.toFile());
+        }
+    }
+
+    private static void assertCompleteRotatedImage(File rotatedImageFile, int varcount) throws IOException {
+        try (FileChannel channel = FileChannel.open(rotatedImageFile.toPath(), StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(varcount * 8);
+            while (header.hasRemaining() && channel.read(header) > 0) {
+            }
+            assertFalse(header.hasRemaining());
+            // the end offset of the last column is the end of the image:
+            assertEquals(channel.size(), header.getLong((varcount - 1) * 8));
+        }
+    }
+}
@@ -0,0 +1,38 @@
+package edu.harvard.iq.dataverse.harvest.server.xoai;
+
+import com.lyncode.xoai.exceptions.InvalidResumptionTokenException;
+import com.lyncode.xoai.model.oaipmh.ResumptionToken;
+import com.lyncode.xoai.services.impl.SimpleResumptionTokenFormat;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class XresumptionTokenFormatTest {
+
+    private final XresumptionTokenFormat format = new XresumptionTokenFormat();
+
+    @Test
+    public void testLastKeyRoundTrip() throws InvalidResumptionTokenException {
+        ResumptionToken.Value current = new ResumptionToken.Value().withOffset(0).withSetSpec("trees").withMetadataPrefix("oai_dc");
+        ResumptionToken next = new XresumptionTokenHelper(current, 100).withLastKey("doi:10.5072/FK2/ABC").resolve(true);
+
+        ResumptionToken.Value parsed = format.parse(format.format(next.getValue()));
+
+        assertTrue(parsed instanceof XresumptionTokenValue);
+        assertEquals("doi:10.5072/FK2/ABC", ((XresumptionTokenValue) parsed).getLastKey());
+        assertEquals(Long.valueOf(100), parsed.getOffset());
+        assertEquals("trees", parsed.getSetSpec());
+        assertEquals("oai_dc", parsed.getMetadataPrefix());
+    }
+
+    @Test
+    public void testSimpleTokenStillAccepted() throws InvalidResumptionTokenException {
+        ResumptionToken.Value value = new ResumptionToken.Value().withOffset(200).withMetadataPrefix("oai_dc");
+
+        ResumptionToken.Value parsed = format.parse(new SimpleResumptionTokenFormat().format(value));
+
+        assertFalse(parsed instanceof XresumptionTokenValue);
+        assertEquals(Long.valueOf(200), parsed.getOffset());
+        assertEquals("oai_dc", parsed.getMetadataPrefix());
+    }
+
+}
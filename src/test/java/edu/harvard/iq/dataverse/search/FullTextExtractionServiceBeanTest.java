@@ -0,0 +1,33 @@
+package edu.harvard.iq.dataverse.search;
+
+import edu.harvard.iq.dataverse.DataFile;
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class FullTextExtractionServiceBeanTest {
+
+    @Test
+    public void testGetAuxItemTag() {
+        DataFile dataFile = new DataFile();
+        assertNull(FullTextExtractionServiceBean.getAuxItemTag(dataFile));
+
+        dataFile.setChecksumValue("7ed0097d7e9ee73cf0952a1f0a07c07e");
+        assertEquals("fulltext_7ed0097d7e9ee73cf0952a1f0a07c07e.txt.gz", FullTextExtractionServiceBean.getAuxItemTag(dataFile));
+    }
+
+    @Test
+    public void testCompressRoundTrip() throws Exception {
+        String text = "Full text, with some non-ASCII characters: \u00e9\u00e8\u00fc\u2603\n";
+        byte[] compressed = FullTextExtractionServiceBean.compress(text);
+        assertEquals(text, FullTextExtractionServiceBean.decompress(new ByteArrayInputStream(compressed)));
+    }
+
+    @Test
+    public void testExtractFullText() throws Exception {
+        String text = "Some plain text to index.";
+        String extracted = FullTextExtractionServiceBean.extractFullText(new ByteArrayInputStream(text.getBytes(StandardCharsets.UTF_8)));
+        assertEquals(text, extracted.trim());
+    }
+}
@@ -0,0 +1,34 @@
+package edu.harvard.iq.dataverse.search;
+
+import java.sql.Timestamp;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class IndexCheckpointTest {
+
+    @Test
+    public void testDatasetsPerSecond() {
+        IndexCheckpoint checkpoint = new IndexCheckpoint(0, 4, 1000, 42L, 95, 5, 0,
+                new Timestamp(10_000), new Timestamp(60_000), null);
+        assertEquals(100, checkpoint.getProcessedCount());
+        assertEquals(2.0, checkpoint.getDatasetsPerSecond(), 0.0001);
+        assertFalse(checkpoint.isFinished());
+    }
+
+    @Test
+    public void testDatasetsPerSecondAfterResume() {
+        // 60 of the datasets were processed before the partition was resumed
+        IndexCheckpoint checkpoint = new IndexCheckpoint(1, 4, 1000, 42L, 95, 5, 60,
+                new Timestamp(10_000), new Timestamp(30_000), new Timestamp(30_000));
+        assertEquals(2.0, checkpoint.getDatasetsPerSecond(), 0.0001);
+        assertTrue(checkpoint.isFinished());
+    }
+
+    @Test
+    public void testDatasetsPerSecondBeforeFirstCheckpoint() {
+        IndexCheckpoint checkpoint = new IndexCheckpoint(2, 4, 1000, null, 0, 0, 0,
+                new Timestamp(10_000), new Timestamp(10_000), null);
+        assertEquals(0.0, checkpoint.getDatasetsPerSecond(), 0.0);
+        assertNull(checkpoint.getLastDatasetId());
+    }
+}
@@ -0,0 +1,35 @@
+package edu.harvard.iq.dataverse.search;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class PermissionFilterCacheServiceBeanTest {
+
+    @Test
+    public void testGetPutAndInvalidate() {
+        PermissionFilterCacheServiceBean cache = new PermissionFilterCacheServiceBean();
+
+        assertNull(cache.get("@jdoe 127.0.0.1"));
+        cache.put("@jdoe 127.0.0.1", " OR group_builtIn/authenticated-users");
+        cache.put(":guest 10.0.0.1", "");
+        assertEquals(" OR group_builtIn/authenticated-users", cache.get("@jdoe 127.0.0.1"));
+        // (no groups at all is a valid, cached, answer)
+        assertEquals("", cache.get(":guest 10.0.0.1"));
+        assertNull(cache.get("@jdoe 10.0.0.1"));
+
+        cache.invalidateAll();
+        assertNull(cache.get("@jdoe 127.0.0.1"));
+        assertNull(cache.get(":guest 10.0.0.1"));
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testBounded() {
+        PermissionFilterCacheServiceBean cache = new PermissionFilterCacheServiceBean();
+        for (int i = 0; i <= PermissionFilterCacheServiceBean.MAX_ENTRIES; i++) {
+            cache.put(":guest 10.0." + (i / 256) + "." + (i % 256), "");
+        }
+        assertEquals(PermissionFilterCacheServiceBean.MAX_ENTRIES, cache.size());
+        assertNull(cache.get(":guest 10.0.0.0"));
+    }
+}
@@ -0,0 +1,80 @@
+package edu.harvard.iq.dataverse.settings;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.persistence.TypedQuery;
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class SettingsCacheServiceBeanTest {
+
+    @Mock
+    EntityManager em;
+    @Mock
+    Query versionQuery;
+    @Mock
+    TypedQuery<Setting> findAllQuery;
+
+    SettingsCacheServiceBean cache;
+
+    @BeforeEach
+    void setup() {
+        cache = new SettingsCacheServiceBean();
+        cache.em = em;
+        when(em.createNativeQuery(anyString())).thenReturn(versionQuery);
+        when(em.createNamedQuery("Setting.findAll", Setting.class)).thenReturn(findAllQuery);
+    }
+
+    @Test
+    void testGetServedFromMemory() {
+        // given
+        when(versionQuery.getSingleResult()).thenReturn(1L);
+        when(findAllQuery.getResultList()).thenReturn(Arrays.asList(
+                new Setting(":SystemEmail", "support@example.org"),
+                new Setting(":SystemEmail", "fr", "soutien@example.org")));
+
+        // when
+        String value = cache.get(":SystemEmail", null);
+        String frenchValue = cache.get(":SystemEmail", "fr");
+        String missing = cache.get(":NoSuchSetting", null);
+
+        // then
+        assertEquals("support@example.org", value);
+        assertEquals("soutien@example.org", frenchValue);
+        assertNull(missing);
+        assertEquals(2, cache.listAll().size());
+        verify(versionQuery, times(1)).getSingleResult();
+        verify(findAllQuery, times(1)).getResultList();
+        assertEquals(1, cache.getMisses());
+        assertEquals(3, cache.getHits());
+        assertEquals(0.75, cache.getHitRate(), 0.0);
+    }
+
+    @Test
+    void testReloadOnlyWhenVersionChanged() {
+        // given
+        when(versionQuery.getSingleResult()).thenReturn(1L, 1L, 2L);
+        when(findAllQuery.getResultList()).thenReturn(
+                Arrays.asList(new Setting(":SystemEmail", "old@example.org")),
+                Arrays.asList(new Setting(":SystemEmail", "new@example.org")));
+
+        // when, then
+        assertEquals("old@example.org", cache.get(":SystemEmail", null));
+        cache.invalidate();
+        assertEquals("old@example.org", cache.get(":SystemEmail", null));
+        assertEquals(1, cache.getReloads());
+        cache.invalidate();
+        assertEquals("new@example.org", cache.get(":SystemEmail", null));
+        assertEquals(2, cache.getReloads());
+        verify(versionQuery, times(3)).getSingleResult();
+    }
+}
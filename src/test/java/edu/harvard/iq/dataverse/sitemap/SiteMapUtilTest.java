@@ -118,4 +118,66 @@ public class SiteMapUtilTest {
 
     }
 
+    @Test
+    public void testUpdateSiteMapWithSitemapIndex() throws IOException {
+
+        Path tmpDirPath = Files.createTempDirectory(null);
+        String tmpDir = tmpDirPath.toString();
+        File docroot = new File(tmpDir + File.separator + "docroot");
+        docroot.mkdirs();
+        System.setProperty("com.sun.aas.instanceRoot", tmpDir);
+
+        // 5 URLs, at most 2 per sitemap file:
+        SiteMapUtil.updateSiteMap(writer -> {
+            for (int i = 1; i <= 5; i++) {
+                writer.addUrl(SiteMapUtil.getDataverseUrl("dv" + i), "1955-11-1" + i);
+            }
+        }, 2);
+
+        String pathToTest = tmpDirPath + File.separator + "docroot" + File.separator + "sitemap";
+        String sitemapIndexString = new String(Files.readAllBytes(Paths.get(pathToTest, "sitemap.xml")));
+        System.out.println("sitemap index: " + sitemapIndexString);
+
+        assertTrue(sitemapIndexString.contains("<sitemapindex"));
+        assertTrue(sitemapIndexString.contains("/sitemap/sitemap1.xml"));
+        assertTrue(sitemapIndexString.contains("/sitemap/sitemap3.xml"));
+        assertFalse(sitemapIndexString.contains("/sitemap/sitemap4.xml"));
+
+        String lastSitemapString = new String(Files.readAllBytes(Paths.get(pathToTest, "sitemap3.xml")));
+        assertTrue(lastSitemapString.contains("/dataverse/dv5"));
+        assertTrue(lastSitemapString.contains("1955-11-15"));
+        assertFalse(lastSitemapString.contains("/dataverse/dv4"));
+
+        assertFalse(Files.exists(Paths.get(pathToTest, "sitemap.xml.staged")));
+
+        System.clearProperty("com.sun.aas.instanceRoot");
+
+    }
+
+    @Test
+    public void testFailedUpdateLeavesNoStagedFile() throws IOException {
+
+        Path tmpDirPath = Files.createTempDirectory(null);
+        String tmpDir = tmpDirPath.toString();
+        File docroot = new File(tmpDir + File.separator + "docroot");
+        docroot.mkdirs();
+        System.setProperty("com.sun.aas.instanceRoot", tmpDir);
+
+        SiteMapUtil.updateSiteMap(writer -> {
+            writer.addUrl(SiteMapUtil.getDataverseUrl("dv1"), "1955-11-11");
+            throw new IllegalStateException("no modification time");
+        });
+
+        String pathToTest = tmpDirPath + File.separator + "docroot" + File.separator + "sitemap";
+        assertFalse(Files.exists(Paths.get(pathToTest, "sitemap.xml.staged")));
+        assertFalse(Files.exists(Paths.get(pathToTest, "sitemap.xml")));
+
+        // the next run isn't blocked:
+        SiteMapUtil.updateSiteMap(writer -> writer.addUrl(SiteMapUtil.getDataverseUrl("dv1"), "1955-11-11"));
+        assertTrue(Files.exists(Paths.get(pathToTest, "sitemap.xml")));
+
+        System.clearProperty("com.sun.aas.instanceRoot");
+
+    }
+
 }
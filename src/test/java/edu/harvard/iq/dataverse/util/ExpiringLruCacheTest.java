@@ -0,0 +1,57 @@
+package edu.harvard.iq.dataverse.util;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+public class ExpiringLruCacheTest {
+
+    @Test
+    public void testGetPutAndInvalidate() {
+        ExpiringLruCache<String, Long> cache = new ExpiringLruCache<>(10, 60 * 1000);
+
+        assertNull(cache.get("a"));
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        cache.put("c", 1L);
+        assertEquals(Long.valueOf(1L), cache.get("a"));
+        assertEquals(Long.valueOf(2L), cache.get("b"));
+
+        cache.invalidate("b");
+        assertNull(cache.get("b"));
+
+        cache.invalidateIf(value -> value == 1L);
+        assertEquals(0, cache.size());
+
+        cache.put("a", 1L);
+        // (no transaction: only invalidated right away)
+        cache.invalidateAll(null);
+        assertEquals(0, cache.size());
+    }
+
+    @Test
+    public void testExpired() {
+        ExpiringLruCache<String, Long> cache = new ExpiringLruCache<>(10, 60 * 1000);
+
+        cache.put("expired", 1L, System.currentTimeMillis() - 1000);
+        assertNull(cache.get("expired"));
+        assertEquals(0, cache.size());
+
+        ExpiringLruCache<String, Long> noTtl = new ExpiringLruCache<>(10, -1);
+        noTtl.put("a", 1L);
+        assertNull(noTtl.get("a"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsDropped() {
+        ExpiringLruCache<String, Long> cache = new ExpiringLruCache<>(2, 60 * 1000);
+
+        cache.put("a", 1L);
+        cache.put("b", 2L);
+        cache.get("a");
+        cache.put("c", 3L);
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertEquals(Long.valueOf(1L), cache.get("a"));
+        assertEquals(Long.valueOf(3L), cache.get("c"));
+    }
+}
@@ -11,12 +11,14 @@ import edu.harvard.iq.dataverse.util.FileUtil.FileCitationExtension;
 
 import java.io.File;
 import java.io.IOException;
+import java.sql.Timestamp;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.logging.Level;
 import java.util.logging.Logger;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
 import org.junit.Test;
@@ -297,5 +299,29 @@ public class FileUtilTest {
             filewBogusContentType.setStorageIdentifier("");
             assertFalse(FileUtil.isThumbnailSupported(filewBogusContentType));
         }
+
+        @Test
+        public void testIsChecksumValidationDue() {
+            long now = System.currentTimeMillis();
+            long day = 24 * 60 * 60 * 1000L;
+            DataFile dataFile = new DataFile("text/plain");
+            dataFile.setChecksumType(DataFile.ChecksumType.MD5);
+            dataFile.setChecksumValue("f622da34d54bdc8ee541d6916ac1c16f");
+
+            // never validated:
+            assertTrue(FileUtil.isChecksumValidationDue(dataFile, 30, now));
+
+            dataFile.setChecksumValidationTime(new Timestamp(now - 2 * day));
+            assertFalse(FileUtil.isChecksumValidationDue(dataFile, 30, now));
+            assertTrue(FileUtil.isChecksumValidationDue(dataFile, 1, now));
+            // no max age: always validated
+            assertTrue(FileUtil.isChecksumValidationDue(dataFile, -1, now));
+
+            // the validation doesn't hold once the checksum has changed:
+            dataFile.setChecksumValue("f622da34d54bdc8ee541d6916ac1c16f");
+            assertFalse(FileUtil.isChecksumValidationDue(dataFile, 30, now));
+            dataFile.setChecksumValue("3a484dfdb1b429c2e15eb2a735f1f5e4d5b04ec6");
+            assertTrue(FileUtil.isChecksumValidationDue(dataFile, 30, now));
+        }
     }
 }